@@ -72,13 +72,18 @@ public class GridPoint extends SimulationManagerAccessor {
      */
     private double lat, lon, depth;
     /**
-     * <code>true</code> if 3 dimensions point false otherwise
+     * <code>true</code> if 3 dimensions point false otherwise. Instance
+     * field (not static) since 2D and 3D points may coexist and particles may
+     * be stepped concurrently.
      */
-    private static boolean is3D;
+    private boolean is3D;
     private boolean latlonHaveChanged, depthHasChanged;
     private boolean xyHaveChanged, zHasChanged;
     private boolean exclusivityH, exclusivityV;
-    private static int nz;
+    /**
+     * Number of vertical levels of the dataset, used for bounding z.
+     */
+    private int nz;
 
 ///////////////
 // Constructors
@@ -328,6 +333,15 @@ public class GridPoint extends SimulationManagerAccessor {
                 : new double[]{x, y};
     }
 
+    public double[] getGridCoordinates(double[] pGrid) {
+        pGrid[0] = x;
+        pGrid[1] = y;
+        if (is3D) {
+            pGrid[2] = z;
+        }
+        return pGrid;
+    }
+
     public void setLon(double lon) {
         if (this.lon != lon) {
             this.lon = lon;
@@ -45,10 +45,25 @@
 package org.previmer.ichthyop;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import org.previmer.ichthyop.io.IOTools;
+import org.previmer.ichthyop.manager.SimulationContext;
+import org.previmer.ichthyop.manager.SimulationManager;
 
 /**
+ * Runs a configuration file without the graphical user interface. The sets
+ * of SERIAL parameters are run one after the other, unless the optional
+ * parameter {@code app.transport/nb_concurrent_runs} is greater than one. In
+ * that case the sets of parameters are run concurrently, up to the given
+ * number at a time, each one in its own {@link SimulationContext}. All the
+ * runs share the same base id, so that the output files are named as in the
+ * sequential mode.
  *
  * @author pverley
  */
@@ -81,37 +96,124 @@ public class IchthyopBatch extends SimulationManagerAccessor implements Runnable
             getLogger().info("===== Simulation started =====");
             getSimulationManager().resetId();
             getSimulationManager().resetTimerGlobal();
-            /* */
-            long startTime = System.currentTimeMillis();
-            do {
-                getLogger().log(Level.INFO, "++++ Run {0}", getSimulationManager().indexSimulationToString());
-                /* setup */
-                getLogger().info("Setting up...");
-                getSimulationManager().setup();
-                /* initialization */
-                getLogger().info("Initializing...");
-                getSimulationManager().init();
-                /* first time step */
-                getSimulationManager().getTimeManager().firstStepTriggered();
-                getSimulationManager().resetTimerCurrent();
-                do {
-                    /* check whether the simulation has been interrupted by user */
-                    if (getSimulationManager().isStopped()) {
-                        break;
-                    }
-                    /* step simulation */
-                    getSimulationManager().getSimulation().step();
-                    progress(getSimulationManager().getTimeManager().index());
-                } while (getSimulationManager().getTimeManager().hasNextStep());
-                long endTime = System.currentTimeMillis();
-                getLogger().log(Level.INFO, "Current run took {0} seconds.", ((endTime - startTime) / 1000L));
-            } while (getSimulationManager().hasNextSimulation());
+            int nbConcurrentRuns = getNbConcurrentRuns();
+            if (nbConcurrentRuns > 1 && getSimulationManager().getNumberOfSimulations() > 1) {
+                runConcurrently(file, nbConcurrentRuns);
+            } else {
+                runSequentially();
+            }
             getLogger().info("===== Simulation completed =====");
         } catch (Exception ex) {
             getLogger().log(Level.SEVERE, "An error occured while running the simulation", ex);
         }
     }
 
+    /**
+     * Gets the maximum number of sets of parameters run at the same time.
+     * The parameter is optional and defaults to one.
+     */
+    private int getNbConcurrentRuns() {
+        try {
+            return Integer.valueOf(getSimulationManager().getParameterManager().getParameter("app.transport", "nb_concurrent_runs"));
+        } catch (Exception ex) {
+            return 1;
+        }
+    }
+
+    /**
+     * Runs the sets of parameters one after the other.
+     */
+    private void runSequentially() throws Exception {
+
+        long startTime = System.currentTimeMillis();
+        do {
+            getLogger().log(Level.INFO, "++++ Run {0}", getSimulationManager().indexSimulationToString());
+            runSimulation(true);
+            long endTime = System.currentTimeMillis();
+            getLogger().log(Level.INFO, "Current run took {0} seconds.", ((endTime - startTime) / 1000L));
+        } while (getSimulationManager().hasNextSimulation());
+    }
+
+    /**
+     * Runs the sets of parameters concurrently. Every set of parameters is
+     * run in its own context, with its own managers, population and output
+     * file.
+     *
+     * @param file, the configuration file
+     * @param nbConcurrentRuns, the maximum number of runs at the same time
+     */
+    private void runConcurrently(File file, int nbConcurrentRuns) throws Exception {
+
+        final String id = SimulationManager.newId();
+        int nbSimulations = getSimulationManager().getNumberOfSimulations();
+        getLogger().log(Level.INFO, "Running {0} sets of parameters, {1} at a time", new Object[]{nbSimulations, Math.min(nbConcurrentRuns, nbSimulations)});
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(nbConcurrentRuns, nbSimulations));
+        List<Future<?>> runs = new ArrayList<>(nbSimulations);
+        for (int i = 0; i < nbSimulations; i++) {
+            final int index = i;
+            runs.add(executor.submit(() -> {
+                new SimulationContext().bind();
+                try {
+                    long startTime = System.currentTimeMillis();
+                    SimulationManager simulationManager = SimulationManager.getInstance();
+                    simulationManager.setConfigurationFile(file);
+                    simulationManager.setId(id);
+                    simulationManager.selectSimulation(index);
+                    simulationManager.resetTimerGlobal();
+                    getLogger().log(Level.INFO, "++++ Run {0} started", simulationManager.indexSimulationToString());
+                    runSimulation(false);
+                    long endTime = System.currentTimeMillis();
+                    getLogger().log(Level.INFO, "++++ Run {0} took {1} seconds.", new Object[]{simulationManager.indexSimulationToString(), (endTime - startTime) / 1000L});
+                } finally {
+                    SimulationContext.unbind();
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } catch (ExecutionException ex) {
+            executor.shutdownNow();
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs the current set of parameters of the simulation manager bound to
+     * the calling thread.
+     *
+     * @param verbose, whether the progress of every time step is logged
+     */
+    private void runSimulation(boolean verbose) throws Exception {
+
+        /* setup */
+        getLogger().info("Setting up...");
+        getSimulationManager().setup();
+        /* initialization */
+        getLogger().info("Initializing...");
+        getSimulationManager().init();
+        /* first time step */
+        getSimulationManager().getTimeManager().firstStepTriggered();
+        getSimulationManager().resetTimerCurrent();
+        do {
+            /* check whether the simulation has been interrupted by user */
+            if (getSimulationManager().isStopped()) {
+                break;
+            }
+            /* step simulation */
+            getSimulationManager().getSimulation().step();
+            if (verbose) {
+                progress(getSimulationManager().getTimeManager().index());
+            }
+        } while (getSimulationManager().getTimeManager().hasNextStep());
+    }
+
     /**
      * Logs the progress of the simulation.
      */
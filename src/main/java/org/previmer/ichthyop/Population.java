@@ -44,14 +44,27 @@
 
 package org.previmer.ichthyop;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import org.previmer.ichthyop.dataset.IDataset;
 import org.previmer.ichthyop.event.SetupEvent;
 import org.previmer.ichthyop.event.SetupListener;
+import org.previmer.ichthyop.manager.ActionManager;
+import org.previmer.ichthyop.manager.SimulationContext;
 import org.previmer.ichthyop.manager.SimulationManager;
+import org.previmer.ichthyop.particle.IMasterParticle;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleMortality;
+import org.previmer.ichthyop.particle.Particle;
+import org.previmer.ichthyop.particle.ParticleStore;
+import org.previmer.ichthyop.util.MortonCode;
 
 /**
  * The Population is the intermediate level of the hierarchy of the IBM:
@@ -75,10 +88,6 @@ public class Population extends ArrayList<IParticle> implements SetupListener {
     ///////////////////////////////
 // Declaration of the constants
 ///////////////////////////////
-    /**
-     * Use multi-thread environment for running a step.
-     */
-    private final boolean MULTITHREAD  = false;
     /**
      * The minimal number of particles for splitting the step in concurrent
      * pools of particles. Less than {@code THRESHOLD} particles, the simulation
@@ -87,10 +96,69 @@ public class Population extends ArrayList<IParticle> implements SetupListener {
      * (if any).
      */
     private final int THRESHOLD = 1000;
+    /**
+     * The number of particles handed at once to the actions that process
+     * the particles by blocks, such as the advection.
+     */
+    private final int BLOCK_SIZE = 2048;
 ///////////////////////////////
 // Declaration of the variables
 ///////////////////////////////
-    private final static Population population = new Population();
+    /**
+     * The pool of worker threads for stepping the particles. It is created at
+     * setup and reused for every step of the run. {@code null} means that the
+     * population is stepped sequentially.
+     */
+    private ForkJoinPool pool;
+    /**
+     * The columnar storage of the particles, {@code null} if the particles
+     * are stored as individual {@link Particle} objects.
+     */
+    private ParticleStore store;
+    /**
+     * The positions in the population of the particles that were living at
+     * the beginning of the current step, in release order or, when the
+     * reordering is enabled, along the Morton curve of their grid cell. Only
+     * these particles are visited by the step.
+     */
+    private int[] living = new int[0];
+    private int nLiving;
+    /**
+     * Number of steps between two reorderings of the living index, zero for
+     * keeping the release order.
+     */
+    private int reorderInterval;
+    private int nStep;
+    private MortonCode mortonCode;
+    private long[] sortKeys = new long[0];
+    /**
+     * The positions of the particles removed from the living index since
+     * the last record of the output, either dead or frozen.
+     */
+    private int[] dead = new int[0];
+    private int nDead;
+    /**
+     * Whether the locked particles are frozen, see {@link #freeze(int)}.
+     */
+    private boolean freezeLocked;
+    /**
+     * The positions of the frozen particles, some of them might have died
+     * of old age since they were frozen.
+     */
+    private int[] frozen = new int[0];
+    private int nFrozen;
+    /**
+     * {@code frozenSince[position]} is the step up to which the age of the
+     * frozen particle at this position is up to date.
+     */
+    private long[] frozenSince = new long[0];
+    /**
+     * The frozen particles that will die of old age, keyed by the step of
+     * their death and their position, packed in a long as in
+     * {@link #reorderLiving()}. Empty if the particles keep drifting.
+     */
+    private final PriorityQueue<Long> expiries = new PriorityQueue<>();
+    private boolean keepDrifting;
 
 ///////////////
 // Constructors
@@ -103,30 +171,300 @@ public class Population extends ArrayList<IParticle> implements SetupListener {
 // Definition of the methods
 ////////////////////////////
     public static Population getInstance() {
-        return population;
+        return SimulationContext.current().getPopulation();
     }
 
+    /**
+     * Adds a new particle to the population. If the columnar store is
+     * enabled, the state of the particle is copied in a new row of the store
+     * and the population keeps a view over this row instead of the particle
+     * itself. The row of a particle in the store is then its position in the
+     * population.
+     *
+     * @param particle, the particle created by the release process
+     * @return {@code true}
+     */
+    @Override
     public boolean add(IParticle particle) {
+        if (null != store) {
+            particle = store.add((Particle) particle);
+        }
         particle.init();
+        living = ensureCapacity(living, nLiving + 1);
+        living[nLiving++] = size();
         return super.add(particle);
     }
 
+    @Override
+    public void clear() {
+        super.clear();
+        nLiving = 0;
+        nDead = 0;
+        nFrozen = 0;
+        expiries.clear();
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        return (capacity > array.length)
+                ? Arrays.copyOf(array, Math.max(capacity, 2 * array.length))
+                : array;
+    }
+
+    /**
+     * Removes from the living index the particles that died since the
+     * last step, and the locked particles if they are to be frozen. They are
+     * kept in the list of the particles removed since the last record, so
+     * that their final state can still be written.
+     */
+    private void compactLiving() {
+        int n = 0;
+        for (int i = 0; i < nLiving; i++) {
+            int position = living[i];
+            IParticle particle = get(position);
+            if (particle.isLiving() && !(freezeLocked && particle.isLocked())) {
+                living[n++] = position;
+            } else {
+                if (particle.isLiving()) {
+                    freeze(position);
+                }
+                dead = ensureCapacity(dead, nDead + 1);
+                dead[nDead++] = position;
+            }
+        }
+        nLiving = n;
+    }
+
+    /**
+     * Freezes a locked particle. A locked particle does not move anymore and
+     * most actions skip it, so it is taken out of the step: no action is
+     * executed on it and the output keeps its last recorded state. Only its
+     * age goes on, it is computed analytically by {@link #ageFrozen()} and
+     * the particle dies of old age at the step the age monitoring would have
+     * killed it.
+     */
+    private void freeze(int position) {
+        IMasterParticle particle = (IMasterParticle) get(position);
+        // what the move would do on a locked particle at the next step
+        particle.setOldLon(particle.getLon());
+        particle.setOldLat(particle.getLat());
+        frozen = ensureCapacity(frozen, nFrozen + 1);
+        frozen[nFrozen++] = position;
+        if (frozenSince.length <= position) {
+            frozenSince = Arrays.copyOf(frozenSince, Math.max(position + 1, 2 * frozenSince.length));
+        }
+        frozenSince[position] = nStep;
+        if (!keepDrifting) {
+            /* the age monitoring kills the particle at the first step that
+             * starts with an age above the transport duration */
+            long remaining = (long) getTransportDuration() - particle.getAge();
+            long steps = (remaining < 0) ? 0 : remaining / getTimeStep() + 1;
+            expiries.add(((nStep + steps) << 31) | position);
+        }
+    }
+
+    /**
+     * Kills the frozen particles that reach their maximal age at the current
+     * step.
+     */
+    private void expireFrozen() {
+        while (!expiries.isEmpty() && (expiries.peek() >>> 31) <= nStep) {
+            int position = (int) (expiries.poll() & Integer.MAX_VALUE);
+            IMasterParticle particle = (IMasterParticle) get(position);
+            age(particle, position);
+            particle.kill(ParticleMortality.OLD);
+            dead = ensureCapacity(dead, nDead + 1);
+            dead[nDead++] = position;
+        }
+    }
+
+    /**
+     * Brings the age of the frozen particles up to date, at the current
+     * step. The particles that died of old age are removed from the frozen
+     * particles.
+     */
+    public void ageFrozen() {
+        int n = 0;
+        for (int i = 0; i < nFrozen; i++) {
+            int position = frozen[i];
+            IMasterParticle particle = (IMasterParticle) get(position);
+            if (particle.isLiving()) {
+                age(particle, position);
+                frozen[n++] = position;
+            }
+        }
+        nFrozen = n;
+    }
+
+    private void age(IMasterParticle particle, int position) {
+        long steps = nStep - frozenSince[position];
+        if (steps > 0) {
+            particle.incrementAge(steps * getTimeStep());
+            frozenSince[position] = nStep;
+        }
+    }
+
+    /**
+     * Gets the duration of a step of the simulation, in seconds.
+     */
+    long getTimeStep() {
+        return (long) Math.abs(SimulationManager.getInstance().getTimeManager().get_dt());
+    }
+
+    /**
+     * Gets the maximal age of the particles, in seconds, beyond which the
+     * age monitoring kills them.
+     */
+    double getTransportDuration() {
+        return SimulationManager.getInstance().getTimeManager().getTransportDuration();
+    }
+
+    /**
+     * Gets the number of frozen particles, including the ones that died of
+     * old age since the last call to {@link #ageFrozen()}.
+     *
+     * @return the number of frozen particles
+     */
+    public int getNbFrozen() {
+        return nFrozen;
+    }
+
+    /**
+     * Sorts the living index along the Morton curve of the grid cells of the
+     * particles, so that consecutive particles of the step read neighbouring
+     * entries of the field arrays. Only the order of iteration changes, the
+     * position of a particle in the population and its index in the output
+     * stay the same. The Morton code of the cell and the position are packed
+     * in a long, so that the sort runs on a primitive array.
+     */
+    void reorderLiving() {
+        if (null == mortonCode) {
+            mortonCode = createMortonCode();
+        }
+        if (sortKeys.length < nLiving) {
+            sortKeys = new long[Math.max(nLiving, 2 * sortKeys.length)];
+        }
+        for (int i = 0; i < nLiving; i++) {
+            IParticle particle = get(living[i]);
+            // k is ignored by the encoder of a 2D grid
+            long code = mortonCode.encode((int) Math.round(particle.getX()), (int) Math.round(particle.getY()), (int) Math.round(particle.getZ()));
+            sortKeys[i] = (code << 31) | living[i];
+        }
+        Arrays.sort(sortKeys, 0, nLiving);
+        for (int i = 0; i < nLiving; i++) {
+            living[i] = (int) (sortKeys[i] & Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Creates the Morton encoder of the grid of the dataset.
+     */
+    MortonCode createMortonCode() {
+        IDataset dataset = SimulationManager.getInstance().getDataset();
+        return new MortonCode(dataset.get_nx(), dataset.get_ny(), dataset.is3D() ? dataset.get_nz() : 0);
+    }
+
+    /**
+     * Gets the number of particles of the living index. Some of them might
+     * have died during the current step, they are removed from the index at
+     * the next step.
+     *
+     * @return the number of particles of the living index
+     */
+    public int getNbLiving() {
+        return nLiving;
+    }
+
+    /**
+     * Gets the position in the population of the i-th particle of the
+     * living index.
+     *
+     * @param i, between 0 and {@link #getNbLiving()} (exclusive)
+     * @return the position of the particle in the population
+     */
+    public int getLiving(int i) {
+        return living[i];
+    }
+
+    /**
+     * Gets the number of particles whose state might have changed since
+     * the last record of the output: the particles of the living index and
+     * the particles that died or were frozen since the last record. The
+     * state of the other particles did not change since the last record.
+     *
+     * @return the number of particles to be tracked
+     */
+    public int getNbTrackable() {
+        return nLiving + nDead;
+    }
+
+    /**
+     * Gets the position in the population of the i-th particle to be
+     * tracked.
+     *
+     * @param i, between 0 and {@link #getNbTrackable()} (exclusive)
+     * @return the position of the particle in the population, or its row in
+     * the columnar store
+     */
+    public int getTrackable(int i) {
+        return (i < nLiving) ? living[i] : dead[i - nLiving];
+    }
+
+    /**
+     * Called by the output manager once the particles have been tracked, to
+     * forget the particles that died or were frozen since the previous
+     * record.
+     */
+    public void recorded() {
+        nDead = 0;
+    }
+
+    /**
+     * Gets the columnar storage of the particles, for scanning the particle
+     * attributes column by column. The row of a particle in the store is its
+     * position in the population.
+     *
+     * @return the particle store or {@code null} if the particles are stored
+     * as individual objects
+     */
+    public ParticleStore getStore() {
+        return store;
+    }
+
     /**
      * Applies a step on the {@code Population} at current time step. It
      * implements a Fork/Join algorithm for splitting the {@code Population} in
-     * subsets and run the current step in multi thread environment.
+     * subsets and run the current step in multi thread environment. Only the
+     * particles of the living index are visited, the frozen particles only
+     * age.
      */
     public void step() {
 
-        if (MULTITHREAD) {
-            ForkStep step = new ForkStep(0, size());
-            ForkJoinPool pool = new ForkJoinPool();
-            pool.invoke(step);
+        compactLiving();
+        expireFrozen();
+        if ((reorderInterval > 0) && (nStep % reorderInterval == 0)) {
+            reorderLiving();
+        }
+        if ((null != pool) && (nLiving >= THRESHOLD)) {
+            pool.invoke(new ForkStep(0, nLiving));
         } else {
-            Iterator<IParticle> iter = iterator();
-            IParticle particle;
-            while (iter.hasNext()) {
-                particle = iter.next();
+            step(0, nLiving);
+        }
+        nStep++;
+    }
+
+    /**
+     * Steps the particles of the living index from {@code iStart}
+     * (inclusive) to {@code iEnd} (exclusive), in blocks of at most
+     * {@code BLOCK_SIZE} particles. The actions are given a chance to process
+     * each block at once before the particles of the block are stepped one
+     * by one.
+     */
+    private void step(int iStart, int iEnd) {
+        ActionManager actionManager = SimulationManager.getInstance().getActionManager();
+        for (int iBlock = iStart; iBlock < iEnd; iBlock += BLOCK_SIZE) {
+            List<IParticle> block = new LivingBlock(iBlock, Math.min(iEnd, iBlock + BLOCK_SIZE));
+            actionManager.prepareActions(block);
+            for (IParticle particle : block) {
                 if (particle.isLiving()) {
                     particle.step();
                 }
@@ -142,7 +480,139 @@ public class Population extends ArrayList<IParticle> implements SetupListener {
      */
     @Override
     public void setupPerformed(SetupEvent e) {
-        population.clear();
+        clear();
+        store = isColumnarStore() ? new ParticleStore() : null;
+        setupPool(getNumberOfThreads());
+        reorderInterval = getReorderInterval();
+        nStep = 0;
+        mortonCode = null;
+        freezeLocked = isFreezeLocked();
+        try {
+            keepDrifting = Boolean.valueOf(SimulationManager.getInstance().getParameterManager().getParameter("app.time", "keep_drifting"));
+        } catch (Exception ex) {
+            keepDrifting = false;
+        }
+    }
+
+    /**
+     * Reads whether the locked particles should be frozen, in optional
+     * parameter {@code app.transport/freeze_locked}. The parameter defaults
+     * to false, the locked particles are then stepped like the others.
+     *
+     * @return {@code true} for freezing the locked particles
+     */
+    boolean isFreezeLocked() {
+        try {
+            return Boolean.valueOf(SimulationManager.getInstance().getParameterManager().getParameter("app.transport", "freeze_locked"));
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the number of steps between two reorderings of the particles
+     * along the Morton curve, in optional parameter
+     * {@code app.transport/reorder_interval}. The parameter defaults to zero,
+     * the particles are then stepped in release order.
+     *
+     * @return the number of steps between two reorderings
+     */
+    int getReorderInterval() {
+        try {
+            return Math.max(0, Integer.valueOf(SimulationManager.getInstance().getParameterManager().getParameter("app.transport", "reorder_interval")));
+        } catch (Exception ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads whether the particles should be kept in a columnar store, in
+     * optional parameter {@code app.transport/columnar_store}. The parameter
+     * defaults to false.
+     *
+     * @return {@code true} for storing the particles in columns
+     */
+    private boolean isColumnarStore() {
+        try {
+            return Boolean.valueOf(SimulationManager.getInstance().getParameterManager().getParameter("app.transport", "columnar_store"));
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the number of worker threads in parameter
+     * {@code app.transport/nb_threads}. The parameter is optional and
+     * defaults to one thread (sequential step). A value of zero or less means
+     * as many threads as available processors.
+     *
+     * @return the number of threads for stepping the population
+     */
+    private int getNumberOfThreads() {
+        int nThreads = 1;
+        try {
+            nThreads = Integer.valueOf(SimulationManager.getInstance().getParameterManager().getParameter("app.transport", "nb_threads"));
+        } catch (Exception ex) {
+            // parameter not found, sequential step
+        }
+        if (nThreads <= 0) {
+            nThreads = Runtime.getRuntime().availableProcessors();
+        }
+        return nThreads;
+    }
+
+    /**
+     * Creates the pool of worker threads, or keeps the existing one if it
+     * already has the requested parallelism. The worker threads are bound to
+     * the simulation context of the population.
+     */
+    private void setupPool(int nThreads) {
+        if (nThreads > 1) {
+            if ((null == pool) || (pool.getParallelism() != nThreads)) {
+                shutdownPool();
+                SimulationContext context = SimulationContext.current();
+                pool = new ForkJoinPool(nThreads, forkJoinPool -> new ForkJoinWorkerThread(forkJoinPool) {
+                    @Override
+                    protected void onStart() {
+                        super.onStart();
+                        context.bind();
+                    }
+                }, null, false);
+            }
+            SimulationManager.getLogger().log(Level.INFO, "Population stepped with {0} threads", nThreads);
+        } else {
+            shutdownPool();
+        }
+    }
+
+    private void shutdownPool() {
+        if (null != pool) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * A read-only view over a range of the living index.
+     */
+    private class LivingBlock extends AbstractList<IParticle> {
+
+        private final int iStart, iEnd;
+
+        LivingBlock(int iStart, int iEnd) {
+            this.iStart = iStart;
+            this.iEnd = iEnd;
+        }
+
+        @Override
+        public IParticle get(int index) {
+            return Population.this.get(living[iStart + index]);
+        }
+
+        @Override
+        public int size() {
+            return iEnd - iStart;
+        }
     }
 
     /**
@@ -161,8 +631,10 @@ public class Population extends ArrayList<IParticle> implements SetupListener {
          * Creates a new {@code ForkStep} that will handle a subset of
          * particles.
          *
-         * @param iStart, index of the first particle of the subset
-         * @param iEnd , index of the last particle of the subset
+         * @param iStart, index in the living index of the first particle of
+         * the subset
+         * @param iEnd , index in the living index of the last particle of the
+         * subset
          */
         ForkStep(int iStart, int iEnd) {
             this.iStart = iStart;
@@ -171,16 +643,11 @@ public class Population extends ArrayList<IParticle> implements SetupListener {
 
         /**
          * Loop over the subset of particles and apply the
-         * {@link org.previmer.ichthyop.particle.MasterParticle#step()}
+         * {@link org.previmer.ichthyop.particle.IParticle#step()}
          * function.
          */
         private void processDirectly() {
-            for (int iParticle = iStart; iParticle < iEnd; iParticle++) {
-                IParticle particle = (IParticle) Population.this.get(iParticle);
-                if (particle.isLiving()) {
-                    particle.step();
-                }
-            }
+            Population.this.step(iStart, iEnd);
         }
 
         @Override
@@ -44,23 +44,31 @@
 
 package org.previmer.ichthyop;
 
+import org.previmer.ichthyop.manager.SimulationContext;
+import org.previmer.ichthyop.manager.SimulationManager;
+import org.previmer.ichthyop.manager.StepPhase;
+
 /**
  *
  * @author pverley
  */
 public class Simulation {
 
-    final private static Simulation simulation = new Simulation();
-
     public Population getPopulation() {
         return Population.getInstance();
     }
 
     public static Simulation getInstance() {
-        return simulation;
+        return SimulationContext.current().getSimulation();
     }
 
-    public void step() {
-        getPopulation().step();
+    /**
+     * Moves the particles from the current time to the next one, by running
+     * the {@link StepPhase#PARTICLE_STEP} phase of the time manager.
+     *
+     * @throws Exception if a listener of the phase fails
+     */
+    public void step() throws Exception {
+        SimulationManager.getInstance().getTimeManager().particleStepTriggered();
     }
 }
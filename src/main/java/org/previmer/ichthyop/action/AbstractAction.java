@@ -44,40 +44,132 @@
 
 package org.previmer.ichthyop.action;
 
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.previmer.ichthyop.SimulationManagerAccessor;
 import org.previmer.ichthyop.io.BlockType;
 import org.previmer.ichthyop.manager.ParameterManager;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.util.RandomStream;
 
 /**
+ * Base class of the user defined actions.
+ *
+ * <p>
+ * Thread-safety contract: when the population is stepped with several
+ * threads (parameter {@code app.transport/nb_threads} greater than one), a
+ * single action instance is shared by all the worker threads and
+ * {@link #execute(IParticle)} is called concurrently for distinct particles.
+ * Implementations must therefore only read the action fields set in
+ * {@link #loadParameters()} and store any per-particle state in a
+ * {@link org.previmer.ichthyop.particle.ParticleLayer}. The dataset, the time
+ * manager and the zone manager can safely be read from {@code execute}. The
+ * random draws of {@link #getRandomDraft()} come from a generator private to
+ * the calling thread.
+ * </p>
  *
  * @author pverley
  */
 public abstract class AbstractAction extends SimulationManagerAccessor {
 
     private final String actionKey;
-    private final Random randomGenerator;
+    /**
+     * One random stream per thread for the draws that are not bound to a
+     * particle, so that concurrent particle steps do not contend on a shared
+     * generator.
+     */
+    private final ThreadLocal<RandomStream> randomGenerator = ThreadLocal.withInitial(this::createRandomGenerator);
+    /**
+     * One reusable random stream per thread, positioned for every particle
+     * by {@link #getRandomStream(IParticle)}.
+     */
+    private final ThreadLocal<RandomStream> randomStreams = ThreadLocal.withInitial(RandomStream::new);
+    /**
+     * The seed of the random streams, the index of the simulation in fixed
+     * seed mode.
+     */
+    private final long seed;
+    /**
+     * The id of the random streams of the action.
+     */
+    private final long streamId;
 
     abstract public void loadParameters() throws Exception;
 
+    /**
+     * Applies the action on the particle. Might be called concurrently by
+     * several threads for distinct particles, refer to the thread-safety
+     * contract of the class.
+     *
+     * @param particle, the particle to apply the action on
+     */
     abstract public void execute(IParticle particle);
 
     abstract public void init(IParticle particle);
 
+    /**
+     * Called by the population before stepping a block of particles, in the
+     * thread that will then call {@link #execute(IParticle)} for each living
+     * particle of the block, in the same order. An action may use it for
+     * processing the whole block at once and only apply the precomputed
+     * result in {@code execute}. Does nothing by default.
+     *
+     * @param particles, the block of particles about to be stepped
+     */
+    public void prepare(List<IParticle> particles) {
+        // nothing to do by default
+    }
+
     public AbstractAction() {
         actionKey = getSimulationManager().getPropertyManager(getClass()).getProperty("block.key");
         boolean isFixedSeed = ParameterManager.getInstance().getConfigurationFile().isFixedSeed();
-        if (isFixedSeed) {
-            randomGenerator = new Random(getSimulationManager().getIndexSimulation());
-        } else {
-            randomGenerator = new Random();
-        }
+        seed = isFixedSeed
+                ? getSimulationManager().getIndexSimulation()
+                : ThreadLocalRandom.current().nextLong();
+        streamId = RandomStream.streamId(getClass().getName());
+    }
+
+    /**
+     * Creates the random stream of the calling thread for
+     * {@link #getRandomDraft()}. The stream is keyed on the index of the
+     * worker thread in the pool of the population, or on the calling thread
+     * being outside of any pool, and not on the order in which the threads
+     * draw for the first time. Negative keys do not collide with the streams
+     * of the particles.
+     */
+    private RandomStream createRandomGenerator() {
+        Thread thread = Thread.currentThread();
+        long worker = (thread instanceof ForkJoinWorkerThread)
+                ? ((ForkJoinWorkerThread) thread).getPoolIndex()
+                : -1;
+        return new RandomStream().at(seed, -2 - worker, 0, streamId);
     }
 
+    /**
+     * Draws a random double from a stream private to the calling thread. In
+     * fixed seed mode the sequence of draws of each thread is reproducible,
+     * but which particle gets which draw depends on how the particles are
+     * shared among the threads, prefer {@link #getRandomStream(IParticle)}.
+     *
+     * @return a random double uniformly distributed in [0, 1[
+     */
     public double getRandomDraft() {
-        return randomGenerator.nextDouble();
+        return randomGenerator.get().nextDouble();
+    }
+
+    /**
+     * Gets the random stream of the particle for the current time step and
+     * this action. The stream is rewound at each call and is private to the
+     * calling thread: it must be retrieved once per {@link #execute}, then
+     * drawn from, and not kept beyond.
+     *
+     * @param particle, the particle the random draws are meant for
+     * @return the random stream of (seed, particle, step, action)
+     */
+    public RandomStream getRandomStream(IParticle particle) {
+        return randomStreams.get().at(seed, particle.getIndex(), getSimulationManager().getTimeManager().index(), streamId);
     }
 
     public String getBlockKey() {
@@ -121,6 +213,30 @@ public abstract class AbstractAction extends SimulationManagerAccessor {
         return ActionPriority.NORMAL;
     }
 
+    /**
+     * Whether the action does nothing for a locked particle. It is read once
+     * by the {@code ActionManager} at setup for compiling the per-step
+     * pipeline. Locked particles skip the user defined actions by default.
+     *
+     * @return {@code true} if the action can be skipped for locked particles
+     */
+    public boolean isNoOpWhenLocked() {
+        return true;
+    }
+
+    /**
+     * Whether the action does nothing for a dead particle, a particle might
+     * be killed by a previous action of the same step. It is read once by the
+     * {@code ActionManager} at setup for compiling the per-step pipeline. By
+     * default the action is applied even though the particle died earlier in
+     * the step.
+     *
+     * @return {@code true} if the action can be skipped for dead particles
+     */
+    public boolean isNoOpWhenDead() {
+        return false;
+    }
+
     public boolean isEnabled() {
         return getSimulationManager().getActionManager().isEnabled(actionKey);
     }
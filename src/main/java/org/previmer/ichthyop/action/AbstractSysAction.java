@@ -45,7 +45,7 @@
 package org.previmer.ichthyop.action;
 
 import org.previmer.ichthyop.SimulationManagerAccessor;
-import org.previmer.ichthyop.particle.Particle;
+import org.previmer.ichthyop.particle.IMasterParticle;
 
 /**
  *
@@ -55,7 +55,7 @@ public abstract class AbstractSysAction extends SimulationManagerAccessor {
 
     abstract public void loadParameters() throws Exception;
 
-    abstract public void execute(Particle particle);
+    abstract public void execute(IMasterParticle particle);
 
     public String getParameter(String block, String key) {
         return getSimulationManager().getParameterManager().getParameter(block, key);
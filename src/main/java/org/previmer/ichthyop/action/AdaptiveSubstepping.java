@@ -0,0 +1,240 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.action;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.previmer.ichthyop.dataset.IDataset;
+import org.previmer.ichthyop.manager.ParameterManager;
+import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.SubstepParticleLayer;
+
+/**
+ * Adaptive sub-stepping of the particle moves. The time step of the
+ * simulation stays the same but every particle splits its advection and
+ * dispersion in n sub-steps, with n the local Courant number of the particle
+ * divided by the maximal Courant number, capped to a maximal number of
+ * sub-steps. The parameters are read in the {@code app.transport} block:
+ * <ul>
+ * <li>{@code adaptive_substeps}, whether the sub-stepping is enabled, false
+ * by default</li>
+ * <li>{@code cfl_max}, the maximal Courant number of a sub-step, 0.5 by
+ * default</li>
+ * <li>{@code max_substeps}, the maximal number of sub-steps, 16 by
+ * default</li>
+ * </ul>
+ * The number of sub-steps of a particle is computed once per time step, by
+ * {@link #getSubsteps(IParticle, IDataset, double, double, long)}, from the
+ * velocity at the position of the particle at the beginning of the step.
+ * The advection and the dispersion actions all call it, so they split the
+ * step in the same number of sub-steps whatever their order of execution.
+ * Like the other actions, each of them moves the particle from its position
+ * at the beginning of the step, and the moves are summed at the end of the
+ * step.
+ * <p>
+ * The class also keeps the statistics of the sub-steps. Particles are stepped
+ * concurrently so the counters are thread safe.
+ * </p>
+ *
+ * @author pverley
+ */
+public class AdaptiveSubstepping {
+
+    public static final double DEFAULT_CFL_MAX = 0.5d;
+    public static final int DEFAULT_MAX_SUBSTEPS = 16;
+    private final boolean enabled;
+    private final double cflMax;
+    private final int maxSubsteps;
+    /**
+     * {@code histogram[n]} counts the particle steps done in n sub-steps.
+     */
+    private final LongAdder[] histogram;
+    private final DoubleAccumulator maxCourant = new DoubleAccumulator(Math::max, 0.d);
+    /**
+     * Grid coordinates and velocity of the particle, in 2D and 3D, private
+     * to the calling thread.
+     */
+    private static final ThreadLocal<double[][]> SCRATCH = ThreadLocal.withInitial(()
+            -> new double[][]{new double[2], new double[3], new double[2], new double[3]});
+
+    public AdaptiveSubstepping(ParameterManager parameterManager) {
+        this(isEnabled(parameterManager), getCflMax(parameterManager), getMaxSubsteps(parameterManager));
+    }
+
+    AdaptiveSubstepping(boolean enabled, double cflMax, int maxSubsteps) {
+        this.enabled = enabled;
+        this.cflMax = (cflMax > 0) ? cflMax : DEFAULT_CFL_MAX;
+        this.maxSubsteps = Math.max(1, maxSubsteps);
+        histogram = new LongAdder[this.maxSubsteps + 1];
+        for (int n = 0; n <= this.maxSubsteps; n++) {
+            histogram[n] = new LongAdder();
+        }
+    }
+
+    /**
+     * Reads whether the adaptive sub-stepping is enabled, in optional
+     * parameter {@code app.transport/adaptive_substeps}.
+     */
+    public static boolean isEnabled(ParameterManager parameterManager) {
+        try {
+            return Boolean.valueOf(parameterManager.getParameter("app.transport", "adaptive_substeps"));
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    private static double getCflMax(ParameterManager parameterManager) {
+        try {
+            return Double.valueOf(parameterManager.getParameter("app.transport", "cfl_max"));
+        } catch (Exception ex) {
+            return DEFAULT_CFL_MAX;
+        }
+    }
+
+    private static int getMaxSubsteps(ParameterManager parameterManager) {
+        try {
+            return Integer.valueOf(parameterManager.getParameter("app.transport", "max_substeps"));
+        } catch (Exception ex) {
+            return DEFAULT_MAX_SUBSTEPS;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getCflMax() {
+        return cflMax;
+    }
+
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /**
+     * Gets the number of sub-steps of the particle at the current time step.
+     * It is computed by the first action that asks for it during the step
+     * and kept in the {@link SubstepParticleLayer} of the particle, for the
+     * other actions of the step.
+     *
+     * @param particle the particle
+     * @param dataset the dataset
+     * @param time the time [second] at the beginning of the step
+     * @param dt the time step [second]
+     * @param step the index of the time step
+     * @return the number of sub-steps, between 1 and the maximal number of
+     * sub-steps
+     */
+    public int getSubsteps(IParticle particle, IDataset dataset, double time, double dt, long step) {
+        SubstepParticleLayer layer = (SubstepParticleLayer) particle.getLayer(SubstepParticleLayer.class);
+        if (!layer.isUpToDate(step)) {
+            int dim = particle.is3D() ? 3 : 2;
+            double[][] scratch = SCRATCH.get();
+            double[] pGrid = particle.getGridCoordinates(scratch[dim - 2]);
+            double[] velocity = scratch[dim];
+            dataset.sampleVelocity(pGrid, time, velocity);
+            double courant = 0.d;
+            for (int i = 0; i < dim; i++) {
+                courant = Math.max(courant, Math.abs(velocity[i]));
+            }
+            courant *= Math.abs(dt);
+            layer.set(step, substeps(courant), courant);
+        }
+        return layer.getSubsteps();
+    }
+
+    /**
+     * Computes the number of sub-steps for the given Courant number.
+     *
+     * @param courant the Courant number of the particle over the whole time
+     * step, in grid cells
+     * @return the number of sub-steps, between 1 and the maximal number of
+     * sub-steps
+     */
+    int substeps(double courant) {
+        return (int) Math.min(maxSubsteps, Math.max(1.d, Math.ceil(courant / cflMax)));
+    }
+
+    /**
+     * Records the sub-steps of the particle at the current time step in the
+     * statistics. Called once per particle step, by the advection.
+     *
+     * @param particle the particle
+     */
+    public void record(IParticle particle) {
+        SubstepParticleLayer layer = (SubstepParticleLayer) particle.getLayer(SubstepParticleLayer.class);
+        histogram[layer.getSubsteps()].increment();
+        maxCourant.accumulate(layer.getCourant());
+    }
+
+    /**
+     * Logs the statistics of the sub-steps since the beginning of the
+     * simulation.
+     */
+    public void report(Logger logger) {
+        long count = 0, total = 0;
+        StringBuilder sb = new StringBuilder();
+        for (int n = 1; n <= maxSubsteps; n++) {
+            long c = histogram[n].sum();
+            if (c > 0) {
+                sb.append(" ").append(n).append(":").append(c);
+            }
+            count += c;
+            total += n * c;
+        }
+        if (count == 0) {
+            return;
+        }
+        logger.log(Level.INFO, "Adaptive sub-stepping, {0} particle steps, {1} sub-steps per step on average, max Courant number {2}. Histogram (sub-steps:count){3}",
+                new Object[]{count, (float) total / count, (float) maxCourant.get(), sb.toString()});
+        long capped = histogram[maxSubsteps].sum();
+        if (capped > 0 && maxCourant.get() > cflMax * maxSubsteps) {
+            logger.log(Level.WARNING, "{0} particle steps reached the maximal number of sub-steps ({1}) with a Courant number above cfl_max. Consider a shorter time step or a larger app.transport/max_substeps.",
+                    new Object[]{capped, maxSubsteps});
+        }
+    }
+}
@@ -44,7 +44,12 @@
 
 package org.previmer.ichthyop.action;
 
+import java.util.List;
 import java.util.logging.Level;
+import org.previmer.ichthyop.action.AdvectionKernel.Scratch;
+import org.previmer.ichthyop.dataset.IDataset;
+import org.previmer.ichthyop.event.LastStepEvent;
+import org.previmer.ichthyop.event.LastStepListener;
 import org.previmer.ichthyop.particle.IParticle;
 import org.previmer.ichthyop.particle.ParticleMortality;
 
@@ -52,12 +57,26 @@ import org.previmer.ichthyop.particle.ParticleMortality;
  *
  * @author pverley
  */
-public class AdvectionAction extends AbstractAction {
+public class AdvectionAction extends AbstractAction implements LastStepListener {
 
     private boolean isEuler;
     private boolean isForward;
     private boolean horizontal;
     private boolean vertical;
+    private AdvectionKernel kernel;
+    /**
+     * Whether the particles are advected by blocks, in {@link #prepare(List)}.
+     */
+    private boolean batch;
+    /**
+     * The moves computed by {@link #prepare(List)}, one block per thread.
+     */
+    private final ThreadLocal<PreparedBlock> preparedBlocks = new ThreadLocal<>();
+    /**
+     * The adaptive sub-stepping, see {@link AdaptiveSubstepping}. When
+     * enabled, the particles are advected one by one.
+     */
+    private AdaptiveSubstepping substepping;
     // Threshold for CFL error message
     public static final float THRESHOLD_CFL = 1.0f;
 
@@ -92,6 +111,21 @@ public class AdvectionAction extends AbstractAction {
         } catch (Exception ex) {
             vertical = true;
         }
+
+        /* Advection by blocks of particles ? */
+        try {
+            batch = Boolean.valueOf(getParameter("batch"));
+        } catch (Exception ex) {
+            batch = true;
+        }
+
+        substepping = new AdaptiveSubstepping(getSimulationManager().getParameterManager());
+        if (substepping.isEnabled()) {
+            getLogger().log(Level.INFO, "Adaptive sub-stepping of the advection, cfl_max {0}, max_substeps {1}",
+                    new Object[]{(float) substepping.getCflMax(), substepping.getMaxSubsteps()});
+        }
+
+        kernel = new AdvectionKernel(isEuler, horizontal, vertical, getLogger());
     }
 
     @Override
@@ -99,9 +133,49 @@ public class AdvectionAction extends AbstractAction {
         // Nothing to do
     }
 
+    /**
+     * Advects the whole block of particles, one RK4 stage at a time, and
+     * keeps the moves for {@link #execute(IParticle)}. Since the grid
+     * coordinates of the particles only change at the end of their step, the
+     * moves are the same as if the particles were advected one by one.
+     */
     @Override
-    public void execute(IParticle particle) {
+    public void prepare(List<IParticle> particles) {
+
+        if (!batch || substepping.isEnabled()) {
+            return;
+        }
+        IDataset dataset = getSimulationManager().getDataset();
+        PreparedBlock prepared = preparedBlocks.get();
+        if (null == prepared) {
+            prepared = new PreparedBlock();
+            preparedBlocks.set(prepared);
+        }
+        prepared.fill(particles, dataset.is3D() ? 3 : 2);
+
+        double time = getSimulationManager().getTimeManager().getTime();
+        double dt = getSimulationManager().getTimeManager().get_dt();
         if (isForward) {
+            kernel.advect(dataset, prepared.block, time, dt);
+        } else {
+            kernel.advectBackward(dataset, prepared.block, time, dt);
+        }
+    }
+
+    @Override
+    public void execute(IParticle particle) {
+        PreparedBlock prepared = preparedBlocks.get();
+        int slot = (null != prepared) ? prepared.find(particle) : -1;
+        if (slot >= 0) {
+            if (prepared.block.isExcluded(slot)) {
+                particle.kill(ParticleMortality.OUT_OF_DOMAIN);
+            } else {
+                Scratch scratch = kernel.getScratch(prepared.block.getDimension());
+                particle.increment(prepared.block.getMove(slot, scratch.mvt));
+            }
+        } else if (substepping.isEnabled()) {
+            advectAdaptive(particle, getSimulationManager().getTimeManager().getTime());
+        } else if (isForward) {
             advectForward(particle, getSimulationManager().getTimeManager().getTime());
         } else {
             advectBackward(particle, getSimulationManager().getTimeManager().getTime());
@@ -111,46 +185,14 @@ public class AdvectionAction extends AbstractAction {
     private void advectForward(IParticle particle, double time) throws
             ArrayIndexOutOfBoundsException {
 
-        double[] mvt = isEuler
-                ? advectEuler(particle.getGridCoordinates(), time, getSimulationManager().getTimeManager().get_dt())
-                : advectRk4(particle.getGridCoordinates(), time, getSimulationManager().getTimeManager().get_dt());
+        Scratch scratch = kernel.getScratch(particle.is3D() ? 3 : 2);
+        double[] pgrid = particle.getGridCoordinates(scratch.p);
+        double[] mvt = scratch.mvt;
+        kernel.advect(getSimulationManager().getDataset(), pgrid, time, getSimulationManager().getTimeManager().get_dt(), mvt);
         //Logger.getAnonymousLogger().info("dx " + mvt[0] + " dy " + mvt[1] + " dz " + mvt[2]);
-        if (!horizontal) {
-            mvt[0] = 0;
-            mvt[1] = 0;
-        }
-        if (!vertical && mvt.length > 2) {
-            mvt[2] = 0;
-        }
         particle.increment(mvt);
     }
 
-    private double[] advectEuler(double pGrid[], double time, double dt) {
-
-        int dim = pGrid.length;
-        double[] dU = new double[dim];
-
-        if (horizontal) {   // barrier.n: activates only if horizontal is on
-            dU[0] = getSimulationManager().getDataset().get_dUx(pGrid, time) * dt;
-            if (Math.abs(dU[0]) > THRESHOLD_CFL) {
-                getLogger().log(Level.WARNING, "CFL broken for U {0}", (float) dU[0]);
-            }
-            dU[1] = getSimulationManager().getDataset().get_dVy(pGrid, time) * dt;
-            if (Math.abs(dU[1]) > THRESHOLD_CFL) {
-                getLogger().log(Level.WARNING, "CFL broken for V {0}", (float) dU[1]);
-            }
-        }
-
-        if (vertical && (dim > 2)) {   // barrier.n: activates only if vertical is on
-            dU[2] = getSimulationManager().getDataset().get_dWz(pGrid, time) * dt;
-            if (Math.abs(dU[2]) > THRESHOLD_CFL) {
-                getLogger().log(Level.WARNING, "CFL broken for W {0}", (float) dU[2]);
-            }
-        }
-
-        return dU;
-    }
-
     /**
      * Advects the particle forward in time with the apropriate scheme (Euler
      * or Runge Kutta 4).
@@ -165,99 +207,135 @@ public class AdvectionAction extends AbstractAction {
     private void advectBackward(IParticle particle, double time) throws
             ArrayIndexOutOfBoundsException {
 
-        double[] mvt, pgrid;
+        IDataset dataset = getSimulationManager().getDataset();
         double dt = getSimulationManager().getTimeManager().get_dt();
+        Scratch scratch = kernel.getScratch(particle.is3D() ? 3 : 2);
+        double[] pgrid = particle.getGridCoordinates(scratch.p);
+        double[] mvt = scratch.mvt;
 
-        if (isEuler) {
-            mvt = advectEuler(pgrid = particle.getGridCoordinates(), time, dt);
-            for (int i = 0; i < mvt.length; i++) {
-                pgrid[i] += mvt[i];
-            }
-            if (getSimulationManager().getDataset().isOnEdge(pgrid)) {
-                particle.kill(ParticleMortality.OUT_OF_DOMAIN);
-                return;
-            }
-            mvt = advectEuler(pgrid, time, dt);
-        } else {
-            mvt = advectRk4(pgrid = particle.getGridCoordinates(), time, dt);
-            for (int i = 0; i < mvt.length; i++) {
-                pgrid[i] += mvt[i];
-            }
-            if (getSimulationManager().getDataset().isOnEdge(pgrid)) {
-                particle.kill(ParticleMortality.OUT_OF_DOMAIN);
-                return;
-            }
-            mvt = advectRk4(pgrid, time, dt);
-        }
-
-        if (!horizontal) {
-            mvt[0] = 0;
-            mvt[1] = 0;
+        kernel.advect(dataset, pgrid, time, dt, mvt);
+        for (int i = 0; i < mvt.length; i++) {
+            pgrid[i] += mvt[i];
         }
-        if (!vertical && mvt.length > 2) {
-            mvt[2] = 0;
+        if (dataset.isOnEdge(pgrid)) {
+            particle.kill(ParticleMortality.OUT_OF_DOMAIN);
+            return;
         }
+        kernel.advect(dataset, pgrid, time, dt, mvt);
         particle.increment(mvt);
     }
 
     /**
-     * Advects the particle with the NetCDF dataset velocity field, using a
-     * Runge Kutta 4th order scheme.
-     *
-     * @param p0 a double[] grid coordinates (x, y, z) of the particle.
-     * @param time a double, the current time [second] of the simulation
-     * @param dt a double, the time step [second] of the simulation.
-     * @return a double[], the move of the particle on the grid (dx, dy, dz)
-     * @throws an ArrayIndexOutOfBoundsException if the particle is out of the
+     * Advects the particle in n sub-steps of dt / n, with n given by the
+     * Courant number of the particle at the beginning of the time step, see
+     * {@link AdaptiveSubstepping#getSubsteps}. Each
+     * sub-step uses the scheme of the kernel, forward or backward in time.
+     * The particle stops at the sub-step that reaches the edge of the
      * domain.
      */
-    private double[] advectRk4(double[] p0, double time,
-            double dt) throws ArrayIndexOutOfBoundsException {
-
-        int dim = p0.length;
-        double[] dU = new double[dim];
-        double[] pk = new double[dim];
-
-        double[] k1 = advectEuler(p0, time, dt);
+    private void advectAdaptive(IParticle particle, double time) {
 
+        IDataset dataset = getSimulationManager().getDataset();
+        double dt = getSimulationManager().getTimeManager().get_dt();
+        int dim = particle.is3D() ? 3 : 2;
+        Scratch scratch = kernel.getScratch(dim);
+        double[] pgrid = particle.getGridCoordinates(scratch.p);
+        double[] mvt = scratch.mvt;
+        double[] sum = scratch.sum;
+        double[] q = scratch.q;
+
+        int n = substepping.getSubsteps(particle, dataset, time, dt,
+                getSimulationManager().getTimeManager().index());
+        substepping.record(particle);
+
+        double h = dt / n;
         for (int i = 0; i < dim; i++) {
-            pk[i] = p0[i] + .5d * k1[i];
+            sum[i] = 0.d;
         }
-        if (getSimulationManager().getDataset().isOnEdge(pk)) {
-            return (dim > 2)
-                    ? new double[]{.5d * k1[0], .5d * k1[1], 0}
-                    : new double[]{.5d * k1[0], .5d * k1[1]};
+        for (int s = 0; s < n; s++) {
+            double t = time + s * h;
+            kernel.advect(dataset, pgrid, t, h, mvt);
+            if (!isForward) {
+                for (int i = 0; i < dim; i++) {
+                    q[i] = pgrid[i] + mvt[i];
+                }
+                if (dataset.isOnEdge(q)) {
+                    particle.kill(ParticleMortality.OUT_OF_DOMAIN);
+                    return;
+                }
+                kernel.advect(dataset, q, t, h, mvt);
+            }
+            for (int i = 0; i < dim; i++) {
+                pgrid[i] += mvt[i];
+                sum[i] += mvt[i];
+            }
+            if (dataset.isOnEdge(pgrid)) {
+                break;
+            }
         }
+        particle.increment(sum);
+    }
 
-        double[] k2 = advectEuler(pk, time + dt / 2, dt);
-
-        for (int i = 0; i < dim; i++) {
-            pk[i] = p0[i] + .5d * k2[i];
-        }
-        if (getSimulationManager().getDataset().isOnEdge(pk)) {
-            return (dim > 2)
-                    ? new double[]{.5d * k2[0], .5d * k2[1], 0}
-                    : new double[]{.5d * k2[0], .5d * k2[1]};
+    @Override
+    public void lastStepOccurred(LastStepEvent e) {
+        if (substepping.isEnabled()) {
+            substepping.report(getLogger());
         }
+    }
 
-        double[] k3 = advectEuler(pk, time + dt / 2, dt);
-
-        for (int i = 0; i < dim; i++) {
-            pk[i] = p0[i] + k3[i];
-        }
-        if (getSimulationManager().getDataset().isOnEdge(pk)) {
-            return (dim > 2)
-                    ? new double[]{k3[0], k3[1], 0}
-                    : new double[]{k3[0], k3[1]};
-        }
+    /**
+     * The block of particles prepared by the current thread, with the slot
+     * of each particle in the kernel block. Particles that could not be
+     * prepared (dead, locked or of another dimension than the dataset) have
+     * no slot and are advected one by one.
+     */
+    private class PreparedBlock {
 
-        double[] k4 = advectEuler(pk, time + dt, dt);
+        private AdvectionKernel.Block block;
+        private IParticle[] particles = new IParticle[0];
+        private int[] slots = new int[0];
+        private int size;
+        private int cursor;
 
-        for (int i = 0; i < dim; i++) {
-            dU[i] = (k1[i] + 2.d * k2[i] + 2.d * k3[i] + k4[i]) / 6.d;
+        private void fill(List<IParticle> candidates, int dim) {
+            if ((null == block) || (block.getDimension() != dim)) {
+                block = new AdvectionKernel.Block(dim);
+            }
+            size = candidates.size();
+            if (particles.length < size) {
+                particles = new IParticle[size];
+                slots = new int[size];
+            }
+            block.reset(size);
+            double[] pGrid = kernel.getScratch(dim).p;
+            int i = 0;
+            for (IParticle particle : candidates) {
+                particles[i] = particle;
+                slots[i] = (particle.isLiving() && !particle.isLocked() && (particle.is3D() == (dim > 2)))
+                        ? block.add(particle.getGridCoordinates(pGrid))
+                        : -1;
+                i++;
+            }
+            cursor = 0;
         }
 
-        return (dU);
+        /**
+         * Finds the slot of the particle. The particles are executed in the
+         * order of the block so the search starts after the last particle
+         * found.
+         *
+         * @return the slot of the particle, or -1 if the particle has not
+         * been prepared.
+         */
+        private int find(IParticle particle) {
+            for (int i = cursor; i < size; i++) {
+                if (particles[i] == particle) {
+                    cursor = i + 1;
+                    return slots[i];
+                }
+            }
+            return -1;
+        }
     }
 
     public enum AdvectionScheme {
@@ -0,0 +1,474 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.action;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.previmer.ichthyop.dataset.IDataset;
+
+/**
+ * Numerical schemes of the advection (Forward Euler and Runge Kutta 4) that
+ * do not allocate any array once warmed up. The intermediate positions and
+ * velocities are written into scratch buffers owned by the calling thread, so
+ * a single kernel can be shared by the threads stepping the population.
+ *
+ * @author pverley
+ */
+public class AdvectionKernel {
+
+    private final boolean isEuler;
+    private final boolean horizontal;
+    private final boolean vertical;
+    private final Logger logger;
+    /**
+     * Scratch buffers of the current thread, indexed by the dimension of the
+     * grid coordinates (2 or 3).
+     */
+    private final ThreadLocal<Scratch[]> scratch = ThreadLocal.withInitial(() -> new Scratch[4]);
+
+    public AdvectionKernel(boolean isEuler, boolean horizontal, boolean vertical, Logger logger) {
+        this.isEuler = isEuler;
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+        this.logger = logger;
+    }
+
+    /**
+     * Gets the scratch buffers of the current thread for the given dimension.
+     */
+    Scratch getScratch(int dim) {
+        Scratch[] buffers = scratch.get();
+        if (null == buffers[dim]) {
+            buffers[dim] = new Scratch(dim);
+        }
+        return buffers[dim];
+    }
+
+    /**
+     * Computes the move of a particle located at p0 during the time step,
+     * with the scheme of the kernel.
+     *
+     * @param dataset the hydrodynamic dataset
+     * @param p0 the (x, y[, z]) grid coordinates of the particle
+     * @param time the current time [second] of the simulation
+     * @param dt the time step [second] of the simulation
+     * @param mvt the output move (dx, dy[, dz]) on the grid
+     */
+    public void advect(IDataset dataset, double[] p0, double time, double dt, double[] mvt) {
+        if (isEuler) {
+            advectEuler(dataset, p0, time, dt, mvt);
+        } else {
+            advectRk4(dataset, p0, time, dt, mvt);
+        }
+    }
+
+    void advectEuler(IDataset dataset, double[] pGrid, double time, double dt, double[] dU) {
+
+        int dim = pGrid.length;
+        if (!horizontal && !(vertical && dim > 2)) {
+            for (int i = 0; i < dim; i++) {
+                dU[i] = 0.d;
+            }
+            return;
+        }
+
+        dataset.sampleVelocity(pGrid, time, dU);
+        for (int i = 0; i < dim; i++) {
+            dU[i] *= dt;
+        }
+
+        if (horizontal) {   // barrier.n: activates only if horizontal is on
+            if (Math.abs(dU[0]) > AdvectionAction.THRESHOLD_CFL) {
+                logger.log(Level.WARNING, "CFL broken for U {0}", (float) dU[0]);
+            }
+            if (Math.abs(dU[1]) > AdvectionAction.THRESHOLD_CFL) {
+                logger.log(Level.WARNING, "CFL broken for V {0}", (float) dU[1]);
+            }
+        } else {
+            dU[0] = 0.d;
+            dU[1] = 0.d;
+        }
+
+        if (dim > 2) {
+            if (vertical) {   // barrier.n: activates only if vertical is on
+                if (Math.abs(dU[2]) > AdvectionAction.THRESHOLD_CFL) {
+                    logger.log(Level.WARNING, "CFL broken for W {0}", (float) dU[2]);
+                }
+            } else {
+                dU[2] = 0.d;
+            }
+        }
+    }
+
+    /**
+     * Advects the particle with the NetCDF dataset velocity field, using a
+     * Runge Kutta 4th order scheme.
+     *
+     * @param p0 a double[] grid coordinates (x, y, z) of the particle.
+     * @param time a double, the current time [second] of the simulation
+     * @param dt a double, the time step [second] of the simulation.
+     * @param dU a double[], the move of the particle on the grid (dx, dy, dz)
+     * @throws an ArrayIndexOutOfBoundsException if the particle is out of the
+     * domain.
+     */
+    void advectRk4(IDataset dataset, double[] p0, double time, double dt,
+            double[] dU) throws ArrayIndexOutOfBoundsException {
+
+        int dim = p0.length;
+        Scratch s = getScratch(dim);
+        double[] pk = s.pk;
+        double[] k1 = s.k1;
+        double[] k2 = s.k2;
+        double[] k3 = s.k3;
+        double[] k4 = s.k4;
+
+        advectEuler(dataset, p0, time, dt, k1);
+
+        for (int i = 0; i < dim; i++) {
+            pk[i] = p0[i] + .5d * k1[i];
+        }
+        if (dataset.isOnEdge(pk)) {
+            edgeMove(k1, .5d, dU);
+            return;
+        }
+
+        advectEuler(dataset, pk, time + dt / 2, dt, k2);
+
+        for (int i = 0; i < dim; i++) {
+            pk[i] = p0[i] + .5d * k2[i];
+        }
+        if (dataset.isOnEdge(pk)) {
+            edgeMove(k2, .5d, dU);
+            return;
+        }
+
+        advectEuler(dataset, pk, time + dt / 2, dt, k3);
+
+        for (int i = 0; i < dim; i++) {
+            pk[i] = p0[i] + k3[i];
+        }
+        if (dataset.isOnEdge(pk)) {
+            edgeMove(k3, 1.d, dU);
+            return;
+        }
+
+        advectEuler(dataset, pk, time + dt, dt, k4);
+
+        for (int i = 0; i < dim; i++) {
+            dU[i] = (k1[i] + 2.d * k2[i] + 2.d * k3[i] + k4[i]) / 6.d;
+        }
+    }
+
+    /**
+     * Horizontal move of a particle that reached the edge of the domain
+     * during an intermediate step of the Runge Kutta scheme.
+     */
+    private void edgeMove(double[] k, double factor, double[] dU) {
+        dU[0] = factor * k[0];
+        dU[1] = factor * k[1];
+        if (dU.length > 2) {
+            dU[2] = 0.d;
+        }
+    }
+
+    /**
+     * Computes the move of every particle of the block, stage by stage. Each
+     * stage of the scheme samples the velocity of the whole block in a
+     * single call to the dataset. Particles that are excluded from the block
+     * are ignored.
+     *
+     * @param dataset the hydrodynamic dataset
+     * @param block the positions of the particles, and the output moves
+     * @param time the current time [second] of the simulation
+     * @param dt the time step [second] of the simulation
+     */
+    public void advect(IDataset dataset, Block block, double time, double dt) {
+        block.activate();
+        if (isEuler) {
+            stage(dataset, block, block.p0, time, dt, block.mvt);
+        } else {
+            advectRk4(dataset, block, time, dt);
+        }
+    }
+
+    /**
+     * Advects the block backward in time, the same way as the
+     * {@code AdvectionAction} does for a single particle: the particles are
+     * advected once, moved, and advected again from the new position. The
+     * particles that leave the domain on the way are excluded from the block.
+     */
+    public void advectBackward(IDataset dataset, Block block, double time, double dt) {
+        advect(dataset, block, time, dt);
+        for (int a = 0; a < block.nActive; a++) {
+            int i = block.active[a];
+            for (int d = 0; d < block.dim; d++) {
+                block.p0[d][i] += block.mvt[d][i];
+                block.point[d] = block.p0[d][i];
+            }
+            if (dataset.isOnEdge(block.point)) {
+                block.excluded[i] = true;
+            }
+        }
+        advect(dataset, block, time, dt);
+    }
+
+    private void advectRk4(IDataset dataset, Block b, double time, double dt) {
+
+        stage(dataset, b, b.p0, time, dt, b.k1);
+        move(dataset, b, b.k1, .5d);
+
+        stage(dataset, b, b.pk, time + dt / 2, dt, b.k2);
+        move(dataset, b, b.k2, .5d);
+
+        stage(dataset, b, b.pk, time + dt / 2, dt, b.k3);
+        move(dataset, b, b.k3, 1.d);
+
+        stage(dataset, b, b.pk, time + dt, dt, b.k4);
+
+        for (int d = 0; d < b.dim; d++) {
+            double[] k1 = b.k1[d], k2 = b.k2[d], k3 = b.k3[d], k4 = b.k4[d], dU = b.mvt[d];
+            for (int a = 0; a < b.nActive; a++) {
+                int i = b.active[a];
+                dU[i] = (k1[i] + 2.d * k2[i] + 2.d * k3[i] + k4[i]) / 6.d;
+            }
+        }
+    }
+
+    /**
+     * Computes the intermediate positions pk = p0 + factor * k of the active
+     * particles. The particles whose intermediate position is on the edge of
+     * the domain stop there, with the same move as in
+     * {@link #advectRk4(IDataset, double[], double, double, double[])}, and
+     * are removed from the active particles.
+     */
+    private void move(IDataset dataset, Block b, double[][] k, double factor) {
+        int nActive = 0;
+        for (int a = 0; a < b.nActive; a++) {
+            int i = b.active[a];
+            for (int d = 0; d < b.dim; d++) {
+                b.pk[d][i] = b.p0[d][i] + factor * k[d][i];
+                b.point[d] = b.pk[d][i];
+            }
+            if (dataset.isOnEdge(b.point)) {
+                b.mvt[0][i] = factor * k[0][i];
+                b.mvt[1][i] = factor * k[1][i];
+                if (b.dim > 2) {
+                    b.mvt[2][i] = 0.d;
+                }
+            } else {
+                b.active[nActive++] = i;
+            }
+        }
+        b.nActive = nActive;
+    }
+
+    /**
+     * One Euler stage for the active particles of the block. The positions
+     * are gathered in contiguous arrays, sampled at once, and the moves
+     * scattered back in k.
+     */
+    private void stage(IDataset dataset, Block b, double[][] pos, double time, double dt, double[][] k) {
+
+        int n = b.nActive;
+        int dim = b.dim;
+        if (!horizontal && !(vertical && dim > 2)) {
+            for (int d = 0; d < dim; d++) {
+                for (int a = 0; a < n; a++) {
+                    k[d][b.active[a]] = 0.d;
+                }
+            }
+            return;
+        }
+
+        for (int d = 0; d < dim; d++) {
+            double[] gathered = b.gPos[d], values = pos[d];
+            for (int a = 0; a < n; a++) {
+                gathered[a] = values[b.active[a]];
+            }
+        }
+        dataset.sampleVelocity(n, b.gPos[0], b.gPos[1], dim > 2 ? b.gPos[2] : null, time,
+                b.gVel[0], b.gVel[1], dim > 2 ? b.gVel[2] : null);
+
+        for (int d = 0; d < dim; d++) {
+            boolean enabled = (d < 2) ? horizontal : vertical;
+            double[] velocity = b.gVel[d], dU = k[d];
+            for (int a = 0; a < n; a++) {
+                dU[b.active[a]] = enabled ? velocity[a] * dt : 0.d;
+            }
+        }
+
+        for (int a = 0; a < n; a++) {
+            int i = b.active[a];
+            if (horizontal) {
+                if (Math.abs(k[0][i]) > AdvectionAction.THRESHOLD_CFL) {
+                    logger.log(Level.WARNING, "CFL broken for U {0}", (float) k[0][i]);
+                }
+                if (Math.abs(k[1][i]) > AdvectionAction.THRESHOLD_CFL) {
+                    logger.log(Level.WARNING, "CFL broken for V {0}", (float) k[1][i]);
+                }
+            }
+            if (vertical && dim > 2 && Math.abs(k[2][i]) > AdvectionAction.THRESHOLD_CFL) {
+                logger.log(Level.WARNING, "CFL broken for W {0}", (float) k[2][i]);
+            }
+        }
+    }
+
+    /**
+     * The positions and the moves of a block of particles, stored as one
+     * array per grid component, with the intermediate arrays of the
+     * schemes. A block is meant to be filled and advected by a single
+     * thread, and reused from one step to the next.
+     */
+    public static class Block {
+
+        private final int dim;
+        private int size;
+        private int nActive;
+        private int[] active;
+        private boolean[] excluded;
+        private double[][] p0, mvt, pk, k1, k2, k3, k4, gPos, gVel;
+        private final double[] point;
+
+        public Block(int dim) {
+            this.dim = dim;
+            point = new double[dim];
+            allocate(0);
+        }
+
+        private void allocate(int capacity) {
+            active = new int[capacity];
+            excluded = new boolean[capacity];
+            p0 = new double[dim][capacity];
+            mvt = new double[dim][capacity];
+            pk = new double[dim][capacity];
+            k1 = new double[dim][capacity];
+            k2 = new double[dim][capacity];
+            k3 = new double[dim][capacity];
+            k4 = new double[dim][capacity];
+            gPos = new double[dim][capacity];
+            gVel = new double[dim][capacity];
+        }
+
+        /**
+         * Empties the block and makes room for the given number of
+         * particles.
+         */
+        public void reset(int capacity) {
+            if (capacity > active.length) {
+                allocate(capacity);
+            }
+            size = 0;
+        }
+
+        public int getDimension() {
+            return dim;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Appends a particle to the block.
+         *
+         * @param pGrid the grid coordinates of the particle
+         * @return the slot of the particle in the block
+         */
+        public int add(double[] pGrid) {
+            for (int d = 0; d < dim; d++) {
+                p0[d][size] = pGrid[d];
+            }
+            excluded[size] = false;
+            return size++;
+        }
+
+        /**
+         * Copies the move of the particle in the given slot.
+         */
+        public double[] getMove(int slot, double[] move) {
+            for (int d = 0; d < dim; d++) {
+                move[d] = mvt[d][slot];
+            }
+            return move;
+        }
+
+        /**
+         * Whether the particle in the given slot has been excluded from the
+         * advection, because it left the domain.
+         */
+        public boolean isExcluded(int slot) {
+            return excluded[slot];
+        }
+
+        private void activate() {
+            nActive = 0;
+            for (int i = 0; i < size; i++) {
+                if (!excluded[i]) {
+                    active[nActive++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Arrays reused by one thread from one particle to the next.
+     */
+    static class Scratch {
+
+        final double[] p, mvt, pk, k1, k2, k3, k4, sum, q;
+
+        Scratch(int dim) {
+            p = new double[dim];
+            mvt = new double[dim];
+            sum = new double[dim];
+            q = new double[dim];
+            pk = new double[dim];
+            k1 = new double[dim];
+            k2 = new double[dim];
+            k3 = new double[dim];
+            k4 = new double[dim];
+        }
+    }
+}
@@ -69,10 +69,10 @@ public class BuoyancyAction extends AbstractAction {
 ///////////////////////////////
 // Declaration of the constants
 ///////////////////////////////
-    private static double MEAN_MINOR_AXIS = 0.05f;   // l
-    private static double MEAN_MAJOR_AXIS = 0.14f;   // d
-    private static double LOGN;
-    private static double MOLECULAR_VISCOSITY = 0.01f; // [g/cm/s]
+    private double MEAN_MINOR_AXIS = 0.05f;   // l
+    private double MEAN_MAJOR_AXIS = 0.14f;   // d
+    private double LOGN;
+    private double MOLECULAR_VISCOSITY = 0.01f; // [g/cm/s]
     final private static double g = 980.0f; // [cm/s2]
     final private static double DR350 = 28.106331f;
     final private static double C1 = 4.8314f * Math.pow(10, -4);
@@ -97,15 +97,13 @@ public class BuoyancyAction extends AbstractAction {
      * Buoyuancy scheme only operates during the egg stage. But when the growth
      * of the particle is not simulated, it operates up to this age limit [day].
      */
-    public static double maximumAge;
+    public double maximumAge;
     /**
      * Egg density [g/cm3], a key parameter to calculate the egg buoyancy.
+     * Constant density of the particles, the density of a particle is
+     * computed in {@link #execute(IParticle)} when it is a function of age.
      */
     private float particleDensity;
-    /**
-     * Sea water density at particle location.
-     */
-    private static double waterDensity;
     private String salinity_field;
     private String temperature_field;
     private boolean isGrowth;
@@ -212,22 +210,22 @@ public class BuoyancyAction extends AbstractAction {
              * For case of particle density varying with particle age, we
              * determine what is current density for the particle
              */
+            float density = particleDensity;
             if (buoyancyModel == BuoyancyModel.DENSITY_AS_AGE_FUNCTION) {
-                particleDensity = particleDensities[ages.length - 1];
+                density = particleDensities[ages.length - 1];
                 float age = particle.getAge();
                 for (int i = 0; i < ages.length - 1; i++) {
                     if (ages[i] <= age && age < ages[i + 1]) {
-                        particleDensity = particleDensities[i];
+                        density = particleDensities[i];
                         break;
                     }
                 }
             }
-            //System.out.println("My age is " + (particle.getAge() / 3600.f) + " density: " + particleDensity);
             double time = getSimulationManager().getTimeManager().getTime();
             double dt = getSimulationManager().getTimeManager().get_dt();
-            double sal = getSimulationManager().getDataset().get(salinity_field, particle.getGridCoordinates(), time).doubleValue();
-            double tp = getSimulationManager().getDataset().get(temperature_field, particle.getGridCoordinates(), time).doubleValue();
-            double dz = getSimulationManager().getDataset().depth2z(particle.getX(), particle.getY(), particle.getDepth() + move(sal, tp, dt)) - particle.getZ();
+            double sal = getSimulationManager().getDataset().getDouble(salinity_field, particle.getGridCoordinates(), time);
+            double tp = getSimulationManager().getDataset().getDouble(temperature_field, particle.getGridCoordinates(), time);
+            double dz = getSimulationManager().getDataset().depth2z(particle.getX(), particle.getY(), particle.getDepth() + move(sal, tp, dt, density)) - particle.getZ();
             particle.increment(new double[]{0.d, 0.d, dz});
         }
     }
@@ -250,9 +248,10 @@ public class BuoyancyAction extends AbstractAction {
      * @param salt a double, the sea water salinity [psu] at particle location
      * @param tp a double, the sea water temperature [celcius] at particle
      * location
+     * @param particleDensity a double, the density of the particle [g.cm-3]
      * @return a double, the vertical move of the particle [meter] dw * dt / 100
      */
-    private double move(double sal, double tp, double dt) {
+    private double move(double sal, double tp, double dt, double particleDensity) {
 
         /* Methodology:
          waterDensity = waterDensity(salt, temperature);
@@ -264,7 +263,7 @@ public class BuoyancyAction extends AbstractAction {
          buoyancyMeters = (buoyancyEgg / 100.0f); //m.s-1
          return (buoyancyMeters * dt_sec); //meter
          */
-        waterDensity = waterDensity(sal, tp);
+        double waterDensity = waterDensity(sal, tp);
 
         double wpart =  g * MEAN_MAJOR_AXIS * MEAN_MINOR_AXIS / (24.0f * MOLECULAR_VISCOSITY * waterDensity) * LOGN * (waterDensity - particleDensity) / 100.0f;
         return wpart * dt;
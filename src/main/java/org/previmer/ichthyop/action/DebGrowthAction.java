@@ -77,8 +77,8 @@ public class DebGrowthAction extends AbstractAction {
     // Temperature related params
     private double TA;      // Arehnius temp (K) Pecquerie et al. 2009
     private double T1;	 // K, Ref temp = 16C (avg. mid-water temp in GoL)
-    private static double length_init; // = 0.025d; // Initial length [millimeter] for the particles.
-    private static double feeding_length;// = 4.5d; // hreshold [millimeter] between Yolk-Sac Larvae and Feeding Larvae
+    private double length_init; // = 0.025d; // Initial length [millimeter] for the particles.
+    private double feeding_length;// = 4.5d; // hreshold [millimeter] between Yolk-Sac Larvae and Feeding Larvae
     private double shape_larvae; // size related conversion params
     private double E_init; // Réserve initiale
     private double Vj; // Structure at mouth opening (yolk_to_feeding)
@@ -173,8 +173,8 @@ public class DebGrowthAction extends AbstractAction {
     public void execute(IParticle particle) {
         DebParticleLayer debLayer = (DebParticleLayer) particle.getLayer(DebParticleLayer.class);
         StageParticleLayer stageLayer = (StageParticleLayer) particle.getLayer(StageParticleLayer.class);
-        double temp = getSimulationManager().getDataset().get(temperature_field, debLayer.particle().getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
-        double food = getSimulationManager().getDataset().get(food_field, debLayer.particle().getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double temp = getSimulationManager().getDataset().getDouble(temperature_field, debLayer.particle().getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
+        double food = getSimulationManager().getDataset().getDouble(food_field, debLayer.particle().getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
         double[] res_deb = grow(dt, debLayer.getE(), debLayer.getV(), debLayer.getE_R(), Vj, temp, food);
         debLayer.setE(res_deb[0]);
         debLayer.setV(res_deb[1]);
@@ -71,7 +71,7 @@ public class DebGrowthAction_LP extends AbstractAction {
     // Temperature related params
     private double TA;      // Arehnius temp (K) Pecquerie et al. 2009
     private double T1;	 // K, Ref temp = 16C (avg. mid-water temp in GoL)
-    private static double length_init; // = 0.025d; // Initial length [millimeter] for the particles.
+    private double length_init; // = 0.025d; // Initial length [millimeter] for the particles.
     //private static double feeding_length;// = 4.5d; // hreshold [millimeter] between Yolk-Sac Larvae and Feeding Larvae
     private double shape_larvae; // size related conversion params
     private double E_0; // initial reserve
@@ -215,8 +215,8 @@ public class DebGrowthAction_LP extends AbstractAction {
     public void execute(IParticle particle) {
 
         // Recover the temperature and food fields.
-        double temp = getSimulationManager().getDataset().get(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
-        double food = getSimulationManager().getDataset().get(food_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double temp = getSimulationManager().getDataset().getDouble(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
+        double food = getSimulationManager().getDataset().getDouble(food_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
 
         // Recover the DEB variables for the current particle.
         DebParticleLayer debLayer = (DebParticleLayer) particle.getLayer(DebParticleLayer.class);
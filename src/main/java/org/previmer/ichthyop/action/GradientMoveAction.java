@@ -113,7 +113,7 @@ public class GradientMoveAction extends AbstractAction {
     }
 
     private double getValue(Cell cell, double time) {
-        return getSimulationManager().getDataset().get(varName, new double[]{cell.i, cell.j, cell.k}, time).doubleValue();
+        return getSimulationManager().getDataset().getDouble(varName, new double[]{cell.i, cell.j, cell.k}, time);
     }
 
     private List<Cell> getNeighborCells(Cell cell) {
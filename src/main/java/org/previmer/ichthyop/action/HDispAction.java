@@ -44,8 +44,7 @@
 
 package org.previmer.ichthyop.action;
 
-import org.previmer.ichthyop.util.MTRandom;
-import org.previmer.ichthyop.manager.ParameterManager;
+import org.previmer.ichthyop.util.RandomStream;
 import org.previmer.ichthyop.particle.IParticle;
 
 /**
@@ -59,8 +58,8 @@ import org.previmer.ichthyop.particle.IParticle;
  * where l is the unresolved subgrid scale and epsilon the turbulent
  * dissipation rate.
  *
- * In this case, R is generated by a Mersenne Twister pseudo random
- * number generator, epsilon = 1e-9 m2/s3 and l is taken as the cell size.
+ * In this case, R is drawn from the counter-based random stream of the
+ * particle, epsilon = 1e-9 m2/s3 and l is taken as the cell size.
  *
  * Therefore the move of the particle due to horizontal dispersion is
  * dX = R * sqrt(2 * Kh * dt)
@@ -77,26 +76,21 @@ public class HDispAction extends AbstractAction {
      * horizontal diffusion.
      * @see Monin and Ozmidov, 1981
      */
-    private static double epsilon;// = 1e-9;
+    private double epsilon;// = 1e-9;
     /**
      * epsilon16 = epsilon ^ (1/6)
      */
-    private static double epsilon16;
+    private double epsilon16;
     /**
-     * Mersenne Twister pseudo random number generator
+     * The sub-steps shared with the advection.
      */
-    private MTRandom random;
+    private AdaptiveSubstepping substepping;
 
     @Override
     public void loadParameters() throws Exception {
-        boolean isFixedSeed = ParameterManager.getInstance().getConfigurationFile().isFixedSeed();
-        if (isFixedSeed) {
-            random = new MTRandom(getSimulationManager().getIndexSimulation());
-        } else {
-            random = new MTRandom();
-        }
         epsilon = Double.valueOf(getParameter("epsilon"));
         epsilon16 = Math.pow(epsilon, 1.d / 6.d);
+        substepping = new AdaptiveSubstepping(getSimulationManager().getParameterManager());
     }
 
     @Override
@@ -106,7 +100,41 @@ public class HDispAction extends AbstractAction {
 
     @Override
     public void execute(IParticle particle) {
-        particle.increment(getHDispersion(particle.getGridCoordinates(), getSimulationManager().getTimeManager().get_dt()));
+        double dt = getSimulationManager().getTimeManager().get_dt();
+        if (substepping.isEnabled()) {
+            particle.increment(getHDispersion(particle, dt));
+        } else {
+            particle.increment(getHDispersion(particle.getGridCoordinates(), dt, getRandomStream(particle)));
+        }
+    }
+
+    /**
+     * Generates the horizontal random move of the particle in as many
+     * sub-steps as the advection of the same time step, see
+     * {@link AdaptiveSubstepping#getSubsteps}.
+     *
+     * @param particle, the particle
+     * @param dt, time-step
+     * @return a double[] {dx, dy}, the horizontal random move.
+     */
+    private double[] getHDispersion(IParticle particle, double dt) {
+        int n = substepping.getSubsteps(particle, getSimulationManager().getDataset(),
+                getSimulationManager().getTimeManager().getTime(), dt,
+                getSimulationManager().getTimeManager().index());
+        double[] pGrid = particle.getGridCoordinates();
+        if (n <= 1) {
+            return getHDispersion(pGrid, dt, getRandomStream(particle));
+        }
+        RandomStream random = getRandomStream(particle);
+        double[] move = new double[2];
+        for (int s = 0; s < n; s++) {
+            double[] rMove = getHDispersion(pGrid, dt / n, random);
+            pGrid[0] += rMove[0];
+            pGrid[1] += rMove[1];
+            move[0] += rMove[0];
+            move[1] += rMove[1];
+        }
+        return move;
     }
 
     /**
@@ -114,9 +142,10 @@ public class HDispAction extends AbstractAction {
      *
      * @param pGrid, current particle grid coordinates
      * @param dt, time-step
+     * @param random, the random stream of the particle
      * @return a double[] {dx, dy}, the horizontal random move.
      */
-    public double[] getHDispersion(double[] pGrid, double dt) {
+    public double[] getHDispersion(double[] pGrid, double dt, RandomStream random) {
 
         /*
          * Get the current cell (i, j) where the particle is located
@@ -135,7 +164,7 @@ public class HDispAction extends AbstractAction {
          * close by the coastline.
          */
         for (int n = 0; n < 5; n++) {
-            double[] rMove = randomMove(i, j, dt);
+            double[] rMove = randomMove(i, j, dt, random);
             double[] rPos = (pGrid.length > 2)
                     ? new double[]{pGrid[0] + rMove[0], pGrid[1] + rMove[1], pGrid[2]}
                     : new double[]{pGrid[0] + rMove[0], pGrid[1] + rMove[1]};
@@ -152,9 +181,10 @@ public class HDispAction extends AbstractAction {
      * @param i, an Integer, the i-coordinate of the cell
      * @param j, an Integer, the j-coordinate of the cell
      * @param dt, a double, the time-step of the model
+     * @param random, the random stream of the particle
      * @return a double[] {dx, dy}, the horizontal random move.
      */
-    private double[] randomMove(int i, int j, double dt) {
+    private double[] randomMove(int i, int j, double dt, RandomStream random) {
         double Rx = 2.d * random.nextDouble() - 1.d;
         double Ry = 2.d * random.nextDouble() - 1.d;
         double dL = 0.5d * (getSimulationManager().getDataset().getdxi(j, i) + getSimulationManager().getDataset().getdeta(j, i));
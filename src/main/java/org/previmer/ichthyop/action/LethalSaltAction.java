@@ -147,13 +147,19 @@ public class LethalSaltAction extends AbstractAction {
         }
     }
 
+    @Override
+    public boolean isNoOpWhenDead() {
+        // killing an already dead particle has no effect
+        return true;
+    }
+
     @Override
     public void execute(IParticle particle) {
         checkTp(particle);
     }
 
     private void checkTp(IParticle particle) {
-        double salinity = getSimulationManager().getDataset().get(salinity_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double salinity = getSimulationManager().getDataset().getDouble(salinity_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
         int iAge = ages.length - 1;
         if (FLAG_LETHAL_SALT_FUNCTION) {
             float age = particle.getAge();
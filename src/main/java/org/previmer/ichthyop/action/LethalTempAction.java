@@ -156,6 +156,12 @@ public class LethalTempAction extends AbstractAction {
         }
     }
 
+    @Override
+    public boolean isNoOpWhenDead() {
+        // killing an already dead particle has no effect
+        return true;
+    }
+
     @Override
     public void execute(IParticle particle) {
 
@@ -168,7 +174,7 @@ public class LethalTempAction extends AbstractAction {
     }
 
     private void checkTp(IParticle particle) {
-        double temperature = getSimulationManager().getDataset().get(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double temperature = getSimulationManager().getDataset().getDouble(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
         int iAge = ages.length - 1;
         if (FLAG_LETHAL_TEMP_FUNCTION) {
             float age = particle.getAge();
@@ -190,7 +196,7 @@ public class LethalTempAction extends AbstractAction {
 
     private void checkTpGrowingParticle(IParticle particle) {
 
-        double temperature = getSimulationManager().getDataset().get(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double temperature = getSimulationManager().getDataset().getDouble(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
         int stage = ((StageParticleLayer) particle.getLayer(StageParticleLayer.class)).getStage();
         // stage == 0 means egg, stage > 0 means larvae
         boolean frozen = ((stage == 0) && (temperature <= coldLethalTp[0])) || ((stage != 0) && (temperature <= coldLethalTp[1]));
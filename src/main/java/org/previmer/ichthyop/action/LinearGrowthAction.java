@@ -127,11 +127,11 @@ public class LinearGrowthAction extends AbstractAction {
     public void execute(IParticle particle
     ) {
         LengthParticleLayer lengthLayer = (LengthParticleLayer) particle.getLayer(LengthParticleLayer.class);
-        double temperature = getSimulationManager().getDataset().get(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double temperature = getSimulationManager().getDataset().getDouble(temperature_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
 
         // If ks == 0, give food a dummy value since is unused.
         // If ks i not null, load value from file.
-        double food = (ks == 0) ? 1 : getSimulationManager().getDataset().get(food_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double food = (ks == 0) ? 1 : getSimulationManager().getDataset().getDouble(food_field, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
 
         // Increments length providing temperature and food
         lengthLayer.incrementLength(grow(temperature, food));
@@ -68,7 +68,7 @@ import org.previmer.ichthyop.particle.StageParticleLayer;
 public class MigrationAction extends AbstractAction {
 
     /**
-     * Current depth at day time.
+     * Constant depth at day time, when it is not a function of age.
      */
     private float depthDay;
     /**
@@ -80,7 +80,7 @@ public class MigrationAction extends AbstractAction {
      */
     private float[] agesDepthDay;
     /**
-     * Current depth at night.
+     * Constant depth at night, when it is not a function of age.
      */
     private float depthNight;
     /**
@@ -278,40 +278,38 @@ public class MigrationAction extends AbstractAction {
 
         // get bathy in meter (<0)
         double bottom = this.getBathy(particle);
-        double output;
+        float output;
 
         if ((currentTime.compareTo(sunrise) >= 0) && (currentTime.compareTo(sunset) < 0)) {
             // day time
+            output = depthDay;
             if (null != depthsDay) {
                 // Update the depth as function of age
-                depthDay = depthsDay[agesDepthDay.length - 1];
+                output = depthsDay[agesDepthDay.length - 1];
                 float age = particle.getAge();
                 for (int i = 0; i < agesDepthDay.length - 1; i++) {
                     if (agesDepthDay[i] <= age && age < agesDepthDay[i + 1]) {
-                        depthDay = depthsDay[i];
+                        output = depthsDay[i];
                         break;
                     }
                 }
             }
-            output = depthDay;
         } else {
             // night time
+            output = depthNight;
             if (null != depthsNight) {
                 // Update the depth as function of age
-                depthNight = depthsNight[agesDepthNight.length - 1];
+                output = depthsNight[agesDepthNight.length - 1];
                 float age = particle.getAge();
                 for (int i = 0; i < agesDepthNight.length - 1; i++) {
                     if (agesDepthDay[i] <= age && age < agesDepthNight[i + 1]) {
-                        depthNight = depthsNight[i];
+                        output = depthsNight[i];
                         break;
                     }
                 }
             }
-            output = depthNight;
         }
 
-        output = (output < bottom) ? particle.getDepth() : output;
-
-        return output;
+        return (output < bottom) ? particle.getDepth() : output;
     }
 }
@@ -52,6 +52,7 @@ import java.io.IOException;
 import java.util.logging.Level;
 import org.previmer.ichthyop.io.IOTools;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.util.RandomStream;
 
 /**
  * This class implements the ontogenetic vertical migration similarly to CMS. It
@@ -268,12 +269,13 @@ public class OntogeneticMigrationAction extends AbstractAction {
         // This is something you must analyse on post-processing by writting
         // a code in R or Matlab that will check for a given time-step how
         // many particles are in each depth level.
+        RandomStream random = getRandomStream(particle);
         float proba;
         int iDepth;
         do {
-            iDepth = (int) Math.round((depth.length - 1) * this.getRandomDraft());
+            iDepth = (int) Math.round((depth.length - 1) * random.nextDouble());
             proba = probability[iTime][iDepth];
-        } while (proba <= 0 || proba < (this.getRandomDraft() * maxProbability[iTime]));
+        } while (proba <= 0 || proba < (random.nextDouble() * maxProbability[iTime]));
 
         // Set the depth of the particle, around the selected depth level
         double dz = getSimulationManager().getDataset().depth2z(particle.getX(), particle.getY(), -depth[iDepth]) - particle.getZ();
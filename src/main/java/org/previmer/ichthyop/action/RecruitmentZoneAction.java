@@ -64,12 +64,7 @@ public class RecruitmentZoneAction extends AbstractAction {
      * Minimum duration [second] a particle has to spend within the same zone
      * before being recruited.
      */
-    private static int durationMinInRecruitArea;
-    /**
-     * Duration [second] presently spent by the particle within the current
-     * zone.
-     */
-    private int timeInZone;
+    private int durationMinInRecruitArea;
     private float ageMinAtRecruitment;
     private float lengthMinAtRecruitment;
     private boolean isAgeCriterion;
@@ -78,7 +73,6 @@ public class RecruitmentZoneAction extends AbstractAction {
     @Override
     public void loadParameters() throws Exception {
 
-        timeInZone = 0;
         durationMinInRecruitArea = (int) (Float.valueOf(getParameter("duration_min")) * 24.f * 3600.f);
         isAgeCriterion = getParameter("criterion").equals("Age criterion");
         boolean isGrowth = CheckGrowthParam.checkParams();
@@ -132,9 +126,12 @@ public class RecruitmentZoneAction extends AbstractAction {
         if ((numCurrentZone != -1) && !rParticle.isRecruited(numCurrentZone)) {
 
             if (satisfyRecruitmentCriterion(particle)) {
-                timeInZone = (rParticle.getNumRecruitmentZone() == numCurrentZone)
-                        ? timeInZone + Math.abs(getSimulationManager().getTimeManager().get_dt())
+                /* the time spent in zone is particle state, it must not be
+                 * shared by the particles through the action */
+                int timeInZone = (rParticle.getNumRecruitmentZone() == numCurrentZone)
+                        ? rParticle.getTimeInZone() + Math.abs(getSimulationManager().getTimeManager().get_dt())
                         : 0;
+                rParticle.setTimeInZone(timeInZone);
                 rParticle.setNumRecruitmentZone(numCurrentZone);
                 rParticle.setNewRecruited(timeInZone >= durationMinInRecruitArea);
                 rParticle.setRecruited(numCurrentZone, rParticle.isNewRecruited());
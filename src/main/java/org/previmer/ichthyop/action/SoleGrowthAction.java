@@ -114,7 +114,7 @@ public class SoleGrowthAction extends AbstractAction {
     @Override
     public void execute(IParticle particle) {
         LengthParticleLayer sole = (LengthParticleLayer) particle.getLayer(LengthParticleLayer.class);
-        double temp = getSimulationManager().getDataset().get(temperature_field, sole.particle().getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).doubleValue();
+        double temp = getSimulationManager().getDataset().getDouble(temperature_field, sole.particle().getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
         sole.incrementLength(grow(lengthStage.getStage(particle), temp));
         StageParticleLayer stageLayer = (StageParticleLayer) particle.getLayer(StageParticleLayer.class);
         stageLayer.setStage(lengthStage.getStage((float) sole.getLength()));
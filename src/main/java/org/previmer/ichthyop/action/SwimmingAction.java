@@ -55,6 +55,7 @@ import java.util.List;
 import java.util.Locale;
 import org.previmer.ichthyop.io.IOTools;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.util.RandomStream;
 
 /**
  * This class simulates active swimming, given the swimming velocity as an age
@@ -118,12 +119,13 @@ public class SwimmingAction extends AbstractAction {
     @Override
     public void execute(IParticle particle) {
 
+        RandomStream random = getRandomStream(particle);
         // Find the swimming velocity for this particle
-        double speed = getSpeed(particle) * (constant ? 1.d : 2.d*this.getRandomDraft());
+        double speed = getSpeed(particle) * (constant ? 1.d : 2.d * random.nextDouble());
         // Random x component of the swimming velocity
-        double u = randomDir() * this.getRandomDraft() * speed;
+        double u = randomDir(random) * random.nextDouble() * speed;
         // y component such as sqrt(x2 + y2) = speed
-        double v = randomDir() * Math.sqrt(speed * speed - u * u);
+        double v = randomDir(random) * Math.sqrt(speed * speed - u * u);
 
         // Convert dx and dy from m.s-1 to grid displacement
         int i = (int) Math.round(particle.getX());
@@ -159,10 +161,11 @@ public class SwimmingAction extends AbstractAction {
     /**
      * Random draw in {-1, 1}
      *
+     * @param random, the random stream of the particle
      * @return -1 or 1 randomly
      */
-    private double randomDir() {
-        return this.getRandomDraft() < 0.5 ? -1.d : 1.d;
+    private double randomDir(RandomStream random) {
+        return random.nextDouble() < 0.5 ? -1.d : 1.d;
     }
 
 }
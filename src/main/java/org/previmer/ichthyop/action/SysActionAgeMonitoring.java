@@ -44,7 +44,7 @@
 
 package org.previmer.ichthyop.action;
 
-import org.previmer.ichthyop.particle.Particle;
+import org.previmer.ichthyop.particle.IMasterParticle;
 import org.previmer.ichthyop.particle.ParticleMortality;
 
 /**
@@ -56,7 +56,7 @@ public class SysActionAgeMonitoring extends AbstractSysAction {
     boolean keepDrifting;
 
     @Override
-    public void execute(Particle particle) {
+    public void execute(IMasterParticle particle) {
         if (!keepDrifting && particle.getAge() > getSimulationManager().getTimeManager().getTransportDuration()) {
             particle.kill(ParticleMortality.OLD);
             return;
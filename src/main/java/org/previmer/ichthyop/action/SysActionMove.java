@@ -45,7 +45,7 @@
 package org.previmer.ichthyop.action;
 
 import java.util.logging.Level;
-import org.previmer.ichthyop.particle.Particle;
+import org.previmer.ichthyop.particle.IMasterParticle;
 import org.previmer.ichthyop.particle.ParticleMortality;
 
 /**
@@ -66,7 +66,7 @@ public class SysActionMove extends AbstractSysAction {
     }
 
     @Override
-    public void execute(Particle particle) {
+    public void execute(IMasterParticle particle) {
         particle.setOldLon(particle.getLon());
         particle.setOldLat(particle.getLat());
         if (!particle.isLocked()) {
@@ -85,7 +85,7 @@ public class SysActionMove extends AbstractSysAction {
      * Implements specific behaviours in case the current move take the particle
      * inland.
      */
-    private void checkCoastlineAndMove(Particle particle) {
+    private void checkCoastlineAndMove(IMasterParticle particle) {
 
         double[] move;
         switch (coastlineBehavior) {
@@ -44,10 +44,9 @@
 
 package org.previmer.ichthyop.action;
 
-import org.previmer.ichthyop.util.MTRandom;
+import org.previmer.ichthyop.util.RandomStream;
 import org.previmer.ichthyop.particle.IParticle;
 import org.previmer.ichthyop.dataset.IDataset;
-import org.previmer.ichthyop.manager.ParameterManager;
 
 /**
  *
@@ -55,18 +54,16 @@ import org.previmer.ichthyop.manager.ParameterManager;
  */
 public class VDispAction extends AbstractAction {
 
-    private MTRandom random;
     private String kv_field;
+    /**
+     * The sub-steps shared with the advection.
+     */
+    private AdaptiveSubstepping substepping;
 
     public void loadParameters() throws Exception {
-        boolean isFixedSeed = ParameterManager.getInstance().getConfigurationFile().isFixedSeed();
-        if (isFixedSeed) {
-            random = new MTRandom(getSimulationManager().getIndexSimulation());
-        } else {
-            random = new MTRandom();
-        }
         kv_field = getParameter("kv_field");
         getSimulationManager().getDataset().requireVariable(kv_field, getClass());
+        substepping = new AdaptiveSubstepping(getSimulationManager().getParameterManager());
     }
 
      @Override
@@ -75,7 +72,28 @@ public class VDispAction extends AbstractAction {
     }
 
     public void execute(IParticle particle) {
-        particle.increment(getVDispersion(particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime(), getSimulationManager().getTimeManager().get_dt()));
+        double time = getSimulationManager().getTimeManager().getTime();
+        double dt = getSimulationManager().getTimeManager().get_dt();
+        int n = substepping.isEnabled()
+                ? substepping.getSubsteps(particle, getSimulationManager().getDataset(), time, dt,
+                        getSimulationManager().getTimeManager().index())
+                : 1;
+        if (n <= 1) {
+            particle.increment(getVDispersion(particle.getGridCoordinates(), time, dt, getRandomStream(particle)));
+            return;
+        }
+        /* Same sub-steps as the adaptive advection, the reflecting boundary
+         * conditions apply at every sub-step */
+        RandomStream random = getRandomStream(particle);
+        double[] pGrid = particle.getGridCoordinates();
+        double h = dt / n;
+        double dz = 0.d;
+        for (int s = 0; s < n; s++) {
+            double[] move = getVDispersion(pGrid, time + s * h, h, random);
+            pGrid[2] += move[2];
+            dz += move[2];
+        }
+        particle.increment(new double[]{0.d, 0.d, dz});
     }
 
     /**
@@ -116,12 +134,13 @@ public class VDispAction extends AbstractAction {
      *
      * @param pGrid a double[] grid coordinates (x, y, z) of the particle
      * @param dt a double, simulation time step [second]
+     * @param random the random stream of the particle
      * @return a double[], the move of the particle (0, 0, dz) due to vertical
      * dispersion.
      * @see #getKv for details about the calculation of the diffusivity and the
      * first derivative.
      */
-    public double[] getVDispersion(double[] pGrid, double time, double dt) {
+    public double[] getVDispersion(double[] pGrid, double time, double dt, RandomStream random) {
 
         double[] kvSpline = getKv(pGrid, time, dt);
         double R = 2.d * random.nextDouble() - 1.d;
@@ -192,8 +211,10 @@ public class VDispAction extends AbstractAction {
         double a, b, c, d;
         int k;
         double z;
+        double[] pGrid = new double[]{i, j, 0};
         for (k = dataset.get_nz(); k-- > 0;) {
-            Kv[k] = dataset.get(kv_field, new double[] {i, j, k}, time).doubleValue();
+            pGrid[2] = k;
+            Kv[k] = dataset.getDouble(kv_field, pGrid, time);
         }
 
         z = Math.min(dataset.depth2z(i, j, depth), dataset.get_nz() - 1.00001f);
@@ -34,23 +34,23 @@ public class WaveDriftFileAction extends AbstractAction {
     /**
      * Name of the Variable in NetCDF file
      */
-    static String strUW, strVW, strTime;
+    String strUW, strVW, strTime;
     /**
      * Name of the Dimension in NetCDF file
      */
-    static String strLon, strLat;
+    String strLon, strLat;
     /**
      * Number of time records in current NetCDF file
      */
-    static int nbTimeRecords;
+    int nbTimeRecords;
     /**
      * Time t + dt expressed in seconds
      */
-    static double time_tp1;
+    double time_tp1;
     /*
      * Time between 2 wave files
      */
-    static double dt_wave;
+    double dt_wave;
     /**
      * List on NetCDF input files in which wave dataset is read.
      */
@@ -63,7 +63,7 @@ public class WaveDriftFileAction extends AbstractAction {
     /**
      * wave NetcdfFile
      */
-    static NetcdfFile ncIn;
+    NetcdfFile ncIn;
 
     /**
      * Grid dimension
@@ -72,15 +72,15 @@ public class WaveDriftFileAction extends AbstractAction {
     /**
      * Current rank in NetCDF dataset
      */
-    static int rank;
+    int rank;
     /**
      * Current time in NetCDF dataset
      */
-    static double time_current;
+    double time_current;
     /**
      * latitude and longitude arrays
      */
-    static double[][] lonRho, latRho;
+    double[][] lonRho, latRho;
     /**
      * Wave variables to compute depth effect
      */
@@ -88,19 +88,19 @@ public class WaveDriftFileAction extends AbstractAction {
     /**
      * Zonal component of the stokes drift field at current time
      */
-    static Array uw_tp0;
+    Array uw_tp0;
     /**
      * Zonal component of the stokes drift field at time t + dt
      */
-    static Array uw_tp1;
+    Array uw_tp1;
     /**
      * Meridional component of the stokes drift field at current time
      */
-    static Array vw_tp0;
+    Array vw_tp0;
     /**
      * Meridional component of the stokes drift field at time t + dt
      */
-    static Array vw_tp1;
+    Array vw_tp1;
     /**
      * U stokes drift variable
      */
@@ -120,27 +120,27 @@ public class WaveDriftFileAction extends AbstractAction {
     /**
      * Zonal component of the wave speed field at current time
      */
-    static Array wave_speed_u_tp0;
+    Array wave_speed_u_tp0;
     /**
      * Zonal component of the wave speed field at time t + dt
      */
-    static Array wave_speed_u_tp1;
+    Array wave_speed_u_tp1;
     /**
      * Meridional component of the wave speed field at current time
      */
-    static Array wave_speed_v_tp0;
+    Array wave_speed_v_tp0;
     /**
      * Meridional component of the wave speed field at time t + dt
      */
-    static Array wave_speed_v_tp1;
+    Array wave_speed_v_tp1;
     /**
      * Wave period field at current time
      */
-    static Array wave_period_tp0;
+    Array wave_period_tp0;
     /**
      * Wave period field at time t + dt
      */
-    static Array wave_period_tp1;
+    Array wave_period_tp1;
 
     public void loadParameters() throws Exception {
 
@@ -49,26 +49,26 @@ import org.previmer.ichthyop.manager.TimeManager;
 
 public class WindDriftAction extends AbstractAction {
 
-    static double wind_factor;
+    double wind_factor;
     public static final double ONE_DEG_LATITUDE_IN_METER = 111138.d;
     /**
      * Name of the Variable in NetCDF file
      */
-    static String strUW, strVW, strTime;
+    String strUW, strVW, strTime;
 
     /**
      * Depth of wind drift application
      */
-    static float depth_application;
+    float depth_application;
 
     /**
      * Angle deviation imposed by wind
      */
-    static double angle;
+    double angle;
     /**
      * Wind convention used
      */
-    static double convention;
+    double convention;
 
     @Override
     public void loadParameters() throws Exception {
@@ -112,8 +112,8 @@ public class WindDriftAction extends AbstractAction {
         double dx, dy;
         double[] latlon = getSimulationManager().getDataset().xy2latlon(pgrid[0], pgrid[1]);
         double one_deg_lon_meter = ONE_DEG_LATITUDE_IN_METER * Math.cos(Math.PI * latlon[0] / 180.d);
-        dx = dt * getSimulationManager().getDataset().get(strUW, pgrid, time).doubleValue() / one_deg_lon_meter;
-        dy = dt * getSimulationManager().getDataset().get(strVW, pgrid, time).doubleValue() / ONE_DEG_LATITUDE_IN_METER;
+        dx = dt * getSimulationManager().getDataset().getDouble(strUW, pgrid, time) / one_deg_lon_meter;
+        dy = dt * getSimulationManager().getDataset().getDouble(strVW, pgrid, time) / ONE_DEG_LATITUDE_IN_METER;
         dWi[0] = convention * wind_factor * (dx * Math.cos(angle) - dy * Math.sin(angle));
         dWi[1] = convention * wind_factor * (dx * Math.sin(angle) + dy * Math.cos(angle));
         return dWi;
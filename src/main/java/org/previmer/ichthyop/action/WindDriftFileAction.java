@@ -67,19 +67,19 @@ public class WindDriftFileAction extends WindDriftAction {
     /**
      * Name of the Dimension in NetCDF file
      */
-    static String strLon, strLat;
+    String strLon, strLat;
     /**
      * Number of time records in current NetCDF file
      */
-    static int nbTimeRecords;
+    int nbTimeRecords;
     /**
      * Time t + dt expressed in seconds
      */
-    static double time_tp1;
+    double time_tp1;
     /*
      * Time between 2 wind files
      */
-    static double dt_wind;
+    double dt_wind;
     /**
      * List on NetCDF input files in which wind dataset is read.
      */
@@ -92,7 +92,7 @@ public class WindDriftFileAction extends WindDriftAction {
     /**
      * wind NetcdfFile
      */
-    static NetcdfFile ncIn;
+    NetcdfFile ncIn;
 
     /**
      * Grid dimension
@@ -101,31 +101,31 @@ public class WindDriftFileAction extends WindDriftAction {
     /**
      * Current rank in NetCDF dataset
      */
-    static int rank;
+    int rank;
     /**
      * Current time in NetCDF dataset
      */
-    static double time_current;
+    double time_current;
     /**
      * latitude and longitude arrays
      */
-    static double[][] lonRho, latRho;
+    double[][] lonRho, latRho;
     /**
      * Zonal component of the wind velocity field at current time
      */
-    static Array uw_tp0;
+    Array uw_tp0;
     /**
      * Zonal component of the wind velocity field at time t + dt
      */
-    static Array uw_tp1;
+    Array uw_tp1;
     /**
      * Meridional component of the wind velocity field at current time
      */
-    static Array vw_tp0;
+    Array vw_tp0;
     /**
      * Meridional component of the wind velocity field at time t + dt
      */
-    static Array vw_tp1;
+    Array vw_tp1;
 
     /**
      * U wind variable
@@ -79,7 +79,7 @@ public class WindDriftURLAction extends WindDriftFileAction {
 
     }
 
-    static void openURL(String opendapURL) throws IOException {
+    void openURL(String opendapURL) throws IOException {
         try {
             ncIn = NetcdfDatasets.openDataset(opendapURL);
             getLogger().log(Level.INFO, "'{'Wind Dataset'}' Open remote {0}", opendapURL);
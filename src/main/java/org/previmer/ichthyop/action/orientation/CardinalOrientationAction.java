@@ -70,7 +70,7 @@ public class CardinalOrientationAction extends OrientationVelocity {
     private double[] getDlonDlat(IParticle particle) {
 
         // Random sampling of Von Mises
-        double ti = vonMises.nextDouble();
+        double ti = vonMises.nextDouble(getRandomStream(particle));
 
         // Preferred direction plus stochastic behavior
         double theta = thetaCard + ti;
@@ -179,7 +179,7 @@ public class ReefOrientationAction extends OrientationVelocity {
 
             VonMisesRandom vonMises = new VonMisesRandom(0, Kappa_reef);
 
-            double ti = vonMises.nextDouble();
+            double ti = vonMises.nextDouble(getRandomStream(particle));
 
             double theta = ti + mu + thetaCurrent;
 
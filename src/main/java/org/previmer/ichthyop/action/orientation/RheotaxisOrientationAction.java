@@ -73,7 +73,7 @@ public class RheotaxisOrientationAction extends OrientationVelocity {
         double vf = getSimulationManager().getDataset().get_dVy(pGrid, getSimulationManager().getTimeManager().getTime(), false);
         double uv = Math.sqrt(uf * uf + vf * vf);
 
-        double ti = vonMises.nextDouble();
+        double ti = vonMises.nextDouble(getRandomStream(particle));
         // ti = 0;
 
         // Compute rheotaxis heading
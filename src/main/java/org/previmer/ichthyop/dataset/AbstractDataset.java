@@ -44,10 +44,14 @@
 
 package org.previmer.ichthyop.dataset;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import org.previmer.ichthyop.SimulationManagerAccessor;
+import org.previmer.ichthyop.io.IOTools;
 import org.previmer.ichthyop.manager.TimeManager;
+import ucar.ma2.Array;
 import ucar.nc2.NetcdfFile;
 
 /**
@@ -111,10 +115,13 @@ public abstract class AbstractDataset extends SimulationManagerAccessor implemen
 
     @Override
     public Number get(String variableName, double[] pGrid, double time) {
-        if (null != requiredVariables.get(variableName)) {
-            return requiredVariables.get(variableName).get(pGrid, time);
-        }
-        return Float.NaN;
+        return getDouble(variableName, pGrid, time);
+    }
+
+    @Override
+    public double getDouble(String variableName, double[] pGrid, double time) {
+        RequiredVariable variable = requiredVariables.get(variableName);
+        return (null != variable) ? variable.getDouble(pGrid, time) : Double.NaN;
     }
 
     @Override
@@ -180,6 +187,92 @@ public abstract class AbstractDataset extends SimulationManagerAccessor implemen
         }
     }
 
+    /**
+     * Whether the next time record should be loaded in the background, see
+     * {@link RecordPrefetcher}. Optional parameter, false by default since
+     * it holds one more record in memory.
+     */
+    boolean prefetch() {
+        try {
+            return Boolean.valueOf(getParameter("prefetch"));
+        } catch (NullPointerException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the size, in cells, of the tiles the records are loaded by, see
+     * {@link TileMask}. Optional parameter "tile_size", zero by default,
+     * which disables the tiling and loads the whole domain.
+     */
+    int tileSize() {
+        try {
+            return Integer.valueOf(getParameter("tile_size"));
+        } catch (NullPointerException | NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the margin, in cells, kept around the reach of the particles when
+     * the records are loaded by tiles. Optional parameter "tile_halo", two
+     * cells by default, which covers the interpolation stencils.
+     */
+    int tileHalo() {
+        try {
+            return Integer.valueOf(getParameter("tile_halo"));
+        } catch (NullPointerException | NumberFormatException ex) {
+            return 2;
+        }
+    }
+
+    /**
+     * Opens the cache of the decoded time records, see {@link ForcingCache}.
+     * Optional parameter "forcing_cache", the directory of the cache.
+     *
+     * @return the cache, or {@code null} if the parameter is not set or if
+     * the directory cannot be created.
+     */
+    ForcingCache forcingCache() {
+        String path;
+        try {
+            path = getParameter("forcing_cache");
+        } catch (NullPointerException ex) {
+            return null;
+        }
+        if (null == path || path.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new ForcingCache(IOTools.resolvePath(path.trim()));
+        } catch (IOException ex) {
+            getLogger().log(Level.WARNING, "[Dataset] The forcing cache is disabled", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the required variables at the given rank, for a prefetched
+     * record. The names are given by the caller since the loading of the
+     * record does not run in the thread of the simulation.
+     */
+    Map<String, Array> readVariables(NetcdfFile nc, String[] names, int rank) throws Exception {
+        Map<String, Array> variables = new HashMap<>();
+        for (String name : names) {
+            variables.put(name, readVariable(nc, name, rank));
+        }
+        return variables;
+    }
+
+    /**
+     * Gets the array of a required variable at the given rank, from the
+     * prefetched record if any, otherwise from the NetCDF file.
+     */
+    Array readVariable(RecordPrefetcher.Record<?> record, NetcdfFile nc, String name, int rank) throws Exception {
+        Array array = (null != record) ? record.getVariable(name) : null;
+        return (null != array) ? array : readVariable(nc, name, rank);
+    }
+
     int timeArrow() {
         return getSimulationManager().getParameterManager().getParameter("app.time", "time_arrow").equals(TimeManager.TimeDirection.FORWARD.toString()) ? 1 :-1;
     }
@@ -65,7 +65,6 @@ import org.previmer.ichthyop.util.Constant;
 import org.previmer.ichthyop.util.MetaFilenameFilter;
 import org.previmer.ichthyop.util.NCComparator;
 
-import ucar.ma2.Array;
 import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
@@ -106,7 +105,8 @@ public class DatasetUtil {
 
     /**
      * Sort of the NetCDF files from the list, comparing the first value of the
-     * time variable.
+     * time variable. The time axes of the files are loaded in the
+     * {@link TimeCatalog} beforehand.
      *
      * @param list
      * @param strTime, the name of the time variable in the NetCDF file
@@ -116,6 +116,7 @@ public class DatasetUtil {
         if (list.isEmpty() || list.size() == 1) {
             return;
         }
+        TimeCatalog.load(list, strTime);
         list.sort(new NCComparator(strTime, timeArrow));
     }
 
@@ -148,18 +149,13 @@ public class DatasetUtil {
         if (!new File(file).isFile()) {
             throw new FileNotFoundException(file);
         }
-        NetcdfFile nc = NetcdfDatasets.openDataset(file);
-        Array timeArr = nc.findVariable(strTime).read();
-        nc.close();
-
-        int lastIndex = timeArr.getShape()[0] - 1;
-
-        return getDate(file, strTime, lastIndex);
+        TimeCatalog.Axis axis = TimeCatalog.get(file, strTime);
+        return axis.getTime(axis.length() - 1);
 
     }
 
     public static double timeAtRank(NetcdfFile nc, String strTime, int rank) throws IOException {
-        return DatasetUtil.getDate(nc.getLocation(), strTime, rank);
+        return TimeCatalog.get(nc, strTime).getTime(rank);
     }
 
     /**
@@ -228,6 +224,8 @@ public class DatasetUtil {
 
     public static int index(List<String> list, double time, int timeArrow, String strTime) throws IOException {
 
+        TimeCatalog.load(list, strTime);
+
         // Check whether the time is within a file
         for (int index = 0; index < list.size(); index++) {
             if (isTimeIntoFile(time, list.get(index), strTime, timeArrow)) {
@@ -261,20 +259,13 @@ public class DatasetUtil {
     public static int rank(double time, NetcdfFile nc, String strTime, int timeArrow) throws ArrayIndexOutOfBoundsException, IOException {
 
         int lrank = 0;
-        double nctime;
-        Array timeArr = null;
-        try {
-            timeArr = nc.findVariable(strTime).read();
-            nctime = DatasetUtil.getDate(nc.getLocation(), strTime, lrank);
-            while (time >= nctime) {
-                if (timeArrow < 0 && time == nctime) {
-                    break;
-                }
-                lrank++;
-                nctime = DatasetUtil.getDate(nc.getLocation(), strTime, lrank);
+        TimeCatalog.Axis axis = TimeCatalog.get(nc, strTime);
+        while (lrank < axis.length()) {
+            double nctime = axis.getTime(lrank);
+            if (time < nctime || (timeArrow < 0 && time == nctime)) {
+                break;
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            lrank = timeArr.getShape()[0];
+            lrank++;
         }
         lrank = lrank - (timeArrow + 1) / 2;
         return lrank;
@@ -439,30 +430,19 @@ public class DatasetUtil {
         return d;
     }
 
+    /**
+     * Returns the time value of the NetCDF file at the given index, in
+     * seconds. The time axis of the file is read from the
+     * {@link TimeCatalog}.
+     *
+     * @param file, path of the NetCDF file
+     * @param strTime, name of the time variable
+     * @param index, index of the time value
+     * @return the time value in seconds
+     * @throws IOException if the time variable cannot be read
+     */
     public static double getDate(String file, String strTime, int index) throws IOException {
-
-        // Open the NetCDF file
-        // Recover the time variable and units
-        NetcdfFile nc = NetcdfDatasets.openDataset(file);
-        Variable timeVar = nc.findVariable(strTime);
-        Attribute attrUnits = timeVar.findAttribute("units");
-
-        // Recover the time values for the corresponding index
-        Array timeArr = nc.findVariable(strTime).read();
-        double time = timeArr.getDouble(timeArr.getIndex().set(index));
-
-        String units;
-        // Converts string into lower case.
-        if (attrUnits != null) {
-            units = attrUnits.getStringValue().toLowerCase();
-        } else {
-            units = TimeManager.getInstance().getTimeOfOrigin();
-        }
-
-        nc.close();
-
-        return getDate(time, units);
-
+        return TimeCatalog.get(file, strTime).getTime(index);
     }
 
     public static double getDate(double time, String units) {
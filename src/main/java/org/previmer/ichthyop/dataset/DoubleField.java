@@ -0,0 +1,138 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.io.IOException;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * A 3D field of doubles stored in a single contiguous array, the double
+ * precision counterpart of {@link FloatField} for the depths and the
+ * computed vertical velocities.
+ *
+ * @author pverley
+ */
+public class DoubleField {
+
+    private final int nz, ny, nx;
+    private final double[] data;
+
+    /**
+     * Creates a field filled with zeros.
+     */
+    public DoubleField(int nz, int ny, int nx) {
+        this(nz, ny, nx, new double[nz * ny * nx]);
+    }
+
+    /**
+     * Wraps an array without copying it. The array is owned by the field
+     * afterwards.
+     */
+    static DoubleField wrap(int nz, int ny, int nx, double[] data) {
+        return new DoubleField(nz, ny, nx, data);
+    }
+
+    private DoubleField(int nz, int ny, int nx, double[] data) {
+        this.nz = nz;
+        this.ny = ny;
+        this.nx = nx;
+        this.data = data;
+    }
+
+    /**
+     * Copies a NetCDF array into a field of the given dimensions. The
+     * array may have any rank, e.g. when {@code reduce()} dropped a dimension
+     * of length one, provided that it has the expected number of elements.
+     *
+     * @param array, the NetCDF array
+     * @param nz, the number of levels
+     * @param ny, the number of rows
+     * @param nx, the number of columns
+     * @return the field
+     * @throws IOException if the size of the array does not match the
+     * dimensions
+     */
+    public static DoubleField read(Array array, int nz, int ny, int nx) throws IOException {
+        return new DoubleField(nz, ny, nx, copy(array, nz * ny * nx));
+    }
+
+    private static double[] copy(Array array, int size) throws IOException {
+        if (array.getSize() != size) {
+            throw new IOException("Array of size " + array.getSize() + " does not match the expected size " + size);
+        }
+        // bulk copy in the logical (C) order of the array, converting to
+        // double if need be
+        return (double[]) array.get1DJavaArray(DataType.DOUBLE);
+    }
+
+    public double get(int k, int j, int i) {
+        return data[(k * ny + j) * nx + i];
+    }
+
+    public void set(int k, int j, int i, double value) {
+        data[(k * ny + j) * nx + i] = value;
+    }
+
+    /**
+     * Gets the underlying array, in the (k, j, i) order. Not copied.
+     */
+    double[] getData() {
+        return data;
+    }
+
+    public int get_nz() {
+        return nz;
+    }
+
+    public int get_ny() {
+        return ny;
+    }
+
+    public int get_nx() {
+        return nx;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.io.IOException;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * A 2D or 3D field of floats stored in a single contiguous array, in the
+ * (k, j, i) order of the NetCDF variables. The element (k, j, i) is at
+ * {@code (k * ny + j) * nx + i}, so that an access costs one array lookup
+ * instead of the three dereferences of a {@code float[][][]}, and a field is
+ * filled from a NetCDF array with a single bulk copy. 2D fields have a
+ * single level.
+ *
+ * @author pverley
+ */
+public class FloatField {
+
+    private final int nz, ny, nx;
+    private final int rank;
+    private final float[] data;
+
+    /**
+     * Creates a 3D field filled with zeros.
+     */
+    public FloatField(int nz, int ny, int nx) {
+        this(3, nz, ny, nx, new float[nz * ny * nx]);
+    }
+
+    /**
+     * Creates a 2D field filled with zeros.
+     */
+    public FloatField(int ny, int nx) {
+        this(2, 1, ny, nx, new float[ny * nx]);
+    }
+
+    /**
+     * Wraps an array without copying it. The array is owned by the field
+     * afterwards.
+     */
+    static FloatField wrap(int rank, int nz, int ny, int nx, float[] data) {
+        return new FloatField(rank, nz, ny, nx, data);
+    }
+
+    private FloatField(int rank, int nz, int ny, int nx, float[] data) {
+        this.rank = rank;
+        this.nz = nz;
+        this.ny = ny;
+        this.nx = nx;
+        this.data = data;
+    }
+
+    /**
+     * Copies a NetCDF array into a 3D field of the given dimensions. The
+     * array may have any rank, e.g. when {@code reduce()} dropped a dimension
+     * of length one, provided that it has the expected number of elements.
+     *
+     * @param array, the NetCDF array
+     * @param nz, the number of levels
+     * @param ny, the number of rows
+     * @param nx, the number of columns
+     * @return the field
+     * @throws IOException if the size of the array does not match the
+     * dimensions
+     */
+    public static FloatField read(Array array, int nz, int ny, int nx) throws IOException {
+        return new FloatField(3, nz, ny, nx, copy(array, nz * ny * nx));
+    }
+
+    /**
+     * Copies a NetCDF array into a 2D field of the given dimensions.
+     *
+     * @see #read(ucar.ma2.Array, int, int, int)
+     */
+    public static FloatField read(Array array, int ny, int nx) throws IOException {
+        return new FloatField(2, 1, ny, nx, copy(array, ny * nx));
+    }
+
+    /**
+     * Copies a 2D or 3D NetCDF array into a field of the same shape.
+     *
+     * @param array, the NetCDF array
+     * @return the field
+     * @throws IllegalArgumentException if the array is neither 2D nor 3D
+     */
+    public static FloatField read(Array array) {
+        int[] shape = array.getShape();
+        switch (shape.length) {
+            case 2:
+                return new FloatField(2, 1, shape[0], shape[1], copy(array));
+            case 3:
+                return new FloatField(3, shape[0], shape[1], shape[2], copy(array));
+            default:
+                throw new IllegalArgumentException("Cannot store a " + shape.length + "D array in a 2D or 3D field.");
+        }
+    }
+
+    private static float[] copy(Array array, int size) throws IOException {
+        if (array.getSize() != size) {
+            throw new IOException("Array of size " + array.getSize() + " does not match the expected size " + size);
+        }
+        return copy(array);
+    }
+
+    private static float[] copy(Array array) {
+        // bulk copy in the logical (C) order of the array, converting to
+        // float if need be
+        return (float[]) array.get1DJavaArray(DataType.FLOAT);
+    }
+
+    /**
+     * Copies a NetCDF array into the horizontal block of the field that
+     * starts at (j0, i0), on every level.
+     *
+     * @param array, the NetCDF array, of nz * nj * ni elements
+     * @param j0, the first row of the block
+     * @param i0, the first column of the block
+     * @param nj, the number of rows of the block
+     * @param ni, the number of columns of the block
+     * @throws IOException if the size of the array does not match the block
+     */
+    void readBlock(Array array, int j0, int i0, int nj, int ni) throws IOException {
+        float[] block = copy(array, nz * nj * ni);
+        for (int k = 0; k < nz; k++) {
+            for (int j = 0; j < nj; j++) {
+                System.arraycopy(block, (k * nj + j) * ni, data, (k * ny + j0 + j) * nx + i0, ni);
+            }
+        }
+    }
+
+    public float get(int k, int j, int i) {
+        return data[(k * ny + j) * nx + i];
+    }
+
+    public float get(int j, int i) {
+        return data[j * nx + i];
+    }
+
+    public void set(int k, int j, int i, float value) {
+        data[(k * ny + j) * nx + i] = value;
+    }
+
+    public void set(int j, int i, float value) {
+        data[j * nx + i] = value;
+    }
+
+    /**
+     * Adds the values of a field of the same size, element by element.
+     */
+    public void add(FloatField field) {
+        if (field.data.length != data.length) {
+            throw new IllegalArgumentException("Cannot add fields of different sizes.");
+        }
+        for (int n = 0; n < data.length; n++) {
+            data[n] += field.data[n];
+        }
+    }
+
+    /**
+     * Gets the underlying array, in the (k, j, i) order. Not copied.
+     */
+    float[] getData() {
+        return data;
+    }
+
+    /**
+     * Gets a NetCDF array of the shape of the field that shares its data.
+     */
+    Array toArray() {
+        int[] shape = (rank == 2) ? new int[]{ny, nx} : new int[]{nz, ny, nx};
+        return Array.factory(DataType.FLOAT, shape, data);
+    }
+
+    /**
+     * Gets the number of dimensions of the field, 2 or 3.
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    public int get_nz() {
+        return nz;
+    }
+
+    public int get_ny() {
+        return ny;
+    }
+
+    public int get_nx() {
+        return nx;
+    }
+}
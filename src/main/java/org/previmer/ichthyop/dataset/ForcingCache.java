@@ -0,0 +1,321 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import static org.previmer.ichthyop.SimulationManagerAccessor.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Cache of the decoded time records of a dataset on disk. The first run
+ * writes every record it reads, once cropped to the subdomain and with the
+ * derived fields already computed, in an uncompressed binary file. The next
+ * runs map the file in memory with {@link FileChannel#map} and copy the
+ * fields out of it, instead of decoding the NetCDF file and recomputing the
+ * derived fields. The mapped pages live in the page cache of the operating
+ * system, so concurrent processes running on the same forcing share them.
+ *
+ * <p>
+ * A record is identified by a key that must sum up everything its content
+ * depends on, including the size and the last modification time of the
+ * NetCDF file (see {@link #source(String)}). The file name is derived from
+ * the key and the key is also written in the file, so that a stale or
+ * colliding file is ignored and overwritten.
+ * </p>
+ *
+ * <pre>
+ * int magic, int version, int header length
+ * header: key, time, number of fields, and for every field its name, type,
+ * rank and dimensions
+ * the fields, little endian, each aligned on 8 bytes
+ * </pre>
+ *
+ * @author pverley
+ */
+public class ForcingCache {
+
+    private static final int MAGIC = 0x49434843;
+    private static final int VERSION = 1;
+    private static final byte FLOAT = 0, DOUBLE = 1;
+    private static final String EXTENSION = ".rec";
+
+    private final File directory;
+
+    /**
+     * Opens the cache in the given directory, which is created if need be.
+     *
+     * @param path, the path of the directory of the cache
+     * @throws IOException if the directory cannot be created
+     */
+    public ForcingCache(String path) throws IOException {
+        directory = new File(path);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("[Dataset] Cannot create the forcing cache directory " + path);
+        }
+    }
+
+    /**
+     * Identifies the content of a NetCDF file: its absolute path, size and
+     * last modification time. Remote datasets are identified by their URL
+     * only.
+     *
+     * @param location, the location of the NetCDF file
+     * @return the identifier of the file, to be included in the keys
+     */
+    public static String source(String location) {
+        File file = new File(location);
+        return file.isFile()
+                ? file.getAbsolutePath() + '@' + file.length() + '@' + file.lastModified()
+                : location;
+    }
+
+    private Path path(String key) {
+        return new File(directory, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + EXTENSION).toPath();
+    }
+
+    /**
+     * Reads a record from the cache.
+     *
+     * @param key, the key of the record
+     * @return the record, or {@code null} if it is not in the cache
+     */
+    public Record read(String key) {
+
+        Path path = path(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] header = new byte[buffer.getInt()];
+            buffer.get(header);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+            if (!key.equals(in.readUTF())) {
+                // another record with the same file name
+                return null;
+            }
+            Record record = new Record(in.readDouble());
+            int nfield = in.readInt();
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            for (int n = 0; n < nfield; n++) {
+                String name = in.readUTF();
+                byte type = in.readByte();
+                int rank = in.readByte();
+                int nz = in.readInt();
+                int ny = in.readInt();
+                int nx = in.readInt();
+                buffer.position(align(buffer.position()));
+                if (type == FLOAT) {
+                    float[] data = new float[nz * ny * nx];
+                    buffer.asFloatBuffer().get(data);
+                    buffer.position(buffer.position() + 4 * data.length);
+                    record.put(name, FloatField.wrap(rank, nz, ny, nx, data));
+                } else {
+                    double[] data = new double[nz * ny * nx];
+                    buffer.asDoubleBuffer().get(data);
+                    buffer.position(buffer.position() + 8 * data.length);
+                    record.put(name, DoubleField.wrap(nz, ny, nx, data));
+                }
+            }
+            return record;
+        } catch (IOException | RuntimeException ex) {
+            getLogger().log(Level.WARNING, "[Dataset] Ignored corrupted forcing cache file " + path, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a record in the cache. The file is written aside and moved, so
+     * that concurrent runs never read a partial record. Failures are logged
+     * and do not interrupt the simulation.
+     *
+     * @param key, the key of the record
+     * @param record, the record
+     */
+    public void write(String key, Record record) {
+
+        Path tmp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(key);
+            out.writeDouble(record.time);
+            out.writeInt(record.fields.size());
+            for (Map.Entry<String, Object> entry : record.fields.entrySet()) {
+                out.writeUTF(entry.getKey());
+                if (entry.getValue() instanceof FloatField) {
+                    FloatField field = (FloatField) entry.getValue();
+                    out.writeByte(FLOAT);
+                    out.writeByte(field.getRank());
+                    out.writeInt(field.get_nz());
+                    out.writeInt(field.get_ny());
+                    out.writeInt(field.get_nx());
+                } else {
+                    DoubleField field = (DoubleField) entry.getValue();
+                    out.writeByte(DOUBLE);
+                    out.writeByte(3);
+                    out.writeInt(field.get_nz());
+                    out.writeInt(field.get_ny());
+                    out.writeInt(field.get_nx());
+                }
+            }
+            out.flush();
+
+            tmp = Files.createTempFile(directory.toPath(), "record", ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer head = ByteBuffer.allocate(12 + bytes.size());
+                head.putInt(MAGIC).putInt(VERSION).putInt(bytes.size()).put(bytes.toByteArray());
+                head.flip();
+                write(channel, head);
+                for (Object field : record.fields.values()) {
+                    ByteBuffer data;
+                    if (field instanceof FloatField) {
+                        float[] values = ((FloatField) field).getData();
+                        data = ByteBuffer.allocate(4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+                        data.asFloatBuffer().put(values);
+                    } else {
+                        double[] values = ((DoubleField) field).getData();
+                        data = ByteBuffer.allocate(8 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+                        data.asDoubleBuffer().put(values);
+                    }
+                    channel.position(align(channel.position()));
+                    write(channel, data);
+                }
+            }
+            Files.move(tmp, path(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            getLogger().log(Level.WARNING, "[Dataset] Failed to write the forcing cache in " + directory, ex);
+            if (null != tmp) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ex1) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * A time record: its time and its fields by name.
+     */
+    public static class Record {
+
+        private final double time;
+        private final Map<String, Object> fields = new LinkedHashMap<>();
+
+        public Record(double time) {
+            this.time = time;
+        }
+
+        public Record put(String name, FloatField field) {
+            fields.put(name, field);
+            return this;
+        }
+
+        public Record put(String name, DoubleField field) {
+            fields.put(name, field);
+            return this;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * @param name, the name of the field
+         * @return the field, or {@code null} if the record has no float
+         * field of that name
+         */
+        public FloatField getFloat(String name) {
+            Object field = fields.get(name);
+            return (field instanceof FloatField) ? (FloatField) field : null;
+        }
+
+        /**
+         * @param name, the name of the field
+         * @return the field, or {@code null} if the record has no double
+         * field of that name
+         */
+        public DoubleField getDouble(String name) {
+            Object field = fields.get(name);
+            return (field instanceof DoubleField) ? (DoubleField) field : null;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import static org.previmer.ichthyop.SimulationManagerAccessor.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import org.previmer.ichthyop.manager.SimulationManager;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.jni.netcdf.Nc4Iosp;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingStrategy;
+import ucar.nc2.write.NetcdfFileFormat;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/**
+ * Batch preprocessing of the forcing of a ROMS 3D dataset. The vertical
+ * velocity W and the depth of the w points z_w of every record are computed
+ * once and written, on the subdomain of the dataset, in a file next to every
+ * input file, named after it with the {@value #SUFFIX} suffix. With the
+ * "read_var_w" parameter, the dataset reads them instead of computing them at
+ * every record, when the input files have no W variable. The files missing
+ * or out of date are then preprocessed before the first record, the command
+ * below preprocesses them beforehand.
+ *
+ * <p>
+ * The files are processed in parallel, one record at a time per file, with
+ * as many threads as the memory budget allows. Up to date files, of the same
+ * subdomain and more recent than their input file, are not processed again.
+ * The files are written in compressed and chunked NetCDF-4 when the NetCDF C
+ * library is available, in NetCDF-3 otherwise.
+ * </p>
+ *
+ * <pre>
+ * java -cp ichthyop.jar org.previmer.ichthyop.dataset.ForcingPreprocessor cfg.xml
+ * </pre>
+ *
+ * @author pverley
+ */
+public class ForcingPreprocessor {
+
+    static final String W = "w";
+    static final String Z_W = "z_w";
+    static final String SUFFIX = "_w.nc";
+
+    private final Roms3dCommon dataset;
+    private final int nThreads;
+    private final long memory;
+
+    /**
+     * @param dataset, the dataset, set up
+     * @param nThreads, the maximal number of files processed at the same
+     * time
+     * @param memory, the memory budget of the preprocessing, in bytes
+     */
+    public ForcingPreprocessor(Roms3dCommon dataset, int nThreads, long memory) {
+        this.dataset = dataset;
+        this.nThreads = nThreads;
+        this.memory = memory;
+    }
+
+    /**
+     * Gets the path of the preprocessed file of an input file.
+     */
+    static String output(String location) {
+        File file = new File(location);
+        String name = file.getName().endsWith(".nc")
+                ? file.getName().substring(0, file.getName().length() - 3)
+                : file.getName();
+        return new File(file.getAbsoluteFile().getParentFile(), name + SUFFIX).getAbsolutePath();
+    }
+
+    /**
+     * Preprocesses the given files.
+     *
+     * @param files, the input files
+     * @return the preprocessed file of every input file, by location of the
+     * input file as opened by the dataset
+     * @throws IOException if a file cannot be preprocessed
+     */
+    public Map<String, String> run(List<String> files) throws IOException {
+
+        // the fields of a record and the work arrays of computeW
+        long recordSize = 64L * (dataset.nz + 1) * dataset.ny * dataset.nx;
+        int nWorkers = (int) Math.max(1, Math.min(Math.min(nThreads, files.size()), memory / recordSize));
+        getLogger().log(Level.INFO, "[Dataset] Preprocessing {0} files with {1} threads", new Object[]{files.size(), nWorkers});
+
+        ExecutorService executor = Executors.newFixedThreadPool(nWorkers);
+        Map<String, String> outputs = new LinkedHashMap<>();
+        try {
+            List<Future<String[]>> results = new ArrayList<>();
+            for (String file : files) {
+                results.add(executor.submit(() -> preprocess(file)));
+            }
+            for (Future<String[]> result : results) {
+                String[] output = result.get();
+                outputs.put(output[0], output[1]);
+            }
+        } catch (ExecutionException | InterruptedException ex) {
+            Throwable cause = (null != ex.getCause()) ? ex.getCause() : ex;
+            IOException ioex = new IOException("[Dataset] Failed to preprocess the forcing. " + cause.toString());
+            ioex.setStackTrace(cause.getStackTrace());
+            throw ioex;
+        } finally {
+            executor.shutdownNow();
+        }
+        return outputs;
+    }
+
+    /**
+     * Preprocesses an input file, unless it is up to date.
+     *
+     * @return {location of the input file, path of the preprocessed file}
+     */
+    private String[] preprocess(String file) throws Exception {
+
+        try (NetcdfFile nc = DatasetUtil.openFile(file, true)) {
+            String output = output(file);
+            int ntime = nc.findDimension(dataset.strTimeDim).getLength();
+            if (isUpToDate(file, output, ntime)) {
+                getLogger().log(Level.INFO, "[Dataset] {0} is up to date", output);
+                return new String[]{nc.getLocation(), output};
+            }
+
+            int nz = dataset.nz, ny = dataset.ny, nx = dataset.nx;
+            String tmp = output + ".tmp";
+            NetcdfFormatWriter.Builder builder = NetcdfFormatWriter.builder().setNewFile(true).setLocation(tmp);
+            if (Nc4Iosp.isClibraryPresent()) {
+                builder.setFormat(NetcdfFileFormat.NETCDF4)
+                        .setChunker(Nc4ChunkingStrategy.factory(Nc4Chunking.Strategy.standard, 5, true));
+            } else {
+                builder.setFormat(NetcdfFileFormat.NETCDF3_64BIT_OFFSET);
+            }
+            Dimension timeDim = builder.addDimension("time", ntime);
+            Dimension zDim = builder.addDimension("s_w", nz + 1);
+            Dimension yDim = builder.addDimension("eta_rho", ny);
+            Dimension xDim = builder.addDimension("xi_rho", nx);
+            List<Dimension> dims = Arrays.asList(timeDim, zDim, yDim, xDim);
+
+            Variable time = nc.findVariable(dataset.strTime);
+            Variable.Builder<?> timeVar = builder.addVariable("time", DataType.DOUBLE, Arrays.asList(timeDim));
+            for (String name : new String[]{"units", "calendar"}) {
+                Attribute attribute = time.findAttribute(name);
+                if (null != attribute) {
+                    timeVar.addAttribute(attribute);
+                }
+            }
+            builder.addVariable(W, DataType.FLOAT, dims)
+                    .addAttribute(new Attribute("long_name", "vertical velocity"))
+                    .addAttribute(new Attribute("units", "meter second-1"));
+            builder.addVariable(Z_W, DataType.DOUBLE, dims)
+                    .addAttribute(new Attribute("long_name", "depth of the w points"))
+                    .addAttribute(new Attribute("units", "meter"));
+            builder.addAttribute(new Attribute("source", new File(file).getAbsolutePath()));
+            builder.addAttribute(new Attribute("ipo", dataset.ipo));
+            builder.addAttribute(new Attribute("jpo", dataset.jpo));
+            builder.addAttribute(new Attribute("nx", nx));
+            builder.addAttribute(new Attribute("ny", ny));
+            builder.addAttribute(new Attribute("nz", nz));
+
+            try (NetcdfFormatWriter ncOut = builder.build()) {
+                ncOut.write(ncOut.findVariable("time"), Array.factory(DataType.DOUBLE, new int[]{ntime}, time.read().get1DJavaArray(DataType.DOUBLE)));
+                int[] shape = new int[]{1, nz + 1, ny, nx};
+                for (int rank = 0; rank < ntime; rank++) {
+                    Roms3dCommon.Fields fields = dataset.readFields(nc, rank, null);
+                    int[] origin = new int[]{rank, 0, 0, 0};
+                    ncOut.write(ncOut.findVariable(W), origin, Array.factory(DataType.FLOAT, shape, fields.getW().getData()));
+                    ncOut.write(ncOut.findVariable(Z_W), origin, Array.factory(DataType.DOUBLE, shape, fields.getZ_w().getData()));
+                }
+            }
+            Files.move(Paths.get(tmp), Paths.get(output), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            getLogger().log(Level.INFO, "[Dataset] Preprocessed {0}", output);
+            return new String[]{nc.getLocation(), output};
+        }
+    }
+
+    /**
+     * Checks whether the preprocessed file is more recent than the input
+     * file and matches the subdomain and the number of records.
+     */
+    private boolean isUpToDate(String file, String output, int ntime) {
+
+        File in = new File(file), out = new File(output);
+        if (!out.isFile() || out.lastModified() < in.lastModified()) {
+            return false;
+        }
+        try (NetcdfFile nc = NetcdfFile.open(output)) {
+            return nc.findDimension("time").getLength() == ntime
+                    && matches(nc, "ipo", dataset.ipo) && matches(nc, "jpo", dataset.jpo)
+                    && matches(nc, "nx", dataset.nx) && matches(nc, "ny", dataset.ny)
+                    && matches(nc, "nz", dataset.nz);
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private static boolean matches(NetcdfFile nc, String name, int value) {
+        Attribute attribute = nc.findGlobalAttribute(name);
+        return (null != attribute) && attribute.getNumericValue().intValue() == value;
+    }
+
+    /**
+     * Preprocesses the forcing of the ROMS 3D dataset of a configuration
+     * file.
+     *
+     * @param args, the path of the configuration file
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length != 1) {
+            System.err.println("Usage: java -cp ichthyop.jar " + ForcingPreprocessor.class.getName() + " <configuration file>");
+            System.exit(1);
+        }
+        SimulationManager manager = SimulationManager.getInstance();
+        manager.setupLogger();
+        manager.setConfigurationFile(new File(args[0]));
+        manager.setup();
+        IDataset dataset = manager.getDataset();
+        if (!(dataset instanceof Roms3dDataset)) {
+            throw new IllegalArgumentException("The preprocessing only applies to the ROMS 3D datasets, found " + dataset.getClass().getSimpleName());
+        }
+        ((Roms3dDataset) dataset).preprocess();
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+/**
+ * Locates geographical points in a curvilinear grid, given the latitude and
+ * longitude of the grid points. The cells of the grid, the quadrilaterals
+ * (i, j), (i + 1, j), (i + 1, j + 1), (i, j + 1), are indexed in a uniform
+ * grid of buckets over the longitude and latitude bounding box, so that a
+ * point is only tested against the few cells of its bucket instead of a
+ * bisection of the whole grid. Every thread remembers the last cell it found
+ * and tries it, and its neighbours, first, since consecutive lookups are
+ * usually close to each other.
+ *
+ * <p>
+ * The point is located in the cell with the same crossing test as the
+ * former bisection, and the grid coordinates inside the cell are computed
+ * with the same formula, so that the results do not change.
+ * </p>
+ *
+ * @author pverley
+ */
+public class GridLocator {
+
+    private final Object latGrid, lonGrid;
+    private final double[][] lat, lon;
+    private final int nx, ny;
+    private final double latMin, latMax, lonMin, lonMax;
+    private final double dLat, dLon;
+    private final int nbx, nby;
+    // cells of the bucket b, as j * nx + i, in cells[start[b]] to cells[start[b + 1] - 1]
+    private final int[] start;
+    private final int[] cells;
+    private final ThreadLocal<int[]> lastCell = ThreadLocal.withInitial(() -> new int[]{-1});
+
+    /**
+     * Indexes the cells of the grid.
+     *
+     * @param lat, the latitude of the grid points [ny][nx]
+     * @param lon, the longitude of the grid points [ny][nx]
+     */
+    public GridLocator(double[][] lat, double[][] lon) {
+        this(lat, lon, lat, lon);
+    }
+
+    /**
+     * Indexes the cells of a grid given in single precision.
+     *
+     * @param lat, the latitude of the grid points [ny][nx]
+     * @param lon, the longitude of the grid points [ny][nx]
+     */
+    public GridLocator(float[][] lat, float[][] lon) {
+        this(lat, lon, toDouble(lat), toDouble(lon));
+    }
+
+    private GridLocator(Object latGrid, Object lonGrid, double[][] lat, double[][] lon) {
+
+        this.latGrid = latGrid;
+        this.lonGrid = lonGrid;
+        this.lat = lat;
+        this.lon = lon;
+        ny = lat.length;
+        nx = lat[0].length;
+
+        double latmin = Double.MAX_VALUE, latmax = -Double.MAX_VALUE;
+        double lonmin = Double.MAX_VALUE, lonmax = -Double.MAX_VALUE;
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                if (!Double.isNaN(lat[j][i]) && !Double.isNaN(lon[j][i])) {
+                    latmin = Math.min(latmin, lat[j][i]);
+                    latmax = Math.max(latmax, lat[j][i]);
+                    lonmin = Math.min(lonmin, lon[j][i]);
+                    lonmax = Math.max(lonmax, lon[j][i]);
+                }
+            }
+        }
+        latMin = latmin;
+        latMax = latmax;
+        lonMin = lonmin;
+        lonMax = lonmax;
+
+        // about as many buckets as cells
+        nbx = Math.max(1, nx - 1);
+        nby = Math.max(1, ny - 1);
+        dLon = (lonMax > lonMin) ? (lonMax - lonMin) / nbx : 1.d;
+        dLat = (latMax > latMin) ? (latMax - latMin) / nby : 1.d;
+
+        // count the cells of every bucket, then fill the buckets
+        start = new int[nbx * nby + 1];
+        int[] index = null;
+        for (int pass = 0; pass < 2; pass++) {
+            int[] count = new int[nbx * nby];
+            for (int j = 0; j < ny - 1; j++) {
+                for (int i = 0; i < nx - 1; i++) {
+                    int[] box = bucketBox(i, j);
+                    if (null == box) {
+                        continue;
+                    }
+                    for (int by = box[2]; by <= box[3]; by++) {
+                        for (int bx = box[0]; bx <= box[1]; bx++) {
+                            int b = by * nbx + bx;
+                            if (pass == 1) {
+                                index[start[b] + count[b]] = j * nx + i;
+                            }
+                            count[b]++;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int b = 0; b < nbx * nby; b++) {
+                    start[b + 1] = start[b] + count[b];
+                }
+                index = new int[start[nbx * nby]];
+            }
+        }
+        cells = index;
+    }
+
+    private static double[][] toDouble(float[][] array) {
+        double[][] copy = new double[array.length][];
+        for (int j = 0; j < array.length; j++) {
+            copy[j] = new double[array[j].length];
+            for (int i = 0; i < array[j].length; i++) {
+                copy[j][i] = array[j][i];
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the range of buckets {bx0, bx1, by0, by1} of the bounding box of
+     * the cell (i, j), or {@code null} if a corner of the cell is undefined.
+     */
+    private int[] bucketBox(int i, int j) {
+        double latmin = Double.MAX_VALUE, latmax = -Double.MAX_VALUE;
+        double lonmin = Double.MAX_VALUE, lonmax = -Double.MAX_VALUE;
+        for (int jj = 0; jj < 2; jj++) {
+            for (int ii = 0; ii < 2; ii++) {
+                double la = lat[j + jj][i + ii], lo = lon[j + jj][i + ii];
+                if (Double.isNaN(la) || Double.isNaN(lo)) {
+                    return null;
+                }
+                latmin = Math.min(latmin, la);
+                latmax = Math.max(latmax, la);
+                lonmin = Math.min(lonmin, lo);
+                lonmax = Math.max(lonmax, lo);
+            }
+        }
+        return new int[]{bucketX(lonmin), bucketX(lonmax), bucketY(latmin), bucketY(latmax)};
+    }
+
+    private int bucketX(double lon) {
+        return Math.max(0, Math.min(nbx - 1, (int) ((lon - lonMin) / dLon)));
+    }
+
+    private int bucketY(double lat) {
+        return Math.max(0, Math.min(nby - 1, (int) ((lat - latMin) / dLat)));
+    }
+
+    /**
+     * Gets a locator for the given grid, the current one if it already
+     * indexes these very arrays, a new one otherwise (the grid has been read
+     * again, for instance after the domain has been cropped).
+     *
+     * @param locator, the current locator, may be null
+     * @param lat, the latitude of the grid points [ny][nx]
+     * @param lon, the longitude of the grid points [ny][nx]
+     * @return a locator for the grid
+     */
+    public static GridLocator of(GridLocator locator, double[][] lat, double[][] lon) {
+        return (null != locator && locator.latGrid == lat && locator.lonGrid == lon)
+                ? locator
+                : new GridLocator(lat, lon);
+    }
+
+    /**
+     * Gets a locator for the given single precision grid.
+     *
+     * @see #of(GridLocator, double[][], double[][])
+     */
+    public static GridLocator of(GridLocator locator, float[][] lat, float[][] lon) {
+        return (null != locator && locator.latGrid == lat && locator.lonGrid == lon)
+                ? locator
+                : new GridLocator(lat, lon);
+    }
+
+    /**
+     * Transforms a geographical point into grid coordinates.
+     *
+     * @param lat, the latitude of the point
+     * @param lon, the longitude of the point
+     * @return the grid coordinates {x, y}, or {-1, -1} if the point is out
+     * of the grid.
+     */
+    public double[] latlon2xy(double lat, double lon) {
+
+        int cell = find(lat, lon);
+        if (cell < 0) {
+            return new double[]{-1.d, -1.d};
+        }
+        int imin = cell % nx;
+        int jmin = cell / nx;
+
+        double dx1, dy1, dx2, dy2, c1, c2, deltax, deltay, xgrid, ygrid;
+        double[][] latRho = this.lat, lonRho = this.lon;
+
+        //--------------------------------------------
+        // Trilinear interpolation
+        dy1 = latRho[jmin + 1][imin] - latRho[jmin][imin];
+        dx1 = lonRho[jmin + 1][imin] - lonRho[jmin][imin];
+        dy2 = latRho[jmin][imin + 1] - latRho[jmin][imin];
+        dx2 = lonRho[jmin][imin + 1] - lonRho[jmin][imin];
+
+        c1 = lon * dy1 - lat * dx1;
+        c2 = lonRho[jmin][imin] * dy2 - latRho[jmin][imin] * dx2;
+        deltax = (c1 * dx2 - c2 * dx1) / (dx2 * dy1 - dy2 * dx1);
+        deltax = (deltax - lonRho[jmin][imin]) / dx2;
+        xgrid = (double) imin + Math.min(Math.max(0.d, deltax), 1.d);
+
+        c1 = lonRho[jmin][imin] * dy1 - latRho[jmin][imin] * dx1;
+        c2 = lon * dy2 - lat * dx2;
+        deltay = (c1 * dy2 - c2 * dy1) / (dx2 * dy1 - dy2 * dx1);
+        deltay = (deltay - latRho[jmin][imin]) / dy1;
+        ygrid = (double) jmin + Math.min(Math.max(0.d, deltay), 1.d);
+
+        return new double[]{xgrid, ygrid};
+    }
+
+    /**
+     * Finds the cell that contains the point.
+     *
+     * @return the cell, as j * nx + i, or -1 if the point is out of the grid
+     */
+    private int find(double lat, double lon) {
+
+        int[] last = lastCell.get();
+        if (last[0] >= 0) {
+            // warm start, the last cell then its neighbours
+            int i0 = last[0] % nx, j0 = last[0] / nx;
+            if (isInside(i0, j0, lat, lon)) {
+                return last[0];
+            }
+            for (int j = Math.max(0, j0 - 1); j <= Math.min(ny - 2, j0 + 1); j++) {
+                for (int i = Math.max(0, i0 - 1); i <= Math.min(nx - 2, i0 + 1); i++) {
+                    if (isInside(i, j, lat, lon)) {
+                        return last[0] = j * nx + i;
+                    }
+                }
+            }
+        }
+
+        if (!(lat >= latMin && lat <= latMax && lon >= lonMin && lon <= lonMax)) {
+            return -1;
+        }
+        int b = bucketY(lat) * nbx + bucketX(lon);
+        for (int n = start[b]; n < start[b + 1]; n++) {
+            int cell = cells[n];
+            if (isInside(cell % nx, cell / nx, lat, lon)) {
+                return last[0] = cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the point is inside the cell (i, j), with the crossing
+     * test of the polygon (i, j), (i + 1, j), (i + 1, j + 1), (i, j + 1).
+     */
+    private boolean isInside(int i, int j, double lat, double lon) {
+
+        int crossings = 0;
+        for (int k = 0; k < 4; k++) {
+            // corners k and k + 1, counterclockwise in index space
+            int ik = i + ((k == 1 || k == 2) ? 1 : 0);
+            int jk = j + ((k >= 2) ? 1 : 0);
+            int in = i + ((k == 0 || k == 1) ? 1 : 0);
+            int jn = j + ((k == 1 || k == 2) ? 1 : 0);
+            double xk = this.lon[jk][ik], yk = this.lat[jk][ik];
+            double xn = this.lon[jn][in], yn = this.lat[jn][in];
+            if (xk != xn) {
+                double dx1 = lon - xk;
+                double dx2 = xn - lon;
+                double dxy = dx2 * (lat - yk) - dx1 * (yn - lat);
+                int inc = 0;
+                if ((xk == lon) & (yk == lat)) {
+                    crossings = 1;
+                } else if (((dx1 == 0.) & (lat >= yk))
+                        | ((dx2 == 0.) & (lat >= yn))) {
+                    inc = 1;
+                } else if ((dx1 * dx2 > 0.) & ((xn - xk) * dxy >= 0.)) {
+                    inc = 2;
+                }
+                if (xn > xk) {
+                    crossings += inc;
+                } else {
+                    crossings -= inc;
+                }
+            }
+        }
+        return crossings != 0;
+    }
+}
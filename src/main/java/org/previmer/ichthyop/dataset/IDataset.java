@@ -76,6 +76,59 @@ public interface IDataset extends NextStepListener {
 
     double get_dWz(double[] pGrid, double time);
 
+    /**
+     * Samples the velocity at the given grid location and writes the
+     * displacements per second, in grid units, into the output array. The
+     * vertical component is only sampled when both arrays have three elements.
+     * No array is allocated, so the method can be called in the inner loop of
+     * the advection.
+     *
+     * @param pGrid the (x, y[, z]) grid coordinates
+     * @param time the current time [second] of the simulation
+     * @param velocity the output array {dx/dt, dy/dt[, dz/dt]}
+     */
+    default void sampleVelocity(double[] pGrid, double time, double[] velocity) {
+        velocity[0] = get_dUx(pGrid, time);
+        velocity[1] = get_dVy(pGrid, time);
+        if (pGrid.length > 2 && velocity.length > 2) {
+            velocity[2] = get_dWz(pGrid, time);
+        }
+    }
+
+    /**
+     * Samples the velocity for a block of particles. The grid coordinates
+     * and the velocities are given as one array per component, from index 0
+     * to n - 1, so that the implementations can run tight loops over
+     * primitive arrays. The vertical component is only sampled when both
+     * {@code z} and {@code w} are not null.
+     *
+     * @param n the number of particles in the block
+     * @param x the x grid coordinates
+     * @param y the y grid coordinates
+     * @param z the z grid coordinates, null in 2D
+     * @param time the current time [second] of the simulation
+     * @param u the output dx/dt
+     * @param v the output dy/dt
+     * @param w the output dz/dt, null in 2D
+     */
+    default void sampleVelocity(int n, double[] x, double[] y, double[] z, double time, double[] u, double[] v, double[] w) {
+        double[] pGrid = new double[(null != z) ? 3 : 2];
+        double[] velocity = new double[(null != z) && (null != w) ? 3 : 2];
+        for (int i = 0; i < n; i++) {
+            pGrid[0] = x[i];
+            pGrid[1] = y[i];
+            if (null != z) {
+                pGrid[2] = z[i];
+            }
+            sampleVelocity(pGrid, time, velocity);
+            u[i] = velocity[0];
+            v[i] = velocity[1];
+            if (velocity.length > 2) {
+                w[i] = velocity[2];
+            }
+        }
+    }
+
     public boolean isInWater(double[] pGrid);
 
     public boolean isInWater(int i, int j);
@@ -84,6 +137,18 @@ public interface IDataset extends NextStepListener {
 
     public boolean isOnEdge(double[] pGrid);
 
+    /**
+     * Gets the land mask computed at setup, with the coast proximity and the
+     * distance to the coast of the cells.
+     *
+     * @return the land mask, or null if the dataset has no constant mask,
+     * for instance when the mask is given by the missing values of the
+     * velocity at every time step.
+     */
+    default LandMask getLandMask() {
+        return null;
+    }
+
     public double getBathy(int i, int j);
 
     public int get_nx();
@@ -100,6 +165,19 @@ public interface IDataset extends NextStepListener {
 
     public Number get(String variableName, double[] pGrid, double time);
 
+    /**
+     * Interpolates a required variable at the given grid location and time.
+     * Same as {@link #get(String, double[], double)} without boxing the
+     * result, for the actions that sample the variables of every particle
+     * at every time step.
+     *
+     * @param variableName the name of the required variable
+     * @param pGrid the (x, y[, z]) grid coordinates
+     * @param time the current time [second] of the simulation
+     * @return the interpolated value, NaN if the variable is not available
+     */
+    public double getDouble(String variableName, double[] pGrid, double time);
+
     public void requireVariable(String name, Class<?> requiredBy);
 
     public void removeRequiredVariable(String name, Class<?> requiredBy);
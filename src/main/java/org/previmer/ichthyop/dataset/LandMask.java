@@ -0,0 +1,236 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+/**
+ * Land mask of a dataset, computed once at setup from the mask of the grid.
+ * It packs the wet cells in a bitset and precomputes, for every cell, the
+ * coast proximity that {@link IDataset#isCloseToCost(double[])} tests on the
+ * fly, so that the interpolation chooses its stencil with a single array
+ * load. It also provides the distance of the cells to the coast.
+ *
+ * <p>
+ * A position (x, y) of cell i = round(x), j = round(y) is close to the coast
+ * when one of the three cells towards the quarter of the cell where the
+ * position lies, (i + di, j), (i + di, j + dj) and (i, j + dj), is land. The
+ * coast proximity of a cell holds one bit for each of the four quarters.
+ * Out of the grid, cells are land, as in the datasets.
+ * </p>
+ *
+ * @author pverley
+ */
+public class LandMask {
+
+    /**
+     * Mask of the grid, as read by the dataset.
+     */
+    public interface Mask {
+
+        boolean isInWater(int i, int j, int k);
+    }
+
+    private final int nx, ny, nz;
+    private final long[] water;
+    private final byte[] coast;
+    private final float[] distance;
+
+    /**
+     * Computes the land mask of a grid.
+     *
+     * @param nx, the number of columns of the grid
+     * @param ny, the number of rows of the grid
+     * @param nz, the number of levels of the mask, one for a 2D mask, the
+     * surface being the last level
+     * @param mask, the mask of the grid
+     */
+    public LandMask(int nx, int ny, int nz, Mask mask) {
+
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+
+        water = new long[(nz * ny * nx + 63) >> 6];
+        for (int k = 0; k < nz; k++) {
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx; i++) {
+                    if (mask.isInWater(i, j, k)) {
+                        int n = (k * ny + j) * nx + i;
+                        water[n >> 6] |= 1L << n;
+                    }
+                }
+            }
+        }
+
+        coast = new byte[nz * ny * nx];
+        for (int k = 0; k < nz; k++) {
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx; i++) {
+                    int bits = 0;
+                    for (int q = 0; q < 4; q++) {
+                        int di = ((q & 1) != 0) ? 1 : -1;
+                        int dj = ((q & 2) != 0) ? 1 : -1;
+                        if (!(isInWater(i + di, j, k) && isInWater(i + di, j + dj, k) && isInWater(i, j + dj, k))) {
+                            bits |= 1 << q;
+                        }
+                    }
+                    coast[(k * ny + j) * nx + i] = (byte) bits;
+                }
+            }
+        }
+
+        distance = distanceToCoast();
+    }
+
+    /**
+     * Chamfer distance, in cells, from the cells of the surface to the
+     * nearest land cell, with two sweeps of the grid.
+     */
+    private float[] distanceToCoast() {
+
+        float diagonal = (float) Math.sqrt(2.d);
+        float[] d = new float[ny * nx];
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                d[j * nx + i] = isInWater(i, j) ? Float.MAX_VALUE : 0.f;
+            }
+        }
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                float di = d[j * nx + i];
+                if (i > 0) {
+                    di = Math.min(di, d[j * nx + i - 1] + 1.f);
+                }
+                if (j > 0) {
+                    di = Math.min(di, d[(j - 1) * nx + i] + 1.f);
+                    if (i > 0) {
+                        di = Math.min(di, d[(j - 1) * nx + i - 1] + diagonal);
+                    }
+                    if (i < nx - 1) {
+                        di = Math.min(di, d[(j - 1) * nx + i + 1] + diagonal);
+                    }
+                }
+                d[j * nx + i] = di;
+            }
+        }
+        for (int j = ny - 1; j >= 0; j--) {
+            for (int i = nx - 1; i >= 0; i--) {
+                float di = d[j * nx + i];
+                if (i < nx - 1) {
+                    di = Math.min(di, d[j * nx + i + 1] + 1.f);
+                }
+                if (j < ny - 1) {
+                    di = Math.min(di, d[(j + 1) * nx + i] + 1.f);
+                    if (i < nx - 1) {
+                        di = Math.min(di, d[(j + 1) * nx + i + 1] + diagonal);
+                    }
+                    if (i > 0) {
+                        di = Math.min(di, d[(j + 1) * nx + i - 1] + diagonal);
+                    }
+                }
+                d[j * nx + i] = di;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Checks whether the cell (i, j) of the surface is in water.
+     */
+    public boolean isInWater(int i, int j) {
+        return isInWater(i, j, nz - 1);
+    }
+
+    /**
+     * Checks whether the cell (i, j, k) is in water, false out of the grid.
+     */
+    public boolean isInWater(int i, int j, int k) {
+        if (i < 0 || i >= nx || j < 0 || j >= ny || k < 0 || k >= nz) {
+            return false;
+        }
+        int n = (k * ny + j) * nx + i;
+        return (water[n >> 6] & (1L << n)) != 0;
+    }
+
+    /**
+     * Checks whether the position (x, y) is close to the coast, at the
+     * surface.
+     */
+    public boolean isCloseToCoast(double x, double y) {
+        return isCloseToCoast(x, y, nz - 1);
+    }
+
+    /**
+     * Checks whether the position (x, y) is close to the coast, at level k.
+     */
+    public boolean isCloseToCoast(double x, double y, int k) {
+
+        int i = (int) Math.round(x);
+        int j = (int) Math.round(y);
+        int q = (((i - (int) x) == 0) ? 1 : 0) | (((j - (int) y) == 0) ? 2 : 0);
+        if (i < 0 || i >= nx || j < 0 || j >= ny || k < 0 || k >= nz) {
+            int di = ((q & 1) != 0) ? 1 : -1;
+            int dj = ((q & 2) != 0) ? 1 : -1;
+            return !(isInWater(i + di, j, k) && isInWater(i + di, j + dj, k) && isInWater(i, j + dj, k));
+        }
+        return (coast[(k * ny + j) * nx + i] & (1 << q)) != 0;
+    }
+
+    /**
+     * Gets the coast proximity of the cell (i, j) of the surface, one bit
+     * per quarter of the cell, zero when all the cells around are in water.
+     */
+    public int getCoastProximity(int i, int j) {
+        return coast[((nz - 1) * ny + j) * nx + i];
+    }
+
+    /**
+     * Gets the distance, in cells, from the cell (i, j) of the surface to the
+     * nearest land cell. It is zero on land and {@link Float#MAX_VALUE} when
+     * the grid has no land.
+     */
+    public float getDistanceToCoast(int i, int j) {
+        return distance[j * nx + i];
+    }
+}
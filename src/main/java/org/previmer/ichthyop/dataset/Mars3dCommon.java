@@ -64,57 +64,57 @@ abstract class Mars3dCommon extends MarsCommon {
     /**
      * Ocean free surface elevetation at current time
      */
-    static float[][] zeta_tp0;
+    FloatField zeta_tp0;
     /**
      * /**
      * Ocean free surface elevetation at time t + dt
      */
-    static float[][] zeta_tp1;
+    FloatField zeta_tp1;
     /**
      * Zonal component of the velocity field at current time
      */
-    static float[][][] u_tp0;
+    FloatField u_tp0;
     /**
      * Zonal component of the velocity field at time t + dt
      */
-    static float[][][] u_tp1;
+    FloatField u_tp1;
     /**
      * Meridional component of the velocity field at current time
      */
-    static float[][][] v_tp0;
+    FloatField v_tp0;
     /**
      * Meridional component of the velocity field at time t + dt
      */
-    static float[][][] v_tp1;
+    FloatField v_tp1;
     /**
      * Vertical component of the velocity field at current time
      */
-    static float[][][] w_tp0;
+    FloatField w_tp0;
     /**
      * Vertical component of the velocity field at time t + dt
      */
-    static float[][][] w_tp1;
+    FloatField w_tp1;
     /**
      * Depth at rho point
      */
-    static double[][][] z_rho_cst;
+    DoubleField z_rho_cst;
     /**
      * Depth at w point at current time. Takes account of free surface
      * elevation.
      */
-    static double[][][] z_w_tp0;
+    DoubleField z_w_tp0;
     /**
      * Depth at w point at time t + dt Takes account of free surface elevation.
      */
-    static double[][][] z_w_tp1;
+    DoubleField z_w_tp1;
     /**
      * Depth at w point. The free surface elevation is disregarded.
      */
-    static double[][][] z_w_cst;
+    DoubleField z_w_cst;
     /**
      * Name of the Dimension in NetCDF file
      */
-    static String strZDim, strZeta, strSigma;
+    String strZDim, strZeta, strSigma;
     /**
      *
      */
@@ -123,6 +123,11 @@ abstract class Mars3dCommon extends MarsCommon {
      *
      */
     private String strHC, strA, strB;
+    /**
+     * Loads the next time record in the background, if enabled.
+     */
+    private final RecordPrefetcher<Fields> prefetcher = new RecordPrefetcher<>();
+    private boolean prefetchEnabled;
 
     @Override
     public void setUp() throws Exception {
@@ -176,6 +181,7 @@ abstract class Mars3dCommon extends MarsCommon {
             getLogger().warning("{Dataset} Could not find generalized sigma level parameters in the configuration file. Simple sigma levels will be used then.");
         }
 
+        prefetchEnabled = prefetch();
     }
 
     /**
@@ -223,21 +229,21 @@ abstract class Mars3dCommon extends MarsCommon {
 
     private void getSigLevelsV6() {
 
-        z_rho_cst = new double[nz][ny][nx];
-        z_w_cst = new double[nz + 1][ny][nx];
+        z_rho_cst = new DoubleField(nz, ny, nx);
+        z_w_cst = new DoubleField(nz + 1, ny, nx);
 
         for (int i = nx; i-- > 0;) {
             for (int j = ny; j-- > 0;) {
-                z_w_cst[0][j][i] = -hRho[j][i];
+                z_w_cst.set(0, j, i, -hRho[j][i]);
                 for (int k = nz; k-- > 0;) {
-                    z_rho_cst[k][j][i] = s_rho[k] * hRho[j][i];
-                    z_w_cst[k + 1][j][i] = s_w[k + 1] * hRho[j][i];
+                    z_rho_cst.set(k, j, i, s_rho[k] * hRho[j][i]);
+                    z_w_cst.set(k + 1, j, i, s_w[k + 1] * hRho[j][i]);
                 }
             }
         }
 
-        z_w_tp0 = new double[nz + 1][ny][nx];
-        z_w_tp1 = new double[nz + 1][ny][nx];
+        z_w_tp0 = new DoubleField(nz + 1, ny, nx);
+        z_w_tp1 = new DoubleField(nz + 1, ny, nx);
     }
 
     private void getSigLevelsV8() throws IOException {
@@ -283,28 +289,28 @@ abstract class Mars3dCommon extends MarsCommon {
 
         //------------------------------------------------------------
         // Calculation of z_w , z_r
-        double[][][] z_r_tmp = new double[nz][ny][nx];
-        double[][][] z_w_tmp = new double[nz + 1][ny][nx];
+        DoubleField z_r_tmp = new DoubleField(nz, ny, nx);
+        DoubleField z_w_tmp = new DoubleField(nz + 1, ny, nx);
 
 
         // OLD: z_unperturbated = hc * (sc - Cs) + Cs * h
 
         for (int i = nx; i-- > 0;) {
             for (int j = ny; j-- > 0;) {
-                z_w_tmp[0][j][i] = -hRho[j][i];
+                z_w_tmp.set(0, j, i, -hRho[j][i]);
                 for (int k = nz; k-- > 0;) {
-                    z_r_tmp[k][j][i] = hc[j][i] * (s_rho[k] - Cs_r[k]) + Cs_r[k] * hRho[j][i];
-                    z_w_tmp[k + 1][j][i] = hc[j][i] * (s_w[k + 1] - Cs_w[k + 1]) + Cs_w[k + 1] * hRho[j][i];
+                    z_r_tmp.set(k, j, i, hc[j][i] * (s_rho[k] - Cs_r[k]) + Cs_r[k] * hRho[j][i]);
+                    z_w_tmp.set(k + 1, j, i, hc[j][i] * (s_w[k + 1] - Cs_w[k + 1]) + Cs_w[k + 1] * hRho[j][i]);
                 }
-                z_w_tmp[nz][j][i] = 0.d;
+                z_w_tmp.set(nz, j, i, 0.d);
             }
         }
 
         z_rho_cst = z_r_tmp;
         z_w_cst = z_w_tmp;
 
-        z_w_tp0 = new double[nz + 1][ny][nx];
-        z_w_tp1 = new double[nz + 1][ny][nx];
+        z_w_tp0 = new DoubleField(nz + 1, ny, nx);
+        z_w_tp1 = new DoubleField(nz + 1, ny, nx);
     }
 
     @Override
@@ -318,27 +324,13 @@ abstract class Mars3dCommon extends MarsCommon {
         /*
          * read zeta ocean free surface
          */
-        Array arrZeta = null;
         try {
-            arrZeta = ncIn.findVariable(strZeta).read(new int[]{0, jpo, ipo}, new int[]{1, ny, nx}).reduce();
+            zeta_tp0 = FloatField.read(ncIn.findVariable(strZeta).read(new int[]{0, jpo, ipo}, new int[]{1, ny, nx}), ny, nx);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading ocean free surface elevation. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
             throw ioex;
         }
-
-
-        if (arrZeta.getElementType() == float.class) {
-            zeta_tp0 = (float[][]) arrZeta.copyToNDJavaArray();
-        } else {
-            zeta_tp0 = new float[ny][nx];
-            Index index = arrZeta.getIndex();
-            for (int j = 0; j < ny; j++) {
-                for (int i = 0; i < nx; i++) {
-                    zeta_tp0[j][i] = arrZeta.getFloat(index.set(j, i));
-                }
-            }
-        }
         zeta_tp1 = zeta_tp0;
     }
 
@@ -395,50 +387,82 @@ abstract class Mars3dCommon extends MarsCommon {
 
     @Override
     public double get_dWz(double[] pGrid, double time) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+    }
 
-        double dw = 0.d;
-        double ix, jy, kz;
+    @Override
+    public double get_dVy(double[] pGrid, double time, boolean normalize) {
         int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
 
+    @Override
+    public double get_dUx(double[] pGrid, double time, boolean normalize) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
         double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
-        int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
+        return interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
+
+    /**
+     * Samples the three velocity components at once. The proximity to the
+     * coast, the vertical coordinate and the time weight are computed only
+     * once for the three staggered stencils.
+     */
+    @Override
+    public void sampleVelocity(double[] pGrid, double time, double[] velocity) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        velocity[0] = interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        velocity[1] = interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        if (velocity.length > 2) {
+            velocity[2] = interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+        }
+    }
+
+    private double interpolateU(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
+
+        double du = 0.d;
+        int i = (int) Math.round(ix);
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
-        int k = (int) Math.round(kz);
+        int k = (int) kz;
         double dx = ix - (double) i;
         double dy = jy - (double) j;
         double dz = kz - (double) k;
         double CO = 0.d;
-        for (int ii = 0; ii < n; ii++) {
+        for (int ii = 0; ii < 2; ii++) {
             for (int jj = 0; jj < n; jj++) {
                 for (int kk = 0; kk < 2; kk++) {
-                    double co = Math.abs((1.d - (double) ii - dx) * (1.d - (double) jj - dy) * (.5d - (double) kk - dz));
+                    double co = Math.abs((.5d - (double) ii - dx)
+                            * (1.d - (double) jj - dy)
+                            * (1.d - (double) kk - dz));
                     CO += co;
-                    if (isInWater(i + ii, j + jj)) {
-                        double x = (1.d - x_euler) * w_tp0[k + kk][j + jj][i + ii] + x_euler * w_tp1[k + kk][j + jj][i + ii];
-                        dw += 2.d * x * co / (z_w_tp0[Math.min(k + kk + 1, nz)][j + jj][i + ii] - z_w_tp0[Math.max(k + kk - 1, 0)][j + jj][i + ii]);
+                    if (!(Float.isNaN(u_tp0.get(k + kk, j + jj, i + ii - 1)) || Float.isNaN(u_tp1.get(k + kk, j + jj, i + ii - 1)))) {
+                        double x = (1.d - x_euler) * u_tp0.get(k + kk, j + jj, i + ii - 1) + x_euler * u_tp1.get(k + kk, j + jj, i + ii - 1);
+                        if (normalize) {
+                            du += 2.d * x * co / (dxu[j + jj][i + ii - 1] + dxu[j + jj][i + ii]);
+                        } else {
+                            du += x * co;
+                        }
                     }
                 }
             }
         }
         if (CO != 0) {
-            dw /= CO;
+            du /= CO;
         }
-        return dw;
+        return du;
     }
 
-    @Override
-    public double get_dVy(double[] pGrid, double time, boolean normalize) {
-        double dv = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+    private double interpolateV(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
 
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        double dv = 0.d;
         int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
         int j = (int) Math.round(jy);
         int k = (int) kz;
@@ -454,8 +478,8 @@ abstract class Mars3dCommon extends MarsCommon {
                             * (.5d - (double) jj - dy)
                             * (1.d - (double) kk - dz));
                     CO += co;
-                    if (!(Float.isNaN(v_tp0[k + kk][j + jj - 1][i + ii]) || Float.isNaN(v_tp1[k + kk][j + jj - 1][i + ii]))) {
-                        double x = (1.d - x_euler) * v_tp0[k + kk][j + jj - 1][i + ii] + x_euler * v_tp1[k + kk][j + jj - 1][i + ii];
+                    if (!(Float.isNaN(v_tp0.get(k + kk, j + jj - 1, i + ii)) || Float.isNaN(v_tp1.get(k + kk, j + jj - 1, i + ii)))) {
+                        double x = (1.d - x_euler) * v_tp0.get(k + kk, j + jj - 1, i + ii) + x_euler * v_tp1.get(k + kk, j + jj - 1, i + ii);
                         if (normalize) {
                             dv += 2.d * x * co / (dyv[j + jj - 1][i + ii] + dyv[j + jj][i + ii]);
                         } else {
@@ -471,46 +495,32 @@ abstract class Mars3dCommon extends MarsCommon {
         return dv;
     }
 
-    @Override
-    public double get_dUx(double[] pGrid, double time, boolean normalize) {
-
-        double du = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+    private double interpolateW(double ix, double jy, double kz, int n, double x_euler) {
 
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
-        int i = (int) Math.round(ix);
+        double dw = 0.d;
+        int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
-        int k = (int) kz;
+        int k = (int) Math.round(kz);
         double dx = ix - (double) i;
         double dy = jy - (double) j;
         double dz = kz - (double) k;
         double CO = 0.d;
-        for (int ii = 0; ii < 2; ii++) {
+        for (int ii = 0; ii < n; ii++) {
             for (int jj = 0; jj < n; jj++) {
                 for (int kk = 0; kk < 2; kk++) {
-                    double co = Math.abs((.5d - (double) ii - dx)
-                            * (1.d - (double) jj - dy)
-                            * (1.d - (double) kk - dz));
+                    double co = Math.abs((1.d - (double) ii - dx) * (1.d - (double) jj - dy) * (.5d - (double) kk - dz));
                     CO += co;
-                    if (!(Float.isNaN(u_tp0[k + kk][j + jj][i + ii - 1]) || Float.isNaN(u_tp1[k + kk][j + jj][i + ii - 1]))) {
-                        double x = (1.d - x_euler) * u_tp0[k + kk][j + jj][i + ii - 1] + x_euler * u_tp1[k + kk][j + jj][i + ii - 1];
-                        if (normalize) {
-                            du += 2.d * x * co / (dxu[j + jj][i + ii - 1] + dxu[j + jj][i + ii]);
-                        } else {
-                            du += x * co;
-                        }
+                    if (isInWater(i + ii, j + jj)) {
+                        double x = (1.d - x_euler) * w_tp0.get(k + kk, j + jj, i + ii) + x_euler * w_tp1.get(k + kk, j + jj, i + ii);
+                        dw += 2.d * x * co / (z_w_tp0.get(Math.min(k + kk + 1, nz), j + jj, i + ii) - z_w_tp0.get(Math.max(k + kk - 1, 0), j + jj, i + ii));
                     }
                 }
             }
         }
         if (CO != 0) {
-            du /= CO;
+            dw /= CO;
         }
-        return du;
+        return dw;
     }
 
     double getDepth(double xRho, double yRho, int k) {
@@ -524,8 +534,8 @@ abstract class Mars3dCommon extends MarsCommon {
             for (int jj = 0; jj < 2; jj++) {
                 if (isInWater(i + ii, j + jj)) {
                     double co = Math.abs((1 - ii - dx) * (1 - jj - dy));
-                    double z_r = z_rho_cst[k][j + jj][i + ii]
-                            + (double) zeta_tp0[j + jj][i + ii] * (1.d + s_rho[k]);
+                    double z_r = z_rho_cst.get(k, j + jj, i + ii)
+                            + (double) zeta_tp0.get(j + jj, i + ii) * (1.d + s_rho[k]);
                     hh += co * z_r;
                 }
             }
@@ -533,17 +543,87 @@ abstract class Mars3dCommon extends MarsCommon {
         return (hh);
     }
 
+    @Override
+    public void init() throws Exception {
+        prefetcher.clear();
+        super.init();
+    }
+
     @Override
     void setAllFieldsTp1AtTime(int rank) throws Exception {
 
+        double time_tp0 = time_tp1;
+        RecordPrefetcher.Record<Fields> record = prefetcher.take(ncIn.getLocation() + '#' + rank);
+        Fields fields = (null != record) ? record.getFields() : readFields(ncIn, rank);
+
+        u_tp1 = fields.u;
+        v_tp1 = fields.v;
+        w_tp1 = fields.w;
+        zeta_tp1 = fields.zeta;
+        z_w_tp1 = fields.z_w;
+        time_tp1 = fields.time;
+
+        dt_HyMo = Math.abs(time_tp1 - time_tp0);
+        for (RequiredVariable variable : requiredVariables.values()) {
+            variable.nextStep(readVariable(record, ncIn, variable.getName(), rank), time_tp1, dt_HyMo);
+        }
+        if (prefetchEnabled) {
+            prefetchNextRecord(rank);
+        }
+    }
+
+    /**
+     * Starts loading the record that follows the given rank, in the
+     * direction of time, while the particles are stepped.
+     */
+    private void prefetchNextRecord(int rank) {
+        String[] names = requiredVariables.keySet().toArray(new String[0]);
+        int next = rank + timeArrow;
+        if (next >= 0 && next < nbTimeRecords) {
+            NetcdfFile nc = ncIn;
+            prefetcher.prefetch(() -> new RecordPrefetcher.Record<>(nc.getLocation() + '#' + next, readFields(nc, next), readVariables(nc, names, next)));
+            return;
+        }
+        String location = nextFile();
+        if (null != location) {
+            int time_arrow = timeArrow;
+            // the loading opens and closes its own handle on the next file
+            prefetcher.prefetch(() -> {
+                try (NetcdfFile nc = DatasetUtil.openFile(location, true)) {
+                    int first = (1 - time_arrow) / 2 * (nc.findDimension(strTimeDim).getLength() - 1);
+                    return new RecordPrefetcher.Record<>(nc.getLocation() + '#' + first, readFields(nc, first), readVariables(nc, names, first));
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets the file that follows the current NetCDF file, in the direction
+     * of time.
+     *
+     * @return the path of the next file, or {@code null} if the dataset is
+     * made of a single file or if the current file is the last one.
+     */
+    String nextFile() {
+        return null;
+    }
+
+    /**
+     * Reads the time record of the hydrodynamic fields at the given rank of
+     * the NetCDF file. Only the local variables are modified, since the
+     * record may be loaded in the background.
+     */
+    private Fields readFields(NetcdfFile nc, int rank) throws Exception {
+
         getLogger().info("Reading NetCDF variables...");
 
         int[] origin = new int[]{rank, 0, jpo, ipo};
-        double time_tp0 = time_tp1;
-
+        FloatField u_tp1, v_tp1;
+        FloatField zeta_tp1;
+        double time_tp1;
 
         try {
-            u_tp1 = (float[][][]) ncIn.findVariable(strU).read(origin, new int[]{1, nz, ny, (nx - 1)}).reduce().copyToNDJavaArray();
+            u_tp1 = FloatField.read(nc.findVariable(strU).read(origin, new int[]{1, nz, ny, (nx - 1)}), nz, ny, nx - 1);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading U velocity variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -552,7 +632,7 @@ abstract class Mars3dCommon extends MarsCommon {
 
 
         try {
-            v_tp1 = (float[][][]) ncIn.findVariable(strV).read(origin, new int[]{1, nz, (ny - 1), nx}).reduce().copyToNDJavaArray();
+            v_tp1 = FloatField.read(nc.findVariable(strV).read(origin, new int[]{1, nz, (ny - 1), nx}), nz, ny - 1, nx);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading V velocity variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -560,7 +640,7 @@ abstract class Mars3dCommon extends MarsCommon {
         }
 
         try {
-            time_tp1 = DatasetUtil.timeAtRank(ncIn, strTime, rank);
+            time_tp1 = DatasetUtil.timeAtRank(nc, strTime, rank);
         } catch (IOException ex) {
             IOException ioex = new IOException("Error reading time variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -568,137 +648,176 @@ abstract class Mars3dCommon extends MarsCommon {
         }
 
         try {
-            zeta_tp1 = (float[][]) ncIn.findVariable(strZeta).read(new int[]{rank, jpo, ipo}, new int[]{1, ny, nx}).reduce().copyToNDJavaArray();
+            zeta_tp1 = FloatField.read(nc.findVariable(strZeta).read(new int[]{rank, jpo, ipo}, new int[]{1, ny, nx}), ny, nx);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading ocean free surface elevation. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
             throw ioex;
         }
 
-        dt_HyMo = Math.abs(time_tp1 - time_tp0);
-        for (RequiredVariable variable : requiredVariables.values()) {
-            variable.nextStep(readVariable(ncIn, variable.getName(), rank), time_tp1, dt_HyMo);
-        }
-        z_w_tp1 = getSigLevels();
-        w_tp1 = computeW();
+        DoubleField z_w_tp1 = getSigLevels(zeta_tp1);
+        return new Fields(u_tp1, v_tp1, computeW(z_w_tp1, u_tp1, v_tp1), zeta_tp1, z_w_tp1, time_tp1);
+    }
+
+    FloatField computeW() {
+        return computeW(z_w_tp1, u_tp1, v_tp1);
+    }
+
+    /**
+     * Computes the vertical velocity from the given depth of the w points and
+     * horizontal velocity fields. The arguments are not modified. The rows
+     * are computed in parallel, see {@link ParallelRows}.
+     */
+    FloatField computeW(DoubleField z_w_tp1, FloatField u_tp1, FloatField v_tp1) {
+
+        FloatField w = new FloatField(nz + 1, ny, nx);
+        ParallelRows.forEach(1, ny - 1, j -> computeW(j, z_w_tp1, u_tp1, v_tp1, w));
+        return w;
     }
 
-    float[][][] computeW() {
+    /**
+     * Computes the row j of the vertical velocity, and the boundary row next
+     * to it if any. The work arrays are (k, i) slices of the row, in the
+     * buffers of the thread.
+     */
+    private void computeW(int j, DoubleField z_w_tp1, FloatField u_tp1, FloatField v_tp1, FloatField w) {
 
-        double[][][] Huon = new double[nz][ny][nx];
-        double[][][] Hvom = new double[nz][ny][nx];
+        double[] Huon = ParallelRows.buffer(0, nz * nx);
+        // Hvom at rows j and j + 1
+        double[] Hvom = ParallelRows.buffer(1, nz * nx);
+        double[] Hvom_n = ParallelRows.buffer(2, nz * nx);
+        double[] w_double = ParallelRows.buffer(3, (nz + 1) * nx);
+        double[] wrk = ParallelRows.buffer(4, nx);
 
         //---------------------------------------------------
         // Calculation Coeff Huon & Hvom
         for (int k = nz; k-- > 0;) {
+            Huon[k * nx] = 0.d;
             for (int i = 0; i++ < nx - 1;) {
-                for (int j = ny; j-- > 0;) {
-                    Huon[k][j][i] = .25d * ((z_w_tp1[k + 1][j][i] - z_w_tp1[k][j][i])
-                            + (z_w_tp1[k + 1][j][i - 1] - z_w_tp1[k][j][i - 1]))
-                            * (dyv[j][i] + dyv[j][i - 1])
-                            * u_tp1[k][j][i - 1];
-                    if (Double.isNaN(Huon[k][j][i])) {
-                        Huon[k][j][i] = 0.d;
-
-                    }
+                Huon[k * nx + i] = .25d * ((z_w_tp1.get(k + 1, j, i) - z_w_tp1.get(k, j, i))
+                        + (z_w_tp1.get(k + 1, j, i - 1) - z_w_tp1.get(k, j, i - 1)))
+                        * (dyv[j][i] + dyv[j][i - 1])
+                        * u_tp1.get(k, j, i - 1);
+                if (Double.isNaN(Huon[k * nx + i])) {
+                    Huon[k * nx + i] = 0.d;
                 }
             }
             for (int i = nx; i-- > 0;) {
-                for (int j = 0; j++ < ny - 1;) {
-                    Hvom[k][j][i] = .25d * (((z_w_tp1[k + 1][j][i] - z_w_tp1[k][j][i])
-                            + (z_w_tp1[k + 1][j - 1][i] - z_w_tp1[k][j - 1][i]))
-                            * (dxu[j][i] + dxu[j - 1][i]))
-                            * v_tp1[k][j - 1][i];
-                    if (Double.isNaN(Hvom[k][j][i])) {
-                        Hvom[k][j][i] = 0.d;
-
-                    }
-                }
+                Hvom[k * nx + i] = Hvom(k, j, i, z_w_tp1, v_tp1);
+                Hvom_n[k * nx + i] = Hvom(k, j + 1, i, z_w_tp1, v_tp1);
             }
         }
 
         //---------------------------------------------------
         // Calcultaion of w(i, j, k)
-        double[] wrk = new double[nx];
-        double[][][] w_double = new double[nz + 1][ny][nx];
-
-        for (int j = ny - 1; j-- > 0;) {
-            for (int i = nx; i-- > 0;) {
-                w_double[0][j][i] = 0.f;
-            }
-            for (int k = 0; k++ < nz;) {
-                for (int i = nx - 1; i-- > 0;) {
-                    w_double[k][j][i] = w_double[k - 1][j][i]
-                            + (Huon[k - 1][j][i] - Huon[k - 1][j][i + 1] + Hvom[k - 1][j][i] - Hvom[k - 1][j + 1][i]);
-                }
-            }
-            for (int i = nx; i-- > 0;) {
-                wrk[i] = w_double[nz][j][i] / (z_w_tp1[nz][j][i] - z_w_tp1[0][j][i]);
-            }
-            for (int k = nz; k-- >= 2;) {
-                for (int i = nx; i-- > 0;) {
-                    w_double[k][j][i] += -wrk[i] * (z_w_tp1[k][j][i] - z_w_tp1[0][j][i]);
-                }
+        for (int i = nx; i-- > 0;) {
+            w_double[i] = 0.f;
+        }
+        for (int k = 0; k++ < nz;) {
+            for (int i = nx - 1; i-- > 0;) {
+                w_double[k * nx + i] = w_double[(k - 1) * nx + i]
+                        + (Huon[(k - 1) * nx + i] - Huon[(k - 1) * nx + i + 1] + Hvom[(k - 1) * nx + i] - Hvom_n[(k - 1) * nx + i]);
             }
-
+            w_double[k * nx + nx - 1] = 0.d;
+        }
+        for (int i = nx; i-- > 0;) {
+            wrk[i] = w_double[nz * nx + i] / (z_w_tp1.get(nz, j, i) - z_w_tp1.get(0, j, i));
+        }
+        for (int k = nz; k-- >= 2;) {
             for (int i = nx; i-- > 0;) {
-                w_double[nz][j][i] = 0.f;
+                w_double[k * nx + i] += -wrk[i] * (z_w_tp1.get(k, j, i) - z_w_tp1.get(0, j, i));
             }
         }
+        for (int i = nx; i-- > 0;) {
+            w_double[nz * nx + i] = 0.f;
+        }
 
         //---------------------------------------------------
         // Boundary Conditions
         for (int k = nz + 1; k-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                w_double[k][j][0] = w_double[k][j][1];
-                w_double[k][j][nx - 1] = w_double[k][j][nx - 2];
-            }
-        }
-        for (int k = nz + 1; k-- > 0;) {
-            for (int i = nx; i-- > 0;) {
-                w_double[k][0][i] = w_double[k][1][i];
-                w_double[k][ny - 1][i] = w_double[k][ny - 2][i];
-            }
+            w_double[k * nx] = w_double[k * nx + 1];
+            w_double[k * nx + nx - 1] = w_double[k * nx + nx - 2];
         }
 
         //---------------------------------------------------
         // w * dxu * dyv
-        float[][][] w = new float[nz + 1][ny][nx];
-        for (int i = nx; i-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                for (int k = nz + 1; k-- > 0;) {
-                    w[k][j][i] = isInWater(i, j)
-                            ? (float) (w_double[k][j][i] / (dxu[j][i] * dyv[j][i]))
-                            : 0.f;
-                }
-            }
+        setW(j, w_double, w);
+        if (j == 1) {
+            setW(0, w_double, w);
+        }
+        if (j == ny - 2) {
+            setW(ny - 1, w_double, w);
         }
+    }
 
-        //---------------------------------------------------
-        // Return w
-        return w;
+    private double Hvom(int k, int j, int i, DoubleField z_w_tp1, FloatField v_tp1) {
+        double Hvom = .25d * (((z_w_tp1.get(k + 1, j, i) - z_w_tp1.get(k, j, i))
+                + (z_w_tp1.get(k + 1, j - 1, i) - z_w_tp1.get(k, j - 1, i)))
+                * (dxu[j][i] + dxu[j - 1][i]))
+                * v_tp1.get(k, j - 1, i);
+        return Double.isNaN(Hvom) ? 0.d : Hvom;
+    }
 
+    /**
+     * Writes the given slice of w_double in the row j of w.
+     */
+    private void setW(int j, double[] w_double, FloatField w) {
+        for (int k = nz + 1; k-- > 0;) {
+            for (int i = nx; i-- > 0;) {
+                w.set(k, j, i, isInWater(i, j)
+                        ? (float) (w_double[k * nx + i] / (dxu[j][i] * dyv[j][i]))
+                        : 0.f);
+            }
+        }
+    }
+
+    DoubleField getSigLevels() {
+        return getSigLevels(zeta_tp1);
     }
 
-    double[][][] getSigLevels() {
+    /**
+     * Computes the depth of the w points for the given free surface
+     * elevation. The argument is not modified.
+     */
+    DoubleField getSigLevels(FloatField zeta_tp1) {
 
         //-----------------------------------------------------
         // Daily recalculation of z_w and z_r with zeta
 
-        double[][][] z_w_tmp = new double[nz + 1][ny][nx];
+        DoubleField z_w_tmp = new DoubleField(nz + 1, ny, nx);
 
-        for (int i = nx; i-- > 0;) {
-            for (int j = ny; j-- > 0;) {
+        ParallelRows.forEach(0, ny, j -> {
+            for (int i = nx; i-- > 0;) {
                 for (int k = 0; k < nz + 1; k++) {
-                    z_w_tmp[k][j][i] = (Float.isNaN(zeta_tp1[j][i]) || Math.abs(zeta_tp1[j][i]) > 10)
-                            ? z_w_cst[k][j][i]
-                            : z_w_cst[k][j][i] + zeta_tp1[j][i] * (1.d + s_w[k]);
+                    z_w_tmp.set(k, j, i, (Float.isNaN(zeta_tp1.get(j, i)) || Math.abs(zeta_tp1.get(j, i)) > 10)
+                            ? z_w_cst.get(k, j, i)
+                            : z_w_cst.get(k, j, i) + zeta_tp1.get(j, i) * (1.d + s_w[k]));
                 }
             }
-        }
+        });
         return z_w_tmp;
     }
 
+    /**
+     * A time record of the hydrodynamic fields. Read-only.
+     */
+    private static class Fields {
+
+        private final FloatField u, v, w;
+        private final FloatField zeta;
+        private final DoubleField z_w;
+        private final double time;
+
+        private Fields(FloatField u, FloatField v, FloatField w, FloatField zeta, DoubleField z_w, double time) {
+            this.u = u;
+            this.v = v;
+            this.w = w;
+            this.zeta = zeta;
+            this.z_w = z_w;
+            this.time = time;
+        }
+    }
+
     @Override
     public Array readVariable(NetcdfFile nc, String name, int rank) throws Exception {
         Variable variable = nc.findVariable(name);
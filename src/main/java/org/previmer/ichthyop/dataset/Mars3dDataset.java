@@ -44,6 +44,7 @@
 
 package org.previmer.ichthyop.dataset;
 
+import java.io.IOException;
 import java.util.List;
 import org.previmer.ichthyop.event.NextStepEvent;
 
@@ -77,6 +78,15 @@ public class Mars3dDataset extends Mars3dCommon {
         time_tp1 = t0;
     }
 
+    @Override
+    String nextFile() {
+        try {
+            return files.get(DatasetUtil.next(files, index, timeArrow));
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
     @Override
     public void nextStepTriggered(NextStepEvent e) throws Exception {
 
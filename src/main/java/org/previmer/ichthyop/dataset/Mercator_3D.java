@@ -46,7 +46,9 @@ package org.previmer.ichthyop.dataset;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import org.previmer.ichthyop.event.NextStepEvent;
 import org.previmer.ichthyop.io.IOTools;
@@ -94,6 +96,7 @@ public class Mercator_3D extends AbstractDataset {
      * Mask: water = 1, cost = 0
      */
     private int[][][] maskRho;//, masku, maskv;
+    private LandMask landMask;
     /**
      * Zonal component of the velocity field at current time
      */
@@ -182,6 +185,11 @@ public class Mercator_3D extends AbstractDataset {
     private boolean isGridInfoInOneFile;
     // Whether vertical velocity should be read from NetCDF or calculated from U & V
     private boolean readW;
+    /**
+     * Loads the next time record in the background, if enabled.
+     */
+    private final RecordPrefetcher<Fields> prefetcher = new RecordPrefetcher<>();
+    private boolean prefetchEnabled;
 
 ////////////////////////////
 // Definition of the methods
@@ -229,6 +237,8 @@ public class Mercator_3D extends AbstractDataset {
             }
         }
 
+        landMask = new LandMask(nx, ny, nz, (i, j, k) -> maskRho[k][j][i] > 0);
+
         if (!isGridInfoInOneFile) {
             nc.close();
             nc = NetcdfDatasets.openDataset(file_zgr, enhanced(), null);
@@ -465,22 +475,57 @@ public class Mercator_3D extends AbstractDataset {
      */
     @Override
     public double get_dUx(double[] pGrid, double time, boolean normalize) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
 
-        double du = 0.d;
-        double kz;
+    @Override
+    public double get_dWz(double[] pGrid, double time) {
         int n = isCloseToCost(pGrid) ? 1 : 2;
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+    }
 
-        int i = (n == 1) ? (int) Math.round(pGrid[0]) : (int) pGrid[0];
-        int j = (n == 1) ? (int) Math.round(pGrid[1]) : (int) pGrid[1];
+    @Override
+    public double get_dVy(double[] pGrid, double time, boolean normalize) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
+
+    /**
+     * Samples the three velocity components at once. The proximity to the
+     * coast, the vertical coordinate and the time weight are computed only
+     * once for the three stencils.
+     */
+    @Override
+    public void sampleVelocity(double[] pGrid, double time, double[] velocity) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        velocity[0] = interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        velocity[1] = interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        if (velocity.length > 2) {
+            velocity[2] = interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+        }
+    }
+
+    private double interpolateU(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
+
+        double du = 0.d;
+        int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
+        int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
         int k = (int) kz;
 
-        double dx = pGrid[0] - (double) i;
-        double dy = pGrid[1] - (double) j;
+        double dx = ix - (double) i;
+        double dy = jy - (double) j;
         double dz = kz - (double) k;
         double CO = 0.d;
         double co, x;
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
 
         Index index = u_tp0.getIndex();
         for (int ii = 0; ii < 2; ii++) {
@@ -509,17 +554,9 @@ public class Mercator_3D extends AbstractDataset {
         return du;
     }
 
-    @Override
-    public double get_dWz(double[] pGrid, double time) {
+    private double interpolateW(double ix, double jy, double kz, int n, double x_euler) {
 
         double dw = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
-
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
         int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
         int k = (int) Math.round(kz);
@@ -556,23 +593,17 @@ public class Mercator_3D extends AbstractDataset {
         return dw;
     }
 
-    @Override
-    public double get_dVy(double[] pGrid, double time, boolean normalize) {
+    private double interpolateV(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
 
         double dv = 0.d;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        int i = (n == 1) ? (int) Math.round(pGrid[0]) : (int) pGrid[0];
-        int j = (n == 1) ? (int) Math.round(pGrid[1]) : (int) pGrid[1];
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
-        double dx = pGrid[0] - (double) i;
-        double dy = pGrid[1] - (double) j;
+        int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
+        int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
+        double dx = ix - (double) i;
+        double dy = jy - (double) j;
         double CO = 0.d;
         double x;
         double co;
 
-        double kz;
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
-
         int k = (int) kz;
 
         double dz = kz - (double) k;
@@ -642,7 +673,7 @@ public class Mercator_3D extends AbstractDataset {
      * Ws(i, j, k) = W(i, j, k) - Wgrid(i, j, k)
      * </pre>
      */
-    private Array computeW() {
+    private Array computeW(Array u_tp1, Array v_tp1) {
 
         Index index, indexbis;
 
@@ -1091,6 +1122,8 @@ public class Mercator_3D extends AbstractDataset {
     @Override
     public void init() throws Exception {
 
+        prefetcher.clear();
+        prefetchEnabled = prefetch();
         double t0 = getSimulationManager().getTimeManager().get_tO();
         open(indexFile = DatasetUtil.index(listUFiles, t0, time_arrow, strTime));
         checkRequiredVariable(ncT);
@@ -1109,10 +1142,90 @@ public class Mercator_3D extends AbstractDataset {
      */
     void setAllFieldsTp1AtTime(int rank) throws Exception {
 
+        double time_tp0 = time_tp1;
+        RecordPrefetcher.Record<Fields> record = prefetcher.take(ncU.getLocation() + '#' + rank);
+        Fields fields = (null != record) ? record.getFields() : readFields(ncU, ncV, ncW, rank);
+
+        u_tp1 = fields.u;
+        v_tp1 = fields.v;
+        w_tp1 = fields.w;
+        time_tp1 = fields.time;
+
+        dt_HyMo = Math.abs(time_tp1 - time_tp0);
+        for (RequiredVariable variable : requiredVariables.values()) {
+            variable.nextStep(readVariable(record, ncT, variable.getName(), rank), time_tp1, dt_HyMo);
+        }
+        if (prefetchEnabled) {
+            prefetchNextRecord(rank);
+        }
+    }
+
+    /**
+     * Starts loading the record that follows the given rank, in the
+     * direction of time, while the particles are stepped. When the record is
+     * in the next files, the loading opens and closes its own handles on the
+     * files.
+     */
+    private void prefetchNextRecord(int rank) {
+        String[] names = (null != ncT)
+                ? requiredVariables.keySet().toArray(new String[0])
+                : new String[0];
+        int next = rank + time_arrow;
+        if (next >= 0 && next < nbTimeRecords) {
+            NetcdfFile u = ncU, v = ncV, w = ncW, t = ncT;
+            prefetcher.prefetch(() -> new RecordPrefetcher.Record<>(u.getLocation() + '#' + next, readFields(u, v, w, next), readVariables(t, names, next)));
+            return;
+        }
+        int index;
+        try {
+            index = DatasetUtil.next(listUFiles, indexFile, time_arrow);
+        } catch (IOException ex) {
+            // last file, nothing to prefetch
+            return;
+        }
+        boolean enhanced = enhanced();
+        String[] locations = new String[]{
+            listUFiles.get(index),
+            listVFiles.get(index),
+            readW ? listWFiles.get(index) : null,
+            listTFiles.isEmpty() ? null : listTFiles.get(index)};
+        prefetcher.prefetch(() -> {
+            Map<String, NetcdfFile> opened = new HashMap<>();
+            try {
+                NetcdfFile[] nc = new NetcdfFile[locations.length];
+                for (int i = 0; i < locations.length; i++) {
+                    if (null != locations[i]) {
+                        nc[i] = opened.get(locations[i]);
+                        if (null == nc[i]) {
+                            nc[i] = DatasetUtil.openFile(locations[i], enhanced);
+                            opened.put(locations[i], nc[i]);
+                        }
+                    }
+                }
+                int first = (1 - time_arrow) / 2 * (nc[0].findDimension(strTimeDim).getLength() - 1);
+                return new RecordPrefetcher.Record<>(nc[0].getLocation() + '#' + first,
+                        readFields(nc[0], nc[1], nc[2], first),
+                        readVariables(nc[3], names, first));
+            } finally {
+                for (NetcdfFile nc : opened.values()) {
+                    nc.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the time record of the velocity fields at the given rank of the
+     * NetCDF files. Only the local variables are modified, since the record
+     * may be loaded in the background.
+     */
+    private Fields readFields(NetcdfFile ncU, NetcdfFile ncV, NetcdfFile ncW, int rank) throws Exception {
+
         getLogger().info("Reading NetCDF variables...");
 
         int[] origin = new int[]{rank, 0, jpo, ipo};
-        double time_tp0 = time_tp1;
+        Array u_tp1, v_tp1, w_tp1;
+        double time_tp1;
 
         try {
             u_tp1 = ncU.findVariable(strU).read(origin, new int[]{1, nz, ny, nx}).flip(1).reduce();
@@ -1138,10 +1251,6 @@ public class Mercator_3D extends AbstractDataset {
             throw ioex;
         }
 
-        dt_HyMo = Math.abs(time_tp1 - time_tp0);
-        for (RequiredVariable variable : requiredVariables.values()) {
-            variable.nextStep(readVariable(ncT, variable.getName(), rank), time_tp1, dt_HyMo);
-        }
         if (readW) {
             try {
                 w_tp1 = ncW.findVariable(strW).read(origin, new int[]{1, nz + 1, ny, nx}).flip(1).reduce();
@@ -1151,7 +1260,24 @@ public class Mercator_3D extends AbstractDataset {
                 throw ioex;
             }
         } else {
-            w_tp1 = computeW();
+            w_tp1 = computeW(u_tp1, v_tp1);
+        }
+        return new Fields(u_tp1, v_tp1, w_tp1, time_tp1);
+    }
+
+    /**
+     * A time record of the velocity fields. Read-only.
+     */
+    private static class Fields {
+
+        private final Array u, v, w;
+        private final double time;
+
+        private Fields(Array u, Array v, Array w, double time) {
+            this.u = u;
+            this.v = v;
+            this.w = w;
+            this.time = time;
         }
     }
 
@@ -1164,12 +1290,7 @@ public class Mercator_3D extends AbstractDataset {
      * otherwise.
      */
     private boolean isInWater(int i, int j, int k) {
-        //System.out.println(i + " " + j + " " + k + " - "  + (maskRho[k][j][i] > 0));
-        try {
-            return (maskRho[k][j][i] > 0);
-        } catch (ArrayIndexOutOfBoundsException ex) {
-            return false;
-        }
+        return landMask.isInWater(i, j, k);
     }
 
     @Override
@@ -1206,15 +1327,12 @@ public class Mercator_3D extends AbstractDataset {
      */
     @Override
     public boolean isCloseToCost(double[] pGrid) {
+        return landMask.isCloseToCoast(pGrid[0], pGrid[1], (int) Math.round(pGrid[2]));
+    }
 
-        int i, j, k, ii, jj;
-        i = (int) (Math.round(pGrid[0]));
-        j = (int) (Math.round(pGrid[1]));
-        k = (int) (Math.round(pGrid[2]));
-        ii = (i - (int) pGrid[0]) == 0 ? 1 : -1;
-        jj = (j - (int) pGrid[1]) == 0 ? 1 : -1;
-        return !(isInWater(i + ii, j, k) && isInWater(i + ii, j + jj, k) && isInWater(i, j + jj, k));
-
+    @Override
+    public LandMask getLandMask() {
+        return landMask;
     }
 
     /*
@@ -46,15 +46,18 @@ package org.previmer.ichthyop.dataset;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
+import org.previmer.ichthyop.event.LastStepEvent;
+import org.previmer.ichthyop.event.LastStepListener;
 import org.previmer.ichthyop.event.NextStepEvent;
 import org.previmer.ichthyop.io.IOTools;
 import org.previmer.ichthyop.ui.LonLatConverter;
 import org.previmer.ichthyop.ui.LonLatConverter.LonLatFormat;
 import org.previmer.ichthyop.util.MetaFilenameFilter;
 import ucar.ma2.Array;
-import ucar.ma2.ArrayDouble;
 import ucar.ma2.Index;
 import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
@@ -65,7 +68,7 @@ import ucar.nc2.dataset.NetcdfDatasets;
  *
  * @author pverley
  */
-public class NemoDataset extends AbstractDataset {
+public class NemoDataset extends AbstractDataset implements LastStepListener {
 
 ///////////////////////////////
 // Declaration of the variables
@@ -90,34 +93,36 @@ public class NemoDataset extends AbstractDataset {
      * Latitude at rho point.
      */
     private float[][] latRho;
+    private volatile GridLocator locator;
     /**
      * Mask: water = 1, cost = 0
      */
     private int[][][] maskRho;//, masku, maskv;
+    private LandMask landMask;
     /**
      * Zonal component of the velocity field at current time
      */
-    private Array u_tp0;
+    private FloatField u_tp0;
     /**
      * Zonal component of the velocity field at time t + dt
      */
-    private Array u_tp1;
+    private FloatField u_tp1;
     /**
      * Meridional component of the velocity field at current time
      */
-    private Array v_tp0;
+    private FloatField v_tp0;
     /**
      * Meridional component of the velocity field at time t + dt
      */
-    private Array v_tp1;
+    private FloatField v_tp1;
     /**
      * Vertical component of the velocity field at current time
      */
-    private Array w_tp0;
+    private DoubleField w_tp0;
     /**
      * Vertical component of the velocity field at time t + dt
      */
-    private Array w_tp1;
+    private DoubleField w_tp1;
     /**
      * Depth at rho point
      */
@@ -184,6 +189,15 @@ public class NemoDataset extends AbstractDataset {
     private boolean isGridInfoInOneFile;
     // Whether vertical velocity should be read from NetCDF or calculated from U & V
     private boolean readW;
+    /**
+     * Keys of the time records in the {@link SharedFieldProvider}.
+     */
+    private String fieldsKey_tp0, fieldsKey_tp1;
+    /**
+     * Loads the next time record in the background, if enabled.
+     */
+    private final RecordPrefetcher<Fields> prefetcher = new RecordPrefetcher<>();
+    private boolean prefetchEnabled;
 
 ////////////////////////////
 // Definition of the methods
@@ -233,6 +247,8 @@ public class NemoDataset extends AbstractDataset {
             }
         }
 
+        landMask = new LandMask(nx, ny, nz, (i, j, k) -> maskRho[k][j][i] > 0);
+
         if (!isGridInfoInOneFile) {
             nc.close();
             nc = NetcdfDatasets.openDataset(file_zgr, enhanced(), null);
@@ -594,15 +610,48 @@ public class NemoDataset extends AbstractDataset {
      */
     @Override
     public double get_dUx(double[] pGrid, double time, boolean normalize) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
 
-        double du = 0.d;
-        double ix, jy, kz;
+    @Override
+    public double get_dWz(double[] pGrid, double time) {
         int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+    }
 
+    @Override
+    public double get_dVy(double[] pGrid, double time, boolean normalize) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
+
+    /**
+     * Samples the three velocity components at once. The proximity to the
+     * coast, the vertical coordinate and the time weight are computed only
+     * once for the three staggered stencils.
+     */
+    @Override
+    public void sampleVelocity(double[] pGrid, double time, double[] velocity) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
         double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        velocity[0] = interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        velocity[1] = interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        if (velocity.length > 2) {
+            velocity[2] = interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+        }
+    }
+
+    private double interpolateU(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
+
+        double du = 0.d;
         int i = (int) Math.round(ix);
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
         int k = (int) kz;
@@ -611,7 +660,6 @@ public class NemoDataset extends AbstractDataset {
         double dz = kz - (double) k;
         double CO = 0.d;
         double co, x;
-        Index index = u_tp0.getIndex();
         for (int ii = 0; ii < 2; ii++) {
             for (int jj = 0; jj < n; jj++) {
                 for (int kk = 0; kk < 2; kk++) {
@@ -619,10 +667,9 @@ public class NemoDataset extends AbstractDataset {
                             * (1.d - (double) jj - dy)
                             * (1.d - (double) kk - dz));
                     CO += co;
-                    index.set(k + kk, j + jj, i + ii - 1);
-                    if (!(Double.isNaN(u_tp0.getDouble(index)))) {
-                        x = (1.d - x_euler) * u_tp0.getDouble(index)
-                                + x_euler * u_tp1.getDouble(index);
+                    if (!(Float.isNaN(u_tp0.get(k + kk, j + jj, i + ii - 1)))) {
+                        x = (1.d - x_euler) * u_tp0.get(k + kk, j + jj, i + ii - 1)
+                                + x_euler * u_tp1.get(k + kk, j + jj, i + ii - 1);
                         if (normalize) {
                             du += x * co / e2u[j + jj][i + ii - 1];
                         } else {
@@ -638,17 +685,45 @@ public class NemoDataset extends AbstractDataset {
         return du;
     }
 
-    @Override
-    public double get_dWz(double[] pGrid, double time) {
+    private double interpolateV(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
 
-        double dw = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double dv = 0.d;
+        int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
+        int j = (int) Math.round(jy);
+        int k = (int) kz;
+        double dx = ix - (double) i;
+        double dy = jy - (double) j;
+        double dz = kz - (double) k;
+        double CO = 0.d;
+        double co, x;
+        for (int kk = 0; kk < 2; kk++) {
+            for (int jj = 0; jj < 2; jj++) {
+                for (int ii = 0; ii < n; ii++) {
+                    co = Math.abs((1.d - (double) ii - dx)
+                            * (.5d - (double) jj - dy)
+                            * (1.d - (double) kk - dz));
+                    CO += co;
+                    if (!Float.isNaN(v_tp0.get(k + kk, j + jj - 1, i + ii))) {
+                        x = (1.d - x_euler) * v_tp0.get(k + kk, j + jj - 1, i + ii)
+                                + x_euler * v_tp1.get(k + kk, j + jj - 1, i + ii);
+                        if(normalize) {
+                            dv += x * co / e1v[j + jj - 1][i + ii];
+                        } else {
+                            dv += x * co;
+                        }
+                    }
+                }
+            }
+        }
+        if (CO != 0) {
+            dv /= CO;
+        }
+        return dv;
+    }
 
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+    private double interpolateW(double ix, double jy, double kz, int n, double x_euler) {
+
+        double dw = 0.d;
         int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
         int k = (int) Math.round(kz);
@@ -657,7 +732,6 @@ public class NemoDataset extends AbstractDataset {
         double dz = kz - (double) k;
         double CO = 0.d;
         double co, x;
-        Index index = w_tp0.getIndex();
         for (int ii = 0; ii < n; ii++) {
             for (int jj = 0; jj < n; jj++) {
                 for (int kk = 0; kk < 2; kk++) {
@@ -665,12 +739,10 @@ public class NemoDataset extends AbstractDataset {
                             * (1.d - (double) jj - dy)
                             * (.5d - (double) kk - dz));
                     CO += co;
-                    index.set(k + kk, j + jj, i + ii);
-
-                    if (!(Double.isNaN(w_tp0.getDouble(index)))) {
+                    if (!(Double.isNaN(w_tp0.get(k + kk, j + jj, i + ii)))) {
 
-                        x = (1.d - x_euler) * w_tp0.getDouble(index)
-                                + x_euler * w_tp1.getDouble(index);
+                        x = (1.d - x_euler) * w_tp0.get(k + kk, j + jj, i + ii)
+                                + x_euler * w_tp1.get(k + kk, j + jj, i + ii);
 
                         dw += 2.d * x * co
                                 / (gdepW[Math.max(k + kk - 1, 0)][j + jj][i + ii]
@@ -688,51 +760,6 @@ public class NemoDataset extends AbstractDataset {
         return dw;
     }
 
-    @Override
-    public double get_dVy(double[] pGrid, double time, boolean normalize) {
-        double dv = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
-
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
-        int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
-        int j = (int) Math.round(jy);
-        int k = (int) kz;
-        double dx = ix - (double) i;
-        double dy = jy - (double) j;
-        double dz = kz - (double) k;
-        double CO = 0.d;
-        double co, x;
-        Index index = v_tp0.getIndex();
-        for (int kk = 0; kk < 2; kk++) {
-            for (int jj = 0; jj < 2; jj++) {
-                for (int ii = 0; ii < n; ii++) {
-                    co = Math.abs((1.d - (double) ii - dx)
-                            * (.5d - (double) jj - dy)
-                            * (1.d - (double) kk - dz));
-                    CO += co;
-                    index.set(k + kk, j + jj - 1, i + ii);
-                    if (!Double.isNaN(v_tp0.getDouble(index))) {
-                        x = (1.d - x_euler) * v_tp0.getDouble(index)
-                                + x_euler * v_tp1.getDouble(index);
-                        if(normalize) {
-                            dv += x * co / e1v[j + jj - 1][i + ii];
-                        } else {
-                            dv += x * co;
-                        }
-                    }
-                }
-            }
-        }
-        if (CO != 0) {
-            dv /= CO;
-        }
-        return dv;
-    }
-
     /**
      * Computes the vertical velocity vector.
      * <pre>
@@ -772,100 +799,101 @@ public class NemoDataset extends AbstractDataset {
      * Ws(i, j, k) = W(i, j, k) - Wgrid(i, j, k)
      * </pre>
      */
-    private Array computeW() {
+    private DoubleField computeW(FloatField u_tp1, FloatField v_tp1) {
 
-        double[][][] Huon = new double[nz][ny][nx];
-        double[][][] Hvom = new double[nz][ny][nx];
+        // the rows are computed in parallel, see ParallelRows
+        DoubleField w = new DoubleField(nz + 1, ny, nx);
+        ParallelRows.forEach(1, ny - 1, j -> computeW(j, u_tp1, v_tp1, w));
+        return w;
+    }
+
+    /**
+     * Computes the row j of the vertical velocity, and the boundary row next
+     * to it if any. The work arrays are (k, i) slices of the row, in the
+     * buffers of the thread.
+     */
+    private void computeW(int j, FloatField u_tp1, FloatField v_tp1, DoubleField w) {
+
+        double[] Huon = ParallelRows.buffer(0, nz * nx);
+        // Hvom at rows j and j - 1
+        double[] Hvom = ParallelRows.buffer(1, nz * nx);
+        double[] Hvom_s = ParallelRows.buffer(2, nz * nx);
+        double[] w_double = ParallelRows.buffer(3, (nz + 1) * nx);
 
         //---------------------------------------------------
         // Calculation Coeff Huon & Hvom
-        Index index;
         for (int k = nz; k-- > 0;) {
-            index = u_tp1.getIndex();
             for (int i = 0; i < nx; i++) {
-                for (int j = 0; j < ny; j++) {
-//                    Huon[k][j][i] = u_tp1[k][j][i] * e2u[j][i] * Math.min(e3t[k][j][i], e3t[k][j][i + 1]);
-                    index.set(k, j, i);
-                    Huon[k][j][i] = Double.isNaN(u_tp1.getDouble(index))
-                            ? 0.f
-                            : u_tp1.getDouble(index) * e2u[j][i] * e3u[k][j][i];
-                }
+//                Huon[k][j][i] = u_tp1[k][j][i] * e2u[j][i] * Math.min(e3t[k][j][i], e3t[k][j][i + 1]);
+                Huon[k * nx + i] = Float.isNaN(u_tp1.get(k, j, i))
+                        ? 0.f
+                        : u_tp1.get(k, j, i) * e2u[j][i] * e3u[k][j][i];
             }
-            index = v_tp1.getIndex();
             for (int i = 0; i < nx; i++) {
-                for (int j = 0; j < ny; j++) {
-//                    Hvom[k][j][i] = v_tp1[k][j][i] * e1v[j][i] * Math.min(e3t[k][j][i], e3t[k][j + 1][i]);
-                    index.set(k, j, i);
-                    Hvom[k][j][i] = Double.isNaN(v_tp1.getDouble(index))
-                            ? 0.f
-                            : v_tp1.getDouble(index) * e1v[j][i] * e3v[k][j][i];
-                }
+//                Hvom[k][j][i] = v_tp1[k][j][i] * e1v[j][i] * Math.min(e3t[k][j][i], e3t[k][j + 1][i]);
+                Hvom[k * nx + i] = Float.isNaN(v_tp1.get(k, j, i))
+                        ? 0.f
+                        : v_tp1.get(k, j, i) * e1v[j][i] * e3v[k][j][i];
+                Hvom_s[k * nx + i] = Float.isNaN(v_tp1.get(k, j - 1, i))
+                        ? 0.f
+                        : v_tp1.get(k, j - 1, i) * e1v[j - 1][i] * e3v[k][j - 1][i];
             }
         }
 
         //---------------------------------------------------
         // Calcultaion of w(i, j, k)
-        double[][][] w_double = new double[nz + 1][ny][nx];
-
-        for (int j = 1; j < ny - 1; j++) {
-            for (int i = 1; i < nx - 1; i++) {
-                /*
-                 * pverley 15/02/2011
-                 * I must start integrating the vertical velocity at the bottom
-                 * of the water column wich is not necessarily k = 0;
-                 * So first I look for k0 such as (k0 - 1) is bottom, k0 is first
-                 * cell of the column in water.
-                 */
-                int k0 = 0;
-
-                /*
-                 * pverley 15/02/2011
-                 * Ensured that w(0:k0, :, :) = 0;
-                 */
-                for (int k = 0; k < k0 + 1; k++) {
-                    w_double[k][j][i] = 0.d;
-                    //System.out.println("k: " + k + " k0: " + k0 + " wr: " + wr_   tp1[k][j][i] + " " + isInWater(k, j, i));
-                }
-                for (int k = k0 + 1; k < nz; k++) {
-                    w_double[k][j][i] = w_double[k - 1][j][i]
-                            - (Huon[k - 1][j][i] - Huon[k - 1][j][i - 1] + Hvom[k - 1][j][i] - Hvom[k - 1][j - 1][i]);
-                }
+        for (int i = 1; i < nx - 1; i++) {
+            /*
+             * pverley 15/02/2011
+             * I must start integrating the vertical velocity at the bottom
+             * of the water column wich is not necessarily k = 0;
+             * So first I look for k0 such as (k0 - 1) is bottom, k0 is first
+             * cell of the column in water.
+             */
+            int k0 = 0;
 
-                w_double[nz][j][i] = 0.d;  // Because particle at the surface can not "fly" (must remember my GFD classes).
+            /*
+             * pverley 15/02/2011
+             * Ensured that w(0:k0, :, :) = 0;
+             */
+            for (int k = 0; k < k0 + 1; k++) {
+                w_double[k * nx + i] = 0.d;
             }
+            for (int k = k0 + 1; k < nz; k++) {
+                w_double[k * nx + i] = w_double[(k - 1) * nx + i]
+                        - (Huon[(k - 1) * nx + i] - Huon[(k - 1) * nx + i - 1] + Hvom[(k - 1) * nx + i] - Hvom_s[(k - 1) * nx + i]);
+            }
+
+            w_double[nz * nx + i] = 0.d;  // Because particle at the surface can not "fly" (must remember my GFD classes).
         }
+
         //---------------------------------------------------
         // Boundary Conditions
-
         for (int k = nz + 1; k-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                w_double[k][j][0] = w_double[k][j][1];
-                w_double[k][j][nx - 1] = w_double[k][j][nx - 2];
-            }
-        }
-        for (int k = nz + 1; k-- > 0;) {
-            for (int i = nx; i-- > 0;) {
-                w_double[k][0][i] = w_double[k][1][i];
-                w_double[k][ny - 1][i] = w_double[k][ny - 2][i];
-            }
+            w_double[k * nx] = w_double[k * nx + 1];
+            w_double[k * nx + nx - 1] = w_double[k * nx + nx - 2];
         }
 
         //---------------------------------------------------
         // w * dxu * dyv
-        //float[][][] w = new float[nz + 1][ny][nx];
-        Array w = new ArrayDouble.D3(nz + 1, ny, nx);
-        index = w.getIndex();
-        for (int i = nx; i-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                for (int k = nz + 1; k-- > 0;) {
-                    w.setDouble(index.set(k, j, i), (w_double[k][j][i] / (e1t[j][i] * e2t[j][i])));
-                }
-            }
+        setW(j, w_double, w);
+        if (j == 1) {
+            setW(0, w_double, w);
+        }
+        if (j == ny - 2) {
+            setW(ny - 1, w_double, w);
         }
+    }
 
-        //---------------------------------------------------
-        // Return w
-        return w;
+    /**
+     * Writes the given slice of w_double in the row j of w.
+     */
+    private void setW(int j, double[] w_double, DoubleField w) {
+        for (int k = nz + 1; k-- > 0;) {
+            for (int i = nx; i-- > 0;) {
+                w.set(k, j, i, (w_double[k * nx + i] / (e1t[j][i] * e2t[j][i])));
+            }
+        }
     }
 
     /*
@@ -1146,6 +1174,9 @@ public class NemoDataset extends AbstractDataset {
     @Override
     public void init() throws Exception {
 
+        releaseFields();
+        prefetchEnabled = prefetch();
+        getSimulationManager().getTimeManager().addLastStepListener(this);
         double t0 = getSimulationManager().getTimeManager().get_tO();
         open(indexFile = DatasetUtil.index(listUFiles, t0, time_arrow, strTime));
         checkRequiredVariable(ncT);
@@ -1164,13 +1195,98 @@ public class NemoDataset extends AbstractDataset {
      */
     void setAllFieldsTp1AtTime(int rank) throws Exception {
 
+        double time_tp0 = time_tp1;
+        String key = fieldsKey(ncU.getLocation(), rank);
+        RecordPrefetcher.Record<Fields> record = prefetcher.take(key);
+        Fields fields = SharedFieldProvider.acquire(key, () -> (null != record) ? record.getFields() : readFields(ncU, ncV, ncW, rank));
+        SharedFieldProvider.release(fieldsKey_tp0);
+        fieldsKey_tp0 = fieldsKey_tp1;
+        fieldsKey_tp1 = key;
+
+        u_tp1 = fields.u;
+        v_tp1 = fields.v;
+        w_tp1 = fields.w;
+        time_tp1 = fields.time;
+
+        dt_HyMo = Math.abs(time_tp1 - time_tp0);
+        for (RequiredVariable variable : requiredVariables.values()) {
+            variable.nextStep(readVariable(record, ncT, variable.getName(), rank), time_tp1, dt_HyMo);
+        }
+        if (prefetchEnabled) {
+            prefetchNextRecord(rank);
+        }
+    }
+
+    /**
+     * Starts loading the record that follows the given rank, in the
+     * direction of time, while the particles are stepped. When the record is
+     * in the next files, the loading opens and closes its own handles on the
+     * files.
+     */
+    private void prefetchNextRecord(int rank) {
+        String[] names = (null != ncT)
+                ? requiredVariables.keySet().toArray(new String[0])
+                : new String[0];
+        int next = rank + time_arrow;
+        if (next >= 0 && next < nbTimeRecords) {
+            NetcdfFile u = ncU, v = ncV, w = ncW, t = ncT;
+            prefetcher.prefetch(() -> new RecordPrefetcher.Record<>(fieldsKey(u.getLocation(), next), readFields(u, v, w, next), readVariables(t, names, next)));
+            return;
+        }
+        int index;
+        try {
+            index = DatasetUtil.next(listUFiles, indexFile, time_arrow);
+        } catch (IOException ex) {
+            // last file, nothing to prefetch
+            return;
+        }
+        boolean enhanced = enhanced();
+        String[] locations = new String[]{
+            listUFiles.get(index),
+            listVFiles.get(index),
+            readW ? listWFiles.get(index) : null,
+            listTFiles.isEmpty() ? null : listTFiles.get(index)};
+        prefetcher.prefetch(() -> {
+            Map<String, NetcdfFile> opened = new HashMap<>();
+            try {
+                NetcdfFile[] nc = new NetcdfFile[locations.length];
+                for (int i = 0; i < locations.length; i++) {
+                    if (null != locations[i]) {
+                        nc[i] = opened.get(locations[i]);
+                        if (null == nc[i]) {
+                            nc[i] = DatasetUtil.openFile(locations[i], enhanced);
+                            opened.put(locations[i], nc[i]);
+                        }
+                    }
+                }
+                int first = (1 - time_arrow) / 2 * (nc[0].findDimension(strTimeDim).getLength() - 1);
+                return new RecordPrefetcher.Record<>(fieldsKey(nc[0].getLocation(), first),
+                        readFields(nc[0], nc[1], nc[2], first),
+                        readVariables(nc[3], names, first));
+            } finally {
+                for (NetcdfFile nc : opened.values()) {
+                    nc.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the time record of the velocity fields at the given rank of the
+     * NetCDF files. Only the local variables are modified, since the record
+     * may be shared with other simulations or loaded in the background.
+     */
+    private Fields readFields(NetcdfFile ncU, NetcdfFile ncV, NetcdfFile ncW, int rank) throws Exception {
+
         getLogger().info("Reading NetCDF variables...");
 
         int[] origin = new int[]{rank, 0, jpo, ipo};
-        double time_tp0 = time_tp1;
+        FloatField u_tp1, v_tp1;
+        DoubleField w_tp1;
+        double time_tp1;
 
         try {
-            u_tp1 = ncU.findVariable(strU).read(origin, new int[]{1, nz, ny, nx}).flip(1).reduce();
+            u_tp1 = FloatField.read(ncU.findVariable(strU).read(origin, new int[]{1, nz, ny, nx}).flip(1), nz, ny, nx);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading U velocity variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -1178,7 +1294,7 @@ public class NemoDataset extends AbstractDataset {
         }
 
         try {
-            v_tp1 = ncV.findVariable(strV).read(origin, new int[]{1, nz, ny, nx}).flip(1).reduce();
+            v_tp1 = FloatField.read(ncV.findVariable(strV).read(origin, new int[]{1, nz, ny, nx}).flip(1), nz, ny, nx);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading V velocity variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -1193,20 +1309,62 @@ public class NemoDataset extends AbstractDataset {
             throw ioex;
         }
 
-        dt_HyMo = Math.abs(time_tp1 - time_tp0);
-        for (RequiredVariable variable : requiredVariables.values()) {
-            variable.nextStep(readVariable(ncT, variable.getName(), rank), time_tp1, dt_HyMo);
-        }
         if (readW) {
             try {
-                w_tp1 = ncW.findVariable(strW).read(origin, new int[]{1, nz + 1, ny, nx}).flip(1).reduce();
+                w_tp1 = DoubleField.read(ncW.findVariable(strW).read(origin, new int[]{1, nz + 1, ny, nx}).flip(1), nz + 1, ny, nx);
             } catch (IOException | InvalidRangeException ex) {
                 IOException ioex = new IOException("Error reading W variable. " + ex.toString());
                 ioex.setStackTrace(ex.getStackTrace());
                 throw ioex;
             }
         } else {
-            w_tp1 = computeW();
+            w_tp1 = computeW(u_tp1, v_tp1);
+        }
+        return new Fields(u_tp1, v_tp1, w_tp1, time_tp1);
+    }
+
+    /**
+     * Gets the key of the time record in the {@link SharedFieldProvider}. It
+     * includes every setting the content of the record depends on.
+     */
+    private String fieldsKey(String location, int rank) {
+        return getClass().getName() + '|' + file_hgr + ',' + file_zgr + ',' + file_mask
+                + '|' + ipo + ',' + jpo + ',' + nx + ',' + ny + ',' + nz
+                + '|' + strU + ',' + strV + ',' + (readW ? strW : "")
+                + '|' + location + '#' + rank;
+    }
+
+    /**
+     * Releases the time records held by the dataset.
+     */
+    private void releaseFields() {
+        prefetcher.clear();
+        SharedFieldProvider.release(fieldsKey_tp0);
+        SharedFieldProvider.release(fieldsKey_tp1);
+        fieldsKey_tp0 = null;
+        fieldsKey_tp1 = null;
+    }
+
+    @Override
+    public void lastStepOccurred(LastStepEvent e) {
+        releaseFields();
+    }
+
+    /**
+     * A time record of the velocity fields, shared between the simulations
+     * through the {@link SharedFieldProvider}. Read-only.
+     */
+    private static class Fields {
+
+        private final FloatField u, v;
+        private final DoubleField w;
+        private final double time;
+
+        private Fields(FloatField u, FloatField v, DoubleField w, double time) {
+            this.u = u;
+            this.v = v;
+            this.w = w;
+            this.time = time;
         }
     }
 
@@ -1219,12 +1377,7 @@ public class NemoDataset extends AbstractDataset {
      * otherwise.
      */
     private boolean isInWater(int i, int j, int k) {
-        //System.out.println(i + " " + j + " " + k + " - "  + (maskRho[k][j][i] > 0));
-        try {
-            return (maskRho[k][j][i] > 0);
-        } catch (ArrayIndexOutOfBoundsException ex) {
-            return false;
-        }
+        return landMask.isInWater(i, j, k);
     }
 
     @Override
@@ -1261,14 +1414,12 @@ public class NemoDataset extends AbstractDataset {
      */
     @Override
     public boolean isCloseToCost(double[] pGrid) {
+        return landMask.isCloseToCoast(pGrid[0], pGrid[1], (int) Math.round(pGrid[2]));
+    }
 
-        int i, j, k, ii, jj;
-        i = (int) (Math.round(pGrid[0]));
-        j = (int) (Math.round(pGrid[1]));
-        k = (int) (Math.round(pGrid[2]));
-        ii = (i - (int) pGrid[0]) == 0 ? 1 : -1;
-        jj = (j - (int) pGrid[1]) == 0 ? 1 : -1;
-        return !(isInWater(i + ii, j, k) && isInWater(i + ii, j + jj, k) && isInWater(i, j + jj, k));
+    @Override
+    public LandMask getLandMask() {
+        return landMask;
     }
 
     /*
@@ -1403,242 +1554,20 @@ public class NemoDataset extends AbstractDataset {
      * Transforms the specified 2D geographical coordinates into a grid
      * coordinates.
      *
-     * The algorithme has been adapted from a function in ROMS/UCLA code,
-     * originally written by Alexander F. Shchepetkin and Hernan G. Arango.
-     * Please find below an extract of the ROMS/UCLA documention.
-     *
-     * <pre>
-     *  Checks the position to find if it falls inside the whole domain.
-     *  Once it is established that it is inside, find the exact cell to which
-     *  it belongs by successively dividing the domain by a half (binary
-     *  search).
-     * </pre>
+     * The cell is found with the {@link GridLocator} of the grid, built on
+     * first use, and the grid coordinates are interpolated within the cell as
+     * in the ROMS/UCLA code of Alexander F. Shchepetkin and Hernan G. Arango.
      *
      * @param lon a double, the longitude of the geographical point
      * @param lat a double, the latitude of the geographical point
      * @return a double[], the corresponding grid coordinates (x, y)
-     * @see #isInsidePolygone
+     * @see GridLocator
      */
     @Override
     public double[] latlon2xy(double lat, double lon) {
-
-        //--------------------------------------------------------------------
-        // Physical space (lat, lon) => Computational space (x, y)
-        boolean found;
-        int imin, imax, jmin, jmax, i0, j0;
-        double dx1, dy1, dx2, dy2, c1, c2, deltax, deltay, xgrid, ygrid;
-
-        xgrid = -1.;
-        ygrid = -1.;
-        found = isInsidePolygone(0, nx - 1, 0, ny - 1, lon, lat);
-
-        //-------------------------------------------
-        // Research surrounding grid-points
-        if (found) {
-            imin = 0;
-            imax = nx - 1;
-            jmin = 0;
-            jmax = ny - 1;
-            while (((imax - imin) > 1) | ((jmax - jmin) > 1)) {
-                if ((imax - imin) > 1) {
-                    i0 = (imin + imax) / 2;
-                    found = isInsidePolygone(imin, i0, jmin, jmax, lon, lat);
-                    if (found) {
-                        imax = i0;
-                    } else {
-                        imin = i0;
-                    }
-                }
-                if ((jmax - jmin) > 1) {
-                    j0 = (jmax + jmin) / 2;
-                    found = isInsidePolygone(imin, imax, jmin, j0, lon, lat);
-                    if (found) {
-                        jmax = j0;
-                    } else {
-                        jmin = j0;
-                    }
-                }
-            }
-
-            //--------------------------------------------
-            // Trilinear interpolation
-            dy1 = latRho[jmin + 1][imin] - latRho[jmin][imin];
-            dx1 = lonRho[jmin + 1][imin] - lonRho[jmin][imin];
-            dy2 = latRho[jmin][imin + 1] - latRho[jmin][imin];
-            dx2 = lonRho[jmin][imin + 1] - lonRho[jmin][imin];
-
-            c1 = lon * dy1 - lat * dx1;
-            c2 = lonRho[jmin][imin] * dy2 - latRho[jmin][imin] * dx2;
-            deltax = (c1 * dx2 - c2 * dx1) / (dx2 * dy1 - dy2 * dx1);
-            deltax = (deltax - lonRho[jmin][imin]) / dx2;
-            xgrid = (double) imin + Math.min(Math.max(0.d, deltax), 1.d);
-
-            c1 = lonRho[jmin][imin] * dy1 - latRho[jmin][imin] * dx1;
-            c2 = lon * dy2 - lat * dx2;
-            deltay = (c1 * dy2 - c2 * dy1) / (dx2 * dy1 - dy2 * dx1);
-            deltay = (deltay - latRho[jmin][imin]) / dy1;
-            ygrid = (double) jmin + Math.min(Math.max(0.d, deltay), 1.d);
-        }
-        return (new double[]{xgrid, ygrid});
-    }
-
-    /**
-     * Determines whether the specified geographical point (lon, lat) belongs to
-     * the is inside the polygon defined by (imin, jmin) & (imin, jmax) & (imax,
-     * jmax) & (imax, jmin).
-     *
-     * <p>
-     * The algorithm has been adapted from a function in ROMS/UCLA code,
-     * originally written by Alexander F. Shchepetkin and Hernan G. Arango.
-     * Please find below an extract of the ROMS/UCLA documention.
-     * </p>
-     * <pre>
-     * Given the vectors Xb and Yb of size Nb, defining the coordinates
-     * of a closed polygon,  this function find if the point (Xo,Yo) is
-     * inside the polygon.  If the point  (Xo,Yo)  falls exactly on the
-     * boundary of the polygon, it still considered inside.
-     * This algorithm does not rely on the setting of  Xb(Nb)=Xb(1) and
-     * Yb(Nb)=Yb(1).  Instead, it assumes that the last closing segment
-     * is (Xb(Nb),Yb(Nb)) --> (Xb(1),Yb(1)).
-     *
-     * Reference:
-     * Reid, C., 1969: A long way from Euclid. Oceanography EMR,
-     * page 174.
-     *
-     * Algorithm:
-     *
-     * The decision whether the point is  inside or outside the polygon
-     * is done by counting the number of crossings from the ray (Xo,Yo)
-     * to (Xo,-infinity), hereafter called meridian, by the boundary of
-     * the polygon.  In this counting procedure,  a crossing is counted
-     * as +2 if the crossing happens from "left to right" or -2 if from
-     * "right to left". If the counting adds up to zero, then the point
-     * is outside.  Otherwise,  it is either inside or on the boundary.
-     *
-     * This routine is a modified version of the Reid (1969) algorithm,
-     * where all crossings were counted as positive and the decision is
-     * made  based on  whether the  number of crossings is even or odd.
-     * This new algorithm may produce different results  in cases where
-     * Xo accidentally coinsides with one of the (Xb(k),k=1:Nb) points.
-     * In this case, the crossing is counted here as +1 or -1 depending
-     * of the sign of (Xb(k+1)-Xb(k)).  Crossings  are  not  counted if
-     * Xo=Xb(k)=Xb(k+1).  Therefore, if Xo=Xb(k0) and Yo>Yb(k0), and if
-     * Xb(k0-1) < Xb(k0) < Xb(k0+1),  the crossing is counted twice but
-     * with weight +1 (for segments with k=k0-1 and k=k0). Similarly if
-     * Xb(k0-1) > Xb(k0) > Xb(k0+1), the crossing is counted twice with
-     * weight -1 each time.  If,  on the other hand,  the meridian only
-     * touches the boundary, that is, for example, Xb(k0-1) < Xb(k0)=Xo
-     * and Xb(k0+1) < Xb(k0)=Xo, then the crossing is counted as +1 for
-     * segment k=k0-1 and -1 for segment k=k0, resulting in no crossing.
-     *
-     * Note 1: (Explanation of the logical condition)
-     *
-     * Suppose  that there exist two points  (x1,y1)=(Xb(k),Yb(k))  and
-     * (x2,y2)=(Xb(k+1),Yb(k+1)),  such that,  either (x1 < Xo < x2) or
-     * (x1 > Xo > x2).  Therefore, meridian x=Xo intersects the segment
-     * (x1,y1) -> (x2,x2) and the ordinate of the point of intersection
-     * is:
-     *                y1*(x2-Xo) + y2*(Xo-x1)
-     *            y = -----------------------
-     *                         x2-x1
-     * The mathematical statement that point  (Xo,Yo)  either coinsides
-     * with the point of intersection or lies to the north (Yo>=y) from
-     * it is, therefore, equivalent to the statement:
-     *
-     *      Yo*(x2-x1) >= y1*(x2-Xo) + y2*(Xo-x1),   if   x2-x1 > 0
-     * or
-     *      Yo*(x2-x1) <= y1*(x2-Xo) + y2*(Xo-x1),   if   x2-x1 < 0
-     *
-     * which, after noting that  Yo*(x2-x1) = Yo*(x2-Xo + Xo-x1) may be
-     * rewritten as:
-     *
-     *      (Yo-y1)*(x2-Xo) + (Yo-y2)*(Xo-x1) >= 0,   if   x2-x1 > 0
-     * or
-     *      (Yo-y1)*(x2-Xo) + (Yo-y2)*(Xo-x1) <= 0,   if   x2-x1 < 0
-     *
-     * and both versions can be merged into  essentially  the condition
-     * that (Yo-y1)*(x2-Xo)+(Yo-y2)*(Xo-x1) has the same sign as x2-x1.
-     * That is, the product of these two must be positive or zero.
-     * </pre>
-     *
-     * @param imin an int, i-coordinate of the area left corners
-     * @param imax an int, i-coordinate of the area right corners
-     * @param jmin an int, j-coordinate of the area left corners
-     * @param jmax an int, j-coordinate of the area right corners
-     * @param lon a double, the longitude of the geographical point
-     * @param lat a double, the latitude of the geographical point
-     * @return <code>true</code> if (lon, lat) belongs to the polygon,
-     * <code>false</code>otherwise.
-     */
-    private boolean isInsidePolygone(int imin, int imax, int jmin,
-            int jmax, double lon, double lat) {
-
-        //--------------------------------------------------------------
-        // Return true if (lon, lat) is insidide the polygon defined by
-        // (imin, jmin) & (imin, jmax) & (imax, jmax) & (imax, jmin)
-        //-----------------------------------------
-        // Build the polygone
-        int nb, shft;
-        double[] xb, yb;
-        boolean isInPolygone = true;
-
-        nb = 2 * (jmax - jmin + imax - imin);
-        xb = new double[nb + 1];
-        yb = new double[nb + 1];
-        shft = 0 - imin;
-        for (int i = imin; i <= (imax - 1); i++) {
-            xb[i + shft] = lonRho[jmin][i];
-            yb[i + shft] = latRho[jmin][i];
-        }
-        shft = 0 - jmin + imax - imin;
-        for (int j = jmin; j <= (jmax - 1); j++) {
-            xb[j + shft] = lonRho[j][imax];
-            yb[j + shft] = latRho[j][imax];
-        }
-        shft = jmax - jmin + 2 * imax - imin;
-        for (int i = imax; i >= (imin + 1); i--) {
-            xb[shft - i] = lonRho[jmax][i];
-            yb[shft - i] = latRho[jmax][i];
-        }
-        shft = 2 * jmax - jmin + 2 * (imax - imin);
-        for (int j = jmax; j >= (jmin + 1); j--) {
-            xb[shft - j] = lonRho[j][imin];
-            yb[shft - j] = latRho[j][imin];
-        }
-        xb[nb] = xb[0];
-        yb[nb] = yb[0];
-
-        //---------------------------------------------
-        //Check if {lon, lat} is inside polygone
-        int inc, crossings;
-        double dx1, dx2, dxy;
-        crossings = 0;
-
-        for (int k = 0; k < nb; k++) {
-            if (xb[k] != xb[k + 1]) {
-                dx1 = lon - xb[k];
-                dx2 = xb[k + 1] - lon;
-                dxy = dx2 * (lat - yb[k]) - dx1 * (yb[k + 1] - lat);
-                inc = 0;
-                if ((xb[k] == lon) & (yb[k] == lat)) {
-                    crossings = 1;
-                } else if (((dx1 == 0.) & (lat >= yb[k]))
-                        | ((dx2 == 0.) & (lat >= yb[k + 1]))) {
-                    inc = 1;
-                } else if ((dx1 * dx2 > 0.) & ((xb[k + 1] - xb[k]) * dxy >= 0.)) {
-                    inc = 2;
-                }
-                if (xb[k + 1] > xb[k]) {
-                    crossings += inc;
-                } else {
-                    crossings -= inc;
-                }
-            }
-        }
-        if (crossings == 0) {
-            isInPolygone = false;
-        }
-        return (isInPolygone);
+        GridLocator grid = GridLocator.of(locator, latRho, lonRho);
+        locator = grid;
+        return grid.latlon2xy(lat, lon);
     }
 
     /**
@@ -89,10 +89,12 @@ public class NemoDataset_2D extends AbstractDataset {
      * Latitude at rho point.
      */
     private float[][] latRho;
+    private volatile GridLocator locator;
     /**
      * Mask: water = 1, cost = 0
      */
     private int[][] maskRho;//, masku, maskv;
+    private LandMask landMask;
     /**
      * Zonal component of the velocity field at current time
      */
@@ -207,6 +209,8 @@ public class NemoDataset_2D extends AbstractDataset {
             }
         }
 
+        landMask = new LandMask(nx, ny, 1, (i, j, k) -> maskRho[j][i] > 0);
+
         if (!isGridInfoInOneFile) {
             nc.close();
             nc = NetcdfDatasets.openDataset(file_hgr, enhanced(), null);
@@ -708,12 +712,7 @@ public class NemoDataset_2D extends AbstractDataset {
      * otherwise.
      */
     public boolean isInWater(int i, int j) {
-        //System.out.println(i + " " + j + " " + k + " - "  + (maskRho[k][j][i] > 0));
-        try {
-            return (maskRho[j][i] > 0);
-        } catch (ArrayIndexOutOfBoundsException ex) {
-            return false;
-        }
+        return landMask.isInWater(i, j);
     }
 
     /*
@@ -741,13 +740,12 @@ public class NemoDataset_2D extends AbstractDataset {
      */
     @Override
     public boolean isCloseToCost(double[] pGrid) {
+        return landMask.isCloseToCoast(pGrid[0], pGrid[1]);
+    }
 
-        int i, j, ii, jj;
-        i = (int) (Math.round(pGrid[0]));
-        j = (int) (Math.round(pGrid[1]));
-        ii = (i - (int) pGrid[0]) == 0 ? 1 : -1;
-        jj = (j - (int) pGrid[1]) == 0 ? 1 : -1;
-        return !(isInWater(i + ii, j) && isInWater(i + ii, j + jj) && isInWater(i, j + jj));
+    @Override
+    public LandMask getLandMask() {
+        return landMask;
     }
 
     /*
@@ -795,242 +793,20 @@ public class NemoDataset_2D extends AbstractDataset {
      * Transforms the specified 2D geographical coordinates into a grid
      * coordinates.
      *
-     * The algorithme has been adapted from a function in ROMS/UCLA code,
-     * originally written by Alexander F. Shchepetkin and Hernan G. Arango.
-     * Please find below an extract of the ROMS/UCLA documention.
-     *
-     * <pre>
-     *  Checks the position to find if it falls inside the whole domain.
-     *  Once it is established that it is inside, find the exact cell to which
-     *  it belongs by successively dividing the domain by a half (binary
-     *  search).
-     * </pre>
+     * The cell is found with the {@link GridLocator} of the grid, built on
+     * first use, and the grid coordinates are interpolated within the cell as
+     * in the ROMS/UCLA code of Alexander F. Shchepetkin and Hernan G. Arango.
      *
      * @param lon a double, the longitude of the geographical point
      * @param lat a double, the latitude of the geographical point
      * @return a double[], the corresponding grid coordinates (x, y)
-     * @see #isInsidePolygone
+     * @see GridLocator
      */
     @Override
     public double[] latlon2xy(double lat, double lon) {
-
-        //--------------------------------------------------------------------
-        // Physical space (lat, lon) => Computational space (x, y)
-        boolean found;
-        int imin, imax, jmin, jmax, i0, j0;
-        double dx1, dy1, dx2, dy2, c1, c2, deltax, deltay, xgrid, ygrid;
-
-        xgrid = -1.;
-        ygrid = -1.;
-        found = isInsidePolygone(0, nx - 1, 0, ny - 1, lon, lat);
-
-        //-------------------------------------------
-        // Research surrounding grid-points
-        if (found) {
-            imin = 0;
-            imax = nx - 1;
-            jmin = 0;
-            jmax = ny - 1;
-            while (((imax - imin) > 1) | ((jmax - jmin) > 1)) {
-                if ((imax - imin) > 1) {
-                    i0 = (imin + imax) / 2;
-                    found = isInsidePolygone(imin, i0, jmin, jmax, lon, lat);
-                    if (found) {
-                        imax = i0;
-                    } else {
-                        imin = i0;
-                    }
-                }
-                if ((jmax - jmin) > 1) {
-                    j0 = (jmax + jmin) / 2;
-                    found = isInsidePolygone(imin, imax, jmin, j0, lon, lat);
-                    if (found) {
-                        jmax = j0;
-                    } else {
-                        jmin = j0;
-                    }
-                }
-            }
-
-            //--------------------------------------------
-            // Trilinear interpolation
-            dy1 = latRho[jmin + 1][imin] - latRho[jmin][imin];
-            dx1 = lonRho[jmin + 1][imin] - lonRho[jmin][imin];
-            dy2 = latRho[jmin][imin + 1] - latRho[jmin][imin];
-            dx2 = lonRho[jmin][imin + 1] - lonRho[jmin][imin];
-
-            c1 = lon * dy1 - lat * dx1;
-            c2 = lonRho[jmin][imin] * dy2 - latRho[jmin][imin] * dx2;
-            deltax = (c1 * dx2 - c2 * dx1) / (dx2 * dy1 - dy2 * dx1);
-            deltax = (deltax - lonRho[jmin][imin]) / dx2;
-            xgrid = (double) imin + Math.min(Math.max(0.d, deltax), 1.d);
-
-            c1 = lonRho[jmin][imin] * dy1 - latRho[jmin][imin] * dx1;
-            c2 = lon * dy2 - lat * dx2;
-            deltay = (c1 * dy2 - c2 * dy1) / (dx2 * dy1 - dy2 * dx1);
-            deltay = (deltay - latRho[jmin][imin]) / dy1;
-            ygrid = (double) jmin + Math.min(Math.max(0.d, deltay), 1.d);
-        }
-        return (new double[]{xgrid, ygrid});
-    }
-
-    /**
-     * Determines whether the specified geographical point (lon, lat) belongs to
-     * the is inside the polygon defined by (imin, jmin) & (imin, jmax) & (imax,
-     * jmax) & (imax, jmin).
-     *
-     * <p>
-     * The algorithm has been adapted from a function in ROMS/UCLA code,
-     * originally written by Alexander F. Shchepetkin and Hernan G. Arango.
-     * Please find below an extract of the ROMS/UCLA documention.
-     * </p>
-     * <pre>
-     * Given the vectors Xb and Yb of size Nb, defining the coordinates
-     * of a closed polygon,  this function find if the point (Xo,Yo) is
-     * inside the polygon.  If the point  (Xo,Yo)  falls exactly on the
-     * boundary of the polygon, it still considered inside.
-     * This algorithm does not rely on the setting of  Xb(Nb)=Xb(1) and
-     * Yb(Nb)=Yb(1).  Instead, it assumes that the last closing segment
-     * is (Xb(Nb),Yb(Nb)) --> (Xb(1),Yb(1)).
-     *
-     * Reference:
-     * Reid, C., 1969: A long way from Euclid. Oceanography EMR,
-     * page 174.
-     *
-     * Algorithm:
-     *
-     * The decision whether the point is  inside or outside the polygon
-     * is done by counting the number of crossings from the ray (Xo,Yo)
-     * to (Xo,-infinity), hereafter called meridian, by the boundary of
-     * the polygon.  In this counting procedure,  a crossing is counted
-     * as +2 if the crossing happens from "left to right" or -2 if from
-     * "right to left". If the counting adds up to zero, then the point
-     * is outside.  Otherwise,  it is either inside or on the boundary.
-     *
-     * This routine is a modified version of the Reid (1969) algorithm,
-     * where all crossings were counted as positive and the decision is
-     * made  based on  whether the  number of crossings is even or odd.
-     * This new algorithm may produce different results  in cases where
-     * Xo accidentally coinsides with one of the (Xb(k),k=1:Nb) points.
-     * In this case, the crossing is counted here as +1 or -1 depending
-     * of the sign of (Xb(k+1)-Xb(k)).  Crossings  are  not  counted if
-     * Xo=Xb(k)=Xb(k+1).  Therefore, if Xo=Xb(k0) and Yo>Yb(k0), and if
-     * Xb(k0-1) < Xb(k0) < Xb(k0+1),  the crossing is counted twice but
-     * with weight +1 (for segments with k=k0-1 and k=k0). Similarly if
-     * Xb(k0-1) > Xb(k0) > Xb(k0+1), the crossing is counted twice with
-     * weight -1 each time.  If,  on the other hand,  the meridian only
-     * touches the boundary, that is, for example, Xb(k0-1) < Xb(k0)=Xo
-     * and Xb(k0+1) < Xb(k0)=Xo, then the crossing is counted as +1 for
-     * segment k=k0-1 and -1 for segment k=k0, resulting in no crossing.
-     *
-     * Note 1: (Explanation of the logical condition)
-     *
-     * Suppose  that there exist two points  (x1,y1)=(Xb(k),Yb(k))  and
-     * (x2,y2)=(Xb(k+1),Yb(k+1)),  such that,  either (x1 < Xo < x2) or
-     * (x1 > Xo > x2).  Therefore, meridian x=Xo intersects the segment
-     * (x1,y1) -> (x2,x2) and the ordinate of the point of intersection
-     * is:
-     *                y1*(x2-Xo) + y2*(Xo-x1)
-     *            y = -----------------------
-     *                         x2-x1
-     * The mathematical statement that point  (Xo,Yo)  either coinsides
-     * with the point of intersection or lies to the north (Yo>=y) from
-     * it is, therefore, equivalent to the statement:
-     *
-     *      Yo*(x2-x1) >= y1*(x2-Xo) + y2*(Xo-x1),   if   x2-x1 > 0
-     * or
-     *      Yo*(x2-x1) <= y1*(x2-Xo) + y2*(Xo-x1),   if   x2-x1 < 0
-     *
-     * which, after noting that  Yo*(x2-x1) = Yo*(x2-Xo + Xo-x1) may be
-     * rewritten as:
-     *
-     *      (Yo-y1)*(x2-Xo) + (Yo-y2)*(Xo-x1) >= 0,   if   x2-x1 > 0
-     * or
-     *      (Yo-y1)*(x2-Xo) + (Yo-y2)*(Xo-x1) <= 0,   if   x2-x1 < 0
-     *
-     * and both versions can be merged into  essentially  the condition
-     * that (Yo-y1)*(x2-Xo)+(Yo-y2)*(Xo-x1) has the same sign as x2-x1.
-     * That is, the product of these two must be positive or zero.
-     * </pre>
-     *
-     * @param imin an int, i-coordinate of the area left corners
-     * @param imax an int, i-coordinate of the area right corners
-     * @param jmin an int, j-coordinate of the area left corners
-     * @param jmax an int, j-coordinate of the area right corners
-     * @param lon a double, the longitude of the geographical point
-     * @param lat a double, the latitude of the geographical point
-     * @return <code>true</code> if (lon, lat) belongs to the polygon,
-     * <code>false</code>otherwise.
-     */
-    private boolean isInsidePolygone(int imin, int imax, int jmin,
-            int jmax, double lon, double lat) {
-
-        //--------------------------------------------------------------
-        // Return true if (lon, lat) is insidide the polygon defined by
-        // (imin, jmin) & (imin, jmax) & (imax, jmax) & (imax, jmin)
-        //-----------------------------------------
-        // Build the polygone
-        int nb, shft;
-        double[] xb, yb;
-        boolean isInPolygone = true;
-
-        nb = 2 * (jmax - jmin + imax - imin);
-        xb = new double[nb + 1];
-        yb = new double[nb + 1];
-        shft = 0 - imin;
-        for (int i = imin; i <= (imax - 1); i++) {
-            xb[i + shft] = lonRho[jmin][i];
-            yb[i + shft] = latRho[jmin][i];
-        }
-        shft = 0 - jmin + imax - imin;
-        for (int j = jmin; j <= (jmax - 1); j++) {
-            xb[j + shft] = lonRho[j][imax];
-            yb[j + shft] = latRho[j][imax];
-        }
-        shft = jmax - jmin + 2 * imax - imin;
-        for (int i = imax; i >= (imin + 1); i--) {
-            xb[shft - i] = lonRho[jmax][i];
-            yb[shft - i] = latRho[jmax][i];
-        }
-        shft = 2 * jmax - jmin + 2 * (imax - imin);
-        for (int j = jmax; j >= (jmin + 1); j--) {
-            xb[shft - j] = lonRho[j][imin];
-            yb[shft - j] = latRho[j][imin];
-        }
-        xb[nb] = xb[0];
-        yb[nb] = yb[0];
-
-        //---------------------------------------------
-        //Check if {lon, lat} is inside polygone
-        int inc, crossings;
-        double dx1, dx2, dxy;
-        crossings = 0;
-
-        for (int k = 0; k < nb; k++) {
-            if (xb[k] != xb[k + 1]) {
-                dx1 = lon - xb[k];
-                dx2 = xb[k + 1] - lon;
-                dxy = dx2 * (lat - yb[k]) - dx1 * (yb[k + 1] - lat);
-                inc = 0;
-                if ((xb[k] == lon) & (yb[k] == lat)) {
-                    crossings = 1;
-                } else if (((dx1 == 0.) & (lat >= yb[k]))
-                        | ((dx2 == 0.) & (lat >= yb[k + 1]))) {
-                    inc = 1;
-                } else if ((dx1 * dx2 > 0.) & ((xb[k + 1] - xb[k]) * dxy >= 0.)) {
-                    inc = 2;
-                }
-                if (xb[k + 1] > xb[k]) {
-                    crossings += inc;
-                } else {
-                    crossings -= inc;
-                }
-            }
-        }
-        if (crossings == 0) {
-            isInPolygone = false;
-        }
-        return (isInPolygone);
+        GridLocator grid = GridLocator.of(locator, latRho, lonRho);
+        locator = grid;
+        return grid.latlon2xy(lat, lon);
     }
 
     /**
@@ -0,0 +1,109 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the grid kernels of the datasets, such as the reconstruction of the
+ * vertical velocity and of the sigma levels, one row of the grid per task
+ * in the common fork/join pool. The kernels get their temporary arrays from
+ * {@link #buffer(int, int)}, work buffers owned by the thread that are
+ * reused from one row and one record to the next, instead of allocating
+ * full 3D temporaries at every record.
+ *
+ * @author pverley
+ */
+public final class ParallelRows {
+
+    private static final int N_BUFFERS = 8;
+    private static final ThreadLocal<double[][]> BUFFERS = ThreadLocal.withInitial(() -> new double[N_BUFFERS][]);
+    private static volatile boolean enabled = true;
+
+    private ParallelRows() {
+    }
+
+    /**
+     * Enables or disables the parallel execution of the kernels, for the
+     * tests that compare both. Enabled by default.
+     */
+    static void setEnabled(boolean enabled) {
+        ParallelRows.enabled = enabled;
+    }
+
+    /**
+     * Runs the body for every row from {@code from} (inclusive) to {@code to}
+     * (exclusive). The rows must be independent, the order of execution is
+     * not specified.
+     */
+    static void forEach(int from, int to, IntConsumer row) {
+        if (enabled && to - from > 1) {
+            IntStream.range(from, to).parallel().forEach(row);
+        } else {
+            for (int j = from; j < to; j++) {
+                row.accept(j);
+            }
+        }
+    }
+
+    /**
+     * Gets a work buffer of the calling thread. The content of the buffer is
+     * left from its previous use, the caller must write every element it
+     * reads. A kernel must use distinct indices for the buffers it needs at
+     * the same time.
+     *
+     * @param index, the index of the buffer, from 0 to 7
+     * @param length, the minimal length of the buffer
+     * @return the buffer
+     */
+    static double[] buffer(int index, int length) {
+        double[][] buffers = BUFFERS.get();
+        if (null == buffers[index] || buffers[index].length < length) {
+            buffers[index] = new double[length];
+        }
+        return buffers[index];
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import org.previmer.ichthyop.manager.SimulationContext;
+import org.previmer.ichthyop.manager.SimulationManager;
+import ucar.ma2.Array;
+
+/**
+ * Loads the next time record of a dataset in the background, while the
+ * particles are stepped between the two records in memory. A record is made
+ * of the hydrodynamic fields of the dataset and of the arrays of the required
+ * variables. The dataset
+ * prefetches the record that follows its current record, in the direction of
+ * time, right after swapping its records. When the simulation reaches the
+ * record, the dataset takes it from the prefetcher instead of reading it,
+ * and only waits for the end of the loading if it is not over yet.
+ *
+ * <p>
+ * The record is identified by a key that is only known once loaded, since
+ * the rank of the record in the next file depends on the number of records
+ * of the file. If the record taken by the dataset does not have the expected
+ * key, or if the loading failed, the prefetched record is dropped and the
+ * dataset reads the record itself.
+ * </p>
+ *
+ * <p>
+ * The loading runs in a thread bound to the simulation context of the
+ * dataset. It must only read files and grid constants of the dataset, never
+ * its time dependant fields.
+ * </p>
+ *
+ * @author pverley
+ * @param <F> the type of the hydrodynamic fields of the record
+ */
+public class RecordPrefetcher<F> {
+
+    /**
+     * The threads of the prefetchers, shared by all the datasets of the JVM.
+     * Daemon threads, so that a pending loading does not prevent the JVM
+     * from exiting.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ichthyop-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<Record<F>> pending;
+    private int hits, misses;
+
+    /**
+     * Starts loading a record in the background. The record that was
+     * previously prefetched, if any, is dropped.
+     *
+     * @param loader, loads the record and returns it with its key
+     */
+    public synchronized void prefetch(SharedFieldProvider.Loader<Record<F>> loader) {
+        clear();
+        SimulationContext context = SimulationContext.current();
+        pending = EXECUTOR.submit(() -> {
+            context.bind();
+            try {
+                return loader.load();
+            } finally {
+                SimulationContext.unbind();
+            }
+        });
+    }
+
+    /**
+     * Takes the prefetched record, waiting for the end of its loading if
+     * need be.
+     *
+     * @param key, the key of the expected record
+     * @return the prefetched record, or {@code null} if no record has been
+     * prefetched, if its loading failed or if it is not the expected one.
+     */
+    public synchronized Record<F> take(String key) {
+        Record<F> record = await();
+        if ((null != record) && record.key.equals(key)) {
+            hits++;
+            return record;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Drops the prefetched record. Waits for the end of its loading since
+     * the loading might be reading a file the dataset is about to close.
+     */
+    public synchronized void clear() {
+        await();
+    }
+
+    /**
+     * Gets the number of records that have been taken from the prefetcher.
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of records that the dataset had to read itself.
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private Record<F> await() {
+        if (null == pending) {
+            return null;
+        }
+        Future<Record<F>> future = pending;
+        pending = null;
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            SimulationManager.getLogger().log(Level.WARNING, "Failed to prefetch the next time record of the dataset, it will be read when needed. " + ex.getCause(), ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * A prefetched record and its key.
+     *
+     * @param <F> the type of the hydrodynamic fields
+     */
+    public static class Record<F> {
+
+        private final String key;
+        private final F fields;
+        private final Map<String, Array> variables;
+
+        /**
+         * @param key, the key of the record
+         * @param fields, the hydrodynamic fields
+         * @param variables, the arrays of the required variables, by name
+         */
+        public Record(String key, F fields, Map<String, Array> variables) {
+            this.key = key;
+            this.fields = fields;
+            this.variables = variables;
+        }
+
+        public F getFields() {
+            return fields;
+        }
+
+        /**
+         * Gets the array of a required variable.
+         *
+         * @param name, the name of the variable
+         * @return the array or {@code null} if the variable was not required
+         * when the record was prefetched
+         */
+        public Array getVariable(String name) {
+            return variables.get(name);
+        }
+    }
+}
@@ -46,11 +46,8 @@ package org.previmer.ichthyop.dataset;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import org.previmer.ichthyop.manager.SimulationManager;
 import ucar.ma2.Array;
-import ucar.ma2.InvalidRangeException;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
@@ -62,7 +59,7 @@ public class RequiredVariable {
 
     private IDataset dataset;
     private String name;
-    private Array array_tp0, array_tp1;
+    private FloatField field_tp0, field_tp1;
     private double time_tp1, dt_dataset;
     private boolean isUnlimited;
     private List<Class<?>> requiredByList;
@@ -128,14 +125,30 @@ public class RequiredVariable {
 
         this.time_tp1 = time_tp1;
         this.dt_dataset = dt_dataset;
-        array_tp0 = this.array_tp1;
-        this.array_tp1 = array_tp1;
+        field_tp0 = this.field_tp1;
+        this.field_tp1 = (array_tp1.getRank() == 2 || array_tp1.getRank() == 3)
+                ? FloatField.read(array_tp1)
+                : null;
     }
 
     public Number get(double[] pGrid, double time) {
+        return getDouble(pGrid, time);
+    }
 
-        int[] origin;
-        int[] shape;
+    /**
+     * Interpolates the variable at the given grid location and time, without
+     * boxing the result, so that it can be called per particle and per time
+     * step.
+     *
+     * @param pGrid the (x, y[, z]) grid coordinates
+     * @param time the current time [second] of the simulation
+     * @return the interpolated value, NaN out of the field
+     */
+    public double getDouble(double[] pGrid, double time) {
+
+        if (null == field_tp0) {
+            return Double.NaN;
+        }
         int n = dataset.isCloseToCost(pGrid) ? 1 : 2;
         int i = (n == 1) ? (int) Math.round(pGrid[0]) : (int) pGrid[0];
         int j = (n == 1) ? (int) Math.round(pGrid[1]) : (int) pGrid[1];
@@ -143,61 +156,44 @@ public class RequiredVariable {
         double dy = pGrid[1] - (double) j;
         double kz, dz;
         int k;
-        if (isUnlimited) {
-            switch (array_tp0.getShape().length) {
-                case 3:
-                    kz = Math.max(0.d, Math.min(pGrid[2], (double) dataset.get_nz() - 1.00001f));
-                    k = (int) kz;
-                    dz = kz - (double) k;
-                    shape = new int[]{2, 2, 2};
-                    origin = new int[]{k, j, i};
-                    try {
-                        double value_t0 = interp3D(array_tp0.section(origin, shape), dx, dy, dz, n);
-                        double value_t1 = interp3D(array_tp1.section(origin, shape), dx, dy, dz, n);
-                        return interpTime(value_t0, value_t1, time);
-                    } catch (InvalidRangeException ex) {
-                        Logger.getLogger(RequiredVariable.class.getName()).log(Level.SEVERE, null, ex);
-                        return Float.NaN;
-                    }
-                case 2:
-                    shape = new int[]{2, 2};
-                    origin = new int[]{j, i};
-                    try {
-                        double value_t0 = interp2D(array_tp0.section(origin, shape), dx, dy, n);
-                        double value_t1 = interp2D(array_tp1.section(origin, shape), dx, dy, n);
-                        return interpTime(value_t0, value_t1, time);
-                    } catch (InvalidRangeException ex) {
-                        Logger.getLogger(RequiredVariable.class.getName()).log(Level.SEVERE, null, ex);
-                        return Float.NaN;
-                    }
-            }
-        } else {
-            switch (array_tp0.getShape().length) {
-                case 3:
-                    kz = Math.max(0.d, Math.min(pGrid[2], (double) dataset.get_nz() - 1.00001f));
-                    k = (int) kz;
-                    dz = kz - (double) k;
-                    shape = new int[]{2, 2, 2};
-                    origin = new int[]{k, j, i};
-                    try {
-                        return interp3D(array_tp0.section(origin, shape), dx, dy, dz, n);
-                    } catch (InvalidRangeException ex) {
-                        Logger.getLogger(RequiredVariable.class.getName()).log(Level.SEVERE, null, ex);
-                        return Float.NaN;
-                    }
-                case 2:
-                    shape = new int[]{2, 2};
-                    origin = new int[]{j, i};
-                    try {
-                        return interp2D(array_tp0.section(origin, shape), dx, dy, n);
-                    } catch (InvalidRangeException ex) {
-                        Logger.getLogger(RequiredVariable.class.getName()).log(Level.SEVERE, null, ex);
-                        return Float.NaN;
-                    }
-
-            }
+        switch (field_tp0.getRank()) {
+            case 3:
+                kz = Math.max(0.d, Math.min(pGrid[2], (double) dataset.get_nz() - 1.00001f));
+                k = (int) kz;
+                dz = kz - (double) k;
+                if (!contains(field_tp0, k, j, i)) {
+                    return Double.NaN;
+                }
+                if (isUnlimited) {
+                    double value_t0 = interp3D(field_tp0, k, j, i, dx, dy, dz, n);
+                    double value_t1 = interp3D(field_tp1, k, j, i, dx, dy, dz, n);
+                    return interpTime(value_t0, value_t1, time);
+                } else {
+                    return interp3D(field_tp0, k, j, i, dx, dy, dz, n);
+                }
+            case 2:
+                if (!contains(field_tp0, 0, j, i)) {
+                    return Double.NaN;
+                }
+                if (isUnlimited) {
+                    double value_t0 = interp2D(field_tp0, j, i, dx, dy, n);
+                    double value_t1 = interp2D(field_tp1, j, i, dx, dy, n);
+                    return interpTime(value_t0, value_t1, time);
+                } else {
+                    return interp2D(field_tp0, j, i, dx, dy, n);
+                }
         }
-        return Float.NaN;
+        return Double.NaN;
+    }
+
+    /**
+     * Checks whether the 2x2(x2) stencil with origin (k, j, i) lies within
+     * the field.
+     */
+    private boolean contains(FloatField field, int k, int j, int i) {
+        return k >= 0 && j >= 0 && i >= 0
+                && (field.getRank() == 2 || k + 1 < field.get_nz())
+                && j + 1 < field.get_ny() && i + 1 < field.get_nx();
     }
 
     private double interpTime(double value_t0, double value_t1, double time) {
@@ -205,7 +201,7 @@ public class RequiredVariable {
         return (1.d - frac) * value_t0 + frac * value_t1;
     }
 
-    private double interp2D(Array array, double dx, double dy, int n) {
+    private double interp2D(FloatField field, int j, int i, double dx, double dy, int n) {
         double value = 0.d;
         double CO = 0.d;
 
@@ -214,7 +210,7 @@ public class RequiredVariable {
                 double co = Math.abs((1.d - (double) ii - dx)
                         * (1.d - (double) jj - dy));
                 CO += co;
-                value += array.getFloat(array.getIndex().set(jj, ii)) * co;
+                value += field.get(j + jj, i + ii) * co;
             }
         }
 
@@ -224,7 +220,7 @@ public class RequiredVariable {
         return value;
     }
 
-    private double interp3D(Array array, double dx, double dy, double dz, int n) {
+    private double interp3D(FloatField field, int k, int j, int i, double dx, double dy, double dz, int n) {
         double value = 0.d;
         double CO = 0.d;
         for (int kk = 0; kk < 2; kk++) {
@@ -234,7 +230,7 @@ public class RequiredVariable {
                             * (1.d - (double) jj - dy)
                             * (1.d - (double) kk - dz));
                     CO += co;
-                    value += array.getFloat(array.getIndex().set(kk, jj, ii)) * co;
+                    value += field.get(k + kk, j + jj, i + ii) * co;
                 }
             }
         }
@@ -65,19 +65,19 @@ public class Roms2dDataset extends RomsCommon {
     /**
      * Zonal component of the velocity field at current time
      */
-    static float[][] u_tp0;
+    float[][] u_tp0;
     /**
      * Zonal component of the velocity field at time t + dt
      */
-    static float[][] u_tp1;
+    float[][] u_tp1;
     /**
      * Meridional component of the velocity field at current time
      */
-    static float[][] v_tp0;
+    float[][] v_tp0;
     /**
      * Meridional component of the velocity field at time t + dt
      */
-    static float[][] v_tp1;
+    float[][] v_tp1;
     private List<String> ncfiles;
     private int ncindex;
 
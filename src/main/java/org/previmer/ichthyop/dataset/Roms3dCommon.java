@@ -45,18 +45,25 @@
 package org.previmer.ichthyop.dataset;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import org.previmer.ichthyop.event.LastStepEvent;
+import org.previmer.ichthyop.Population;
+import org.previmer.ichthyop.event.LastStepListener;
+import org.previmer.ichthyop.particle.IParticle;
 import ucar.ma2.Array;
-import ucar.ma2.Index;
 import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDatasets;
 
 /**
  *
  * @author pverley
  */
-abstract public class Roms3dCommon extends RomsCommon {
+abstract public class Roms3dCommon extends RomsCommon implements LastStepListener {
 
     /**
      * Vertical grid dimension
@@ -65,53 +72,53 @@ abstract public class Roms3dCommon extends RomsCommon {
     /**
      * Ocean free surface elevetation at current time
      */
-    float[][] zeta_tp0;
+    FloatField zeta_tp0;
     /**
      * /**
      * Ocean free surface elevetation at time t + dt
      */
-    float[][] zeta_tp1;
+    FloatField zeta_tp1;
     /**
      * Zonal component of the velocity field at current time
      */
-    float[][][] u_tp0;
+    FloatField u_tp0;
     /**
      * Zonal component of the velocity field at time t + dt
      */
-    float[][][] u_tp1;
+    FloatField u_tp1;
     /**
      * Meridional component of the velocity field at current time
      */
-    float[][][] v_tp0;
+    FloatField v_tp0;
     /**
      * Meridional component of the velocity field at time t + dt
      */
-    float[][][] v_tp1;
+    FloatField v_tp1;
     /**
      * Vertical component of the velocity field at current time
      */
-    float[][][] w_tp0;
+    FloatField w_tp0;
     /**
      * Vertical component of the velocity field at time t + dt
      */
-    float[][][] w_tp1;
+    FloatField w_tp1;
     /**
      * Depth at rho point
      */
-    private double[][][] z_rho_cst;
+    private DoubleField z_rho_cst;
     /**
      * Depth at w point at current time. Takes account of free surface
      * elevation.
      */
-    double[][][] z_w_tp0;
+    DoubleField z_w_tp0;
     /**
      * Depth at w point at time t + dt Takes account of free surface elevation.
      */
-    double[][][] z_w_tp1;
+    DoubleField z_w_tp1;
     /**
      * Depth at w point. The free surface elevation is disregarded.
      */
-    private double[][][] z_w_cst;
+    DoubleField z_w_cst;
     /**
      * Name of the Dimension in NetCDF file
      */
@@ -126,8 +133,8 @@ abstract public class Roms3dCommon extends RomsCommon {
     private String strCs_r, strCs_w, strHC;
 
     private String strUStokes, strVStokes;
-    float[][][] v_stokes_tp1;
-    float[][][] u_stokes_tp1;
+    FloatField v_stokes_tp1;
+    FloatField u_stokes_tp1;
 
     /**
      * True if W should be read, false if should be computed.
@@ -139,6 +146,27 @@ abstract public class Roms3dCommon extends RomsCommon {
      * Name of the W variable is read.
      */
     private String strW;
+    /**
+     * Keys of the time records in the {@link SharedFieldProvider}.
+     */
+    private String fieldsKey_tp0, fieldsKey_tp1;
+    /**
+     * Loads the next time record in the background, if enabled.
+     */
+    private final RecordPrefetcher<Fields> prefetcher = new RecordPrefetcher<>();
+    private boolean prefetchEnabled;
+    private ForcingCache forcingCache;
+    // files of W and z_w precomputed by the ForcingPreprocessor, by input file
+    private Map<String, String> preprocessedFiles;
+    private int tileSize, tileHalo;
+    // tiles of the records at tp0 and tp1 and of the record being prefetched
+    private TileMask tiles_tp0, tiles_tp1, nextTiles;
+    // highest speed of the records at tp0 and tp1, in cells per second
+    private double speed_tp0, speed_tp1;
+    // file and rank of the records at tp0 and tp1
+    private String location_tp0, location_tp1;
+    private int rank_tp0, rank_tp1;
+    private static final String VARIABLE = "variable:";
 
     private double getHc() throws IOException {
 
@@ -312,8 +340,8 @@ abstract public class Roms3dCommon extends RomsCommon {
 
         //------------------------------------------------------------
         // Calculation of z_w , z_r
-        double[][][] z_r_tmp = new double[nz][ny][nx];
-        double[][][] z_w_tmp = new double[nz + 1][ny][nx];
+        DoubleField z_r_tmp = new DoubleField(nz, ny, nx);
+        DoubleField z_w_tmp = new DoubleField(nz + 1, ny, nx);
 
         /* 2010 June: Recent UCLA Roms version (but not AGRIF yet)
          * uses new formulation for computing the unperturbated depth.
@@ -328,12 +356,12 @@ abstract public class Roms3dCommon extends RomsCommon {
             case OLD:
                 for (int i = nx; i-- > 0;) {
                     for (int j = ny; j-- > 0;) {
-                        z_w_tmp[0][j][i] = -hRho[j][i];
+                        z_w_tmp.set(0, j, i, -hRho[j][i]);
                         for (int k = nz; k-- > 0;) {
-                            z_r_tmp[k][j][i] = hc * (sc_r[k] - Cs_r[k]) + Cs_r[k] * hRho[j][i];
-                            z_w_tmp[k + 1][j][i] = hc * (sc_w[k + 1] - Cs_w[k + 1]) + Cs_w[k + 1] * hRho[j][i];
+                            z_r_tmp.set(k, j, i, hc * (sc_r[k] - Cs_r[k]) + Cs_r[k] * hRho[j][i]);
+                            z_w_tmp.set(k + 1, j, i, hc * (sc_w[k + 1] - Cs_w[k + 1]) + Cs_w[k + 1] * hRho[j][i]);
                         }
-                        z_w_tmp[nz][j][i] = 0.d;
+                        z_w_tmp.set(nz, j, i, 0.d);
                     }
                 }
                 break;
@@ -341,12 +369,12 @@ abstract public class Roms3dCommon extends RomsCommon {
             case NEW:
                 for (int i = nx; i-- > 0;) {
                     for (int j = ny; j-- > 0;) {
-                        z_w_tmp[0][j][i] = -hRho[j][i];
+                        z_w_tmp.set(0, j, i, -hRho[j][i]);
                         for (int k = nz; k-- > 0;) {
-                            z_r_tmp[k][j][i] = hRho[j][i] * (sc_r[k] * hc + Cs_r[k] * hRho[j][i]) / (hc + hRho[j][i]);
-                            z_w_tmp[k + 1][j][i] = hRho[j][i] * (sc_w[k + 1] * hc + Cs_w[k + 1] * hRho[j][i]) / (hc + hRho[j][i]);
+                            z_r_tmp.set(k, j, i, hRho[j][i] * (sc_r[k] * hc + Cs_r[k] * hRho[j][i]) / (hc + hRho[j][i]));
+                            z_w_tmp.set(k + 1, j, i, hRho[j][i] * (sc_w[k + 1] * hc + Cs_w[k + 1] * hRho[j][i]) / (hc + hRho[j][i]));
                         }
-                        z_w_tmp[nz][j][i] = 0.d;
+                        z_w_tmp.set(nz, j, i, 0.d);
                     }
                 }
                 break;
@@ -355,32 +383,23 @@ abstract public class Roms3dCommon extends RomsCommon {
         z_rho_cst = z_r_tmp;
         z_w_cst = z_w_tmp;
 
-        z_w_tp0 = new double[nz + 1][ny][nx];
-        z_w_tp1 = new double[nz + 1][ny][nx];
+        z_w_tp0 = new DoubleField(nz + 1, ny, nx);
+        z_w_tp1 = new DoubleField(nz + 1, ny, nx);
     }
 
     @Override
     void readConstantField(String gridFile) throws IOException {
 
         super.readConstantField(gridFile);
-        Array arrZeta;
-        Index index;
 
         try {
-            arrZeta = ncIn.findVariable(strZeta).read(new int[]{0, jpo, ipo}, new int[]{1, ny, nx}).reduce();
+            Array arrZeta = ncIn.findVariable(strZeta).read(new int[]{0, jpo, ipo}, new int[]{1, ny, nx});
+            zeta_tp0 = FloatField.read(arrZeta, ny, nx);
         } catch (IOException | InvalidRangeException e) {
             IOException ioex = new IOException("Problem reading dataset ocean free surface elevation. " + e.toString());
             ioex.setStackTrace(e.getStackTrace());
             throw ioex;
         }
-
-        zeta_tp0 = new float[ny][nx];
-        index = arrZeta.getIndex();
-        for (int j = 0; j < ny; j++) {
-            for (int i = 0; i < nx; i++) {
-                zeta_tp0[j][i] = arrZeta.getFloat(index.set(j, i));
-            }
-        }
         zeta_tp1 = zeta_tp0;
     }
 
@@ -429,8 +448,8 @@ abstract public class Roms3dCommon extends RomsCommon {
                             * (1.d - (double) jj - dy)
                             * (1.d - (double) kk - dz));
                     if (isInWater(i + ii, j + jj)) {
-                        z_r = z_rho_cst[k + kk][j + jj][i + ii] + (double) zeta_tp0[j + jj][i + ii]
-                                * (1.d + z_rho_cst[k + kk][j + jj][i + ii] / hRho[j
+                        z_r = z_rho_cst.get(k + kk, j + jj, i + ii) + (double) zeta_tp0.get(j + jj, i + ii)
+                                * (1.d + z_rho_cst.get(k + kk, j + jj, i + ii) / hRho[j
                                 + jj][i + ii]);
                         depth += co * z_r;
                     }
@@ -442,15 +461,64 @@ abstract public class Roms3dCommon extends RomsCommon {
 
     @Override
     public double get_dWz(double[] pGrid, double time) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+    }
 
-        double dw = 0.d;
-        double ix, jy, kz;
+    @Override
+    public double get_dVy(double[] pGrid, double time, boolean normalize) {
         int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
 
+    @Override
+    public double get_dUx(double[] pGrid, double time, boolean normalize) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
         double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        return interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, normalize);
+    }
+
+    /**
+     * Samples the three velocity components at once. The proximity to the
+     * coast, the vertical coordinate and the time weight are computed only
+     * once for the three staggered stencils.
+     */
+    @Override
+    public void sampleVelocity(double[] pGrid, double time, double[] velocity) {
+        int n = isCloseToCost(pGrid) ? 1 : 2;
+        double kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        velocity[0] = interpolateU(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        velocity[1] = interpolateV(pGrid[0], pGrid[1], kz, n, x_euler, true);
+        if (velocity.length > 2) {
+            velocity[2] = interpolateW(pGrid[0], pGrid[1], kz, n, x_euler);
+        }
+    }
+
+    @Override
+    public void sampleVelocity(int n, double[] x, double[] y, double[] z, double time, double[] u, double[] v, double[] w) {
+        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        double kzMax = nz - 1.00001f;
+        boolean vertical = (null != w);
+        for (int i = 0; i < n; i++) {
+            int nc = isCloseToCost(x[i], y[i]) ? 1 : 2;
+            double kz = Math.max(0.d, Math.min(z[i], kzMax));
+            u[i] = interpolateU(x[i], y[i], kz, nc, x_euler, true);
+            v[i] = interpolateV(x[i], y[i], kz, nc, x_euler, true);
+            if (vertical) {
+                w[i] = interpolateW(x[i], y[i], kz, nc, x_euler);
+            }
+        }
+    }
+
+    private double interpolateW(double ix, double jy, double kz, int n, double x_euler) {
+
+        double dw = 0.d;
         int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
         int k = (int) Math.round(kz);
@@ -463,9 +531,9 @@ abstract public class Roms3dCommon extends RomsCommon {
                 for (int kk = 0; kk < 2; kk++) {
                     double co = Math.abs((1.d - (double) ii - dx) * (1.d - (double) jj - dy) * (.5d - (double) kk - dz));
                     CO += co;
-                    double x = (1.d - x_euler) * w_tp0[k + kk][j + jj][i + ii] + x_euler * w_tp1[k + kk][j + jj][i + ii];
+                    double x = (1.d - x_euler) * w_tp0.get(k + kk, j + jj, i + ii) + x_euler * w_tp1.get(k + kk, j + jj, i + ii);
                     if (!Double.isNaN(x)) {
-                        dw += 2.d * x * co / (z_w_tp0[Math.min(k + kk + 1, nz)][j + jj][i + ii] - z_w_tp0[Math.max(k + kk - 1, 0)][j + jj][i + ii]);
+                        dw += 2.d * x * co / (z_w_tp0.get(Math.min(k + kk + 1, nz), j + jj, i + ii) - z_w_tp0.get(Math.max(k + kk - 1, 0), j + jj, i + ii));
                     }
                 }
             }
@@ -476,16 +544,9 @@ abstract public class Roms3dCommon extends RomsCommon {
         return dw;
     }
 
-    @Override
-    public double get_dVy(double[] pGrid, double time, boolean normalize) {
-        double dv = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
+    private double interpolateV(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
 
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
+        double dv = 0.d;
         int i = (n == 1) ? (int) Math.round(ix) : (int) ix;
         int j = (int) Math.round(jy);
         int k = (int) kz;
@@ -500,7 +561,7 @@ abstract public class Roms3dCommon extends RomsCommon {
                             * (.5d - (double) jj - dy)
                             * (1.d - (double) kk - dz));
                     CO += co;
-                    double x = (1.d - x_euler) * v_tp0[k + kk][j + jj - 1][i + ii] + x_euler * v_tp1[k + kk][j + jj - 1][i + ii];
+                    double x = (1.d - x_euler) * v_tp0.get(k + kk, j + jj - 1, i + ii) + x_euler * v_tp1.get(k + kk, j + jj - 1, i + ii);
                     if (!Double.isNaN(x)) {
                         if (normalize) {
                             dv += .5d * x * co * (pn[Math.max(j + jj - 1, 0)][i + ii] + pn[j + jj][i + ii]);
@@ -518,17 +579,9 @@ abstract public class Roms3dCommon extends RomsCommon {
         return dv;
     }
 
-    @Override
-    public double get_dUx(double[] pGrid, double time, boolean normalize) {
+    private double interpolateU(double ix, double jy, double kz, int n, double x_euler, boolean normalize) {
 
         double du = 0.d;
-        double ix, jy, kz;
-        int n = isCloseToCost(pGrid) ? 1 : 2;
-        ix = pGrid[0];
-        jy = pGrid[1];
-        kz = Math.max(0.d, Math.min(pGrid[2], nz - 1.00001f));
-
-        double x_euler = (dt_HyMo - Math.abs(time_tp1 - time)) / dt_HyMo;
         int i = (int) Math.round(ix);
         int j = (n == 1) ? (int) Math.round(jy) : (int) jy;
         int k = (int) kz;
@@ -543,7 +596,7 @@ abstract public class Roms3dCommon extends RomsCommon {
                             * (1.d - (double) jj - dy)
                             * (1.d - (double) kk - dz));
                     CO += co;
-                    double x = (1.d - x_euler) * u_tp0[k + kk][j + jj][i + ii - 1] + x_euler * u_tp1[k + kk][j + jj][i + ii - 1];
+                    double x = (1.d - x_euler) * u_tp0.get(k + kk, j + jj, i + ii - 1) + x_euler * u_tp1.get(k + kk, j + jj, i + ii - 1);
                     if (!Double.isNaN(x)) {
                         if (normalize) {
                             du += .5d * x * co * (pm[j + jj][Math.max(i + ii - 1, 0)] + pm[j + jj][i + ii]);
@@ -573,8 +626,8 @@ abstract public class Roms3dCommon extends RomsCommon {
             for (int jj = 0; jj < 2; jj++) {
                 if (isInWater(i + ii, j + jj)) {
                     co = Math.abs((1 - ii - dx) * (1 - jj - dy));
-                    double z_r = z_rho_cst[k][j + jj][i + ii] + (double) zeta_tp0[j + jj][i + ii]
-                            * (1.d + z_rho_cst[k][j + jj][i + ii] / hRho[j + jj][i + ii]);
+                    double z_r = z_rho_cst.get(k, j + jj, i + ii) + (double) zeta_tp0.get(j + jj, i + ii)
+                            * (1.d + z_rho_cst.get(k, j + jj, i + ii) / hRho[j + jj][i + ii]);
                     hh += co * z_r;
                 }
             }
@@ -588,43 +641,376 @@ abstract public class Roms3dCommon extends RomsCommon {
     }
 
     @Override
-    void setAllFieldsTp1AtTime(int rank) throws Exception {
+    public void init() throws Exception {
+
+        releaseFields();
+        prefetchEnabled = prefetch();
+        forcingCache = forcingCache();
+        tileSize = tileSize();
+        tileHalo = tileHalo();
+        getSimulationManager().getTimeManager().addLastStepListener(this);
+        super.init();
+    }
 
-        getLogger().info("Reading NetCDF variables...");
+    @Override
+    public void lastStepOccurred(LastStepEvent e) {
+        releaseFields();
+    }
+
+    /**
+     * Releases the time records held by the dataset.
+     */
+    private void releaseFields() {
+        prefetcher.clear();
+        SharedFieldProvider.release(fieldsKey_tp0);
+        SharedFieldProvider.release(fieldsKey_tp1);
+        fieldsKey_tp0 = null;
+        fieldsKey_tp1 = null;
+        tiles_tp0 = null;
+        tiles_tp1 = null;
+        nextTiles = null;
+    }
+
+    /**
+     * Reads W and z_w from the given files, precomputed by the
+     * {@link ForcingPreprocessor}, instead of computing them at every record.
+     *
+     * @param files, the preprocessed file of every input file, by location
+     * of the input file
+     */
+    void setPreprocessedFiles(Map<String, String> files) {
+        preprocessedFiles = files.isEmpty() ? null : files;
+    }
+
+    /**
+     * Whether W must be read ("read_var_w") but the file has no W variable.
+     * W and z_w are then read from the files of the
+     * {@link ForcingPreprocessor}.
+     */
+    boolean readsPreprocessedW(NetcdfFile nc) {
+        return readW && null == nc.findVariable(strW);
+    }
+
+    /**
+     * Gets the key of the time record in the {@link SharedFieldProvider}. It
+     * includes every setting the content of the record depends on, and the
+     * loaded tiles if the record has not been entirely loaded.
+     */
+    private String fieldsKey(String location, int rank, TileMask tiles) {
+        return getClass().getName() + '|' + gridFile
+                + '|' + ipo + ',' + jpo + ',' + nx + ',' + ny + ',' + nz
+                + '|' + strU + ',' + strV + ',' + strZeta + ',' + (readW ? strW : "") + ((null != preprocessedFiles) ? "preprocessed" : "") + ',' + (read_stokesvelocity ? strUStokes + ',' + strVStokes : "")
+                + '|' + location + '#' + rank + ((null != tiles) ? tiles.signature() : "");
+    }
+
+    @Override
+    void setAllFieldsTp1AtTime(int rank) throws Exception {
 
-        int[] origin = new int[]{rank, 0, jpo, ipo};
         double time_tp0 = time_tp1;
-        Array arr;
-        Index index;
+        // the tiles of a prefetched record cover the reach of the particles
+        TileMask tiles = (null != nextTiles) ? nextTiles : activeTiles(2);
+        nextTiles = null;
+        String key = fieldsKey(ncIn.getLocation(), rank, tiles);
+        RecordPrefetcher.Record<Fields> prefetched = prefetcher.take(key);
+        RecordPrefetcher.Record<Fields> record = (null == prefetched && null != forcingCache)
+                ? loadRecord(ncIn, rank, requiredVariables.keySet().toArray(new String[0]), tiles)
+                : prefetched;
+        Fields fields = SharedFieldProvider.acquire(key, () -> (null != record) ? record.getFields() : readFields(ncIn, rank, tiles));
+        SharedFieldProvider.release(fieldsKey_tp0);
+        fieldsKey_tp0 = fieldsKey_tp1;
+        fieldsKey_tp1 = key;
+
+        u_tp1 = fields.u;
+        v_tp1 = fields.v;
+        w_tp1 = fields.w;
+        zeta_tp1 = fields.zeta;
+        z_w_tp1 = fields.z_w;
+        time_tp1 = fields.time;
+        tiles_tp0 = tiles_tp1;
+        tiles_tp1 = tiles;
+        speed_tp0 = speed_tp1;
+        speed_tp1 = fields.speed;
+        location_tp0 = location_tp1;
+        location_tp1 = ncIn.getLocation();
+        rank_tp0 = rank_tp1;
+        rank_tp1 = rank;
 
-        try {
-            //System.out.println("@@@@@@@@ " + ncIn.getLocation() + " origin " + rank);
-            arr = ncIn.findVariable(strU).read(origin, new int[]{1, nz, ny, (nx - 1)}).reduce();
-            u_tp1 = new float[nz][ny][nx - 1];
-            index = arr.getIndex();
-            for (int k = 0; k < nz; k++) {
-                for (int j = 0; j < ny; j++) {
-                    for (int i = 0; i < nx - 1; i++) {
-                        u_tp1[k][j][i] = arr.getFloat(index.set(k, j, i));
+        dt_HyMo = Math.abs(time_tp1 - time_tp0);
+        for (RequiredVariable variable : requiredVariables.values()) {
+            variable.nextStep(readVariable(record, ncIn, variable.getName(), rank), time_tp1, dt_HyMo);
+        }
+        if (prefetchEnabled) {
+            prefetchNextRecord(rank);
+        }
+    }
+
+    /**
+     * Starts loading the record that follows the given rank, in the
+     * direction of time, while the particles are stepped.
+     */
+    private void prefetchNextRecord(int rank) {
+        int next = rank + timeArrow();
+        if (next >= 0 && next < nbTimeRecords) {
+            NetcdfFile nc = ncIn;
+            String[] names = requiredVariables.keySet().toArray(new String[0]);
+            TileMask tiles = nextTiles = activeTiles(3);
+            prefetcher.prefetch(() -> loadRecord(nc, next, names, tiles));
+        } else {
+            String location = nextFile();
+            if (null != location) {
+                prefetchFirstRecord(location);
+            }
+        }
+    }
+
+    /**
+     * Starts loading the first record, in the direction of time, of the
+     * given file. The file is opened and closed by the loading, the dataset
+     * opens it again when it gets there.
+     */
+    private void prefetchFirstRecord(String location) {
+        int time_arrow = timeArrow();
+        String[] names = requiredVariables.keySet().toArray(new String[0]);
+        TileMask tiles = nextTiles = activeTiles(3);
+        prefetcher.prefetch(() -> {
+            try (NetcdfFile nc = DatasetUtil.openFile(location, true)) {
+                int first = (1 - time_arrow) / 2 * (nc.findDimension(strTimeDim).getLength() - 1);
+                return loadRecord(nc, first, names, tiles);
+            }
+        });
+    }
+
+    /**
+     * Gets the tiles to load for a record that is used during the given
+     * number of record intervals from now: the tiles of the living
+     * particles, dilated by the distance they can travel meanwhile at the
+     * highest speed of the loaded records, plus the halo. Every tile is
+     * loaded as long as particles remain to be released. It is only an
+     * estimate, {@link #checkLoadedTiles(double)} makes sure that the
+     * particles never reach the tiles that were not loaded.
+     *
+     * @param intervals, the number of record intervals
+     * @return the tiles, or {@code null} if the tiling is disabled
+     */
+    private TileMask activeTiles(int intervals) {
+
+        if (tileSize <= 0) {
+            return null;
+        }
+        TileMask tiles = new TileMask(nx, ny, tileSize);
+        if (!getSimulationManager().getReleaseManager().isAllReleased()) {
+            tiles.activateAll();
+            return tiles;
+        }
+        double radius = tileHalo + Math.max(speed_tp0, speed_tp1) * dt_HyMo * intervals;
+        Population population = getSimulationManager().getSimulation().getPopulation();
+        for (int i = 0; i < population.getNbLiving(); i++) {
+            IParticle particle = population.get(population.getLiving(i));
+            if (particle.isLiving()) {
+                tiles.activate(particle.getX(), particle.getY(), radius);
+            }
+        }
+        getLogger().log(Level.FINE, "[Dataset] Loading {0}", tiles);
+        return tiles;
+    }
+
+    /**
+     * Checks, before a time step, that the loaded tiles of both records
+     * cover every living particle, with the stencil of the interpolation,
+     * the halo and the distance the particle can travel during the step at
+     * the highest speed of the records. Otherwise both records are read
+     * again on the whole domain, so that no particle ever interpolates the
+     * zeros of the tiles that were not loaded.
+     *
+     * @param dt, the time step of the simulation [second]
+     * @throws Exception if the records cannot be read
+     */
+    void checkLoadedTiles(double dt) throws Exception {
+
+        if ((null == tiles_tp0 || tiles_tp0.isFull()) && (null == tiles_tp1 || tiles_tp1.isFull())) {
+            return;
+        }
+        double radius = 2 + tileHalo + Math.max(speed_tp0, speed_tp1) * Math.abs(dt);
+        Population population = getSimulationManager().getSimulation().getPopulation();
+        for (int i = 0; i < population.getNbLiving(); i++) {
+            IParticle particle = population.get(population.getLiving(i));
+            if (particle.isLiving()
+                    && !(isLoaded(tiles_tp0, particle, radius) && isLoaded(tiles_tp1, particle, radius))) {
+                getLogger().log(Level.WARNING, "[Dataset] Particles are reaching the tiles that were not loaded, reading the whole domain. Consider increasing the parameter tile_halo");
+                readWholeDomain();
+                return;
+            }
+        }
+    }
+
+    private boolean isLoaded(TileMask tiles, IParticle particle, double radius) {
+        return (null == tiles) || tiles.isActive(particle.getX(), particle.getY(), radius);
+    }
+
+    /**
+     * Reads the records at tp0 and tp1 again on the whole domain. The
+     * record being prefetched is dropped, the next record is read again with
+     * the tiles of the particles.
+     */
+    private void readWholeDomain() throws Exception {
+
+        prefetcher.clear();
+        nextTiles = null;
+        String key_tp0 = fieldsKey(location_tp0, rank_tp0, null);
+        Fields fields_tp0 = SharedFieldProvider.acquire(key_tp0, () -> readWholeRecord(location_tp0, rank_tp0));
+        String key_tp1 = fieldsKey(location_tp1, rank_tp1, null);
+        Fields fields_tp1 = SharedFieldProvider.acquire(key_tp1, () -> readWholeRecord(location_tp1, rank_tp1));
+        SharedFieldProvider.release(fieldsKey_tp0);
+        SharedFieldProvider.release(fieldsKey_tp1);
+        fieldsKey_tp0 = key_tp0;
+        fieldsKey_tp1 = key_tp1;
+
+        u_tp0 = fields_tp0.u;
+        v_tp0 = fields_tp0.v;
+        w_tp0 = fields_tp0.w;
+        zeta_tp0 = fields_tp0.zeta;
+        z_w_tp0 = fields_tp0.z_w;
+        u_tp1 = fields_tp1.u;
+        v_tp1 = fields_tp1.v;
+        w_tp1 = fields_tp1.w;
+        zeta_tp1 = fields_tp1.zeta;
+        z_w_tp1 = fields_tp1.z_w;
+        tiles_tp0 = null;
+        tiles_tp1 = null;
+        speed_tp0 = fields_tp0.speed;
+        speed_tp1 = fields_tp1.speed;
+    }
+
+    private Fields readWholeRecord(String location, int rank) throws Exception {
+        if (location.equals(ncIn.getLocation())) {
+            return readFields(ncIn, rank, null);
+        }
+        try (NetcdfFile nc = DatasetUtil.openFile(location, true)) {
+            return readFields(nc, rank, null);
+        }
+    }
+
+    /**
+     * Gets the highest horizontal speed of the record, in cells per second,
+     * to estimate the reach of the particles. Only computed when the tiling
+     * is enabled.
+     */
+    private double maxSpeed(FloatField u, FloatField v) {
+
+        double speed = 0.d;
+        if (tileSize <= 0) {
+            return speed;
+        }
+        for (int k = 0; k < nz; k++) {
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx - 1; i++) {
+                    double s = Math.abs(u.get(k, j, i)) * Math.max(pm[j][i], pm[j][i + 1]);
+                    if (s > speed) {
+                        speed = s;
                     }
                 }
             }
+            for (int j = 0; j < ny - 1; j++) {
+                for (int i = 0; i < nx; i++) {
+                    double s = Math.abs(v.get(k, j, i)) * Math.max(pn[j][i], pn[j + 1][i]);
+                    if (s > speed) {
+                        speed = s;
+                    }
+                }
+            }
+        }
+        return speed;
+    }
+
+    /**
+     * Loads the time record at the given rank of the NetCDF file, with the
+     * given required variables, on the given tiles. The record is taken from the forcing cache
+     * when a previous run has cached it, otherwise it is read from the NetCDF
+     * file and added to the cache.
+     */
+    private RecordPrefetcher.Record<Fields> loadRecord(NetcdfFile nc, int rank, String[] names, TileMask tiles) throws Exception {
+
+        String key = fieldsKey(nc.getLocation(), rank, tiles);
+        if (null == forcingCache) {
+            return new RecordPrefetcher.Record<>(key, readFields(nc, rank, tiles), readVariables(nc, names, rank));
+        }
+
+        // the cache only holds entire records, which cover any tiles
+        String cacheKey = fieldsKey(ForcingCache.source(nc.getLocation()), rank, null);
+        ForcingCache.Record cached = forcingCache.read(cacheKey);
+        Fields fields;
+        if (null != cached) {
+            FloatField u = cached.getFloat("u");
+            FloatField v = cached.getFloat("v");
+            fields = new Fields(u, v, cached.getFloat("w"), cached.getFloat("zeta"),
+                    cached.getDouble("z_w"), cached.getTime(), maxSpeed(u, v));
+        } else {
+            fields = readFields(nc, rank, tiles);
+        }
+        Map<String, Array> variables = new HashMap<>();
+        boolean complete = (null != cached);
+        for (String name : names) {
+            FloatField variable = (null != cached) ? cached.getFloat(VARIABLE + name) : null;
+            if (null != variable) {
+                variables.put(name, variable.toArray());
+            } else {
+                variables.put(name, readVariable(nc, name, rank));
+                complete = false;
+            }
+        }
+
+        if (!complete && (null == tiles || tiles.isFull())) {
+            ForcingCache.Record record = new ForcingCache.Record(fields.time)
+                    .put("u", fields.u).put("v", fields.v).put("w", fields.w)
+                    .put("zeta", fields.zeta).put("z_w", fields.z_w);
+            for (Map.Entry<String, Array> variable : variables.entrySet()) {
+                int rankVar = variable.getValue().getRank();
+                if (rankVar == 2 || rankVar == 3) {
+                    record.put(VARIABLE + variable.getKey(), FloatField.read(variable.getValue()));
+                }
+            }
+            forcingCache.write(cacheKey, record);
+        }
+        return new RecordPrefetcher.Record<>(key, fields, variables);
+    }
+
+    /**
+     * Gets the file that follows the current NetCDF file, in the direction
+     * of time.
+     *
+     * @return the path of the next file, or {@code null} if the dataset is
+     * made of a single file or if the current file is the last one.
+     */
+    String nextFile() {
+        return null;
+    }
+
+    /**
+     * Reads the time record of the hydrodynamic fields at the given rank of
+     * the NetCDF file. Only the local variables are modified, since the
+     * record may be shared with other simulations or loaded in the
+     * background. When tiles are given, only these tiles are read and the
+     * rest of the fields is left to zero, the particles never get there, see
+     * {@link #checkLoadedTiles(double)}.
+     */
+    Fields readFields(NetcdfFile nc, int rank, TileMask tiles) throws Exception {
+
+        getLogger().info("Reading NetCDF variables...");
+
+        FloatField u_tp1, v_tp1, w_tp1;
+        FloatField zeta_tp1;
+        DoubleField z_w_tp1;
+        double time_tp1;
+
+        try {
+            u_tp1 = readField(nc, strU, rank, nz, ny, nx - 1, tiles);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading dataset U velocity variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
             throw ioex;
         }
         try {
-            arr = ncIn.findVariable(strV).read(origin, new int[]{1, nz, (ny - 1), nx}).reduce();
-            v_tp1 = new float[nz][ny - 1][nx];
-            index = arr.getIndex();
-            for (int k = 0; k < nz; k++) {
-                for (int j = 0; j < ny - 1; j++) {
-                    for (int i = 0; i < nx; i++) {
-                        v_tp1[k][j][i] = arr.getFloat(index.set(k, j, i));
-                    }
-                }
-            }
+            v_tp1 = readField(nc, strV, rank, nz, ny - 1, nx, tiles);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading dataset V velocity variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -632,7 +1018,7 @@ abstract public class Roms3dCommon extends RomsCommon {
         }
 
         try {
-            time_tp1 = DatasetUtil.timeAtRank(ncIn, strTime, rank);
+            time_tp1 = DatasetUtil.timeAtRank(nc, strTime, rank);
         } catch (IOException ex) {
             IOException ioex = new IOException("Error reading dataset time variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -640,228 +1026,287 @@ abstract public class Roms3dCommon extends RomsCommon {
         }
 
         try {
-            arr = ncIn.findVariable(strZeta).read(new int[]{rank, jpo, ipo}, new int[]{1, ny, nx}).reduce();
-            index = arr.getIndex();
-            zeta_tp1 = new float[ny][nx];
-            for (int j = 0; j < ny; j++) {
-                for (int i = 0; i < nx; i++) {
-                    zeta_tp1[j][i] = arr.getFloat(index.set(j, i));
-                }
-            }
+            zeta_tp1 = readField(nc, strZeta, rank, 0, ny, nx, tiles);
         } catch (IOException | InvalidRangeException ex) {
             IOException ioex = new IOException("Error reading dataset ocean free surface elevation. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
             throw ioex;
         }
 
-        dt_HyMo = Math.abs(time_tp1 - time_tp0);
-        for (RequiredVariable variable : requiredVariables.values()) {
-            variable.nextStep(readVariable(ncIn, variable.getName(), rank), time_tp1, dt_HyMo);
-        }
-        z_w_tp1 = getSigLevels();
-
-        if (readW) {
-            this.w_tp1 = new float[nz + 1][ny][nx];
+        String preprocessed = (null != preprocessedFiles) ? preprocessedFiles.get(nc.getLocation()) : null;
+        if (null != preprocessed) {
+            // W and z_w precomputed by the ForcingPreprocessor, on the subdomain
+            try (NetcdfFile ncW = NetcdfDatasets.openDataset(preprocessed, true, null)) {
+                w_tp1 = readVerticalVelocity(ncW, ForcingPreprocessor.W, rank, tiles, 0, 0);
+                z_w_tp1 = (null == tiles || tiles.isFull())
+                        ? DoubleField.read(ncW.findVariable(ForcingPreprocessor.Z_W).read(new int[]{rank, 0, 0, 0}, new int[]{1, nz + 1, ny, nx}), nz + 1, ny, nx)
+                        : getSigLevels(zeta_tp1);
+            } catch (IOException | InvalidRangeException ex) {
+                IOException ioex = new IOException("Error reading preprocessed file " + preprocessed + ". " + ex.toString());
+                ioex.setStackTrace(ex.getStackTrace());
+                throw ioex;
+            }
+        } else if (readW && null != nc.findVariable(strW)) {
+            z_w_tp1 = getSigLevels(zeta_tp1);
             try {
-                arr = ncIn.findVariable(strW).read(origin, new int[]{1, nz, ny, nx}).reduce();
-                index = arr.getIndex();
-                for (int k = 0; k < nz; k++) {
-                    for (int j = 0; j < ny; j++) {
-                        for (int i = 0; i < nx; i++) {
-                            w_tp1[k][j][i] = arr.getFloat(index.set(k, j, i));
-                        }
-                    }
-                }
+                w_tp1 = readVerticalVelocity(nc, strW, rank, tiles, jpo, ipo);
             } catch (IOException | InvalidRangeException ex) {
                 IOException ioex = new IOException("Error reading W variable. " + ex.toString());
                 ioex.setStackTrace(ex.getStackTrace());
                 throw ioex;
             }
         } else {
-            w_tp1 = computeW();
+            z_w_tp1 = getSigLevels(zeta_tp1);
+            w_tp1 = computeW(z_w_tp1, u_tp1, v_tp1);
         }
         if (read_stokesvelocity) {
             try {
                 // Add the U-Stokes velocity to the current velocity
-                arr = ncIn.findVariable(strUStokes).read(origin, new int[]{1, nz, ny, nx - 1}).reduce();
-                index = arr.getIndex();
-                for (int k = 0; k < nz; k++) {
-                    for (int j = 0; j < ny; j++) {
-                        for (int i = 0; i < nx - 1; i++) {
-                            u_tp1[k][j][i] += arr.getFloat(index.set(k, j, i));
-                        }
-                    }
-                }
-                arr = ncIn.findVariable(strVStokes).read(origin, new int[]{1, nz, ny - 1, nx}).reduce();
-                index = arr.getIndex();
-                for (int k = 0; k < nz; k++) {
-                    for (int j = 0; j < ny - 1; j++) {
-                        for (int i = 0; i < nx; i++) {
-                            v_tp1[k][j][i] += arr.getFloat(index.set(k, j, i));
-                        }
-                    }
-                }
+                u_tp1.add(readField(nc, strUStokes, rank, nz, ny, nx - 1, tiles));
+                v_tp1.add(readField(nc, strVStokes, rank, nz, ny - 1, nx, tiles));
             } catch (IOException | InvalidRangeException ex) {
                 IOException ioex = new IOException("Error reading Stokes velocity " + ex.toString());
                 ioex.setStackTrace(ex.getStackTrace());
                 throw ioex;
             }
         }
+        return new Fields(u_tp1, v_tp1, w_tp1, zeta_tp1, z_w_tp1, time_tp1, maxSpeed(u_tp1, v_tp1));
+    }
+
+    /**
+     * Reads the vertical velocity at the nz lower w levels, the surface stays
+     * at zero.
+     */
+    private FloatField readVerticalVelocity(NetcdfFile nc, String name, int rank, TileMask tiles, int jpo, int ipo) throws IOException, InvalidRangeException {
+
+        FloatField w_read = readField(nc, name, rank, nz, ny, nx, tiles, jpo, ipo);
+        FloatField w = new FloatField(nz + 1, ny, nx);
+        for (int k = 0; k < nz; k++) {
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx; i++) {
+                    w.set(k, j, i, w_read.get(k, j, i));
+                }
+            }
+        }
+        return w;
+    }
+
+    private FloatField readField(NetcdfFile nc, String name, int rank, int nz, int ny, int nx, TileMask tiles) throws IOException, InvalidRangeException {
+        return readField(nc, name, rank, nz, ny, nx, tiles, jpo, ipo);
+    }
+
+    /**
+     * Reads a variable at the given rank, on the given tiles if any,
+     * otherwise on the whole domain.
+     *
+     * @param nz, the number of levels of the variable, zero for a 2D
+     * variable
+     * @param jpo, the first row of the subdomain in the file
+     * @param ipo, the first column of the subdomain in the file
+     */
+    private FloatField readField(NetcdfFile nc, String name, int rank, int nz, int ny, int nx, TileMask tiles, int jpo, int ipo) throws IOException, InvalidRangeException {
+
+        Variable variable = nc.findVariable(name);
+        if (null == tiles || tiles.isFull()) {
+            return (nz > 0)
+                    ? FloatField.read(variable.read(new int[]{rank, 0, jpo, ipo}, new int[]{1, nz, ny, nx}), nz, ny, nx)
+                    : FloatField.read(variable.read(new int[]{rank, jpo, ipo}, new int[]{1, ny, nx}), ny, nx);
+        }
+        FloatField field = (nz > 0) ? new FloatField(nz, ny, nx) : new FloatField(ny, nx);
+        for (int[] block : tiles.getBlocks(ny, nx)) {
+            int j0 = block[0], i0 = block[1], nj = block[2], ni = block[3];
+            Array array = (nz > 0)
+                    ? variable.read(new int[]{rank, 0, jpo + j0, ipo + i0}, new int[]{1, nz, nj, ni})
+                    : variable.read(new int[]{rank, jpo + j0, ipo + i0}, new int[]{1, nj, ni});
+            field.readBlock(array, j0, i0, nj, ni);
+        }
+        return field;
+    }
+
+    protected FloatField computeW() throws IOException, InvalidRangeException {
+        return computeW(z_w_tp1, u_tp1, v_tp1);
     }
 
-    protected float[][][] computeW() throws IOException, InvalidRangeException {
+    /**
+     * Computes the vertical velocity from the given depth of the w points and
+     * horizontal velocity fields. The arguments are not modified. A row j of
+     * w only depends on the rows j - 1, j and j + 1 of the other fields, so
+     * that the rows are computed in parallel, see {@link ParallelRows}. The
+     * boundary rows are copied from their neighbour row.
+     */
+    FloatField computeW(DoubleField z_w_tmp, FloatField u_tp1, FloatField v_tp1) {
+
+        FloatField w = new FloatField(nz + 1, ny, nx);
+        ParallelRows.forEach(1, ny - 1, j -> computeW(j, z_w_tmp, u_tp1, v_tp1, w));
+        return w;
+    }
+
+    /**
+     * Computes the row j of the vertical velocity, and the boundary row next
+     * to it if any. The work arrays are (k, i) slices of the row, in the
+     * buffers of the thread.
+     */
+    private void computeW(int j, DoubleField z_w_tmp, FloatField u_tp1, FloatField v_tp1, FloatField w) {
 
-        //System.out.println("Compute vertical velocity");
-        double[][][] Huon = new double[nz][ny][nx];
-        double[][][] Hvom = new double[nz][ny][nx];
-        double[][][] z_w_tmp = z_w_tp1;
+        double[] Huon = ParallelRows.buffer(0, nz * nx);
+        // Hvom at rows j and j + 1
+        double[] Hvom = ParallelRows.buffer(1, nz * nx);
+        double[] Hvom_n = ParallelRows.buffer(2, nz * nx);
+        double[] w_double = ParallelRows.buffer(3, (nz + 1) * nx);
+        double[] wrk = ParallelRows.buffer(4, nx);
 
         //---------------------------------------------------
         // Calculation Coeff Huon & Hvom
         for (int k = nz; k-- > 0;) {
+            Huon[k * nx] = 0.d;
             for (int i = 0; i++ < nx - 1;) {
-                for (int j = ny; j-- > 0;) {
-                    Huon[k][j][i] = (((z_w_tmp[k + 1][j][i]
-                            - z_w_tmp[k][j][i])
-                            + (z_w_tmp[k + 1][j][i - 1]
-                            - z_w_tmp[k][j][i - 1]))
-                            / (pn[j][i] + pn[j][i - 1]))
-                            * u_tp1[k][j][i - 1];
-                    if (Double.isNaN(Huon[k][j][i])) {
-                        Huon[k][j][i] = 0.d;
-
-                    }
+                Huon[k * nx + i] = (((z_w_tmp.get(k + 1, j, i)
+                        - z_w_tmp.get(k, j, i))
+                        + (z_w_tmp.get(k + 1, j, i - 1)
+                        - z_w_tmp.get(k, j, i - 1)))
+                        / (pn[j][i] + pn[j][i - 1]))
+                        * u_tp1.get(k, j, i - 1);
+                if (Double.isNaN(Huon[k * nx + i])) {
+                    Huon[k * nx + i] = 0.d;
                 }
             }
             for (int i = nx; i-- > 0;) {
-                for (int j = 0; j++ < ny - 1;) {
-                    Hvom[k][j][i] = (((z_w_tmp[k + 1][j][i]
-                            - z_w_tmp[k][j][i])
-                            + (z_w_tmp[k + 1][j - 1][i]
-                            - z_w_tmp[k][j - 1][i]))
-                            / (pm[j][i] + pm[j - 1][i]))
-                            * v_tp1[k][j - 1][i];
-                    if (Double.isNaN(Hvom[k][j][i])) {
-                        Hvom[k][j][i] = 0.d;
-
-                    }
-                }
+                Hvom[k * nx + i] = Hvom(k, j, i, z_w_tmp, v_tp1);
+                Hvom_n[k * nx + i] = Hvom(k, j + 1, i, z_w_tmp, v_tp1);
             }
         }
 
         //---------------------------------------------------
         // Calcultaion of w(i, j, k)
-        double[] wrk = new double[nx];
-        double[][][] w_double = new double[nz + 1][ny][nx];
-
-        for (int j = ny - 1; j-- > 0;) {
-            for (int i = nx; i-- > 0;) {
-                w_double[0][j][i] = 0.f;
-            }
-            for (int k = 0; k++ < nz;) {
-                for (int i = nx - 1; i-- > 0;) {
-                    w_double[k][j][i] = w_double[k - 1][j][i]
-                            + (float) (Huon[k - 1][j][i] - Huon[k - 1][j][i + 1]
-                            + Hvom[k - 1][j][i] - Hvom[k - 1][j + 1][i]);
-                }
-            }
-            for (int i = nx; i-- > 0;) {
-                wrk[i] = w_double[nz][j][i]
-                        / (z_w_tmp[nz][j][i] - z_w_tmp[0][j][i]);
-            }
-            for (int k = nz; k-- >= 2;) {
-                for (int i = nx; i-- > 0;) {
-                    w_double[k][j][i] += -wrk[i]
-                            * (z_w_tmp[k][j][i] - z_w_tmp[0][j][i]);
-                }
+        for (int i = nx; i-- > 0;) {
+            w_double[i] = 0.f;
+        }
+        for (int k = 0; k++ < nz;) {
+            for (int i = nx - 1; i-- > 0;) {
+                w_double[k * nx + i] = w_double[(k - 1) * nx + i]
+                        + (float) (Huon[(k - 1) * nx + i] - Huon[(k - 1) * nx + i + 1]
+                        + Hvom[(k - 1) * nx + i] - Hvom_n[(k - 1) * nx + i]);
             }
+            w_double[k * nx + nx - 1] = 0.d;
+        }
+        for (int i = nx; i-- > 0;) {
+            wrk[i] = w_double[nz * nx + i]
+                    / (z_w_tmp.get(nz, j, i) - z_w_tmp.get(0, j, i));
+        }
+        for (int k = nz; k-- >= 2;) {
             for (int i = nx; i-- > 0;) {
-                w_double[nz][j][i] = 0.f;
+                w_double[k * nx + i] += -wrk[i]
+                        * (z_w_tmp.get(k, j, i) - z_w_tmp.get(0, j, i));
             }
         }
+        for (int i = nx; i-- > 0;) {
+            w_double[nz * nx + i] = 0.f;
+        }
 
         //---------------------------------------------------
         // Boundary Conditions
         for (int k = nz + 1; k-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                w_double[k][j][0] = w_double[k][j][1];
-                w_double[k][j][nx - 1] = w_double[k][j][nx - 2];
-            }
-        }
-        for (int k = nz + 1; k-- > 0;) {
-            for (int i = nx; i-- > 0;) {
-                w_double[k][0][i] = w_double[k][1][i];
-                w_double[k][ny - 1][i] = w_double[k][ny - 2][i];
-            }
+            w_double[k * nx] = w_double[k * nx + 1];
+            w_double[k * nx + nx - 1] = w_double[k * nx + nx - 2];
         }
 
         //---------------------------------------------------
         // w * pm * pn
-        float[][][] w = new float[nz + 1][ny][nx];
-        for (int i = nx; i-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                for (int k = nz + 1; k-- > 0;) {
-                    w[k][j][i] = (float) (w_double[k][j][i] * pm[j][i]
-                            * pn[j][i]);
-                }
-            }
+        setW(j, w_double, w);
+        if (j == 1) {
+            setW(0, w_double, w);
         }
-        //---------------------------------------------------
-        // Return w
+        if (j == ny - 2) {
+            setW(ny - 1, w_double, w);
+        }
+    }
 
-        /*
-        Dimension timeD = new Dimension("depth", nz+1);
-	Dimension latD = new Dimension("lat", ny);
-	Dimension lonD = new Dimension("lon", nx);
-        Dimension[] rhPDims = {timeD, latD, lonD};
+    private double Hvom(int k, int j, int i, DoubleField z_w_tmp, FloatField v_tp1) {
+        double Hvom = (((z_w_tmp.get(k + 1, j, i)
+                - z_w_tmp.get(k, j, i))
+                + (z_w_tmp.get(k + 1, j - 1, i)
+                - z_w_tmp.get(k, j - 1, i)))
+                / (pm[j][i] + pm[j - 1][i]))
+                * v_tp1.get(k, j - 1, i);
+        return Double.isNaN(Hvom) ? 0.d : Hvom;
+    }
 
-        ArrayFloat.D3 array = new ArrayFloat.D3(nz + 1, ny, nx);
-        for (int k = 0; k < nz + 1; k++) {
-            for (int j = 0; j < ny; j++) {
-                for (int i = 0; i < nx; i++) {
-                    array.set(k, j, i, w[k][j][i]);
-                }
+    /**
+     * Writes the given slice of w_double in the row j of w.
+     */
+    private void setW(int j, double[] w_double, FloatField w) {
+        for (int k = nz + 1; k-- > 0;) {
+            for (int i = nx; i-- > 0;) {
+                w.set(k, j, i, (float) (w_double[k * nx + i] * pm[j][i] * pn[j][i]));
             }
         }
+    }
 
-        NetcdfFileWriteable ncOut;
-        ncOut = NetcdfFileWriteable.createNew("wich.nc");
-        ncOut.addDimension(null, timeD);
-        ncOut.addDimension(null, latD);
-        ncOut.addDimension(null, lonD);
-        ncOut.addVariable("w", float.class, rhPDims);
-        ncOut.create();
-        ncOut.write("w", new int[] {0, 0, 0}, array);
-        ncOut.close();
-        System.exit(0);
-        */
-
-        return w;
-
+    protected DoubleField getSigLevels() {
+        return getSigLevels(zeta_tp1);
     }
 
-    protected double[][][] getSigLevels() {
+    /**
+     * Computes the depth of the w points for the given free surface
+     * elevation. Missing values (999) of the elevation are set to zero.
+     */
+    DoubleField getSigLevels(FloatField zeta_tp1) {
 
         //-----------------------------------------------------
         // Daily recalculation of z_w and z_r with zeta
-        double[][][] z_w_tmp = new double[nz + 1][ny][nx];
+        DoubleField z_w_tmp = new DoubleField(nz + 1, ny, nx);
 
-        for (int i = nx; i-- > 0;) {
-            for (int j = ny; j-- > 0;) {
-                if (zeta_tp1[j][i] == 999.f) {
-                    zeta_tp1[j][i] = 0.f;
+        ParallelRows.forEach(0, ny, j -> {
+            for (int i = nx; i-- > 0;) {
+                if (zeta_tp1.get(j, i) == 999.f) {
+                    zeta_tp1.set(j, i, 0.f);
                 }
                 for (int k = 0; k < nz + 1; k++) {
-                    z_w_tmp[k][j][i] = Float.isNaN(zeta_tp1[j][i])
-                            ? z_w_cst[k][j][i]
-                            : z_w_cst[k][j][i] + zeta_tp1[j][i] * (1.f + z_w_cst[k][j][i] / hRho[j][i]);
+                    z_w_tmp.set(k, j, i, Float.isNaN(zeta_tp1.get(j, i))
+                            ? z_w_cst.get(k, j, i)
+                            : z_w_cst.get(k, j, i) + zeta_tp1.get(j, i) * (1.f + z_w_cst.get(k, j, i) / hRho[j][i]));
                 }
             }
-        }
+        });
 
         return z_w_tmp;
     }
 
+    /**
+     * A time record of the hydrodynamic fields, shared between the
+     * simulations through the {@link SharedFieldProvider}. Read-only.
+     */
+    static class Fields {
+
+        private final FloatField u, v, w;
+        private final FloatField zeta;
+        private final DoubleField z_w;
+        private final double time;
+        private final double speed;
+
+        private Fields(FloatField u, FloatField v, FloatField w, FloatField zeta, DoubleField z_w, double time, double speed) {
+            this.u = u;
+            this.v = v;
+            this.w = w;
+            this.zeta = zeta;
+            this.z_w = z_w;
+            this.time = time;
+            this.speed = speed;
+        }
+
+        FloatField getW() {
+            return w;
+        }
+
+        DoubleField getZ_w() {
+            return z_w;
+        }
+
+        double getTime() {
+            return time;
+        }
+    }
+
     private enum VertCoordType {
 
         NEW,
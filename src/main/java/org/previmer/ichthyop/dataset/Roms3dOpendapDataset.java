@@ -73,6 +73,7 @@ public class Roms3dOpendapDataset extends Roms3dCommon {
         int time_arrow = (int) Math.signum(e.getSource().get_dt());
 
         if (time_arrow * time < time_arrow * time_tp1) {
+            checkLoadedTiles(e.getSource().get_dt());
             return;
         }
 
@@ -88,6 +89,7 @@ public class Roms3dOpendapDataset extends Roms3dCommon {
             throw new IndexOutOfBoundsException("Time out of dataset range");
         }
         setAllFieldsTp1AtTime(rank);
+        checkLoadedTiles(e.getSource().get_dt());
     }
 
 }
@@ -63,31 +63,33 @@ abstract class RomsCommon extends AbstractDataset {
     /**
      * Grid dimension
      */
-    static int nx, ny;
+    int nx, ny;
     /**
      * Origin for grid index
      */
-    static int ipo, jpo;
+    int ipo, jpo;
     /**
      * Number of time records in current NetCDF file
      */
-    static int nbTimeRecords;
+    int nbTimeRecords;
     /**
      * Longitude at rho point.
      */
-    static double[][] lonRho;
+    double[][] lonRho;
     /**
      * Latitude at rho point.
      */
-    static double[][] latRho;
+    double[][] latRho;
+    private volatile GridLocator locator;
     /**
      * Bathymetry
      */
-    static double[][] hRho;
+    double[][] hRho;
     /**
      * Mask: water = 1, cost = 0
      */
-    static byte[][] maskRho;
+    byte[][] maskRho;
+    LandMask landMask;
     /**
      *
      */
@@ -95,31 +97,31 @@ abstract class RomsCommon extends AbstractDataset {
     /**
      * Time step [second] between two records in NetCDF dataset
      */
-    static double dt_HyMo;
+    double dt_HyMo;
     /**
      * Time t + dt expressed in seconds
      */
-    static double time_tp1;
+    double time_tp1;
     /**
      * Current rank in NetCDF dataset
      */
-    static int rank;
+    int rank;
     /**
      *
      */
-    static NetcdfFile ncIn;
+    NetcdfFile ncIn;
     /**
      * Name of the Dimension in NetCDF file
      */
-    static String strXiDim, strEtaDim, strTimeDim;
+    String strXiDim, strEtaDim, strTimeDim;
     /**
      * Name of the Variable in NetCDF file
      */
-    static String strU, strV, strTime;
+    String strU, strV, strTime;
     /**
      * Name of the Variable in NetCDF file
      */
-    static String strLon, strLat, strMask, strBathy;
+    String strLon, strLat, strMask, strBathy;
     /**
      * Name of the Variable in NetCDF file
      */
@@ -272,6 +274,8 @@ abstract class RomsCommon extends AbstractDataset {
             }
         }
 
+        landMask = new LandMask(nx, ny, 1, (i, j, k) -> maskRho[j][i] > 0);
+
         pm = new double[ny][nx];
         pn = new double[ny][nx];
         index = arrPm.getIndex();
@@ -320,65 +324,9 @@ abstract class RomsCommon extends AbstractDataset {
 
     @Override
     public double[] latlon2xy(double lat, double lon) {
-
-        //--------------------------------------------------------------------
-        // Physical space (lat, lon) => Computational space (x, y)
-        boolean found;
-        int imin, imax, jmin, jmax, i0, j0;
-        double dx1, dy1, dx2, dy2, c1, c2, deltax, deltay, xgrid, ygrid;
-
-        xgrid = -1.;
-        ygrid = -1.;
-        found = isInsidePolygone(0, nx - 1, 0, ny - 1, lon, lat);
-
-        //-------------------------------------------
-        // Research surrounding grid-points
-        if (found) {
-            imin = 0;
-            imax = nx - 1;
-            jmin = 0;
-            jmax = ny - 1;
-            while (((imax - imin) > 1) | ((jmax - jmin) > 1)) {
-                if ((imax - imin) > 1) {
-                    i0 = (imin + imax) / 2;
-                    found = isInsidePolygone(imin, i0, jmin, jmax, lon, lat);
-                    if (found) {
-                        imax = i0;
-                    } else {
-                        imin = i0;
-                    }
-                }
-                if ((jmax - jmin) > 1) {
-                    j0 = (jmax + jmin) / 2;
-                    found = isInsidePolygone(imin, imax, jmin, j0, lon, lat);
-                    if (found) {
-                        jmax = j0;
-                    } else {
-                        jmin = j0;
-                    }
-                }
-            }
-
-            //--------------------------------------------
-            // Trilinear interpolation
-            dy1 = latRho[jmin + 1][imin] - latRho[jmin][imin];
-            dx1 = lonRho[jmin + 1][imin] - lonRho[jmin][imin];
-            dy2 = latRho[jmin][imin + 1] - latRho[jmin][imin];
-            dx2 = lonRho[jmin][imin + 1] - lonRho[jmin][imin];
-
-            c1 = lon * dy1 - lat * dx1;
-            c2 = lonRho[jmin][imin] * dy2 - latRho[jmin][imin] * dx2;
-            deltax = (c1 * dx2 - c2 * dx1) / (dx2 * dy1 - dy2 * dx1);
-            deltax = (deltax - lonRho[jmin][imin]) / dx2;
-            xgrid = (double) imin + Math.min(Math.max(0.d, deltax), 1.d);
-
-            c1 = lonRho[jmin][imin] * dy1 - latRho[jmin][imin] * dx1;
-            c2 = lon * dy2 - lat * dx2;
-            deltay = (c1 * dy2 - c2 * dy1) / (dx2 * dy1 - dy2 * dx1);
-            deltay = (deltay - latRho[jmin][imin]) / dy1;
-            ygrid = (double) jmin + Math.min(Math.max(0.d, deltay), 1.d);
-        }
-        return (new double[]{xgrid, ygrid});
+        GridLocator grid = GridLocator.of(locator, latRho, lonRho);
+        locator = grid;
+        return grid.latlon2xy(lat, lon);
     }
 
     @Override
@@ -447,83 +395,9 @@ abstract class RomsCommon extends AbstractDataset {
         return (pn[j][i] != 0) ? (1 / pn[j][i]) : 0.d;
     }
 
-    private boolean isInsidePolygone(int imin, int imax, int jmin, int jmax, double lon, double lat) {
-
-        //--------------------------------------------------------------
-        // Return true if (lon, lat) is insidide the polygon defined by
-        // (imin, jmin) & (imin, jmax) & (imax, jmax) & (imax, jmin)
-        //-----------------------------------------
-        // Build the polygone
-        int nb, shft;
-        double[] xb, yb;
-        boolean isInPolygone = true;
-
-        nb = 2 * (jmax - jmin + imax - imin);
-        xb = new double[nb + 1];
-        yb = new double[nb + 1];
-        shft = 0 - imin;
-        for (int i = imin; i <= (imax - 1); i++) {
-            xb[i + shft] = lonRho[jmin][i];
-            yb[i + shft] = latRho[jmin][i];
-        }
-        shft = 0 - jmin + imax - imin;
-        for (int j = jmin; j <= (jmax - 1); j++) {
-            xb[j + shft] = lonRho[j][imax];
-            yb[j + shft] = latRho[j][imax];
-        }
-        shft = jmax - jmin + 2 * imax - imin;
-        for (int i = imax; i >= (imin + 1); i--) {
-            xb[shft - i] = lonRho[jmax][i];
-            yb[shft - i] = latRho[jmax][i];
-        }
-        shft = 2 * jmax - jmin + 2 * (imax - imin);
-        for (int j = jmax; j >= (jmin + 1); j--) {
-            xb[shft - j] = lonRho[j][imin];
-            yb[shft - j] = latRho[j][imin];
-        }
-        xb[nb] = xb[0];
-        yb[nb] = yb[0];
-
-        //---------------------------------------------
-        //Check if {lon, lat} is inside polygone
-        int inc, crossings;
-        double dx1, dx2, dxy;
-        crossings = 0;
-
-        for (int k = 0; k < nb; k++) {
-            if (xb[k] != xb[k + 1]) {
-                dx1 = lon - xb[k];
-                dx2 = xb[k + 1] - lon;
-                dxy = dx2 * (lat - yb[k]) - dx1 * (yb[k + 1] - lat);
-                inc = 0;
-                if ((xb[k] == lon) & (yb[k] == lat)) {
-                    crossings = 1;
-                } else if (((dx1 == 0.) & (lat >= yb[k]))
-                        | ((dx2 == 0.) & (lat >= yb[k + 1]))) {
-                    inc = 1;
-                } else if ((dx1 * dx2 > 0.) & ((xb[k + 1] - xb[k]) * dxy >= 0.)) {
-                    inc = 2;
-                }
-                if (xb[k + 1] > xb[k]) {
-                    crossings += inc;
-                } else {
-                    crossings -= inc;
-                }
-            }
-        }
-        if (crossings == 0) {
-            isInPolygone = false;
-        }
-        return (isInPolygone);
-    }
-
     @Override
     public boolean isInWater(int i, int j) {
-        try {
-            return (maskRho[j][i] > 0);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return false;
-        }
+        return landMask.isInWater(i, j);
     }
 
     /**
@@ -538,13 +412,16 @@ abstract class RomsCommon extends AbstractDataset {
      */
     @Override
     public boolean isCloseToCost(double[] pGrid) {
+        return isCloseToCost(pGrid[0], pGrid[1]);
+    }
 
-        int i, j, ii, jj;
-        i = (int) (Math.round(pGrid[0]));
-        j = (int) (Math.round(pGrid[1]));
-        ii = (i - (int) pGrid[0]) == 0 ? 1 : -1;
-        jj = (j - (int) pGrid[1]) == 0 ? 1 : -1;
-        return !(isInWater(i + ii, j) && isInWater(i + ii, j + jj) && isInWater(i, j + jj));
+    boolean isCloseToCost(double x, double y) {
+        return landMask.isCloseToCoast(x, y);
+    }
+
+    @Override
+    public LandMask getLandMask() {
+        return landMask;
     }
 
     void readTimeLength() throws IOException {
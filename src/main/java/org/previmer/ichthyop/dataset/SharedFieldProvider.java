@@ -0,0 +1,160 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares the time records of the hydrodynamic fields between the
+ * simulations that run concurrently in the same JVM. Every record is
+ * identified by a key that sums up everything its content depends on (the
+ * dataset class, the grid, the subdomain, the file and the rank). The first
+ * simulation that requests a record loads it, the other ones wait for the
+ * loading and get the very same instance. The records are reference counted
+ * and forgotten by the provider when the last simulation releases them, so
+ * that the memory and the I/O grow with the number of distinct records rather
+ * than with the number of simulations.
+ *
+ * <p>
+ * The records are shared between threads without any copy and must
+ * therefore never be modified once loaded.
+ * </p>
+ *
+ * @author pverley
+ */
+public class SharedFieldProvider {
+
+    private static final Map<String, Entry> records = new HashMap<>();
+
+    private SharedFieldProvider() {
+        // static provider
+    }
+
+    /**
+     * Gets the record of the given key, loading it if need be, and increments
+     * its reference count. Every call must be balanced by a call to
+     * {@link #release(String)}.
+     *
+     * @param <T> the type of the record
+     * @param key, the key of the record
+     * @param loader, loads the record when it is not available yet
+     * @return the shared record
+     * @throws Exception if the record could not be loaded
+     */
+    public static <T> T acquire(String key, Loader<T> loader) throws Exception {
+
+        Entry entry;
+        synchronized (records) {
+            entry = records.computeIfAbsent(key, k -> new Entry());
+            entry.references++;
+        }
+        try {
+            return entry.get(loader);
+        } catch (Exception ex) {
+            release(key);
+            throw ex;
+        }
+    }
+
+    /**
+     * Decrements the reference count of the record and forgets it when it is
+     * no longer used. Does nothing if the key is null or unknown.
+     *
+     * @param key, the key of the record
+     */
+    public static void release(String key) {
+
+        if (null == key) {
+            return;
+        }
+        synchronized (records) {
+            Entry entry = records.get(key);
+            if (null != entry && --entry.references <= 0) {
+                records.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of records currently held by the provider.
+     *
+     * @return the number of distinct records in use
+     */
+    public static int size() {
+        synchronized (records) {
+            return records.size();
+        }
+    }
+
+    /**
+     * Loads a time record of the hydrodynamic fields.
+     *
+     * @param <T> the type of the record
+     */
+    public interface Loader<T> {
+
+        T load() throws Exception;
+    }
+
+    private static class Entry {
+
+        private int references;
+        private Object record;
+
+        /*
+         * Loading is synchronized on the entry so that distinct records can
+         * be loaded in parallel. A failed loading leaves the entry empty and
+         * the next request tries again.
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized <T> T get(Loader<T> loader) throws Exception {
+            if (null == record) {
+                record = loader.load();
+            }
+            return (T) record;
+        }
+    }
+}
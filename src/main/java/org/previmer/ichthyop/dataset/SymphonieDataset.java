@@ -73,7 +73,7 @@ public class SymphonieDataset extends AbstractDataset {
     /**
      * Number of time records in current NetCDF file
      */
-    private static int nbTimeRecords;
+    private int nbTimeRecords;
     /**
      * Longitude at rho point.
      */
@@ -82,6 +82,7 @@ public class SymphonieDataset extends AbstractDataset {
      * Latitude at rho point.
      */
     private double[][] latitude_t;
+    private volatile GridLocator locator;
     /**
      * Bathymetry
      */
@@ -90,6 +91,7 @@ public class SymphonieDataset extends AbstractDataset {
      * Mask: water = 1, cost = 0
      */
     private float[][] mask_t;
+    private LandMask landMask;
     /**
      * Cell x size at v location
      */
@@ -189,6 +191,11 @@ public class SymphonieDataset extends AbstractDataset {
      * Vertical component of the velocity field at time t + dt
      */
     private float[][][] w_tp1;
+    /**
+     * Loads the next time record in the background, if enabled.
+     */
+    private final RecordPrefetcher<Fields> prefetcher = new RecordPrefetcher<>();
+    private boolean prefetchEnabled;
 
     @Override
     void loadParameters() {
@@ -233,6 +240,8 @@ public class SymphonieDataset extends AbstractDataset {
     @Override
     public void init() throws Exception {
 
+        prefetcher.clear();
+        prefetchEnabled = prefetch();
         double t0 = getSimulationManager().getTimeManager().get_tO();
         indexFile = DatasetUtil.index(listInputFiles, t0, timeArrow(), strDim_time);
         open(listInputFiles.get(indexFile));
@@ -316,11 +325,69 @@ public class SymphonieDataset extends AbstractDataset {
 
     void setAllFieldsTp1AtTime(int rank) throws Exception {
 
-        int[] origin = new int[]{rank, 0, jpo, ipo};
         double time_tp0 = time_tp1;
+        RecordPrefetcher.Record<Fields> record = prefetcher.take(ncIn.getLocation() + '#' + rank);
+        Fields fields = (null != record) ? record.getFields() : readFields(ncIn, rank);
+
+        u_tp1 = fields.u;
+        v_tp1 = fields.v;
+        w_tp1 = fields.w;
+        ssh_tp1 = fields.ssh;
+        depth_w_tp1 = fields.depth_w;
+        time_tp1 = fields.time;
+
+        dt_HyMo = Math.abs(time_tp1 - time_tp0);
+        for (RequiredVariable variable : requiredVariables.values()) {
+            variable.nextStep(readVariable(record, ncIn, variable.getName(), rank), time_tp1, dt_HyMo);
+        }
+        if (prefetchEnabled) {
+            prefetchNextRecord(rank);
+        }
+    }
+
+    /**
+     * Starts loading the record that follows the given rank, in the
+     * direction of time, while the particles are stepped.
+     */
+    private void prefetchNextRecord(int rank) {
+        String[] names = requiredVariables.keySet().toArray(new String[0]);
+        int time_arrow = timeArrow();
+        int next = rank + time_arrow;
+        if (next >= 0 && next < nbTimeRecords) {
+            NetcdfFile nc = ncIn;
+            prefetcher.prefetch(() -> new RecordPrefetcher.Record<>(nc.getLocation() + '#' + next, readFields(nc, next), readVariables(nc, names, next)));
+            return;
+        }
+        String location;
+        try {
+            location = listInputFiles.get(DatasetUtil.next(listInputFiles, indexFile, time_arrow));
+        } catch (IOException ex) {
+            // last file, nothing to prefetch
+            return;
+        }
+        // the loading opens and closes its own handle on the next file
+        prefetcher.prefetch(() -> {
+            try (NetcdfFile nc = NetcdfDatasets.openDataset(location)) {
+                int first = (1 - time_arrow) / 2 * (nc.findDimension(strDim_time).getLength() - 1);
+                return new RecordPrefetcher.Record<>(nc.getLocation() + '#' + first, readFields(nc, first), readVariables(nc, names, first));
+            }
+        });
+    }
+
+    /**
+     * Reads the time record of the hydrodynamic fields at the given rank of
+     * the NetCDF file. Only the local variables are modified, since the
+     * record may be loaded in the background.
+     */
+    private Fields readFields(NetcdfFile nc, int rank) throws Exception {
+
+        int[] origin = new int[]{rank, 0, jpo, ipo};
+        float[][][] u_tp1, v_tp1;
+        float[][] ssh_tp1;
+        double time_tp1;
 
         try {
-            u_tp1 = (float[][][]) ncIn.findVariable(strVar_u).read(origin, new int[]{1, nk, nj, (ni - 1)}).reduce().copyToNDJavaArray();
+            u_tp1 = (float[][][]) nc.findVariable(strVar_u).read(origin, new int[]{1, nk, nj, (ni - 1)}).reduce().copyToNDJavaArray();
 
         } catch (Exception ex) {
             IOException ioex = new IOException("Error reading dataset U velocity variable. " + ex.toString());
@@ -328,7 +395,7 @@ public class SymphonieDataset extends AbstractDataset {
             throw ioex;
         }
         try {
-            v_tp1 = (float[][][]) ncIn.findVariable(strVar_v).read(origin,
+            v_tp1 = (float[][][]) nc.findVariable(strVar_v).read(origin,
                     new int[]{1, nk, (nj - 1), ni}).reduce().copyToNDJavaArray();
         } catch (Exception ex) {
             IOException ioex = new IOException("Error reading dataset V velocity variable. " + ex.toString());
@@ -337,7 +404,7 @@ public class SymphonieDataset extends AbstractDataset {
         }
 
         try {
-           time_tp1 = DatasetUtil.timeAtRank(ncIn, strVar_time, rank);
+           time_tp1 = DatasetUtil.timeAtRank(nc, strVar_time, rank);
         } catch (Exception ex) {
             IOException ioex = new IOException("Error reading dataset time variable. " + ex.toString());
             ioex.setStackTrace(ex.getStackTrace());
@@ -346,7 +413,7 @@ public class SymphonieDataset extends AbstractDataset {
 
 
         try {
-            ssh_tp1 = (float[][]) ncIn.findVariable(strVar_ssh_ib).read(
+            ssh_tp1 = (float[][]) nc.findVariable(strVar_ssh_ib).read(
                     new int[]{rank, jpo, ipo},
                     new int[]{1, nj, ni}).reduce().copyToNDJavaArray();
         } catch (Exception ex) {
@@ -355,15 +422,15 @@ public class SymphonieDataset extends AbstractDataset {
             throw ioex;
         }
 
-        dt_HyMo = Math.abs(time_tp1 - time_tp0);
-        for (RequiredVariable variable : requiredVariables.values()) {
-            variable.nextStep(readVariable(ncIn, variable.getName(), rank), time_tp1, dt_HyMo);
-        }
-        depth_w_tp1 = computeSigLevels();
-        w_tp1 = computeW();
+        float[][][] depth_w_tp1 = computeSigLevels(ssh_tp1);
+        return new Fields(u_tp1, v_tp1, computeW(depth_w_tp1, u_tp1, v_tp1), ssh_tp1, depth_w_tp1, time_tp1);
     }
 
-    float[][][] computeW() {
+    /**
+     * Computes the vertical velocity from the given depth of the w points and
+     * horizontal velocity fields. The arguments are not modified.
+     */
+    float[][][] computeW(float[][][] depth_w_tp1, float[][][] u_tp1, float[][][] v_tp1) {
 
 
 
@@ -460,7 +527,11 @@ public class SymphonieDataset extends AbstractDataset {
 
     }
 
-    private float[][][] computeSigLevels() {
+    /**
+     * Computes the depth of the w points for the given sea surface height.
+     * The missing values of the sea surface height are set to zero.
+     */
+    private float[][][] computeSigLevels(float[][] ssh_tp1) {
 
         //-----------------------------------------------------
         // Daily recalculation of depth_w with ssh
@@ -562,6 +633,8 @@ public class SymphonieDataset extends AbstractDataset {
             ioex.setStackTrace(e.getStackTrace());
             throw ioex;
         }
+
+        landMask = new LandMask(ni, nj, 1, (i, j, k) -> mask_t[j][i] > 0);
         try {
             hm_w = (double[][]) ncGrid.findVariable(strVar_hm_w).read(origin2d, size2d).copyToNDJavaArray();
         } catch (Exception e) {
@@ -689,65 +762,9 @@ public class SymphonieDataset extends AbstractDataset {
 
     @Override
     public double[] latlon2xy(double lat, double lon) {
-        //--------------------------------------------------------------------
-        // Physical space (lat, lon) => Computational space (x, y)
-
-        boolean found;
-        int imin, imax, jmin, jmax, i0, j0;
-        double dx1, dy1, dx2, dy2, c1, c2, deltax, deltay, xgrid, ygrid;
-
-        xgrid = -1.;
-        ygrid = -1.;
-        found = isInsidePolygone(0, ni - 1, 0, nj - 1, lon, lat);
-
-        //-------------------------------------------
-        // Research surrounding grid-points
-        if (found) {
-            imin = 0;
-            imax = ni - 1;
-            jmin = 0;
-            jmax = nj - 1;
-            while (((imax - imin) > 1) | ((jmax - jmin) > 1)) {
-                if ((imax - imin) > 1) {
-                    i0 = (imin + imax) / 2;
-                    found = isInsidePolygone(imin, i0, jmin, jmax, lon, lat);
-                    if (found) {
-                        imax = i0;
-                    } else {
-                        imin = i0;
-                    }
-                }
-                if ((jmax - jmin) > 1) {
-                    j0 = (jmax + jmin) / 2;
-                    found = isInsidePolygone(imin, imax, jmin, j0, lon, lat);
-                    if (found) {
-                        jmax = j0;
-                    } else {
-                        jmin = j0;
-                    }
-                }
-            }
-
-            //--------------------------------------------
-            // Trilinear interpolation
-            dy1 = latitude_t[jmin + 1][imin] - latitude_t[jmin][imin];
-            dx1 = longitude_t[jmin + 1][imin] - longitude_t[jmin][imin];
-            dy2 = latitude_t[jmin][imin + 1] - latitude_t[jmin][imin];
-            dx2 = longitude_t[jmin][imin + 1] - longitude_t[jmin][imin];
-
-            c1 = lon * dy1 - lat * dx1;
-            c2 = longitude_t[jmin][imin] * dy2 - latitude_t[jmin][imin] * dx2;
-            deltax = (c1 * dx2 - c2 * dx1) / (dx2 * dy1 - dy2 * dx1);
-            deltax = (deltax - longitude_t[jmin][imin]) / dx2;
-            xgrid = (double) imin + Math.min(Math.max(0.d, deltax), 1.d);
-
-            c1 = longitude_t[jmin][imin] * dy1 - latitude_t[jmin][imin] * dx1;
-            c2 = lon * dy2 - lat * dx2;
-            deltay = (c1 * dy2 - c2 * dy1) / (dx2 * dy1 - dy2 * dx1);
-            deltay = (deltay - latitude_t[jmin][imin]) / dy1;
-            ygrid = (double) jmin + Math.min(Math.max(0.d, deltay), 1.d);
-        }
-        return (new double[]{xgrid, ygrid});
+        GridLocator grid = GridLocator.of(locator, latitude_t, longitude_t);
+        locator = grid;
+        return grid.latlon2xy(lat, lon);
     }
 
     @Override
@@ -977,21 +994,17 @@ public class SymphonieDataset extends AbstractDataset {
 
     @Override
     public boolean isInWater(int i, int j) {
-        try {
-            return (mask_t[j][i] > 0);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return false;
-        }
+        return landMask.isInWater(i, j);
     }
 
     @Override
     public boolean isCloseToCost(double[] pGrid) {
-        int i, j, ii, jj;
-        i = (int) (Math.round(pGrid[0]));
-        j = (int) (Math.round(pGrid[1]));
-        ii = (i - (int) pGrid[0]) == 0 ? 1 : -1;
-        jj = (j - (int) pGrid[1]) == 0 ? 1 : -1;
-        return !(isInWater(i + ii, j) && isInWater(i + ii, j + jj) && isInWater(i, j + jj));
+        return landMask.isCloseToCoast(pGrid[0], pGrid[1]);
+    }
+
+    @Override
+    public LandMask getLandMask() {
+        return landMask;
     }
 
     @Override
@@ -1128,6 +1141,26 @@ public class SymphonieDataset extends AbstractDataset {
         return variable.read(origin, shape).reduce();
     }
 
+    /**
+     * A time record of the hydrodynamic fields. Read-only.
+     */
+    private static class Fields {
+
+        private final float[][][] u, v, w;
+        private final float[][] ssh;
+        private final float[][][] depth_w;
+        private final double time;
+
+        private Fields(float[][][] u, float[][][] v, float[][][] w, float[][] ssh, float[][][] depth_w, double time) {
+            this.u = u;
+            this.v = v;
+            this.w = w;
+            this.ssh = ssh;
+            this.depth_w = depth_w;
+            this.time = time;
+        }
+    }
+
     @Override
     public void nextStepTriggered(NextStepEvent e) throws Exception {
         double time = e.getSource().getTime();
@@ -1154,77 +1187,6 @@ public class SymphonieDataset extends AbstractDataset {
         setAllFieldsTp1AtTime(rank);
     }
 
-    private boolean isInsidePolygone(int imin, int imax, int jmin, int jmax, double lon, double lat) {
-
-        //--------------------------------------------------------------
-        // Return true if (lon, lat) is insidide the polygon defined by
-        // (imin, jmin) & (imin, jmax) & (imax, jmax) & (imax, jmin)
-
-        //-----------------------------------------
-        // Build the polygone
-        int nb, shft;
-        double[] xb, yb;
-        boolean isInPolygone = true;
-
-        nb = 2 * (jmax - jmin + imax - imin);
-        xb = new double[nb + 1];
-        yb = new double[nb + 1];
-        shft = 0 - imin;
-        for (int i = imin; i <= (imax - 1); i++) {
-            xb[i + shft] = longitude_t[jmin][i];
-            yb[i + shft] = latitude_t[jmin][i];
-        }
-        shft = 0 - jmin + imax - imin;
-        for (int j = jmin; j <= (jmax - 1); j++) {
-            xb[j + shft] = longitude_t[j][imax];
-            yb[j + shft] = latitude_t[j][imax];
-        }
-        shft = jmax - jmin + 2 * imax - imin;
-        for (int i = imax; i >= (imin + 1); i--) {
-            xb[shft - i] = longitude_t[jmax][i];
-            yb[shft - i] = latitude_t[jmax][i];
-        }
-        shft = 2 * jmax - jmin + 2 * (imax - imin);
-        for (int j = jmax; j >= (jmin + 1); j--) {
-            xb[shft - j] = longitude_t[j][imin];
-            yb[shft - j] = latitude_t[j][imin];
-        }
-        xb[nb] = xb[0];
-        yb[nb] = yb[0];
-
-        //---------------------------------------------
-        //Check if {lon, lat} is inside polygone
-        int inc, crossings;
-        double dx1, dx2, dxy;
-        crossings = 0;
-
-        for (int k = 0; k < nb; k++) {
-            if (xb[k] != xb[k + 1]) {
-                dx1 = lon - xb[k];
-                dx2 = xb[k + 1] - lon;
-                dxy = dx2 * (lat - yb[k]) - dx1 * (yb[k + 1] - lat);
-                inc = 0;
-                if ((xb[k] == lon) & (yb[k] == lat)) {
-                    crossings = 1;
-                } else if (((dx1 == 0.) & (lat >= yb[k]))
-                        | ((dx2 == 0.) & (lat >= yb[k + 1]))) {
-                    inc = 1;
-                } else if ((dx1 * dx2 > 0.) & ((xb[k + 1] - xb[k]) * dxy >= 0.)) {
-                    inc = 2;
-                }
-                if (xb[k + 1] > xb[k]) {
-                    crossings += inc;
-                } else {
-                    crossings -= inc;
-                }
-            }
-        }
-        if (crossings == 0) {
-            isInPolygone = false;
-        }
-        return (isInPolygone);
-    }
-
     @Override
     public double xTore(double x) {
         return x;
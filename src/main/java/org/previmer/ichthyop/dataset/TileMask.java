@@ -0,0 +1,208 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Partition of the horizontal grid in square tiles, with the set of tiles
+ * that must be loaded for a time record. The dataset activates the tiles
+ * around the living particles and only reads these tiles from the NetCDF
+ * files. A tile (ti, tj) covers the cells {@code ti * size <= i < (ti + 1) *
+ * size} and {@code tj * size <= j < (tj + 1) * size}.
+ *
+ * @author pverley
+ */
+public class TileMask {
+
+    private final int size;
+    private final int ntx, nty;
+    private final BitSet tiles;
+
+    /**
+     * Creates a mask with no active tile.
+     *
+     * @param nx, the number of columns of the grid
+     * @param ny, the number of rows of the grid
+     * @param size, the size of the tiles, in cells
+     */
+    public TileMask(int nx, int ny, int size) {
+        this.size = size;
+        ntx = (nx + size - 1) / size;
+        nty = (ny + size - 1) / size;
+        tiles = new BitSet(ntx * nty);
+    }
+
+    /**
+     * Activates every tile of the grid.
+     */
+    public void activateAll() {
+        tiles.set(0, ntx * nty);
+    }
+
+    /**
+     * Activates the tiles that intersect the square of the given half width
+     * centred on the given grid point.
+     *
+     * @param x, the x grid coordinate
+     * @param y, the y grid coordinate
+     * @param radius, the half width of the square, in cells
+     */
+    public void activate(double x, double y, double radius) {
+        int ti0 = tile(x - radius, ntx);
+        int ti1 = tile(x + radius, ntx);
+        int tj0 = tile(y - radius, nty);
+        int tj1 = tile(y + radius, nty);
+        for (int tj = tj0; tj <= tj1; tj++) {
+            tiles.set(tj * ntx + ti0, tj * ntx + ti1 + 1);
+        }
+    }
+
+    private int tile(double coordinate, int ntile) {
+        return Math.max(0, Math.min(ntile - 1, (int) Math.floor(coordinate / size)));
+    }
+
+    /**
+     * @param x, the x grid coordinate
+     * @param y, the y grid coordinate
+     * @return {@code true} if the grid point lies in an active tile
+     */
+    public boolean isActive(double x, double y) {
+        return tiles.get(tile(y, nty) * ntx + tile(x, ntx));
+    }
+
+    /**
+     * Checks whether every tile that intersects the square of the given half
+     * width centred on the given grid point is active.
+     *
+     * @param x, the x grid coordinate
+     * @param y, the y grid coordinate
+     * @param radius, the half width of the square, in cells
+     * @return {@code true} if the square lies in active tiles
+     */
+    public boolean isActive(double x, double y, double radius) {
+        int ti0 = tile(x - radius, ntx);
+        int ti1 = tile(x + radius, ntx);
+        int tj0 = tile(y - radius, nty);
+        int tj1 = tile(y + radius, nty);
+        for (int tj = tj0; tj <= tj1; tj++) {
+            if (tiles.nextClearBit(tj * ntx + ti0) <= tj * ntx + ti1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isFull() {
+        return tiles.cardinality() == ntx * nty;
+    }
+
+    /**
+     * @return the number of active tiles
+     */
+    public int getCount() {
+        return tiles.cardinality();
+    }
+
+    /**
+     * @return the total number of tiles
+     */
+    public int getSize() {
+        return ntx * nty;
+    }
+
+    /**
+     * Gets the rectangles to read, in grid cells. The consecutive active tiles
+     * of a row of tiles are merged in a single rectangle so that the number
+     * of reads is kept low. The rectangles are clipped to the given
+     * dimensions, since the staggered variables are one cell smaller than
+     * the grid.
+     *
+     * @param ny, the number of rows of the variable
+     * @param nx, the number of columns of the variable
+     * @return the rectangles {j0, i0, nj, ni}
+     */
+    public List<int[]> getBlocks(int ny, int nx) {
+        List<int[]> blocks = new ArrayList<>();
+        for (int tj = 0; tj < nty; tj++) {
+            int j0 = tj * size;
+            int nj = Math.min(size, ny - j0);
+            int ti = tiles.nextSetBit(tj * ntx);
+            while (ti >= 0 && ti < (tj + 1) * ntx) {
+                int end = Math.min(tiles.nextClearBit(ti), (tj + 1) * ntx);
+                int i0 = (ti - tj * ntx) * size;
+                int ni = Math.min((end - tj * ntx) * size, nx) - i0;
+                if (nj > 0 && ni > 0) {
+                    blocks.add(new int[]{j0, i0, nj, ni});
+                }
+                ti = tiles.nextSetBit(end);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Gets a string that identifies the active tiles, to be included in the
+     * key of the records. Empty when every tile is active, so that full
+     * records keep the same key whether the tiling is enabled or not.
+     */
+    public String signature() {
+        if (isFull()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("tiles:").append(size).append(':');
+        for (long word : tiles.toLongArray()) {
+            sb.append(Long.toHexString(word)).append('.');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return tiles.cardinality() + "/" + (ntx * nty) + " tiles of " + size + "x" + size + " cells";
+    }
+}
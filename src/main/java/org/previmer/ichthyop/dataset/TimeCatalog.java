@@ -0,0 +1,406 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import static org.previmer.ichthyop.SimulationManagerAccessor.getLogger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.previmer.ichthyop.manager.TimeManager;
+
+import ucar.ma2.Array;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDatasets;
+
+/**
+ * Catalog of the time axes of the NetCDF files of the datasets. The time
+ * variable of a file is read once and kept in memory, so that sorting the
+ * files, looking for the file and the rank of a given time do not open the
+ * files over and over again. The catalog is also saved in a sidecar file,
+ * {@value #SIDECAR}, in the directory of the NetCDF files and reloaded by the
+ * next runs. An entry is identified by the path of the file and the name of
+ * the time variable and remains valid as long as the size and the last
+ * modification time of the file do not change.
+ *
+ * <p>
+ * Remote datasets (OPeNDAP URLs) are not catalogued and their time axis is
+ * read every time it is requested.
+ * </p>
+ *
+ * @author pverley
+ */
+public class TimeCatalog {
+
+    /**
+     * Name of the sidecar file of the catalog.
+     */
+    public static final String SIDECAR = ".ichthyop-time-catalog";
+    /**
+     * Maximum number of files read concurrently when the catalog is loaded.
+     */
+    private static final int N_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    /**
+     * Time axes by file path and name of the time variable.
+     */
+    private static final Map<String, Axis> axes = new ConcurrentHashMap<>();
+    /**
+     * Directories whose sidecar file has already been read.
+     */
+    private static final Set<String> directories = ConcurrentHashMap.newKeySet();
+
+    private TimeCatalog() {
+        // static catalog
+    }
+
+    /**
+     * Gets the time axis of a NetCDF file, reading it if it is not in the
+     * catalog yet or if the file has changed since it has been catalogued.
+     *
+     * @param file, the path of the NetCDF file or an OPeNDAP URL
+     * @param strTime, the name of the time variable
+     * @return the time axis of the file
+     * @throws IOException if the file or its time variable cannot be read
+     */
+    public static Axis get(String file, String strTime) throws IOException {
+
+        File path = new File(file);
+        if (!path.isFile()) {
+            try (NetcdfFile nc = NetcdfDatasets.openDataset(file)) {
+                return read(nc, strTime, null);
+            }
+        }
+        path = path.getAbsoluteFile();
+        Axis axis = lookup(path, strTime);
+        if (null == axis) {
+            try (NetcdfFile nc = NetcdfDatasets.openDataset(file)) {
+                axis = read(nc, strTime, path);
+            }
+            axes.put(key(path, strTime), axis);
+        }
+        return axis;
+    }
+
+    /**
+     * Gets the time axis of an opened NetCDF dataset. The axis is read from
+     * the dataset itself when it is not a local file.
+     *
+     * @param nc, the NetCDF dataset
+     * @param strTime, the name of the time variable
+     * @return the time axis of the dataset
+     * @throws IOException if the time variable cannot be read
+     */
+    public static Axis get(NetcdfFile nc, String strTime) throws IOException {
+        return new File(nc.getLocation()).isFile()
+                ? get(nc.getLocation(), strTime)
+                : read(nc, strTime, null);
+    }
+
+    /**
+     * Makes sure that the time axes of all the files of the list are in the
+     * catalog. The files that are missing are read concurrently and the
+     * sidecar files of their directories are updated. Files that cannot be
+     * read are skipped, the error will be raised when their time axis is
+     * actually requested.
+     *
+     * @param files, the paths of the NetCDF files
+     * @param strTime, the name of the time variable
+     */
+    public static void load(List<String> files, String strTime) {
+
+        List<String> missing = new ArrayList<>();
+        for (String file : files) {
+            File path = new File(file);
+            if (path.isFile() && null == lookup(path.getAbsoluteFile(), strTime)) {
+                missing.add(file);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        getLogger().log(Level.INFO, "[Dataset] Reading the time axis of {0} files out of {1}", new Object[]{missing.size(), files.size()});
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(N_THREADS, missing.size()));
+        List<Future<Axis>> axesRead = new ArrayList<>(missing.size());
+        for (String file : missing) {
+            axesRead.add(executor.submit(() -> get(file, strTime)));
+        }
+        Set<File> updated = new HashSet<>();
+        for (int i = 0; i < missing.size(); i++) {
+            try {
+                axesRead.get(i).get();
+                updated.add(new File(missing.get(i)).getAbsoluteFile().getParentFile());
+            } catch (ExecutionException ex) {
+                getLogger().log(Level.FINE, "[Dataset] Failed to read the time axis of " + missing.get(i), ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        executor.shutdown();
+
+        for (File directory : updated) {
+            save(directory);
+        }
+    }
+
+    /**
+     * Forgets the time axes in memory, the sidecar files will be read again.
+     */
+    static void clear() {
+        axes.clear();
+        directories.clear();
+    }
+
+    /**
+     * Gets the catalogued time axis of the file, provided that the file has
+     * not changed since.
+     */
+    private static Axis lookup(File path, String strTime) {
+
+        File directory = path.getParentFile();
+        if (directories.add(directory.getPath())) {
+            restore(directory);
+        }
+        Axis axis = axes.get(key(path, strTime));
+        return (null != axis && axis.isValid(path)) ? axis : null;
+    }
+
+    private static String key(File path, String strTime) {
+        return path.getPath() + '#' + strTime;
+    }
+
+    private static Axis read(NetcdfFile nc, String strTime, File path) throws IOException {
+
+        Variable timeVar = nc.findVariable(strTime);
+        if (null == timeVar) {
+            throw new IOException("[Dataset] Time variable " + strTime + " not found in " + nc.getLocation());
+        }
+        Attribute attrUnits = timeVar.findAttribute("units");
+        String units = (null != attrUnits) ? attrUnits.getStringValue().toLowerCase() : null;
+        Array timeArr = timeVar.read();
+        double[] values = new double[(int) timeArr.getSize()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = timeArr.getDouble(i);
+        }
+        return (null != path)
+                ? new Axis(path, strTime, path.length(), path.lastModified(), units, values)
+                : new Axis(null, strTime, -1, -1, units, values);
+    }
+
+    /**
+     * Reads the sidecar file of the directory, if any. Unreadable or
+     * malformed sidecar files are ignored.
+     */
+    private static void restore(File directory) {
+
+        File sidecar = new File(directory, SIDECAR);
+        if (!sidecar.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(sidecar.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // name, time variable, size, mtime, units, values
+                String[] tokens = line.split("\t", -1);
+                File path = new File(directory, tokens[0]);
+                String units = tokens[4].isEmpty() ? null : tokens[4];
+                String[] strValues = tokens[5].isEmpty() ? new String[0] : tokens[5].split(" ");
+                double[] values = new double[strValues.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Double.parseDouble(strValues[i]);
+                }
+                Axis axis = new Axis(path, tokens[1], Long.parseLong(tokens[2]), Long.parseLong(tokens[3]), units, values);
+                axes.putIfAbsent(key(path, axis.strTime), axis);
+            }
+        } catch (IOException | RuntimeException ex) {
+            getLogger().log(Level.FINE, "[Dataset] Ignored time catalog " + sidecar, ex);
+        }
+    }
+
+    /**
+     * Writes the sidecar file of the directory with all the time axes of the
+     * directory in the catalog. The file is written aside and moved, so that
+     * concurrent runs never read a partial catalog. Read-only directories
+     * are silently skipped.
+     */
+    private static synchronized void save(File directory) {
+
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(directory.toPath(), SIDECAR, ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write("# Ichthyop time catalog: name, time variable, size, last modified, units, time values");
+                writer.newLine();
+                for (Axis axis : axes.values()) {
+                    if (null != axis.path && directory.equals(axis.path.getParentFile())) {
+                        writer.write(axis.toString());
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tmp, new File(directory, SIDECAR).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            getLogger().log(Level.FINE, "[Dataset] Could not save the time catalog in " + directory, ex);
+            if (null != tmp) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ex1) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * The time axis of a NetCDF file.
+     */
+    public static class Axis {
+
+        private final File path;
+        private final String strTime;
+        private final long size;
+        private final long lastModified;
+        private final String units;
+        private final double[] values;
+        // time values in seconds and the conversion they result from
+        private double[] seconds;
+        private String conversion;
+
+        private Axis(File path, String strTime, long size, long lastModified, String units, double[] values) {
+            this.path = path;
+            this.strTime = strTime;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.units = units;
+            this.values = values;
+        }
+
+        private boolean isValid(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+
+        /**
+         * Gets the number of time values.
+         */
+        public int length() {
+            return values.length;
+        }
+
+        /**
+         * Gets the time value as written in the file.
+         *
+         * @param index, the index of the time value
+         * @return the time value, in the units of the file
+         */
+        public double getValue(int index) {
+            return values[index];
+        }
+
+        /**
+         * Gets the time value converted in seconds since the reference date
+         * of Ichthyop.
+         *
+         * @param index, the index of the time value
+         * @return the time value in seconds
+         * @throws ArrayIndexOutOfBoundsException if the index is out of the
+         * time axis
+         */
+        public synchronized double getTime(int index) {
+
+            // the conversion depends on the calendar of the simulation and
+            // on the time origin when the file does not provide the units
+            String strUnits = (null != units) ? units : TimeManager.getInstance().getTimeOfOrigin();
+            String strConversion = TimeManager.getInstance().isNoLeapEnabled() + "|" + strUnits;
+            if (!strConversion.equals(conversion)) {
+                seconds = new double[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    seconds[i] = DatasetUtil.getDate(values[i], strUnits);
+                }
+                conversion = strConversion;
+            }
+            return seconds[index];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder str = new StringBuilder();
+            str.append(path.getName()).append('\t');
+            str.append(strTime).append('\t');
+            str.append(size).append('\t');
+            str.append(lastModified).append('\t');
+            str.append((null != units) ? units : "").append('\t');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    str.append(' ');
+                }
+                str.append(values[i]);
+            }
+            return str.toString();
+        }
+    }
+}
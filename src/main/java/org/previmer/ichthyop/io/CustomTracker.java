@@ -66,6 +66,6 @@ public class CustomTracker extends FloatTracker {
 
     @Override
     float getValue(IParticle particle) {
-        return getSimulationManager().getDataset().get(variableName, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime()).floatValue();
+        return (float) getSimulationManager().getDataset().getDouble(variableName, particle.getGridCoordinates(), getSimulationManager().getTimeManager().getTime());
     }
 }
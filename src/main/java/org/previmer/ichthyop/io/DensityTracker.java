@@ -1,10 +1,10 @@
 package org.previmer.ichthyop.io;
 
-import java.util.Iterator;
 
 import org.previmer.ichthyop.Population;
 import org.previmer.ichthyop.SimulationManagerAccessor;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleStore;
 
 import ucar.ma2.Array;
 import ucar.ma2.ArrayFloat;
@@ -91,23 +91,24 @@ public class DensityTracker extends SimulationManagerAccessor {
         int[][] density = new int[nLat][nLon];
 
         Population population = getSimulationManager().getSimulation().getPopulation();
-        Iterator<IParticle> iter = population.iterator();
-        IParticle particle;
-        while (iter.hasNext()) {
-            particle = iter.next();
-            if (particle.isLiving()) {
-                float lonPart = (float) particle.getLon();
-                float latPart = (float) particle.getLat();
-                // If particle is out of the density domain, nothing is done.
-                if ((lonPart >= lonMax) || (lonPart <= lonMin) || (latPart >= latMax) || (latPart <= latMin)) {
-                    continue;
+        ParticleStore store = population.getStore();
+        // dead particles are not counted, only the particles living at the
+        // last step or dead since the last record need to be checked
+        int nTrackable = population.getNbTrackable();
+        if (null != store) {
+            // scan the columns of the store
+            for (int i = 0; i < nTrackable; i++) {
+                int row = population.getTrackable(i);
+                if (store.isLiving(row)) {
+                    count(density, (float) store.getLon(row), (float) store.getLat(row));
                 }
-                int indexLon = (int) Math.floor(nLon * (lonPart - lonMin) / (lonMax - lonMin));
-                int indexLat = (int) Math.floor(nLat * (latPart - latMin) / (latMax - latMin));
-                try {
-                    density[indexLat][indexLon] += 1;
-                } catch (ArrayIndexOutOfBoundsException e) { 
-                    getLogger().warning("Index out of bound");
+            }
+        } else {
+            IParticle particle;
+            for (int i = 0; i < nTrackable; i++) {
+                particle = population.get(population.getTrackable(i));
+                if (particle.isLiving()) {
+                    count(density, (float) particle.getLon(), (float) particle.getLat());
                 }
             }
         }
@@ -124,6 +125,23 @@ public class DensityTracker extends SimulationManagerAccessor {
         return output;
     }
 
+    /**
+     * Increments the density of the cell that contains the particle.
+     */
+    private void count(int[][] density, float lonPart, float latPart) {
+        // If particle is out of the density domain, nothing is done.
+        if ((lonPart >= lonMax) || (lonPart <= lonMin) || (latPart >= latMax) || (latPart <= latMin)) {
+            return;
+        }
+        int indexLon = (int) Math.floor(nLon * (lonPart - lonMin) / (lonMax - lonMin));
+        int indexLat = (int) Math.floor(nLat * (latPart - latMin) / (latMax - latMin));
+        try {
+            density[indexLat][indexLon] += 1;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            getLogger().warning("Index out of bound");
+        }
+    }
+
     public int getNLon() {
         return this.nLon;
     }
@@ -45,6 +45,7 @@
 package org.previmer.ichthyop.io;
 
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleStore;
 
 /**
  *
@@ -56,4 +57,9 @@ public class DepthTracker extends FloatTracker {
     float getValue(IParticle particle) {
         return (float) particle.getDepth();
     }
+
+    @Override
+    float getValue(ParticleStore store, int row) {
+        return (float) store.getDepth(row);
+    }
 }
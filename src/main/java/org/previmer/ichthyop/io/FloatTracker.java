@@ -44,11 +44,13 @@
 
 package org.previmer.ichthyop.io;
 
-import java.util.Iterator;
+import org.previmer.ichthyop.Population;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleStore;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayFloat;
 import ucar.ma2.DataType;
+import ucar.ma2.Index;
 
 /**
  *
@@ -58,6 +60,19 @@ public abstract class FloatTracker extends AbstractTracker {
 
     abstract float getValue(IParticle particle);
 
+    /**
+     * Gets the value to be tracked for the particle stored at the given row
+     * of the columnar store. Trackers of attributes held by the store should
+     * override this method and read the column directly.
+     *
+     * @param store, the columnar store of the particles
+     * @param row, the row of the particle in the store
+     * @return the value to be tracked
+     */
+    float getValue(ParticleStore store, int row) {
+        return getValue(getSimulationManager().getSimulation().getPopulation().get(row));
+    }
+
     FloatTracker() {
         super(DataType.FLOAT);
     }
@@ -84,10 +99,22 @@ public abstract class FloatTracker extends AbstractTracker {
 
     @Override
     public void track() {
+        Population population = getSimulationManager().getSimulation().getPopulation();
+        ParticleStore store = population.getStore();
+        // the particles that died before the last record keep their value
+        int nTrackable = population.getNbTrackable();
+        if (null != store) {
+            // scan the columns of the store
+            Index index = getIndex();
+            for (int i = 0; i < nTrackable; i++) {
+                int row = population.getTrackable(i);
+                getArray().setFloat(index.set(0, store.getIndex(row)), getValue(store, row));
+            }
+            return;
+        }
         IParticle particle;
-        Iterator<IParticle> iter = getSimulationManager().getSimulation().getPopulation().iterator();
-        while (iter.hasNext()) {
-            particle = iter.next();
+        for (int i = 0; i < nTrackable; i++) {
+            particle = population.get(population.getTrackable(i));
             getArray().setFloat(getIndex().set(0, particle.getIndex()), getValue(particle));
         }
     }
@@ -44,8 +44,9 @@
 
 package org.previmer.ichthyop.io;
 
-import java.util.Iterator;
+import org.previmer.ichthyop.Population;
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleStore;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayInt;
 import ucar.ma2.DataType;
@@ -59,6 +60,19 @@ public abstract class IntegerTracker extends AbstractTracker {
 
     abstract int getValue(IParticle particle);
 
+    /**
+     * Gets the value to be tracked for the particle stored at the given row
+     * of the columnar store. Trackers of attributes held by the store should
+     * override this method and read the column directly.
+     *
+     * @param store, the columnar store of the particles
+     * @param row, the row of the particle in the store
+     * @return the value to be tracked
+     */
+    int getValue(ParticleStore store, int row) {
+        return getValue(getSimulationManager().getSimulation().getPopulation().get(row));
+    }
+
     IntegerTracker() {
         super(DataType.INT);
     }
@@ -82,10 +96,22 @@ public abstract class IntegerTracker extends AbstractTracker {
 
     @Override
     public void track() {
+        Population population = getSimulationManager().getSimulation().getPopulation();
+        ParticleStore store = population.getStore();
+        // the particles that died before the last record keep their value
+        int nTrackable = population.getNbTrackable();
+        if (null != store) {
+            // scan the columns of the store
+            Index index = getIndex();
+            for (int i = 0; i < nTrackable; i++) {
+                int row = population.getTrackable(i);
+                getArray().setInt(index.set(0, store.getIndex(row)), getValue(store, row));
+            }
+            return;
+        }
         IParticle particle;
-        Iterator<IParticle> iter = getSimulationManager().getSimulation().getPopulation().iterator();
-        while (iter.hasNext()) {
-            particle = iter.next();
+        for (int i = 0; i < nTrackable; i++) {
+            particle = population.get(population.getTrackable(i));
             getArray().setInt(getIndex().set(0, particle.getIndex()), getValue(particle));
         }
     }
@@ -45,6 +45,7 @@
 package org.previmer.ichthyop.io;
 
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleStore;
 
 /**
  *
@@ -56,4 +57,9 @@ public class LatTracker extends FloatTracker {
     float getValue(IParticle particle) {
         return (float) particle.getLat();
     }
+
+    @Override
+    float getValue(ParticleStore store, int row) {
+        return (float) store.getLat(row);
+    }
 }
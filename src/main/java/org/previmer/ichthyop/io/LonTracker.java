@@ -45,6 +45,7 @@
 package org.previmer.ichthyop.io;
 
 import org.previmer.ichthyop.particle.IParticle;
+import org.previmer.ichthyop.particle.ParticleStore;
 
 /**
  *
@@ -57,4 +58,10 @@ public class LonTracker extends FloatTracker {
         float lon = (float) particle.getLon();
         return lon > 180 ? lon - 360.f : lon;
     }
+
+    @Override
+    float getValue(ParticleStore store, int row) {
+        float lon = (float) store.getLon(row);
+        return lon > 180 ? lon - 360.f : lon;
+    }
 }
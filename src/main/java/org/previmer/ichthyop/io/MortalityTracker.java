@@ -46,6 +46,7 @@ package org.previmer.ichthyop.io;
 
 import org.previmer.ichthyop.particle.IParticle;
 import org.previmer.ichthyop.particle.ParticleMortality;
+import org.previmer.ichthyop.particle.ParticleStore;
 import ucar.nc2.Attribute;
 
 /**
@@ -65,4 +66,9 @@ public class MortalityTracker extends IntegerTracker {
     int getValue(IParticle particle) {
         return particle.getDeathCause().getCode();
     }
+
+    @Override
+    int getValue(ParticleStore store, int row) {
+        return store.getDeathCause(row).getCode();
+    }
 }
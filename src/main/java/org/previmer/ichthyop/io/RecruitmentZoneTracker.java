@@ -45,7 +45,7 @@
 package org.previmer.ichthyop.io;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import org.previmer.ichthyop.Population;
 import org.previmer.ichthyop.TypeZone;
 import org.previmer.ichthyop.Zone;
 import org.previmer.ichthyop.particle.IParticle;
@@ -82,9 +82,10 @@ public class RecruitmentZoneTracker extends AbstractTracker {
     public void track() {
         IParticle particle;
         RecruitableParticleLayer rparticle;
-        Iterator<IParticle> iter = getSimulationManager().getSimulation().getPopulation().iterator();
-        while (iter.hasNext()) {
-            particle = iter.next();
+        Population population = getSimulationManager().getSimulation().getPopulation();
+        // the particles that died before the last record keep their value
+        for (int i = 0; i < population.getNbTrackable(); i++) {
+            particle = population.get(population.getTrackable(i));
             rparticle = (RecruitableParticleLayer) particle.getLayer(RecruitableParticleLayer.class);
             Index index = getArray().getIndex();
             for (Zone zone : getZones()) {
@@ -44,8 +44,8 @@
 
 package org.previmer.ichthyop.io;
 
-import java.util.Iterator;
 import java.util.List;
+import org.previmer.ichthyop.Population;
 import org.previmer.ichthyop.TypeZone;
 import org.previmer.ichthyop.Zone;
 import org.previmer.ichthyop.particle.IParticle;
@@ -92,9 +92,10 @@ public class ZoneTracker extends AbstractTracker {
     public void track() {
         IParticle particle;
         ZoneParticleLayer zparticle;
-        Iterator<IParticle> iter = getSimulationManager().getSimulation().getPopulation().iterator();
-        while (iter.hasNext()) {
-            particle = iter.next();
+        Population population = getSimulationManager().getSimulation().getPopulation();
+        // the particles that died before the last record keep their value
+        for (int i = 0; i < population.getNbTrackable(); i++) {
+            particle = population.get(population.getTrackable(i));
             zparticle = (ZoneParticleLayer) particle.getLayer(ZoneParticleLayer.class);
             Index index = getArray().getIndex();
             for (TypeZone type : TypeZone.values()) {
@@ -57,10 +57,12 @@ import org.previmer.ichthyop.action.AbstractSysAction;
 import org.previmer.ichthyop.action.SysActionAgeMonitoring;
 import org.previmer.ichthyop.action.SysActionMove;
 import org.previmer.ichthyop.event.InitializeEvent;
+import org.previmer.ichthyop.event.LastStepListener;
 import org.previmer.ichthyop.event.SetupEvent;
 import org.previmer.ichthyop.io.BlockType;
 import org.previmer.ichthyop.io.XBlock;
-import org.previmer.ichthyop.particle.Particle;
+import org.previmer.ichthyop.particle.IMasterParticle;
+import org.previmer.ichthyop.particle.IParticle;
 
 /**
  *
@@ -68,12 +70,31 @@ import org.previmer.ichthyop.particle.Particle;
  */
 public class ActionManager extends AbstractManager {
 
-    final private static ActionManager actionManager = new ActionManager();
     private HashMap<String, AbstractAction> actionMap;
     private List<AbstractSysAction> sysActionList;
+    /**
+     * The user defined actions sorted by priority. Compiled once at setup
+     * since the priorities do not change during the simulation, empty
+     * before the setup.
+     */
+    private AbstractAction[] actions = new AbstractAction[0];
+    /**
+     * {@code skipLocked[i]} is true when {@code actions[i]} declared itself
+     * a no-op for locked particles.
+     */
+    private boolean[] skipLocked;
+    /**
+     * {@code skipDead[i]} is true when {@code actions[i]} declared itself a
+     * no-op for dead particles.
+     */
+    private boolean[] skipDead;
+    /**
+     * The system actions, in order of execution.
+     */
+    private AbstractSysAction[] sysActions;
 
     public static ActionManager getInstance() {
-        return actionManager;
+        return SimulationContext.current().getActionManager();
     }
 
     private void loadActions() throws InstantiationException {
@@ -128,9 +149,26 @@ public class ActionManager extends AbstractManager {
     }
 
     private List<AbstractAction> getSortedActions() {
-        List<AbstractAction> actions = new ArrayList<>(actionMap.values());
-        Collections.sort(actions, new ActionComparator());
-        return actions;
+        List<AbstractAction> sortedActions = new ArrayList<>(actionMap.values());
+        Collections.sort(sortedActions, new ActionComparator());
+        return sortedActions;
+    }
+
+    /**
+     * Builds the immutable per-step pipeline: the actions sorted by priority
+     * and the flags telling which actions can be skipped for locked or dead
+     * particles, so that the hot loop does neither sort nor look up
+     * parameters.
+     */
+    private void compilePipeline() {
+        actions = getSortedActions().toArray(new AbstractAction[0]);
+        skipLocked = new boolean[actions.length];
+        skipDead = new boolean[actions.length];
+        for (int i = 0; i < actions.length; i++) {
+            skipLocked[i] = actions[i].isNoOpWhenLocked();
+            skipDead[i] = actions[i].isNoOpWhenDead();
+        }
+        sysActions = sysActionList.toArray(new AbstractSysAction[0]);
     }
 
     public AbstractAction createAction(Class<?> actionClass) throws InstantiationException, IllegalAccessException,
@@ -138,23 +176,37 @@ public class ActionManager extends AbstractManager {
         return (AbstractAction) actionClass.getDeclaredConstructor().newInstance();
     }
 
-    public void executeActions(Particle particle) {
+    public void executeActions(IMasterParticle particle) {
         // Pre-defined actions
-        for (AbstractAction action : getSortedActions()) {
-            if (!particle.isLocked()) {
-                action.execute(particle);
+        for (int i = 0; i < actions.length; i++) {
+            // an action might lock or kill the particle, check every time
+            if ((skipLocked[i] && particle.isLocked()) || (skipDead[i] && !particle.isLiving())) {
+                continue;
             }
+            actions[i].execute(particle);
         }
 
         // System actions
-        for (AbstractSysAction sysaction : sysActionList) {
+        for (AbstractSysAction sysaction : sysActions) {
             sysaction.execute(particle);
         }
     }
 
-    public void initActions(Particle particle) {
+    /**
+     * Lets the actions prepare the step of a block of particles, see
+     * {@link AbstractAction#prepare(List)}.
+     *
+     * @param particles, the block of particles about to be stepped
+     */
+    public void prepareActions(List<IParticle> particles) {
+        for (AbstractAction action : actions) {
+            action.prepare(particles);
+        }
+    }
+
+    public void initActions(IMasterParticle particle) {
         // Pre-defined actions
-        for (AbstractAction action : getSortedActions()) {
+        for (AbstractAction action : actions) {
                 action.init(particle);
         }
     }
@@ -163,12 +215,18 @@ public class ActionManager extends AbstractManager {
     public void setupPerformed(SetupEvent e) throws Exception {
         loadActions();
         implementSysActions();
+        compilePipeline();
         getLogger().info("Action manager setup [OK]");
     }
 
     @Override
     public void initializePerformed(InitializeEvent e) {
-        // nothing to do
+        // the actions that report at the end of the simulation
+        for (AbstractAction action : actions) {
+            if (action instanceof LastStepListener) {
+                getSimulationManager().getTimeManager().addLastStepListener((LastStepListener) action);
+            }
+        }
     }
 
     public boolean isEnabled(String actionKey) {
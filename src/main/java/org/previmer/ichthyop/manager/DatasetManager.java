@@ -59,11 +59,10 @@ import java.util.List;
  */
 public class DatasetManager extends AbstractManager {
 
-    final private static DatasetManager datasetManager = new DatasetManager();
     private IDataset dataset;
 
     public static DatasetManager getInstance() {
-        return datasetManager;
+        return SimulationContext.current().getDatasetManager();
     }
 
     private void instantiateDataset() throws Exception {
@@ -114,7 +113,7 @@ public class DatasetManager extends AbstractManager {
     }
 
     public void initializePerformed(InitializeEvent e) throws Exception {
-        getSimulationManager().getTimeManager().addNextStepListener(getDataset());
+        getSimulationManager().getTimeManager().addNextStepListener(StepPhase.FIELD_UPDATE, getDataset());
         getDataset().init();
     }
 }
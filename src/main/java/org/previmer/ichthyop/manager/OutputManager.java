@@ -104,7 +104,6 @@ import ucar.nc2.Dimension;
  */
 public class OutputManager extends AbstractManager implements LastStepListener, NextStepListener {
 
-    final private static OutputManager outputManager = new OutputManager();
     private final static String block_key = "app.output";
     private int dt_record;
     private NCDimFactory dimensionFactory;
@@ -126,12 +125,12 @@ public class OutputManager extends AbstractManager implements LastStepListener,
     /**
      * Object for creating/writing netCDF files.
      */
-    private static NetcdfFormatWriter ncOut;
-    private static NetcdfFormatWriter.Builder bNcOut;
+    private NetcdfFormatWriter ncOut;
+    private NetcdfFormatWriter.Builder bNcOut;
 
     /** Object for creating/writting netCDF density files */
-    private static NetcdfFormatWriter densNcOut;
-    private static NetcdfFormatWriter.Builder bDensNcOut;
+    private NetcdfFormatWriter densNcOut;
+    private NetcdfFormatWriter.Builder bDensNcOut;
 
     private String trajectoryFileName;
     private String densityFileName;
@@ -147,7 +146,7 @@ public class OutputManager extends AbstractManager implements LastStepListener,
     private String basename;
 
     public static OutputManager getInstance() {
-        return outputManager;
+        return SimulationContext.current().getOutputManager();
     }
 
     public NCDimFactory getDimensionFactory() {
@@ -516,6 +515,9 @@ public class OutputManager extends AbstractManager implements LastStepListener,
 
         if (((long) (timeManager.getTime() - timeManager.get_tO()) % dt_record) == 0) {
 
+            // the frozen particles are not stepped, bring their age up to date
+            getSimulationManager().getSimulation().getPopulation().ageFrozen();
+
             if (this.isTrajectoryEnabled) {
                 writeToNetCDF(i_record);
             }
@@ -524,6 +526,8 @@ public class OutputManager extends AbstractManager implements LastStepListener,
                 writeDensToNetCDF(i_record);
             }
 
+            // the particles dead so far have been recorded in their final state
+            getSimulationManager().getSimulation().getPopulation().recorded();
             i_record++;
 
         }
@@ -899,7 +903,7 @@ public class OutputManager extends AbstractManager implements LastStepListener,
         }
 
         /* add listeners */
-        getSimulationManager().getTimeManager().addNextStepListener(this);
+        getSimulationManager().getTimeManager().addNextStepListener(StepPhase.OUTPUT, this);
         getSimulationManager().getTimeManager().addLastStepListener(this);
         getLogger().info("Output manager initialization [OK]");
 
@@ -66,11 +66,10 @@ import org.previmer.ichthyop.io.ConfigurationFile;
  */
 public class ParameterManager extends AbstractManager {
 
-    private static ParameterManager parameterManager = new ParameterManager();
     private ConfigurationFile cfgFile;
 
     public static ParameterManager getInstance() {
-        return parameterManager;
+        return SimulationContext.current().getParameterManager();
     }
 
     public void setConfigurationFile(File file) throws Exception {
@@ -66,7 +66,6 @@ import org.previmer.ichthyop.release.AbstractRelease;
  */
 public class ReleaseManager extends AbstractManager implements ReleaseListener, NextStepListener {
 
-    private static final ReleaseManager releaseManager = new ReleaseManager();
     private AbstractRelease releaseProcess;
     /**
      * Stores time of the release events
@@ -86,7 +85,7 @@ public class ReleaseManager extends AbstractManager implements ReleaseListener,
     private final EventListenerList listeners = new EventListenerList();
 
     public static ReleaseManager getInstance() {
-        return releaseManager;
+        return SimulationContext.current().getReleaseManager();
     }
 
     private void instantiateReleaseProcess() throws Exception {
@@ -274,6 +273,14 @@ public class ReleaseManager extends AbstractManager implements ReleaseListener,
         return timeEvent.length;
     }
 
+    /**
+     * @return {@code true} once every release event of the schedule has been
+     * triggered.
+     */
+    public boolean isAllReleased() {
+        return isAllReleased;
+    }
+
     /**
      * Release duration is defined as time elapsed between the begining of the
      * simulation and the last release event.
@@ -298,7 +305,7 @@ public class ReleaseManager extends AbstractManager implements ReleaseListener,
     @Override
     public void initializePerformed(InitializeEvent e) throws Exception {
         addReleaseListener(this);
-        getSimulationManager().getTimeManager().addNextStepListener(this);
+        getSimulationManager().getTimeManager().addNextStepListener(StepPhase.RELEASE, this);
         schedule();
         getLogger().info("Release manager initialization [OK]");
     }
@@ -0,0 +1,176 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.manager;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import org.previmer.ichthyop.Population;
+import org.previmer.ichthyop.Simulation;
+
+/**
+ * The set of managers of one simulation. The {@code getInstance()} methods of
+ * the managers, of the {@link Simulation} and of the {@link Population} return
+ * the instance of the context bound to the calling thread, so that several
+ * simulations can run concurrently in the same JVM, each in its own threads.
+ * The threads that are not bound to any context (the graphical user interface
+ * or a single batch run) share the default context. The context is inherited
+ * by the threads created from a bound thread.
+ *
+ * <p>
+ * The managers are created lazily, at first request, as they were when they
+ * were static singletons, since the order of creation determines the order
+ * of the setup and initialization events.
+ * </p>
+ *
+ * @author pverley
+ */
+public class SimulationContext {
+
+    private static final SimulationContext DEFAULT_CONTEXT = new SimulationContext();
+    private static final InheritableThreadLocal<SimulationContext> CURRENT = new InheritableThreadLocal<SimulationContext>() {
+        @Override
+        protected SimulationContext initialValue() {
+            return DEFAULT_CONTEXT;
+        }
+    };
+
+    private static final int SIMULATION_MANAGER = 0;
+    private static final int PARAMETER_MANAGER = 1;
+    private static final int DATASET_MANAGER = 2;
+    private static final int RELEASE_MANAGER = 3;
+    private static final int TIME_MANAGER = 4;
+    private static final int ACTION_MANAGER = 5;
+    private static final int ZONE_MANAGER = 6;
+    private static final int OUTPUT_MANAGER = 7;
+    private static final int UPDATE_MANAGER = 8;
+    private static final int SIMULATION = 9;
+    private static final int POPULATION = 10;
+
+    private final AtomicReferenceArray<Object> instances = new AtomicReferenceArray<>(11);
+
+    /**
+     * Gets the context bound to the calling thread.
+     *
+     * @return the context of the calling thread, the default context if the
+     * thread has not been bound to any context.
+     */
+    public static SimulationContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the calling thread, and the threads it will create, to this
+     * context.
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Binds the calling thread back to the default context.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(int slot, Supplier<T> factory) {
+        Object instance = instances.get(slot);
+        if (null == instance) {
+            synchronized (this) {
+                instance = instances.get(slot);
+                if (null == instance) {
+                    instance = factory.get();
+                    instances.set(slot, instance);
+                }
+            }
+        }
+        return (T) instance;
+    }
+
+    public SimulationManager getSimulationManager() {
+        return get(SIMULATION_MANAGER, SimulationManager::new);
+    }
+
+    public ParameterManager getParameterManager() {
+        return get(PARAMETER_MANAGER, ParameterManager::new);
+    }
+
+    public DatasetManager getDatasetManager() {
+        return get(DATASET_MANAGER, DatasetManager::new);
+    }
+
+    public ReleaseManager getReleaseManager() {
+        return get(RELEASE_MANAGER, ReleaseManager::new);
+    }
+
+    public TimeManager getTimeManager() {
+        return get(TIME_MANAGER, TimeManager::new);
+    }
+
+    public ActionManager getActionManager() {
+        return get(ACTION_MANAGER, ActionManager::new);
+    }
+
+    public ZoneManager getZoneManager() {
+        return get(ZONE_MANAGER, ZoneManager::new);
+    }
+
+    public OutputManager getOutputManager() {
+        return get(OUTPUT_MANAGER, OutputManager::new);
+    }
+
+    public UpdateManager getUpdateManager() {
+        return get(UPDATE_MANAGER, UpdateManager::new);
+    }
+
+    public Simulation getSimulation() {
+        return get(SIMULATION, Simulation::new);
+    }
+
+    public Population getPopulation() {
+        return get(POPULATION, Population::new);
+    }
+}
@@ -76,7 +76,6 @@ public class SimulationManager {
     /** True if the preview must be reset or not */
     private boolean resetPreview;
 
-    final private static SimulationManager simulationManager = new SimulationManager();
     /**
      * Index of the current simulation (always 0 for SINGLE mode)
      */
@@ -111,10 +110,6 @@ public class SimulationManager {
      * The id of the current simulation ichthyop-run_yyyyMMddHHmm
      */
     private String id;
-    /**
-     * The date format used for generating the id of the simulation
-     */
-    private static final SimpleDateFormat dtformatterId = new SimpleDateFormat("yyyyMMddHHmm");
     /*
      * The simulation logger that should be used by all the classes that
      * are allowed to dialog with the SimulationManager
@@ -140,7 +135,7 @@ public class SimulationManager {
      * @return
      */
     public static SimulationManager getInstance() {
-        return simulationManager;
+        return SimulationContext.current().getSimulationManager();
     }
 
     public static Logger getLogger() {
@@ -227,10 +222,22 @@ public class SimulationManager {
         i_simulation = 0;
     }
 
-    private static String newId() {
+    /**
+     * Sets the base id of the run. Concurrent simulations of the same
+     * configuration file share the base id, so that their output files only
+     * differ by the "_s" suffix of the set of parameters.
+     *
+     * @param id, the base id of the run
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public static String newId() {
         StringBuilder strBfRunId = new StringBuilder("ichthyop-run");
         Calendar calendar = new GregorianCalendar();
         calendar.setTimeInMillis(System.currentTimeMillis());
+        SimpleDateFormat dtformatterId = new SimpleDateFormat("yyyyMMddHHmm");
         dtformatterId.setCalendar(calendar);
         strBfRunId.append(dtformatterId.format(calendar.getTime()));
         return strBfRunId.toString();
@@ -266,6 +273,30 @@ public class SimulationManager {
         return false;
     }
 
+    /**
+     * Selects the set of parameters of the given index, following the same
+     * order as {@link #hasNextSimulation()}: the first SERIAL parameter
+     * varies fastest.
+     *
+     * @param index, the index of the set of parameters, from 0 to
+     * {@link #getNumberOfSimulations()} - 1
+     */
+    public void selectSimulation(int index) {
+
+        if (index < 0 || index >= nb_simulations) {
+            throw new IndexOutOfBoundsException("Simulation index " + index + " out of range [0, " + nb_simulations + "[");
+        }
+        int remainder = index;
+        for (XParameter xparam : getParameterManager().getParameters(ParamType.SERIAL)) {
+            xparam.reset();
+            for (int i = remainder % xparam.getLength(); i > 0; i--) {
+                xparam.increment();
+            }
+            remainder /= xparam.getLength();
+        }
+        i_simulation = index;
+    }
+
     /**
      * Gets the number of simulations (which equals the number of sets of
      * parameters predefined by the user). Returns 1 for SINGLE mode.
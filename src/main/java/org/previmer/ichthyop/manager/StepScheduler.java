@@ -0,0 +1,188 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.manager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import org.previmer.ichthyop.event.NextStepEvent;
+import org.previmer.ichthyop.event.NextStepListener;
+
+/**
+ * Runs the listeners of the time step phase by phase. Within a phase the
+ * listeners are called in their order of registration. The scheduler keeps
+ * the time spent in every phase and notifies the optional
+ * {@link PhaseListener} after each phase, which is the place for measuring
+ * or overlapping the phases.
+ *
+ * @author pverley
+ */
+public class StepScheduler {
+
+    private final EnumMap<StepPhase, NextStepListener[]> phases = new EnumMap<>(StepPhase.class);
+    private final long[] elapsed = new long[StepPhase.values().length];
+    private final List<PhaseListener> phaseListeners = new ArrayList<>();
+
+    public StepScheduler() {
+        clear();
+    }
+
+    /**
+     * Adds the listener at the end of the given phase.
+     *
+     * @param phase, the phase of the step
+     * @param listener, the listener
+     */
+    public synchronized void add(StepPhase phase, NextStepListener listener) {
+        NextStepListener[] listeners = phases.get(phase);
+        NextStepListener[] copy = new NextStepListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, copy, 0, listeners.length);
+        copy[listeners.length] = listener;
+        phases.put(phase, copy);
+    }
+
+    /**
+     * Removes the listener from every phase.
+     *
+     * @param listener, the listener
+     */
+    public synchronized void remove(NextStepListener listener) {
+        for (StepPhase phase : StepPhase.values()) {
+            List<NextStepListener> listeners = new ArrayList<>();
+            for (NextStepListener other : phases.get(phase)) {
+                if (other != listener) {
+                    listeners.add(other);
+                }
+            }
+            phases.put(phase, listeners.toArray(new NextStepListener[listeners.size()]));
+        }
+    }
+
+    /**
+     * Removes every listener and resets the timers.
+     */
+    public synchronized void clear() {
+        for (StepPhase phase : StepPhase.values()) {
+            phases.put(phase, new NextStepListener[0]);
+            elapsed[phase.ordinal()] = 0L;
+        }
+    }
+
+    public synchronized void addPhaseListener(PhaseListener listener) {
+        phaseListeners.add(listener);
+    }
+
+    public synchronized void removePhaseListener(PhaseListener listener) {
+        phaseListeners.remove(listener);
+    }
+
+    /**
+     * Runs the listeners of the given phase, in their order of registration.
+     *
+     * @param phase, the phase of the step
+     * @param event, the event shared by all the listeners of the step
+     * @throws Exception if a listener fails
+     */
+    public void run(StepPhase phase, NextStepEvent event) throws Exception {
+
+        NextStepListener[] listeners;
+        PhaseListener[] hooks;
+        synchronized (this) {
+            listeners = phases.get(phase);
+            hooks = phaseListeners.toArray(new PhaseListener[phaseListeners.size()]);
+        }
+        long start = System.nanoTime();
+        for (NextStepListener listener : listeners) {
+            listener.nextStepTriggered(event);
+        }
+        long duration = System.nanoTime() - start;
+        elapsed[phase.ordinal()] += duration;
+        for (PhaseListener hook : hooks) {
+            hook.phaseCompleted(phase, event, duration);
+        }
+    }
+
+    /**
+     * Gets the time spent in the phase since the last {@link #clear()}.
+     *
+     * @param phase, the phase of the step
+     * @return the elapsed time [nanosecond]
+     */
+    public long getElapsed(StepPhase phase) {
+        return elapsed[phase.ordinal()];
+    }
+
+    /**
+     * Summarizes the time spent in every phase.
+     *
+     * @return the elapsed time of the phases, in seconds
+     */
+    public String elapsedToString() {
+        StringBuilder str = new StringBuilder();
+        for (StepPhase phase : StepPhase.values()) {
+            if (str.length() > 0) {
+                str.append(", ");
+            }
+            str.append(phase.toString());
+            str.append(' ');
+            str.append(String.format("%.2f", getElapsed(phase) * 1.e-9));
+            str.append("s");
+        }
+        return str.toString();
+    }
+
+    /**
+     * Notified after each phase of the step.
+     */
+    public interface PhaseListener {
+
+        /**
+         * @param phase, the completed phase
+         * @param event, the event of the step
+         * @param duration, the time spent in the phase [nanosecond]
+         */
+        void phaseCompleted(StepPhase phase, NextStepEvent event, long duration);
+    }
+}
@@ -50,6 +50,7 @@ import java.text.ParseException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.logging.Level;
 
 import javax.swing.event.EventListenerList;
 
@@ -87,7 +88,6 @@ public class TimeManager extends AbstractManager {
 ///////////////////////////////
 // Declaration of the variables
 ///////////////////////////////
-    private final static TimeManager timeManager = new TimeManager();
     /**
      * Current time of the simulation [second]
      */
@@ -126,6 +126,10 @@ public class TimeManager extends AbstractManager {
     //  */
     // private SimpleDateFormat outputDateFormat;
     private final EventListenerList listeners = new EventListenerList();
+    /**
+     * Runs the next step listeners phase by phase.
+     */
+    private final StepScheduler scheduler = new StepScheduler();
 
     private boolean noLeapCalendarEnabled;
 
@@ -147,7 +151,7 @@ public class TimeManager extends AbstractManager {
 // Definition of the methods
 ////////////////////////////
     public static TimeManager getInstance() {
-        return timeManager;
+        return SimulationContext.current().getTimeManager();
     }
 
     /** Method for getting the time in seconds since reference date for gregorian
@@ -179,6 +183,16 @@ public class TimeManager extends AbstractManager {
         fireNextStepTriggered();
     }
 
+    /**
+     * Runs the {@link StepPhase#PARTICLE_STEP} phase, that moves the particles
+     * from the current time to the next one.
+     *
+     * @throws Exception if a listener of the phase fails
+     */
+    public void particleStepTriggered() throws Exception {
+        scheduler.run(StepPhase.PARTICLE_STEP, new NextStepEvent(this, getSimulationManager().isStopped()));
+    }
+
     public String getTimeOfOrigin() {
         String output = getParameter("time_origin");
         return output;
@@ -375,8 +389,24 @@ public class TimeManager extends AbstractManager {
         return transportDuration;
     }
 
+    /**
+     * Adds the listener at the end of the {@link StepPhase#OUTPUT} phase, the
+     * last phase before the step of the particles.
+     *
+     * @param listener, the listener
+     */
     public void addNextStepListener(NextStepListener listener) {
-        listeners.add(NextStepListener.class, listener);
+        addNextStepListener(StepPhase.OUTPUT, listener);
+    }
+
+    /**
+     * Adds the listener at the end of the given phase of the step.
+     *
+     * @param phase, the phase of the step
+     * @param listener, the listener
+     */
+    public void addNextStepListener(StepPhase phase, NextStepListener listener) {
+        scheduler.add(phase, listener);
     }
 
     /**
@@ -385,16 +415,11 @@ public class TimeManager extends AbstractManager {
      * @param listener the ValueListener
      */
     public void removeNextListenerListener(NextStepListener listener) {
-        listeners.remove(NextStepListener.class, listener);
+        scheduler.remove(listener);
     }
 
-    private void cleanNextStepListener() {
-        NextStepListener[] listenerList = (NextStepListener[]) listeners.getListeners(
-                NextStepListener.class);
-
-        for (NextStepListener listener : listenerList) {
-            removeNextListenerListener(listener);
-        }
+    public StepScheduler getScheduler() {
+        return scheduler;
     }
 
     public void addLastStepListener(LastStepListener listener) {
@@ -422,15 +447,14 @@ public class TimeManager extends AbstractManager {
     private void fireNextStepTriggered() throws Exception {
 
         //Logger.getAnonymousLogger().info("-----< " + timeManager.timeToString() + " >-----");
-        NextStepListener[] listenerList = (NextStepListener[]) listeners.getListeners(NextStepListener.class);
-
-        for (int i = listenerList.length; i-- > 0;) {
-            NextStepListener listener = listenerList[i];
-            listener.nextStepTriggered(new NextStepEvent(this, getSimulationManager().isStopped()));
-        }
+        NextStepEvent event = new NextStepEvent(this, getSimulationManager().isStopped());
+        scheduler.run(StepPhase.FIELD_UPDATE, event);
+        scheduler.run(StepPhase.RELEASE, event);
+        scheduler.run(StepPhase.OUTPUT, event);
     }
 
     public void lastStepTriggered() {
+        getLogger().log(Level.INFO, "Time per phase: {0}", scheduler.elapsedToString());
         fireLastStepTriggered();
     }
 
@@ -445,7 +469,7 @@ public class TimeManager extends AbstractManager {
 
     @Override
     public void setupPerformed(SetupEvent e) throws Exception {
-        cleanNextStepListener();
+        scheduler.clear();
         cleanLastStepListener();
         loadParameters();
         getLogger().info("Time manager setup [OK]");
@@ -457,6 +481,7 @@ public class TimeManager extends AbstractManager {
         i_step = 0;
         time = t0;
         nb_steps = (int) Math.abs(simuDuration / dt);
+        addNextStepListener(StepPhase.PARTICLE_STEP, event -> getSimulationManager().getSimulation().getPopulation().step());
         getLogger().info("Time manager initialization [OK]");
     }
 
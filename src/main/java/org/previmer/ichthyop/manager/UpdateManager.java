@@ -65,10 +65,9 @@ import org.previmer.ichthyop.io.XParameter;
  */
 public class UpdateManager extends AbstractManager {
 
-    private static final UpdateManager UPDATE_MANAGER = new UpdateManager();
 
     public static UpdateManager getInstance() {
-        return UPDATE_MANAGER;
+        return SimulationContext.current().getUpdateManager();
     }
 
     /*
@@ -64,14 +64,13 @@ import org.previmer.ichthyop.io.ZoneFile;
  */
 public class ZoneManager extends AbstractManager {
 
-    private static final ZoneManager ZONE_MANAGER = new ZoneManager();
     private final HashMap<TypeZone, ArrayList<Zone>> map;
 
     public static ZoneManager getInstance() {
-        return ZONE_MANAGER;
+        return SimulationContext.current().getZoneManager();
     }
 
-    private ZoneManager() {
+    ZoneManager() {
         super();
         map = new HashMap<>();
     }
@@ -155,6 +155,23 @@ public interface IParticle {
 
     public double[] getGridCoordinates();
 
+    /**
+     * Copies the grid coordinates of the particle into the given buffer,
+     * without allocating a new array.
+     *
+     * @param pGrid a double[] of length 3 if the particle is 3D, 2 otherwise,
+     * filled with the (x, y[, z]) grid coordinates of the particle.
+     * @return the buffer
+     */
+    public double[] getGridCoordinates(double[] pGrid);
+
+    /**
+     * Checks whether the particle moves in 3D or only in 2D.
+     *
+     * @return <code>true</code> if the particle has a z grid coordinate.
+     */
+    public boolean is3D();
+
     public void increment(double[] move);
 
     public void increment(double[] move, boolean exclusivityH, boolean exclusivityV);
@@ -44,54 +44,38 @@
 
 package org.previmer.ichthyop.particle;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Arrays;
 import org.previmer.ichthyop.*;
 
 /**
  *
  * @author pverley
  */
-public class Particle extends GridPoint implements IParticle {
+public class Particle extends GridPoint implements IMasterParticle {
 
     private int index;
     private long age = 0;
     private ParticleMortality deathCause;
     private boolean living = true;
     private boolean locked = false;
-    private final List<ParticleLayer> layers = new ArrayList<>();
+    /**
+     * The layers of the particle, indexed by their slot in the
+     * {@link ParticleLayerRegistry}.
+     */
+    private ParticleLayer[] layers = new ParticleLayer[0];
     private double oldLon;
     private double oldLat;
 
     @Override
     public ParticleLayer getLayer(Class<?> layerClass) {
-        for (ParticleLayer layer : layers) {
-            if (layer.getClass().getCanonicalName().equals(layerClass.getCanonicalName())) {
-                return layer;
-            }
+        int slot = ParticleLayerRegistry.slot(layerClass);
+        if (slot >= layers.length) {
+            layers = Arrays.copyOf(layers, ParticleLayerRegistry.size());
         }
-        try {
-            ParticleLayer layer = (ParticleLayer) layerClass.getConstructor(IParticle.class).newInstance(this);
-            layer.init();
-            layers.add(layer);
-            return layer;
-        } catch (InstantiationException ex) {
-            Logger.getLogger(Particle.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IllegalAccessException ex) {
-            Logger.getLogger(Particle.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IllegalArgumentException ex) {
-            Logger.getLogger(Particle.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (InvocationTargetException ex) {
-            Logger.getLogger(Particle.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (NoSuchMethodException ex) {
-            Logger.getLogger(Particle.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (SecurityException ex) {
-            Logger.getLogger(Particle.class.getName()).log(Level.SEVERE, null, ex);
+        if (null == layers[slot]) {
+            layers[slot] = ParticleLayerRegistry.create(slot, this);
         }
-        return null;
+        return layers[slot];
     }
 
     @Override
@@ -113,10 +97,16 @@ public class Particle extends GridPoint implements IParticle {
         return age;
     }
 
+    @Override
     public void incrementAge() {
         age += Math.abs(getSimulationManager().getTimeManager().get_dt());
     }
 
+    @Override
+    public void incrementAge(long duration) {
+        age += duration;
+    }
+
     @Override
     public void kill(ParticleMortality cause) {
 
@@ -0,0 +1,182 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.particle;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Registry of the particle layers. Every {@link ParticleLayer} subclass is
+ * given an integer slot, so that a particle stores its layers in a fixed
+ * array and retrieves a layer with a single array access. The layers
+ * provided with Ichthyop are registered with a precompiled factory; any other
+ * layer is registered the first time it is requested, with a factory that
+ * wraps its {@code (IParticle)} constructor, looked up only once.
+ *
+ * @author pverley
+ */
+public class ParticleLayerRegistry {
+
+    /**
+     * The factories, indexed by slot.
+     */
+    private static final List<Function<IParticle, ParticleLayer>> factories = new ArrayList<>();
+    /**
+     * The precompiled factories, by layer class. They are used when the slot
+     * of the layer is assigned.
+     */
+    private static final Map<Class<?>, Function<IParticle, ParticleLayer>> precompiled = new HashMap<>();
+    /**
+     * Per class cache of the slot.
+     */
+    private static final ClassValue<Integer> slots = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> layerClass) {
+            return assignSlot(layerClass);
+        }
+    };
+
+    static {
+        register(BitParticleLayer.class, BitParticleLayer::new);
+        register(DebParticleLayer.class, DebParticleLayer::new);
+        register(LengthParticleLayer.class, LengthParticleLayer::new);
+        register(RecruitableParticleLayer.class, RecruitableParticleLayer::new);
+        register(SoleParticleLayer.class, SoleParticleLayer::new);
+        register(StageParticleLayer.class, StageParticleLayer::new);
+        register(SubstepParticleLayer.class, SubstepParticleLayer::new);
+        register(ZoneParticleLayer.class, ZoneParticleLayer::new);
+    }
+
+    private ParticleLayerRegistry() {
+        // static registry
+    }
+
+    /**
+     * Registers a precompiled factory for the layer and assigns it a slot.
+     *
+     * @param layerClass, the class of the layer
+     * @param factory, creates a new layer linked to the given particle
+     * @return the slot of the layer
+     */
+    public static int register(Class<? extends ParticleLayer> layerClass, Function<IParticle, ParticleLayer> factory) {
+        synchronized (ParticleLayerRegistry.class) {
+            precompiled.putIfAbsent(layerClass, factory);
+        }
+        return slots.get(layerClass);
+    }
+
+    private static synchronized int assignSlot(Class<?> layerClass) {
+        Function<IParticle, ParticleLayer> factory = precompiled.get(layerClass);
+        if (null == factory) {
+            factory = reflectiveFactory(layerClass);
+        }
+        factories.add(factory);
+        return factories.size() - 1;
+    }
+
+    /**
+     * Creates a factory that wraps the {@code (IParticle)} constructor of the
+     * layer. The constructor is looked up once.
+     */
+    private static Function<IParticle, ParticleLayer> reflectiveFactory(Class<?> layerClass) {
+        if (!ParticleLayer.class.isAssignableFrom(layerClass)) {
+            throw new IllegalArgumentException(layerClass.getCanonicalName() + " is not a particle layer");
+        }
+        final Constructor<?> constructor;
+        try {
+            constructor = layerClass.getConstructor(IParticle.class);
+        } catch (NoSuchMethodException | SecurityException ex) {
+            throw new IllegalArgumentException("Particle layer " + layerClass.getCanonicalName() + " must provide a public constructor with an IParticle argument", ex);
+        }
+        return (IParticle particle) -> {
+            try {
+                return (ParticleLayer) constructor.newInstance(particle);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Failed to create particle layer " + layerClass.getCanonicalName(), ex);
+            }
+        };
+    }
+
+    /**
+     * Gets the slot of the layer class, registering the layer if need be.
+     *
+     * @param layerClass, the class of the layer
+     * @return the slot of the layer
+     */
+    public static int slot(Class<?> layerClass) {
+        return slots.get(layerClass);
+    }
+
+    /**
+     * Gets the number of registered layers, which is the size of the layer
+     * array of a particle.
+     *
+     * @return the number of registered layers
+     */
+    public static synchronized int size() {
+        return factories.size();
+    }
+
+    /**
+     * Creates and initializes a new layer for the particle.
+     *
+     * @param slot, the slot of the layer
+     * @param particle, the particle the layer is linked to
+     * @return the new layer
+     */
+    static ParticleLayer create(int slot, IParticle particle) {
+        Function<IParticle, ParticleLayer> factory;
+        synchronized (ParticleLayerRegistry.class) {
+            factory = factories.get(slot);
+        }
+        ParticleLayer layer = factory.apply(particle);
+        layer.init();
+        return layer;
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.particle;
+
+import java.util.Arrays;
+import org.previmer.ichthyop.SimulationManagerAccessor;
+import static org.previmer.ichthyop.particle.ParticleStore.*;
+
+/**
+ * Lightweight view over a row of the {@link ParticleStore}. It behaves
+ * exactly as a {@link Particle} but reads and writes its state in the columns
+ * of the store. Only the particle layers are held by the view itself.
+ *
+ * @author pverley
+ */
+public class ParticleRow extends SimulationManagerAccessor implements IMasterParticle {
+
+    private final ParticleStore store;
+    private final int row;
+    /**
+     * The layers of the particle, indexed by their slot in the
+     * {@link ParticleLayerRegistry}.
+     */
+    private ParticleLayer[] layers = new ParticleLayer[0];
+
+    ParticleRow(ParticleStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Gets the row of the particle in the store.
+     *
+     * @return the row of the particle
+     */
+    public int getRow() {
+        return row;
+    }
+
+    private boolean hasStatus(byte bit) {
+        return (store.status[row] & bit) != 0;
+    }
+
+    private void setStatus(byte bit, boolean value) {
+        store.status[row] = (byte) (value
+                ? store.status[row] | bit
+                : store.status[row] & ~bit);
+    }
+
+    private boolean hasChanged(byte bit) {
+        return (store.changes[row] & bit) != 0;
+    }
+
+    private void setChanged(byte bit, boolean value) {
+        store.changes[row] = (byte) (value
+                ? store.changes[row] | bit
+                : store.changes[row] & ~bit);
+    }
+
+    @Override
+    public ParticleLayer getLayer(Class<?> layerClass) {
+        int slot = ParticleLayerRegistry.slot(layerClass);
+        if (slot >= layers.length) {
+            layers = Arrays.copyOf(layers, ParticleLayerRegistry.size());
+        }
+        if (null == layers[slot]) {
+            layers[slot] = ParticleLayerRegistry.create(slot, this);
+        }
+        return layers[slot];
+    }
+
+    @Override
+    public double getX() {
+        return store.x[row];
+    }
+
+    @Override
+    public double getY() {
+        return store.y[row];
+    }
+
+    @Override
+    public double getZ() {
+        return store.z[row];
+    }
+
+    @Override
+    public double getLon() {
+        return store.lon[row];
+    }
+
+    @Override
+    public double getLat() {
+        return store.lat[row];
+    }
+
+    @Override
+    public double getDepth() {
+        return store.depth[row];
+    }
+
+    @Override
+    public double getOldLat() {
+        return store.oldLat[row];
+    }
+
+    @Override
+    public double getOldLon() {
+        return store.oldLon[row];
+    }
+
+    @Override
+    public void setOldLat(double oldLat) {
+        store.oldLat[row] = oldLat;
+    }
+
+    @Override
+    public void setOldLon(double oldLon) {
+        store.oldLon[row] = oldLon;
+    }
+
+    @Override
+    public boolean isLiving() {
+        return hasStatus(LIVING);
+    }
+
+    @Override
+    public int getIndex() {
+        return store.index[row];
+    }
+
+    @Override
+    public long getAge() {
+        return store.age[row];
+    }
+
+    @Override
+    public void incrementAge() {
+        store.age[row] += Math.abs(getSimulationManager().getTimeManager().get_dt());
+    }
+
+    @Override
+    public void incrementAge(long duration) {
+        store.age[row] += duration;
+    }
+
+    @Override
+    public void kill(ParticleMortality cause) {
+        // the first action to kill the particle sets the death cause
+        if (!isLiving()) {
+            return;
+        }
+        store.deathCause[row] = (byte) cause.getCode();
+        setStatus(LIVING, false);
+    }
+
+    @Override
+    public ParticleMortality getDeathCause() {
+        return store.getDeathCause(row);
+    }
+
+    @Override
+    public boolean isLocked() {
+        return hasStatus(LOCKED);
+    }
+
+    @Override
+    public void lock() {
+        setStatus(LOCKED, true);
+    }
+
+    @Override
+    public void unlock() {
+        setStatus(LOCKED, false);
+    }
+
+    @Override
+    public boolean is3D() {
+        return hasStatus(IS3D);
+    }
+
+    @Override
+    public double[] getGridCoordinates() {
+        return is3D()
+                ? new double[]{store.x[row], store.y[row], store.z[row]}
+                : new double[]{store.x[row], store.y[row]};
+    }
+
+    @Override
+    public double[] getGridCoordinates(double[] pGrid) {
+        pGrid[0] = store.x[row];
+        pGrid[1] = store.y[row];
+        if (is3D()) {
+            pGrid[2] = store.z[row];
+        }
+        return pGrid;
+    }
+
+    @Override
+    public double[] getMove() {
+        return is3D()
+                ? new double[]{store.dx[row], store.dy[row], store.dz[row]}
+                : new double[]{store.dx[row], store.dy[row]};
+    }
+
+    @Override
+    public void increment(double[] move) {
+        increment(move, false, false);
+    }
+
+    @Override
+    public void increment(double[] move, boolean exclusivityH, boolean exclusivityV) {
+
+        if (hasStatus(EXCLUSIVITY_H) & exclusivityH) {
+            throw new UnsupportedOperationException("Two actions are requesting exclusivity on horizontal transport");
+        }
+        if (!hasStatus(EXCLUSIVITY_H)) {
+            if (exclusivityH) {
+                store.dx[row] = move[0];
+                store.dy[row] = move[1];
+                setStatus(EXCLUSIVITY_H, true);
+            } else {
+                store.dx[row] += move[0];
+                store.dy[row] += move[1];
+            }
+        }
+
+        if (hasStatus(EXCLUSIVITY_V) & exclusivityV) {
+            throw new UnsupportedOperationException("Two actions are requesting exclusivity on vertical transport");
+        }
+        if (!hasStatus(EXCLUSIVITY_V)) {
+            if (move.length > 2) {
+                if (exclusivityV) {
+                    store.dz[row] = move[2];
+                    setStatus(EXCLUSIVITY_V, true);
+                } else {
+                    store.dz[row] += move[2];
+                }
+            }
+        }
+    }
+
+    @Override
+    public void applyMove() {
+
+        setX(store.x[row] + store.dx[row]);
+        store.dx[row] = 0.d;
+        setY(store.y[row] + store.dy[row]);
+        store.dy[row] = 0.d;
+        if (is3D()) {
+            setZ(store.z[row] + store.dz[row]);
+            store.dz[row] = 0.d;
+        }
+        setStatus(EXCLUSIVITY_H, false);
+        setStatus(EXCLUSIVITY_V, false);
+    }
+
+    private void setX(double x) {
+        if (store.x[row] != x) {
+            store.x[row] = getSimulationManager().getDataset().xTore(x);
+            setChanged(XY_CHANGED, true);
+        }
+    }
+
+    private void setY(double y) {
+        if (store.y[row] != y) {
+            store.y[row] = getSimulationManager().getDataset().yTore(y);
+            setChanged(XY_CHANGED, true);
+        }
+    }
+
+    private void setZ(double z) {
+        if (store.z[row] != z) {
+            int nz = getSimulationManager().getDataset().get_nz();
+            store.z[row] = Math.max(Math.min(nz - 1, z), 0.f);
+            setChanged(Z_CHANGED, true);
+        }
+    }
+
+    @Override
+    public void geo2Grid() {
+
+        if (hasChanged(LATLON_CHANGED)) {
+            double[] pGrid = getSimulationManager().getDataset().latlon2xy(store.lat[row], store.lon[row]);
+            store.x[row] = pGrid[0];
+            store.y[row] = pGrid[1];
+            setChanged(LATLON_CHANGED, false);
+        }
+        if (is3D() && hasChanged(DEPTH_CHANGED)) {
+            store.z[row] = getSimulationManager().getDataset().depth2z(store.x[row], store.y[row], store.depth[row]);
+            setChanged(DEPTH_CHANGED, false);
+        }
+    }
+
+    @Override
+    public void grid2Geo() {
+
+        if (hasChanged(XY_CHANGED)) {
+            double[] pGeog = getSimulationManager().getDataset().xy2latlon(store.x[row], store.y[row]);
+            store.lat[row] = pGeog[0];
+            store.lon[row] = pGeog[1];
+            setChanged(XY_CHANGED, false);
+        }
+        if (is3D() && hasChanged(Z_CHANGED)) {
+            store.depth[row] = getSimulationManager().getDataset().z2depth(store.x[row], store.y[row], store.z[row]);
+            setChanged(Z_CHANGED, false);
+        }
+    }
+
+    @Override
+    public boolean isInWater() {
+        return getSimulationManager().getDataset().isInWater(getGridCoordinates());
+    }
+
+    @Override
+    public boolean isOnEdge() {
+        return getSimulationManager().getDataset().isOnEdge(getGridCoordinates());
+    }
+
+    @Override
+    public void init() {
+        getSimulationManager().getActionManager().initActions(this);
+    }
+
+    @Override
+    public void step() {
+        getSimulationManager().getActionManager().executeActions(this);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.particle;
+
+import java.util.Arrays;
+
+/**
+ * Columnar (structure of arrays) storage of the particles. Each particle
+ * attribute is stored in a primitive array, one row per particle, in the
+ * order the particles have been added to the population. The particles are
+ * then manipulated through {@link ParticleRow} objects, lightweight views over
+ * a row of the store, so that the actions keep working with the
+ * {@link IParticle} interface while the trackers and the density grid can
+ * scan the columns directly.
+ *
+ * <p>
+ * The store is only written by the population when particles are released
+ * (sequentially) and by the particle views during the step, each view writing
+ * its own row only.
+ * </p>
+ *
+ * @author pverley
+ */
+public class ParticleStore {
+
+    /**
+     * Bits of the status column.
+     */
+    static final byte LIVING = 1, LOCKED = 2, IS3D = 4, EXCLUSIVITY_H = 8, EXCLUSIVITY_V = 16;
+    /**
+     * Bits of the changes column, whether grid or geographical coordinates
+     * must be recomputed.
+     */
+    static final byte XY_CHANGED = 1, Z_CHANGED = 2, LATLON_CHANGED = 4, DEPTH_CHANGED = 8;
+    /**
+     * Initial number of rows.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    int[] index;
+    double[] x, y, z;
+    double[] dx, dy, dz;
+    double[] lon, lat, depth;
+    double[] oldLon, oldLat;
+    long[] age;
+    byte[] status;
+    byte[] changes;
+    byte[] deathCause;
+
+    public ParticleStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        index = new int[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        dz = new double[capacity];
+        lon = new double[capacity];
+        lat = new double[capacity];
+        depth = new double[capacity];
+        oldLon = new double[capacity];
+        oldLat = new double[capacity];
+        age = new long[capacity];
+        status = new byte[capacity];
+        changes = new byte[capacity];
+        deathCause = new byte[capacity];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > index.length) {
+            int newCapacity = Math.max(capacity, 2 * index.length);
+            index = Arrays.copyOf(index, newCapacity);
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+            z = Arrays.copyOf(z, newCapacity);
+            dx = Arrays.copyOf(dx, newCapacity);
+            dy = Arrays.copyOf(dy, newCapacity);
+            dz = Arrays.copyOf(dz, newCapacity);
+            lon = Arrays.copyOf(lon, newCapacity);
+            lat = Arrays.copyOf(lat, newCapacity);
+            depth = Arrays.copyOf(depth, newCapacity);
+            oldLon = Arrays.copyOf(oldLon, newCapacity);
+            oldLat = Arrays.copyOf(oldLat, newCapacity);
+            age = Arrays.copyOf(age, newCapacity);
+            status = Arrays.copyOf(status, newCapacity);
+            changes = Arrays.copyOf(changes, newCapacity);
+            deathCause = Arrays.copyOf(deathCause, newCapacity);
+        }
+    }
+
+    /**
+     * Copies the state of a newly created particle in a new row of the store
+     * and returns the view over this row. The layers of the particle are not
+     * copied, they will be created again on demand by the view.
+     *
+     * @param particle, the particle created by the {@link ParticleFactory}
+     * @return the view over the new row
+     */
+    public ParticleRow add(Particle particle) {
+        ensureCapacity(size + 1);
+        int row = size;
+        index[row] = particle.getIndex();
+        x[row] = particle.getX();
+        y[row] = particle.getY();
+        z[row] = particle.getZ();
+        dx[row] = dy[row] = dz[row] = 0.d;
+        lon[row] = particle.getLon();
+        lat[row] = particle.getLat();
+        depth[row] = particle.getDepth();
+        oldLon[row] = particle.getOldLon();
+        oldLat[row] = particle.getOldLat();
+        age[row] = particle.getAge();
+        byte flags = 0;
+        if (particle.isLiving()) {
+            flags |= LIVING;
+        }
+        if (particle.isLocked()) {
+            flags |= LOCKED;
+        }
+        if (particle.is3D()) {
+            flags |= IS3D;
+        }
+        status[row] = flags;
+        changes[row] = 0;
+        deathCause[row] = (byte) particle.getDeathCause().getCode();
+        size++;
+        return new ParticleRow(this, row);
+    }
+
+    /**
+     * Removes all the rows of the store.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the number of rows of the store.
+     *
+     * @return the number of particles in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the index of the particle (the drifter index in the output file)
+     * stored at the given row.
+     *
+     * @param row, the row of the store
+     * @return the index of the particle
+     */
+    public int getIndex(int row) {
+        return index[row];
+    }
+
+    public double getX(int row) {
+        return x[row];
+    }
+
+    public double getY(int row) {
+        return y[row];
+    }
+
+    public double getZ(int row) {
+        return z[row];
+    }
+
+    public double getLon(int row) {
+        return lon[row];
+    }
+
+    public double getLat(int row) {
+        return lat[row];
+    }
+
+    public double getDepth(int row) {
+        return depth[row];
+    }
+
+    public long getAge(int row) {
+        return age[row];
+    }
+
+    public boolean isLiving(int row) {
+        return (status[row] & LIVING) != 0;
+    }
+
+    public boolean isLocked(int row) {
+        return (status[row] & LOCKED) != 0;
+    }
+
+    public boolean is3D(int row) {
+        return (status[row] & IS3D) != 0;
+    }
+
+    public ParticleMortality getDeathCause(int row) {
+        return ParticleMortality.getMortality(deathCause[row]);
+    }
+}
@@ -59,10 +59,16 @@ import org.previmer.ichthyop.TypeZone;
     private boolean[] isRecruited;
     private boolean isNewRecruited;
     private int numRecruitmentZone;
+    /**
+     * Duration [second] presently spent by the particle within the current
+     * recruitment zone.
+     */
+    private int timeInZone;
 
     public void init() {
         isNewRecruited = false;
         numRecruitmentZone = -1;
+        timeInZone = 0;
         isRecruited = (null != getSimulationManager().getZoneManager().getZones(TypeZone.RECRUITMENT))
                 ? new boolean[getSimulationManager().getZoneManager().getZones(TypeZone.RECRUITMENT).size()]
                 : new boolean[1];
@@ -102,6 +108,14 @@ import org.previmer.ichthyop.TypeZone;
         numRecruitmentZone = numZone;
     }
 
+    public int getTimeInZone() {
+        return timeInZone;
+    }
+
+    public void setTimeInZone(int timeInZone) {
+        this.timeInZone = timeInZone;
+    }
+
     public void setRecruited(int num_zone, boolean recruited) {
         isRecruited[num_zone] = recruited;
     }
@@ -59,20 +59,20 @@ public class SoleParticleLayer extends ParticleLayer {
     /**
      * Initial length [millimetre] for the particles.
      */
-    private static double length_init;// 1.2mm
+    private double length_init;// 1.2mm
     /**
      * Threshold [millimetre] to distinguish eggs from larvae
      */
-    private static double hatch_length;// 3mm
+    private double hatch_length;// 3mm
     /**
      * Threshold [millimetre] between Yolk-Sac Larvae and Feeding Larvae
      */
-    private static double yolk_to_feeding_length;// 4mm
+    private double yolk_to_feeding_length;// 4mm
     /**
      * Threshold [millimetre] between First feeding Larvae and Metamorphosing
      * Larvae
      */
-    private static double feeding_to_metamorphosing_length; // 8mm
+    private double feeding_to_metamorphosing_length; // 8mm
 
     public SoleParticleLayer(IParticle particle) {
         super(particle);
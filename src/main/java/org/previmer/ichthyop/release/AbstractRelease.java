@@ -44,11 +44,12 @@
 
 package org.previmer.ichthyop.release;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.previmer.ichthyop.SimulationManagerAccessor;
 import org.previmer.ichthyop.event.ReleaseEvent;
 import org.previmer.ichthyop.manager.ParameterManager;
+import org.previmer.ichthyop.util.RandomStream;
 
 /**
  *
@@ -63,16 +64,20 @@ public abstract class AbstractRelease extends SimulationManagerAccessor {
     abstract public int release(ReleaseEvent event) throws Exception;
 
     abstract public int getNbParticles();
-    private final Random randomGenerator;
+    /**
+     * The releases are processed by a single thread, so the draws come from
+     * one counter-based stream identified by the release class, that does not
+     * depend on the number of threads stepping the population.
+     */
+    private final RandomStream randomGenerator;
 
     public AbstractRelease() {
         releaseKey = getSimulationManager().getPropertyManager(getClass()).getProperty("block.key");
         boolean isFixedSeed = ParameterManager.getInstance().getConfigurationFile().isFixedSeed();
-        if (isFixedSeed) {
-            randomGenerator = new Random(getSimulationManager().getIndexSimulation());
-        } else {
-            randomGenerator = new Random();
-        }
+        long seed = isFixedSeed
+                ? getSimulationManager().getIndexSimulation()
+                : ThreadLocalRandom.current().nextLong();
+        randomGenerator = new RandomStream().at(seed, 0, 0, RandomStream.streamId(getClass().getName()));
     }
 
     public double getRandomDraft() {
@@ -0,0 +1,123 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.util;
+
+/**
+ * Morton (Z-order) codes of grid cells. Sorting cells by their code visits
+ * them along a space filling curve, so that cells close in the code are close
+ * on the grid, and so are their entries in the field arrays.
+ *
+ * <p>
+ * The codes fit in 32 bits: 16 bits per coordinate in 2D, 11 bits for i and
+ * j and 10 bits for k in 3D. Larger grids are handled by shifting the
+ * coordinates, which groups neighbouring cells under the same code.
+ * </p>
+ *
+ * @author pverley
+ */
+public class MortonCode {
+
+    private final int shiftI, shiftJ, shiftK;
+    private final boolean is3D;
+
+    /**
+     * Creates the Morton encoder of a grid of the given dimensions.
+     *
+     * @param nx, the number of cells along i
+     * @param ny, the number of cells along j
+     * @param nz, the number of cells along k, zero or less for a 2D grid
+     */
+    public MortonCode(int nx, int ny, int nz) {
+        is3D = nz > 0;
+        int bitsIJ = is3D ? 11 : 16;
+        shiftI = shift(nx, bitsIJ);
+        shiftJ = shift(ny, bitsIJ);
+        shiftK = is3D ? shift(nz, 10) : 0;
+    }
+
+    private static int shift(int n, int bits) {
+        int length = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 0));
+        return Math.max(0, length - bits);
+    }
+
+    /**
+     * Gets the Morton code of the cell (i, j, k). The k coordinate is ignored
+     * for a 2D grid. Negative coordinates are clamped to zero.
+     *
+     * @return the Morton code of the cell, in [0, 2^32[
+     */
+    public long encode(int i, int j, int k) {
+        long ci = Math.max(i, 0) >> shiftI;
+        long cj = Math.max(j, 0) >> shiftJ;
+        if (is3D) {
+            long ck = Math.max(k, 0) >> shiftK;
+            return spread3(ci & 0x7ff) | (spread3(cj & 0x7ff) << 1) | (spread3(ck & 0x3ff) << 2);
+        }
+        return spread2(ci & 0xffff) | (spread2(cj & 0xffff) << 1);
+    }
+
+    /*
+     * Inserts one zero bit between the 16 lowest bits of x.
+     */
+    private static long spread2(long x) {
+        x = (x | (x << 8)) & 0x00ff00ffL;
+        x = (x | (x << 4)) & 0x0f0f0f0fL;
+        x = (x | (x << 2)) & 0x33333333L;
+        x = (x | (x << 1)) & 0x55555555L;
+        return x;
+    }
+
+    /*
+     * Inserts two zero bits between the 21 lowest bits of x.
+     */
+    private static long spread3(long x) {
+        x = (x | (x << 32)) & 0x001f00000000ffffL;
+        x = (x | (x << 16)) & 0x001f0000ff0000ffL;
+        x = (x | (x << 8)) & 0x100f00f00f00f00fL;
+        x = (x | (x << 4)) & 0x10c30c30c30c30c3L;
+        x = (x | (x << 2)) & 0x1249249249249249L;
+        return x;
+    }
+}
@@ -49,14 +49,12 @@ package org.previmer.ichthyop.util;
  */
 import java.io.IOException;
 import java.util.Comparator;
-import ucar.ma2.InvalidRangeException;
-
-import ucar.nc2.dataset.NetcdfDatasets;
-import ucar.nc2.NetcdfFile;
+import org.previmer.ichthyop.dataset.TimeCatalog;
 
 /**
  * A comparison function of two netcdf files for chronological order. It
- * compares the first value of the time variable of the two files.
+ * compares the first value of the time variable of the two files, as
+ * recorded in the {@link TimeCatalog}.
  *
  * <p>
  * Copyright: Copyright (c) 2007 - Free software under GNU GPL</p>
@@ -114,15 +112,10 @@ public class NCComparator implements Comparator<String> {
 
         Double n1;
         Double n2;
-        NetcdfFile ncdf;
         try {
-            ncdf = NetcdfDatasets.openFile(nc1, null);
-            n1 = ncdf.findVariable(strTime).read(new int[]{0}, new int[]{1}).getDouble(0);
-            ncdf.close();
-            ncdf = NetcdfDatasets.openFile(nc2, null);
-            n2 = ncdf.findVariable(strTime).read(new int[]{0}, new int[]{1}).getDouble(0);
-            ncdf.close();
-        } catch (IOException | InvalidRangeException e) {
+            n1 = TimeCatalog.get(nc1, strTime).getValue(0);
+            n2 = TimeCatalog.get(nc2, strTime).getValue(0);
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
             return 0;
         }
 
@@ -0,0 +1,145 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.util;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Counter-based pseudo random number generator. A stream is entirely defined
+ * by a key derived from (seed, particle index, time step, stream id), and the
+ * n-th draw of the stream is a pure function of the key and n. Two threads
+ * that position their own stream at the same coordinates therefore draw the
+ * very same numbers, whatever the number of threads and the order in which
+ * the particles are stepped, and no state is shared between threads.
+ *
+ * <p>
+ * The mixing function is the finalizer of SplitMix64 (Steele, Lea and Flood,
+ * 2014, Fast splittable pseudorandom number generators), which passes
+ * BigCrush when applied to a Weyl sequence, as it is here.
+ * </p>
+ *
+ * <p>
+ * An instance is mutable and must not be shared between threads. It is meant
+ * to be reused: {@link #at(long, long, long, long)} repositions it without any
+ * allocation.
+ * </p>
+ *
+ * @author pverley
+ */
+public class RandomStream implements DoubleSupplier {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private long key;
+    private long counter;
+
+    /**
+     * Creates a stream positioned at (0, 0, 0, 0).
+     */
+    public RandomStream() {
+        at(0, 0, 0, 0);
+    }
+
+    /**
+     * Positions the stream at the given coordinates and rewinds it.
+     *
+     * @param seed, the seed of the simulation
+     * @param particle, the index of the particle
+     * @param step, the index of the time step
+     * @param stream, the id of the stream, typically the one of the action
+     * @return this stream
+     */
+    public RandomStream at(long seed, long particle, long step, long stream) {
+        long k = mix(seed + GOLDEN_GAMMA);
+        k = mix(k ^ (particle + 2 * GOLDEN_GAMMA));
+        k = mix(k ^ (step + 3 * GOLDEN_GAMMA));
+        key = mix(k ^ (stream + 4 * GOLDEN_GAMMA));
+        counter = 0;
+        return this;
+    }
+
+    /**
+     * Gets the next 64 random bits of the stream.
+     *
+     * @return a random long
+     */
+    public long nextLong() {
+        return mix(key + GOLDEN_GAMMA * (++counter));
+    }
+
+    /**
+     * Gets the next double of the stream, uniformly distributed in [0, 1[.
+     *
+     * @return a random double in [0, 1[
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public double getAsDouble() {
+        return nextDouble();
+    }
+
+    /**
+     * Gets a stable 64 bits identifier for the given name, that does not
+     * change from one JVM to the other.
+     *
+     * @param name, the name of the stream, for instance the class of an action
+     * @return the id of the stream
+     */
+    public static long streamId(String name) {
+        long h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = mix(h ^ name.charAt(i));
+        }
+        return h;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
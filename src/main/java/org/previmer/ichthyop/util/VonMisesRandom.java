@@ -52,7 +52,8 @@
  */
 package org.previmer.ichthyop.util;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
 
 /**
  * Construct a Von Mises circular random variable with circular (also intrinsic
@@ -63,7 +64,6 @@ import java.util.Random;
  */
 public class VonMisesRandom {
 
-    private final Random U = new Random();
     protected double mu, kappa;
     private double tau, rho, r;
 
@@ -83,11 +83,24 @@ public class VonMisesRandom {
 
     /**
      * Returns a random number from the distribution; bypasses the internal
-     * state.
+     * state. The uniform draws come from a generator private to the calling
+     * thread.
      *
      * @throws IllegalArgumentException if <tt>k &lt;= 0.0</tt>.
      */
     public double nextDouble() {
+        return nextDouble(() -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Returns a random number from the distribution, using the given source
+     * of uniform draws in [0, 1[, for instance the
+     * {@link RandomStream} of a particle.
+     *
+     * @param U, the source of uniform random draws
+     * @return a random number from the distribution
+     */
+    public double nextDouble(DoubleSupplier U) {
         /**
          * ****************************************************************
          *                                                                *
@@ -106,14 +119,14 @@ public class VonMisesRandom {
 
         // GENERATOR
         do {
-            u = U.nextDouble();                                // U(0/1)
-            v = U.nextDouble();                                // U(0/1)
+            u = U.getAsDouble();                                // U(0/1)
+            v = U.getAsDouble();                                // U(0/1)
             z = Math.cos(Math.PI * u);
             w = (1.0 + r * z) / (r + z);
             c = kappa * (r - w);
         } while ((c * (2.0 - c) < v) && (Math.log(c / v) + 1.0 < c));         // Acceptance/Rejection
 
-        return (U.nextDouble() > 0.5) ? Math.acos(w) : -Math.acos(w);        // Random sign //
+        return (U.getAsDouble() > 0.5) ? Math.acos(w) : -Math.acos(w);        // Random sign //
 
     }
 }
@@ -0,0 +1,177 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.FloatField;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+
+/**
+ * Micro benchmark of the flat storage of the fields against the jagged
+ * arrays it replaces, for the copy from a NetCDF array and for the
+ * trilinear interpolation at random points. It is not part of the test
+ * suite, run it with {@code mvn test -Dtest=FlatFieldBenchmark}. The values
+ * are checked by {@link TestFlatField}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FlatFieldBenchmark {
+
+    private final int NX = 200, NY = 150, NZ = 30;
+    private final int N_POINTS = 200000;
+    private final int N_REPEATS = 5;
+
+    private Array createArray() {
+        Array array = Array.factory(DataType.FLOAT, new int[]{NZ, NY, NX});
+        Random random = new Random(0);
+        for (int n = 0; n < array.getSize(); n++) {
+            array.setFloat(n, random.nextFloat());
+        }
+        return array;
+    }
+
+    @Test
+    public void compareCopyTime() throws Exception {
+
+        Array array = createArray();
+        long timeJagged = Long.MAX_VALUE, timeFlat = Long.MAX_VALUE;
+        for (int n = 0; n < N_REPEATS; n++) {
+            long start = System.nanoTime();
+            float[][][] jagged = new float[NZ][NY][NX];
+            Index index = array.getIndex();
+            for (int k = 0; k < NZ; k++) {
+                for (int j = 0; j < NY; j++) {
+                    for (int i = 0; i < NX; i++) {
+                        jagged[k][j][i] = array.getFloat(index.set(k, j, i));
+                    }
+                }
+            }
+            timeJagged = Math.min(timeJagged, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            FloatField.read(array, NZ, NY, NX);
+            timeFlat = Math.min(timeFlat, System.nanoTime() - start);
+        }
+        System.out.println(String.format("Copy of %dx%dx%d values, element by element %.1f ms, bulk copy %.1f ms",
+                NZ, NY, NX, timeJagged * 1.e-6, timeFlat * 1.e-6));
+    }
+
+    @Test
+    public void compareInterpolationTime() throws Exception {
+
+        Array array = createArray();
+        float[][][] jagged = (float[][][]) array.copyToNDJavaArray();
+        FloatField flat = FloatField.read(array, NZ, NY, NX);
+
+        Random random = new Random(1);
+        double[] x = new double[N_POINTS];
+        double[] y = new double[N_POINTS];
+        double[] z = new double[N_POINTS];
+        for (int n = 0; n < N_POINTS; n++) {
+            x[n] = random.nextDouble() * (NX - 1);
+            y[n] = random.nextDouble() * (NY - 1);
+            z[n] = random.nextDouble() * (NZ - 1);
+        }
+
+        long timeJagged = Long.MAX_VALUE, timeFlat = Long.MAX_VALUE;
+        double sumJagged = 0.d, sumFlat = 0.d;
+        // repeated to let the JIT compile both loops, keeps the best time
+        for (int r = 0; r < N_REPEATS; r++) {
+            long start = System.nanoTime();
+            sumJagged = 0.d;
+            for (int n = 0; n < N_POINTS; n++) {
+                sumJagged += interpolate(jagged, x[n], y[n], z[n]);
+            }
+            timeJagged = Math.min(timeJagged, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            sumFlat = 0.d;
+            for (int n = 0; n < N_POINTS; n++) {
+                sumFlat += interpolate(flat, x[n], y[n], z[n]);
+            }
+            timeFlat = Math.min(timeFlat, System.nanoTime() - start);
+        }
+        // the sums are printed so that the loops are not optimized away
+        System.out.println(String.format("Trilinear interpolation of %d points, float[][][] %.1f ms (%.3f), flat field %.1f ms (%.3f)",
+                N_POINTS, timeJagged * 1.e-6, sumJagged, timeFlat * 1.e-6, sumFlat));
+    }
+
+    private double interpolate(float[][][] field, double x, double y, double z) {
+        int i = (int) x, j = (int) y, k = (int) z;
+        double dx = x - i, dy = y - j, dz = z - k;
+        double value = 0.d;
+        for (int kk = 0; kk < 2; kk++) {
+            for (int jj = 0; jj < 2; jj++) {
+                for (int ii = 0; ii < 2; ii++) {
+                    double co = Math.abs((1.d - ii - dx) * (1.d - jj - dy) * (1.d - kk - dz));
+                    value += co * field[k + kk][j + jj][i + ii];
+                }
+            }
+        }
+        return value;
+    }
+
+    private double interpolate(FloatField field, double x, double y, double z) {
+        int i = (int) x, j = (int) y, k = (int) z;
+        double dx = x - i, dy = y - j, dz = z - k;
+        double value = 0.d;
+        for (int kk = 0; kk < 2; kk++) {
+            for (int jj = 0; jj < 2; jj++) {
+                for (int ii = 0; ii < 2; ii++) {
+                    double co = Math.abs((1.d - ii - dx) * (1.d - jj - dy) * (1.d - kk - dz));
+                    value += co * field.get(k + kk, j + jj, i + ii);
+                }
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.action.AdvectionKernel;
+import org.previmer.ichthyop.dataset.IDataset;
+import org.previmer.ichthyop.dataset.SyntheticRoms3dDataset;
+import org.previmer.ichthyop.util.MortonCode;
+
+/**
+ * Micro benchmark of the reordering of the particles along the Morton curve.
+ * A cloud of particles dispersed over the whole grid is advected once in
+ * release (random) order and once in Morton order. It is not part of the
+ * test suite, run it with {@code mvn test -Dtest=MortonReorderingBenchmark}.
+ * The behaviour of the reordering is tested by {@link TestPopulation}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MortonReorderingBenchmark {
+
+    private final int NX = 400, NY = 300, NZ = 30;
+    private final int N_PARTICLES = 200000;
+    private final int N_REPEATS = 5;
+    private final double DT = 600.d;
+
+    private long advect(AdvectionKernel kernel, IDataset dataset, double[][] particles, int[] order, double[][] moves) {
+        long start = System.nanoTime();
+        for (int i : order) {
+            kernel.advect(dataset, particles[i], 0.d, DT, moves[i]);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private int[] mortonOrder(double[][] particles) {
+        MortonCode morton = new MortonCode(NX, NY, NZ);
+        long[] keys = new long[particles.length];
+        for (int i = 0; i < particles.length; i++) {
+            double[] p = particles[i];
+            long code = morton.encode((int) Math.round(p[0]), (int) Math.round(p[1]), (int) Math.round(p[2]));
+            keys[i] = (code << 31) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[particles.length];
+        for (int i = 0; i < particles.length; i++) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    @Test
+    public void compareStepTime() {
+
+        IDataset dataset = SyntheticRoms3dDataset.create(NX, NY, NZ);
+        AdvectionKernel kernel = new AdvectionKernel(false, true, true, Logger.getAnonymousLogger());
+        Random random = new Random(0);
+        double[][] particles = new double[N_PARTICLES][];
+        for (int i = 0; i < N_PARTICLES; i++) {
+            particles[i] = new double[]{
+                2 + random.nextDouble() * (NX - 5),
+                2 + random.nextDouble() * (NY - 5),
+                random.nextDouble() * (NZ - 1)};
+        }
+        int[] releaseOrder = new int[N_PARTICLES];
+        for (int i = 0; i < N_PARTICLES; i++) {
+            releaseOrder[i] = i;
+        }
+        long start = System.nanoTime();
+        int[] mortonOrder = mortonOrder(particles);
+        long sortTime = System.nanoTime() - start;
+
+        double[][] movesRelease = new double[N_PARTICLES][3];
+        double[][] movesMorton = new double[N_PARTICLES][3];
+        long timeRelease = Long.MAX_VALUE, timeMorton = Long.MAX_VALUE;
+        for (int n = 0; n < N_REPEATS; n++) {
+            timeRelease = Math.min(timeRelease, advect(kernel, dataset, particles, releaseOrder, movesRelease));
+            timeMorton = Math.min(timeMorton, advect(kernel, dataset, particles, mortonOrder, movesMorton));
+        }
+        System.out.println(String.format("Step of %d dispersed particles: release order %.1f ms, Morton order %.1f ms (sort %.1f ms)",
+                N_PARTICLES, timeRelease * 1.e-6, timeMorton * 1.e-6, sortTime * 1.e-6));
+    }
+}
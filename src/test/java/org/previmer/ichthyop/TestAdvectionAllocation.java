@@ -0,0 +1,122 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.action.AdvectionKernel;
+import org.previmer.ichthyop.dataset.IDataset;
+import org.previmer.ichthyop.dataset.SyntheticRoms3dDataset;
+
+/**
+ * Checks that, once the scratch buffers of the thread exist, advecting a
+ * cloud of particles in a synthetic ROMS grid does not allocate anything.
+ * The memory allocated is measured for the current thread.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestAdvectionAllocation {
+
+    private final int NX = 120, NY = 100, NZ = 20;
+    private final int N_PARTICLES = 10000;
+    private final int N_STEPS = 50;
+    private final double DT = 600.d;
+
+    private long advect(AdvectionKernel kernel, IDataset dataset, double[][] particles, double[] mvt) {
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(id);
+        for (int step = 0; step < N_STEPS; step++) {
+            double time = step * DT;
+            for (double[] p : particles) {
+                kernel.advect(dataset, p, time, DT, mvt);
+                for (int i = 0; i < p.length; i++) {
+                    p[i] += mvt[i];
+                }
+                if (dataset.isOnEdge(p)) {
+                    p[0] = NX / 2.d;
+                    p[1] = NY / 2.d;
+                }
+            }
+        }
+        return bean.getThreadAllocatedBytes(id) - before;
+    }
+
+    private double[][] createParticles() {
+        Random random = new Random(0);
+        double[][] particles = new double[N_PARTICLES][];
+        for (int i = 0; i < N_PARTICLES; i++) {
+            particles[i] = new double[]{
+                2 + random.nextDouble() * (NX - 5),
+                2 + random.nextDouble() * (NY - 5),
+                random.nextDouble() * (NZ - 1)};
+        }
+        return particles;
+    }
+
+    @Test
+    public void testRk4DoesNotAllocate() {
+
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        IDataset dataset = SyntheticRoms3dDataset.create(NX, NY, NZ);
+        AdvectionKernel kernel = new AdvectionKernel(false, true, true, Logger.getAnonymousLogger());
+        double[][] particles = createParticles();
+        double[] mvt = new double[3];
+
+        // warm up, creates the scratch buffers of the thread
+        advect(kernel, dataset, particles, mvt);
+        long allocated = advect(kernel, dataset, particles, mvt);
+
+        // a few bytes may be allocated by the measure itself, none by the advection
+        assertTrue(allocated < N_PARTICLES, "Advection allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.action.AdvectionKernel;
+import org.previmer.ichthyop.dataset.IDataset;
+import org.previmer.ichthyop.dataset.SyntheticRoms3dDataset;
+
+/**
+ * Checks that advecting a block of particles at once gives exactly the same
+ * moves as advecting the particles one by one, including the particles that
+ * reach the edge of the domain during an intermediate RK4 stage.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestAdvectionBatch {
+
+    private final int NX = 60, NY = 50, NZ = 10;
+    private final int N_PARTICLES = 5000;
+    private final double DT = 1800.d;
+
+    private void compare(boolean isEuler) {
+
+        IDataset dataset = SyntheticRoms3dDataset.create(NX, NY, NZ);
+        AdvectionKernel kernel = new AdvectionKernel(isEuler, true, true, Logger.getAnonymousLogger());
+        Random random = new Random(0);
+        double[][] particles = new double[N_PARTICLES][];
+        AdvectionKernel.Block block = new AdvectionKernel.Block(3);
+        block.reset(N_PARTICLES);
+        for (int i = 0; i < N_PARTICLES; i++) {
+            // half of the particles close to the edge of the domain
+            double margin = (i % 2 == 0) ? 1.d : 5.d;
+            particles[i] = new double[]{
+                margin + random.nextDouble() * (NX - 1 - 2 * margin),
+                margin + random.nextDouble() * (NY - 1 - 2 * margin),
+                random.nextDouble() * (NZ - 1)};
+            block.add(particles[i]);
+        }
+
+        kernel.advect(dataset, block, 0.d, DT);
+
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        for (int i = 0; i < N_PARTICLES; i++) {
+            kernel.advect(dataset, particles[i], 0.d, DT, expected);
+            block.getMove(i, actual);
+            for (int d = 0; d < 3; d++) {
+                assertEquals(expected[d], actual[d], 0.d);
+            }
+        }
+    }
+
+    @Test
+    public void testRk4() {
+        compare(false);
+    }
+
+    @Test
+    public void testEuler() {
+        compare(true);
+    }
+}
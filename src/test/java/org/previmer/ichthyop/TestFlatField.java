@@ -0,0 +1,149 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.FloatField;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+
+/**
+ * Checks that the flat storage of the fields gives the same values as the
+ * jagged arrays it replaces, both when filled from a NetCDF array and when
+ * interpolated.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestFlatField {
+
+    private final int NX = 40, NY = 30, NZ = 10;
+    private final int N_POINTS = 1000;
+
+    private Array createArray() {
+        Array array = Array.factory(DataType.FLOAT, new int[]{NZ, NY, NX});
+        Random random = new Random(0);
+        for (int n = 0; n < array.getSize(); n++) {
+            array.setFloat(n, random.nextFloat());
+        }
+        return array;
+    }
+
+    @Test
+    public void copy() throws Exception {
+
+        Array array = createArray();
+
+        float[][][] jagged = new float[NZ][NY][NX];
+        Index index = array.getIndex();
+        for (int k = 0; k < NZ; k++) {
+            for (int j = 0; j < NY; j++) {
+                for (int i = 0; i < NX; i++) {
+                    jagged[k][j][i] = array.getFloat(index.set(k, j, i));
+                }
+            }
+        }
+        FloatField flat = FloatField.read(array, NZ, NY, NX);
+
+        for (int k = 0; k < NZ; k++) {
+            for (int j = 0; j < NY; j++) {
+                for (int i = 0; i < NX; i++) {
+                    assertEquals(jagged[k][j][i], flat.get(k, j, i), 0.f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void interpolate() throws Exception {
+
+        Array array = createArray();
+        float[][][] jagged = (float[][][]) array.copyToNDJavaArray();
+        FloatField flat = FloatField.read(array, NZ, NY, NX);
+
+        Random random = new Random(1);
+        for (int n = 0; n < N_POINTS; n++) {
+            double x = random.nextDouble() * (NX - 1);
+            double y = random.nextDouble() * (NY - 1);
+            double z = random.nextDouble() * (NZ - 1);
+            assertEquals(interpolate(jagged, x, y, z), interpolate(flat, x, y, z), 0.d);
+        }
+    }
+
+    private double interpolate(float[][][] field, double x, double y, double z) {
+        int i = (int) x, j = (int) y, k = (int) z;
+        double dx = x - i, dy = y - j, dz = z - k;
+        double value = 0.d;
+        for (int kk = 0; kk < 2; kk++) {
+            for (int jj = 0; jj < 2; jj++) {
+                for (int ii = 0; ii < 2; ii++) {
+                    double co = Math.abs((1.d - ii - dx) * (1.d - jj - dy) * (1.d - kk - dz));
+                    value += co * field[k + kk][j + jj][i + ii];
+                }
+            }
+        }
+        return value;
+    }
+
+    private double interpolate(FloatField field, double x, double y, double z) {
+        int i = (int) x, j = (int) y, k = (int) z;
+        double dx = x - i, dy = y - j, dz = z - k;
+        double value = 0.d;
+        for (int kk = 0; kk < 2; kk++) {
+            for (int jj = 0; jj < 2; jj++) {
+                for (int ii = 0; ii < 2; ii++) {
+                    double co = Math.abs((1.d - ii - dx) * (1.d - jj - dy) * (1.d - kk - dz));
+                    value += co * field.get(k + kk, j + jj, i + ii);
+                }
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.previmer.ichthyop.dataset.DoubleField;
+import org.previmer.ichthyop.dataset.FloatField;
+import org.previmer.ichthyop.dataset.ForcingCache;
+
+/**
+ * Checks that a record written in the forcing cache is read back unchanged
+ * and only under its own key.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestForcingCache {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void writeAndRead() throws IOException {
+
+        FloatField u = new FloatField(3, 4, 5);
+        FloatField zeta = new FloatField(4, 5);
+        DoubleField z_w = new DoubleField(4, 4, 5);
+        for (int k = 0; k < 4; k++) {
+            for (int j = 0; j < 4; j++) {
+                for (int i = 0; i < 5; i++) {
+                    if (k < 3) {
+                        u.set(k, j, i, 0.1f * (k * 20 + j * 5 + i));
+                    }
+                    z_w.set(k, j, i, -1000.d / (k + 1) + j + 0.01 * i);
+                }
+            }
+        }
+        zeta.set(2, 3, -0.5f);
+
+        ForcingCache cache = new ForcingCache(directory.getAbsolutePath());
+        cache.write("test|record#0", new ForcingCache.Record(86400.d).put("u", u).put("zeta", zeta).put("z_w", z_w));
+        ForcingCache.Record record = cache.read("test|record#0");
+
+        assertEquals(86400.d, record.getTime());
+        FloatField u1 = record.getFloat("u");
+        FloatField zeta1 = record.getFloat("zeta");
+        DoubleField z_w1 = record.getDouble("z_w");
+        assertEquals(3, u1.getRank());
+        assertEquals(2, zeta1.getRank());
+        assertEquals(-0.5f, zeta1.get(2, 3));
+        for (int k = 0; k < 4; k++) {
+            for (int j = 0; j < 4; j++) {
+                for (int i = 0; i < 5; i++) {
+                    if (k < 3) {
+                        assertEquals(u.get(k, j, i), u1.get(k, j, i));
+                    }
+                    assertEquals(z_w.get(k, j, i), z_w1.get(k, j, i));
+                }
+            }
+        }
+        assertNull(record.getDouble("u"));
+        assertNull(cache.read("test|record#1"));
+    }
+}
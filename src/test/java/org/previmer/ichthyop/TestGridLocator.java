@@ -0,0 +1,216 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.GridLocator;
+
+/**
+ * Checks the grid locator against the bisection it replaces and against a
+ * brute force search of the cell, on a rotated and stretched curvilinear
+ * grid.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestGridLocator {
+
+    private final int nx = 400, ny = 300;
+    private final double[][] lat = new double[ny][nx], lon = new double[ny][nx];
+
+    public TestGridLocator() {
+        double angle = Math.toRadians(30.);
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                double x = 0.02 * i + 0.00002 * j * j;
+                double y = 0.015 * j + 0.00001 * i * i;
+                lon[j][i] = -10. + x * Math.cos(angle) - y * Math.sin(angle);
+                lat[j][i] = 40. + x * Math.sin(angle) + y * Math.cos(angle);
+            }
+        }
+    }
+
+    @Test
+    public void locate() {
+
+        GridLocator locator = new GridLocator(lat, lon);
+        Random random = new Random(12345);
+        for (int n = 0; n < 500; n++) {
+            double x = 1 + random.nextDouble() * (nx - 3);
+            double y = 1 + random.nextDouble() * (ny - 3);
+            double[] latlon = xy2latlon(x, y);
+            double[] xy = locator.latlon2xy(latlon[0], latlon[1]);
+            assertArrayEquals(bisection(latlon[0], latlon[1]), xy, 1e-9);
+            if (n % 10 == 0) {
+                assertArrayEquals(bruteForce(latlon[0], latlon[1]), xy, 1e-9);
+            }
+            assertEquals(x, xy[0], 1e-2);
+            assertEquals(y, xy[1], 1e-2);
+        }
+        // out of the grid
+        assertArrayEquals(new double[]{-1, -1}, locator.latlon2xy(0., 0.), 0.);
+        assertArrayEquals(new double[]{-1, -1}, locator.latlon2xy(lat[0][nx - 1] + 0.1, lon[0][nx - 1] + 0.5), 0.);
+
+        // same arrays, same locator
+        assertSame(locator, GridLocator.of(locator, lat, lon));
+    }
+
+    private double[] xy2latlon(double x, double y) {
+        int i = (int) x, j = (int) y;
+        double dx = x - i, dy = y - j;
+        double la = 0, lo = 0;
+        for (int ii = 0; ii < 2; ii++) {
+            for (int jj = 0; jj < 2; jj++) {
+                double co = Math.abs((1 - ii - dx) * (1 - jj - dy));
+                la += co * lat[j + jj][i + ii];
+                lo += co * lon[j + jj][i + ii];
+            }
+        }
+        return new double[]{la, lo};
+    }
+
+    private double[] bruteForce(double la, double lo) {
+        for (int j = 0; j < ny - 1; j++) {
+            for (int i = 0; i < nx - 1; i++) {
+                if (isInside(i, i + 1, j, j + 1, lo, la)) {
+                    return interpolate(i, j, la, lo);
+                }
+            }
+        }
+        return new double[]{-1, -1};
+    }
+
+    /*
+     * The former search of the datasets, kept as a reference.
+     */
+    private double[] bisection(double la, double lo) {
+        if (!isInside(0, nx - 1, 0, ny - 1, lo, la)) {
+            return new double[]{-1, -1};
+        }
+        int imin = 0, imax = nx - 1, jmin = 0, jmax = ny - 1;
+        while (((imax - imin) > 1) | ((jmax - jmin) > 1)) {
+            if ((imax - imin) > 1) {
+                int i0 = (imin + imax) / 2;
+                if (isInside(imin, i0, jmin, jmax, lo, la)) {
+                    imax = i0;
+                } else {
+                    imin = i0;
+                }
+            }
+            if ((jmax - jmin) > 1) {
+                int j0 = (jmax + jmin) / 2;
+                if (isInside(imin, imax, jmin, j0, lo, la)) {
+                    jmax = j0;
+                } else {
+                    jmin = j0;
+                }
+            }
+        }
+        return interpolate(imin, jmin, la, lo);
+    }
+
+    private double[] interpolate(int imin, int jmin, double la, double lo) {
+        double dy1 = lat[jmin + 1][imin] - lat[jmin][imin];
+        double dx1 = lon[jmin + 1][imin] - lon[jmin][imin];
+        double dy2 = lat[jmin][imin + 1] - lat[jmin][imin];
+        double dx2 = lon[jmin][imin + 1] - lon[jmin][imin];
+        double c1 = lo * dy1 - la * dx1;
+        double c2 = lon[jmin][imin] * dy2 - lat[jmin][imin] * dx2;
+        double deltax = (c1 * dx2 - c2 * dx1) / (dx2 * dy1 - dy2 * dx1);
+        deltax = (deltax - lon[jmin][imin]) / dx2;
+        c1 = lon[jmin][imin] * dy1 - lat[jmin][imin] * dx1;
+        c2 = lo * dy2 - la * dx2;
+        double deltay = (c1 * dy2 - c2 * dy1) / (dx2 * dy1 - dy2 * dx1);
+        deltay = (deltay - lat[jmin][imin]) / dy1;
+        return new double[]{imin + Math.min(Math.max(0.d, deltax), 1.d), jmin + Math.min(Math.max(0.d, deltay), 1.d)};
+    }
+
+    private boolean isInside(int imin, int imax, int jmin, int jmax, double lo, double la) {
+        int nb = 2 * (jmax - jmin + imax - imin);
+        double[] xb = new double[nb + 1], yb = new double[nb + 1];
+        int n = 0;
+        for (int i = imin; i < imax; i++) {
+            xb[n] = lon[jmin][i];
+            yb[n++] = lat[jmin][i];
+        }
+        for (int j = jmin; j < jmax; j++) {
+            xb[n] = lon[j][imax];
+            yb[n++] = lat[j][imax];
+        }
+        for (int i = imax; i > imin; i--) {
+            xb[n] = lon[jmax][i];
+            yb[n++] = lat[jmax][i];
+        }
+        for (int j = jmax; j > jmin; j--) {
+            xb[n] = lon[j][imin];
+            yb[n++] = lat[j][imin];
+        }
+        xb[nb] = xb[0];
+        yb[nb] = yb[0];
+        int crossings = 0;
+        for (int k = 0; k < nb; k++) {
+            if (xb[k] != xb[k + 1]) {
+                double dx1 = lo - xb[k];
+                double dx2 = xb[k + 1] - lo;
+                double dxy = dx2 * (la - yb[k]) - dx1 * (yb[k + 1] - la);
+                int inc = 0;
+                if ((xb[k] == lo) & (yb[k] == la)) {
+                    crossings = 1;
+                } else if (((dx1 == 0.) & (la >= yb[k])) | ((dx2 == 0.) & (la >= yb[k + 1]))) {
+                    inc = 1;
+                } else if ((dx1 * dx2 > 0.) & ((xb[k + 1] - xb[k]) * dxy >= 0.)) {
+                    inc = 2;
+                }
+                crossings += (xb[k + 1] > xb[k]) ? inc : -inc;
+            }
+        }
+        return crossings != 0;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.LandMask;
+
+/**
+ * Checks the precomputed land mask against the tests the datasets used to
+ * run on the mask arrays.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestLandMask {
+
+    private final int nx = 70, ny = 45;
+    private final byte[][] mask = new byte[ny][nx];
+
+    public TestLandMask() {
+        // an island and a coast line
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                boolean island = Math.hypot(i - 30, j - 20) < 6;
+                mask[j][i] = (byte) ((island || i > 60 - j / 5) ? 0 : 1);
+            }
+        }
+    }
+
+    @Test
+    public void closeToCoast() {
+
+        LandMask landMask = new LandMask(nx, ny, 1, (i, j, k) -> mask[j][i] > 0);
+        Random random = new Random(4321);
+        for (int n = 0; n < 100000; n++) {
+            double x = -1 + random.nextDouble() * (nx + 1);
+            double y = -1 + random.nextDouble() * (ny + 1);
+            int i = (int) Math.round(x), j = (int) Math.round(y);
+            assertEquals(isInWater(i, j), landMask.isInWater(i, j));
+            assertEquals(isCloseToCost(x, y), landMask.isCloseToCoast(x, y));
+        }
+    }
+
+    @Test
+    public void distanceToCoast() {
+
+        LandMask landMask = new LandMask(nx, ny, 1, (i, j, k) -> mask[j][i] > 0);
+        assertEquals(0.f, landMask.getDistanceToCoast(30, 20), 0.f);
+        assertEquals(0, landMask.getCoastProximity(5, 5));
+        // the chamfer distance is within 9% of the euclidean distance
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                double d = Double.MAX_VALUE;
+                for (int jj = 0; jj < ny; jj++) {
+                    for (int ii = 0; ii < nx; ii++) {
+                        if (mask[jj][ii] == 0) {
+                            d = Math.min(d, Math.hypot(ii - i, jj - j));
+                        }
+                    }
+                }
+                assertEquals(d, landMask.getDistanceToCoast(i, j), 0.09 * d);
+            }
+        }
+    }
+
+    private boolean isInWater(int i, int j) {
+        try {
+            return (mask[j][i] > 0);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    private boolean isCloseToCost(double x, double y) {
+        int i, j, ii, jj;
+        i = (int) (Math.round(x));
+        j = (int) (Math.round(y));
+        ii = (i - (int) x) == 0 ? 1 : -1;
+        jj = (j - (int) y) == 0 ? 1 : -1;
+        return !(isInWater(i + ii, j) && isInWater(i + ii, j + jj) && isInWater(i, j + jj));
+    }
+}
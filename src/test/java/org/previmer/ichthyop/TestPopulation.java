@@ -0,0 +1,346 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.particle.Particle;
+import org.previmer.ichthyop.particle.ParticleMortality;
+import org.previmer.ichthyop.util.MortonCode;
+
+/**
+ * Checks the living index of the population: the removal of the dead
+ * particles, the freezing of the locked particles, the reordering along the
+ * Morton curve and the positions of the particles written in the output.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestPopulation {
+
+    private final int NX = 64, NY = 48;
+    private final int N_PARTICLES = 500;
+    private static final long DT = 3600;
+    private static final long TRANSPORT_DURATION = 10 * DT;
+
+    /**
+     * A particle at a fixed grid location, whose step does nothing.
+     */
+    static class FixedParticle extends Particle {
+
+        private final double x, y;
+
+        FixedParticle(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public double getX() {
+            return x;
+        }
+
+        @Override
+        public double getY() {
+            return y;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void step() {
+        }
+    }
+
+    /**
+     * A particle aged as by the age monitoring, with a time step of
+     * {@code DT} and a transport duration of {@code TRANSPORT_DURATION}.
+     */
+    static class AgingParticle extends FixedParticle {
+
+        AgingParticle(long age) {
+            super(0., 0.);
+            incrementAge(age);
+        }
+
+        @Override
+        public void step() {
+            if (getAge() > TRANSPORT_DURATION) {
+                kill(ParticleMortality.OLD);
+                return;
+            }
+            incrementAge(DT);
+        }
+    }
+
+    private Population createPopulation(int reorderInterval) {
+        return createPopulation(reorderInterval, false);
+    }
+
+    private Population createPopulation(int reorderInterval, boolean freezeLocked) {
+        Population population = new Population() {
+            @Override
+            int getReorderInterval() {
+                return reorderInterval;
+            }
+
+            @Override
+            boolean isFreezeLocked() {
+                return freezeLocked;
+            }
+
+            @Override
+            long getTimeStep() {
+                return DT;
+            }
+
+            @Override
+            double getTransportDuration() {
+                return TRANSPORT_DURATION;
+            }
+
+            @Override
+            MortonCode createMortonCode() {
+                return new MortonCode(NX, NY, 0);
+            }
+        };
+        population.setupPerformed(null);
+        return population;
+    }
+
+    private void release(Population population, int n, Random random) {
+        for (int i = 0; i < n; i++) {
+            Particle particle = new FixedParticle(random.nextDouble() * (NX - 1), random.nextDouble() * (NY - 1));
+            particle.setIndex(population.size());
+            population.add(particle);
+        }
+    }
+
+    /**
+     * A particle that dies while it is stepped.
+     */
+    static class DyingParticle extends FixedParticle {
+
+        DyingParticle(double x, double y) {
+            super(x, y);
+        }
+
+        @Override
+        public void step() {
+            kill(ParticleMortality.DEAD_COLD);
+        }
+    }
+
+    private Set<Integer> livingParticles(Population population) {
+        Set<Integer> positions = new HashSet<>();
+        for (int i = 0; i < population.size(); i++) {
+            if (population.get(i).isLiving()) {
+                positions.add(i);
+            }
+        }
+        return positions;
+    }
+
+    private Set<Integer> livingIndex(Population population) {
+        Set<Integer> positions = new HashSet<>();
+        for (int i = 0; i < population.getNbLiving(); i++) {
+            assertTrue(positions.add(population.getLiving(i)), "Duplicate position in the living index");
+        }
+        return positions;
+    }
+
+    @Test
+    public void reorderLiving() {
+
+        Random random = new Random(0);
+        Population population = createPopulation(1);
+        release(population, N_PARTICLES, random);
+        Set<Integer> living = new HashSet<>();
+        for (int i = 0; i < N_PARTICLES; i++) {
+            if (i % 7 == 3) {
+                population.get(i).kill(ParticleMortality.OUT_OF_DOMAIN);
+            } else {
+                living.add(i);
+            }
+        }
+
+        population.step();
+
+        // a permutation of the positions of the living particles
+        assertEquals(living.size(), population.getNbLiving());
+        assertEquals(living, livingIndex(population));
+
+        // sorted along the Morton curve
+        MortonCode morton = new MortonCode(NX, NY, 0);
+        long previous = -1;
+        for (int i = 0; i < population.getNbLiving(); i++) {
+            Particle particle = (Particle) population.get(population.getLiving(i));
+            long code = morton.encode((int) Math.round(particle.getX()), (int) Math.round(particle.getY()), 0);
+            assertTrue(code >= previous);
+            previous = code;
+        }
+
+        // the output still finds every particle at its position, with its index
+        Set<Integer> trackable = new HashSet<>();
+        for (int i = 0; i < population.getNbTrackable(); i++) {
+            int position = population.getTrackable(i);
+            assertTrue(trackable.add(position));
+            assertEquals(position, population.get(position).getIndex());
+        }
+        assertEquals(N_PARTICLES, trackable.size());
+
+        // particles released after the reordering are appended
+        release(population, 10, random);
+        population.step();
+        assertEquals(living.size() + 10, population.getNbLiving());
+        for (int i = 0; i < population.getNbLiving(); i++) {
+            int position = population.getLiving(i);
+            assertEquals(position, population.get(position).getIndex());
+        }
+    }
+
+    @Test
+    public void compactLiving() {
+
+        Random random = new Random(1);
+        Population population = createPopulation(0);
+        // particles that die while they are stepped
+        Set<Integer> dying = new HashSet<>(Arrays.asList(0, 123, 124, 250));
+        for (int i = 0; i < N_PARTICLES; i++) {
+            double x = random.nextDouble() * (NX - 1);
+            double y = random.nextDouble() * (NY - 1);
+            Particle particle = dying.contains(i) ? new DyingParticle(x, y) : new FixedParticle(x, y);
+            particle.setIndex(i);
+            population.add(particle);
+        }
+
+        population.step();
+        assertEquals(N_PARTICLES, population.getNbLiving());
+        for (int position : dying) {
+            assertFalse(population.get(position).isLiving());
+        }
+
+        // particles killed between two steps, in the middle and at the end
+        int[] killed = {124, 125, 300, N_PARTICLES - 2, N_PARTICLES - 1};
+        for (int position : killed) {
+            population.get(position).kill(ParticleMortality.OUT_OF_DOMAIN);
+        }
+
+        population.step();
+        Set<Integer> living = livingParticles(population);
+        assertEquals(N_PARTICLES - 8, living.size());
+        assertEquals(living, livingIndex(population));
+        // without reordering the release order is kept
+        for (int i = 1; i < population.getNbLiving(); i++) {
+            assertTrue(population.getLiving(i - 1) < population.getLiving(i));
+        }
+        // the dead particles are still tracked until the next record
+        Set<Integer> trackable = new HashSet<>();
+        for (int i = 0; i < population.getNbTrackable(); i++) {
+            trackable.add(population.getTrackable(i));
+        }
+        assertEquals(N_PARTICLES, trackable.size());
+
+        // the last particles of the index die, then every particle
+        population.recorded();
+        for (int i = population.getNbLiving() - 3; i < population.getNbLiving(); i++) {
+            population.get(population.getLiving(i)).kill(ParticleMortality.OLD);
+        }
+        population.step();
+        assertEquals(livingParticles(population), livingIndex(population));
+        assertEquals(3, population.getNbTrackable() - population.getNbLiving());
+        for (int i = 0; i < population.size(); i++) {
+            population.get(i).kill(ParticleMortality.OLD);
+        }
+        population.step();
+        assertEquals(0, population.getNbLiving());
+    }
+
+    @Test
+    public void freezeLocked() {
+
+        // from well below to above the transport duration, with the age
+        // reaching the transport duration exactly at a step
+        long[] ages = {0, DT / 2, TRANSPORT_DURATION - DT, TRANSPORT_DURATION - 1,
+            TRANSPORT_DURATION, TRANSPORT_DURATION + 1, TRANSPORT_DURATION + DT};
+        for (long age : ages) {
+            for (int lockedAt = 0; lockedAt < 3; lockedAt++) {
+                Population population = createPopulation(0, true);
+                Particle frozen = new AgingParticle(age);
+                Particle drifting = new AgingParticle(age);
+                frozen.setIndex(0);
+                drifting.setIndex(1);
+                population.add(frozen);
+                population.add(drifting);
+
+                int step = 0;
+                while (drifting.isLiving()) {
+                    if (step == lockedAt) {
+                        frozen.lock();
+                    }
+                    population.step();
+                    step++;
+                    // killed at the same step as the particle that is still stepped
+                    assertEquals(drifting.isLiving(), frozen.isLiving());
+                    // as when the output records the particles
+                    population.ageFrozen();
+                    assertEquals(drifting.getAge(), frozen.getAge());
+                }
+                assertEquals(ParticleMortality.OLD, frozen.getDeathCause());
+                assertEquals(drifting.getAge(), frozen.getAge());
+                assertTrue(frozen.getAge() > TRANSPORT_DURATION);
+            }
+        }
+    }
+}
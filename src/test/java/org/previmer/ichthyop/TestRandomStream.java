@@ -0,0 +1,113 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.util.RandomStream;
+
+/**
+ * Checks that the counter-based random streams only depend on their
+ * coordinates, so that the draws do not depend on the number of threads.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestRandomStream {
+
+    private final int N_PARTICLES = 20000;
+    private final int N_DRAWS = 4;
+    private final long SEED = 3;
+    private final long STREAM = RandomStream.streamId("org.previmer.ichthyop.action.HDispAction");
+
+    private double[] draw(boolean parallel) {
+        double[] draws = new double[N_PARTICLES * N_DRAWS];
+        ThreadLocal<RandomStream> streams = ThreadLocal.withInitial(RandomStream::new);
+        IntStream particles = IntStream.range(0, N_PARTICLES);
+        (parallel ? particles.parallel() : particles).forEach(i -> {
+            RandomStream random = streams.get().at(SEED, i, 12, STREAM);
+            for (int n = 0; n < N_DRAWS; n++) {
+                draws[i * N_DRAWS + n] = random.nextDouble();
+            }
+        });
+        return draws;
+    }
+
+    @Test
+    public void independentOfThreads() {
+        assertArrayEquals(draw(false), draw(true));
+    }
+
+    @Test
+    public void distinctCoordinates() {
+        RandomStream random = new RandomStream();
+        double d0 = random.at(SEED, 1, 12, STREAM).nextDouble();
+        assertEquals(d0, random.at(SEED, 1, 12, STREAM).nextDouble());
+        assertNotEquals(d0, random.at(SEED + 1, 1, 12, STREAM).nextDouble());
+        assertNotEquals(d0, random.at(SEED, 2, 12, STREAM).nextDouble());
+        assertNotEquals(d0, random.at(SEED, 1, 13, STREAM).nextDouble());
+        assertNotEquals(d0, random.at(SEED, 1, 12, STREAM + 1).nextDouble());
+    }
+
+    @Test
+    public void uniformMoments() {
+        double[] draws = draw(false);
+        double mean = 0.d, var = 0.d;
+        for (double d : draws) {
+            mean += d;
+        }
+        mean /= draws.length;
+        for (double d : draws) {
+            var += (d - mean) * (d - mean);
+        }
+        var /= draws.length;
+        assertEquals(0.5d, mean, 5.e-3);
+        assertEquals(1.d / 12.d, var, 5.e-3);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.RecordPrefetcher;
+
+/**
+ * Checks that a prefetched record is only handed over to the dataset when
+ * its key matches the record the dataset is expecting.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestRecordPrefetcher {
+
+    @Test
+    public void takeExpectedRecord() {
+
+        RecordPrefetcher<float[]> prefetcher = new RecordPrefetcher<>();
+        float[] fields = new float[]{1.f, 2.f, 3.f};
+        prefetcher.prefetch(() -> {
+            Thread.sleep(50);
+            return new RecordPrefetcher.Record<>("test|record#1", fields, Collections.emptyMap());
+        });
+        RecordPrefetcher.Record<float[]> record = prefetcher.take("test|record#1");
+        assertSame(fields, record.getFields());
+        assertNull(record.getVariable("temp"));
+        assertEquals(1, prefetcher.getHits());
+
+        // the record has been taken, nothing left to prefetch
+        assertNull(prefetcher.take("test|record#1"));
+        assertEquals(1, prefetcher.getMisses());
+    }
+
+    @Test
+    public void dropUnexpectedRecord() {
+
+        RecordPrefetcher<float[]> prefetcher = new RecordPrefetcher<>();
+        prefetcher.prefetch(() -> new RecordPrefetcher.Record<>("test|record#1", new float[0], Collections.emptyMap()));
+        assertNull(prefetcher.take("test|record#2"));
+        assertEquals(0, prefetcher.getHits());
+        assertEquals(1, prefetcher.getMisses());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.SharedFieldProvider;
+
+/**
+ * Checks that concurrent simulations requesting the same time record load it
+ * once and get the same instance, and that the record is forgotten when the
+ * last simulation releases it.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestSharedFieldProvider {
+
+    private final int N_MEMBERS = 16;
+
+    @Test
+    public void loadOncePerRecord() throws Exception {
+
+        AtomicInteger nbLoads = new AtomicInteger();
+        String key = "test|record#0";
+        ExecutorService executor = Executors.newFixedThreadPool(N_MEMBERS);
+        List<Callable<float[]>> members = new ArrayList<>();
+        for (int i = 0; i < N_MEMBERS; i++) {
+            members.add(() -> SharedFieldProvider.acquire(key, () -> {
+                nbLoads.incrementAndGet();
+                Thread.sleep(50);
+                return new float[]{1.f, 2.f, 3.f};
+            }));
+        }
+        List<Future<float[]>> records = executor.invokeAll(members);
+        executor.shutdown();
+
+        assertEquals(1, nbLoads.get());
+        float[] record = records.get(0).get();
+        for (Future<float[]> other : records) {
+            assertSame(record, other.get());
+        }
+        for (int i = 0; i < N_MEMBERS - 1; i++) {
+            SharedFieldProvider.release(key);
+        }
+        assertSame(record, SharedFieldProvider.acquire(key, () -> new float[0]));
+        SharedFieldProvider.release(key);
+        SharedFieldProvider.release(key);
+        assertEquals(0, SharedFieldProvider.size());
+    }
+
+    @Test
+    public void failedLoadIsRetried() throws Exception {
+
+        String key = "test|failure#0";
+        try {
+            SharedFieldProvider.acquire(key, () -> {
+                throw new IOException("unreadable record");
+            });
+        } catch (IOException ex) {
+            // expected
+        }
+        assertEquals(0, SharedFieldProvider.size());
+        float[] record = SharedFieldProvider.acquire(key, () -> new float[]{1.f});
+        assertEquals(1, record.length);
+        SharedFieldProvider.release(key);
+    }
+}
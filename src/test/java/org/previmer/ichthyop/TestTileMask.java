@@ -0,0 +1,98 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.TileMask;
+
+/**
+ * Checks the tiles activated around a particle and the rectangles read
+ * from the NetCDF files.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestTileMask {
+
+    @Test
+    public void activate() {
+
+        // 100 x 50 grid, 4 x 2 tiles of 30 cells, the last ones truncated
+        TileMask tiles = new TileMask(100, 50, 30);
+        assertEquals(8, tiles.getSize());
+        tiles.activate(25.5, 10.2, 6.);
+
+        // tiles (0, 0) and (1, 0) only
+        assertEquals(2, tiles.getCount());
+        assertTrue(tiles.isActive(59.9, 29.9));
+        assertFalse(tiles.isActive(60.1, 10.));
+        assertFalse(tiles.isActive(25.5, 30.1));
+        assertFalse(tiles.isFull());
+        // coverage of a particle with its stencil
+        assertTrue(tiles.isActive(30., 10., 5.));
+        assertFalse(tiles.isActive(55., 10., 6.));
+
+        // merged in a single rectangle, clipped to the staggered u grid
+        List<int[]> blocks = tiles.getBlocks(50, 99);
+        assertEquals(1, blocks.size());
+        assertArrayEquals(new int[]{0, 0, 30, 60}, blocks.get(0));
+
+        // truncated tiles at the edges of the grid
+        tiles.activate(99., 49., 0.);
+        blocks = tiles.getBlocks(50, 99);
+        assertEquals(2, blocks.size());
+        assertArrayEquals(new int[]{30, 90, 20, 9}, blocks.get(1));
+
+        tiles.activateAll();
+        assertTrue(tiles.isFull());
+        assertEquals("", tiles.signature());
+    }
+}
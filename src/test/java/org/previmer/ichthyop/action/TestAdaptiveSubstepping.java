@@ -0,0 +1,140 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package org.previmer.ichthyop.action;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.previmer.ichthyop.dataset.IDataset;
+import org.previmer.ichthyop.dataset.SyntheticRoms3dDataset;
+import org.previmer.ichthyop.particle.Particle;
+
+/**
+ * Checks that the dispersion reads the number of sub-steps of the current
+ * time step, whether it runs before or after the advection.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestAdaptiveSubstepping {
+
+    private final int NX = 60, NY = 50, NZ = 10;
+    private final double DT = 1800.d;
+    private final double CFL_MAX = 0.1d;
+    private final int MAX_SUBSTEPS = 16;
+
+    private final IDataset dataset = SyntheticRoms3dDataset.create(NX, NY, NZ);
+    /* The current of the synthetic dataset is the fastest at the edge of the
+     * domain and vanishes at its center */
+    private final double[] FAST = {NX / 2.d, 1.d, NZ / 2.d};
+    private final double[] SLOW = {(NX - 1) / 2.d, (NY - 1) / 2.d, NZ / 2.d};
+
+    /**
+     * The number of sub-steps computed from the velocity at the given
+     * position, independently of the particle layer.
+     */
+    private int expected(AdaptiveSubstepping substepping, double[] pGrid) {
+        double[] velocity = new double[3];
+        dataset.sampleVelocity(pGrid, 0.d, velocity);
+        double courant = Math.max(Math.abs(velocity[0]), Math.max(Math.abs(velocity[1]), Math.abs(velocity[2])));
+        return substepping.substeps(courant * DT);
+    }
+
+    @Test
+    public void dispersionBeforeAdvection() {
+        AdaptiveSubstepping substepping = new AdaptiveSubstepping(true, CFL_MAX, MAX_SUBSTEPS);
+        TestParticle particle = new TestParticle(FAST);
+        int expected = expected(substepping, FAST);
+        assertTrue(expected > 1);
+        // the dispersion asks first, on the first step of the simulation
+        int dispersion = substepping.getSubsteps(particle, dataset, 0.d, DT, 0);
+        int advection = substepping.getSubsteps(particle, dataset, 0.d, DT, 0);
+        assertEquals(expected, dispersion);
+        assertEquals(expected, advection);
+    }
+
+    @Test
+    public void noCountFromPreviousStep() {
+        AdaptiveSubstepping substepping = new AdaptiveSubstepping(true, CFL_MAX, MAX_SUBSTEPS);
+        TestParticle particle = new TestParticle(FAST);
+        int fast = substepping.getSubsteps(particle, dataset, 0.d, DT, 0);
+        // the particle moves and the dispersion runs first at the next step
+        particle.moveTo(SLOW);
+        int slow = substepping.getSubsteps(particle, dataset, DT, DT, 1);
+        assertEquals(expected(substepping, SLOW), slow);
+        assertTrue(slow < fast);
+    }
+
+    /**
+     * A particle that does not need the simulation to be set up.
+     */
+    private class TestParticle extends Particle {
+
+        private final double[] position = new double[3];
+
+        TestParticle(double[] position) {
+            moveTo(position);
+        }
+
+        private void moveTo(double[] position) {
+            System.arraycopy(position, 0, this.position, 0, 3);
+        }
+
+        @Override
+        public boolean is3D() {
+            return true;
+        }
+
+        @Override
+        public double[] getGridCoordinates() {
+            return position.clone();
+        }
+
+        @Override
+        public double[] getGridCoordinates(double[] pGrid) {
+            System.arraycopy(position, 0, pGrid, 0, pGrid.length);
+            return pGrid;
+        }
+    }
+}
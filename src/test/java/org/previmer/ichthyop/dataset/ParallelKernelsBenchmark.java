@@ -0,0 +1,103 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+/**
+ * Micro benchmark of the reconstruction of the sigma levels and of the
+ * vertical velocity on a synthetic ROMS grid, with the rows computed in
+ * sequence and in parallel. It is not part of the test suite, run it with
+ * {@code mvn test -Dtest=ParallelKernelsBenchmark}. The equivalence of both
+ * is tested by {@link TestParallelKernels}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ParallelKernelsBenchmark {
+
+    private final int NX = 400, NY = 300, NZ = 30;
+    private final int N_REPEATS = 5;
+
+    @AfterAll
+    public void enable() {
+        ParallelRows.setEnabled(true);
+    }
+
+    @Test
+    public void compareReconstructTime() {
+
+        SyntheticRoms3dDataset dataset = SyntheticRoms3dDataset.create(NX, NY, NZ);
+        FloatField zeta = new FloatField(NY, NX);
+        Random random = new Random(0);
+        for (int j = 0; j < NY; j++) {
+            for (int i = 0; i < NX; i++) {
+                zeta.set(j, i, 0.5f * random.nextFloat());
+            }
+        }
+
+        long[] timeSigLevels = new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] timeW = new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
+        // 0 serial, 1 parallel, repeated to let the JIT compile the kernels
+        for (int n = 0; n < N_REPEATS; n++) {
+            for (int p = 0; p < 2; p++) {
+                ParallelRows.setEnabled(p == 1);
+                long start = System.nanoTime();
+                DoubleField z_w = dataset.reconstructSigLevels(zeta);
+                timeSigLevels[p] = Math.min(timeSigLevels[p], System.nanoTime() - start);
+                start = System.nanoTime();
+                dataset.reconstructW(z_w);
+                timeW[p] = Math.min(timeW[p], System.nanoTime() - start);
+            }
+        }
+        System.out.println(String.format("Grid %dx%dx%d, %d processors", NX, NY, NZ, Runtime.getRuntime().availableProcessors()));
+        System.out.println(String.format("Sigma levels serial %.1f ms, parallel %.1f ms", timeSigLevels[0] * 1.e-6, timeSigLevels[1] * 1.e-6));
+        System.out.println(String.format("Vertical velocity serial %.1f ms, parallel %.1f ms", timeW[0] * 1.e-6, timeW[1] * 1.e-6));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+/**
+ * ROMS 3D dataset filled with analytical fields instead of NetCDF files, so
+ * that the interpolation and advection code can be exercised and timed
+ * without any input data. The grid has a uniform 1 km resolution, a flat
+ * bottom at 100 m, and the velocity is a steady double gyre.
+ *
+ * @author pverley
+ */
+public class SyntheticRoms3dDataset extends Roms3dDataset {
+
+    public static final double DEPTH = 100.d;
+
+    public static SyntheticRoms3dDataset create(int nx, int ny, int nz) {
+
+        SyntheticRoms3dDataset dataset = new SyntheticRoms3dDataset();
+        dataset.nx = nx;
+        dataset.ny = ny;
+        dataset.ipo = 0;
+        dataset.jpo = 0;
+        dataset.nz = nz;
+
+        dataset.maskRho = new byte[ny][nx];
+        dataset.hRho = new double[ny][nx];
+        dataset.lonRho = new double[ny][nx];
+        dataset.latRho = new double[ny][nx];
+        dataset.pm = new double[ny][nx];
+        dataset.pn = new double[ny][nx];
+        for (int j = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++) {
+                dataset.maskRho[j][i] = 1;
+                dataset.hRho[j][i] = DEPTH;
+                dataset.lonRho[j][i] = i * 0.01d;
+                dataset.latRho[j][i] = j * 0.01d;
+                dataset.pm[j][i] = 1.e-3d;
+                dataset.pn[j][i] = 1.e-3d;
+            }
+        }
+        dataset.landMask = new LandMask(nx, ny, 1, (i, j, k) -> dataset.maskRho[j][i] > 0);
+
+        dataset.u_tp0 = new FloatField(nz, ny, nx - 1);
+        dataset.v_tp0 = new FloatField(nz, ny - 1, nx);
+        dataset.w_tp0 = new FloatField(nz + 1, ny, nx);
+        dataset.zeta_tp0 = new FloatField(ny, nx);
+        for (int k = 0; k < nz; k++) {
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx - 1; i++) {
+                    dataset.u_tp0.set(k, j, i, (float) (-0.3d * Math.cos(Math.PI * j / (ny - 1))));
+                }
+            }
+            for (int j = 0; j < ny - 1; j++) {
+                for (int i = 0; i < nx; i++) {
+                    dataset.v_tp0.set(k, j, i, (float) (0.3d * Math.cos(Math.PI * i / (nx - 1))));
+                }
+            }
+        }
+        dataset.z_w_tp0 = new DoubleField(nz + 1, ny, nx);
+        for (int k = 0; k < nz + 1; k++) {
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx; i++) {
+                    dataset.z_w_tp0.set(k, j, i, -DEPTH + k * DEPTH / nz);
+                }
+            }
+        }
+        dataset.z_w_cst = dataset.z_w_tp0;
+        dataset.u_tp1 = dataset.u_tp0;
+        dataset.v_tp1 = dataset.v_tp0;
+        dataset.w_tp1 = dataset.w_tp0;
+        dataset.zeta_tp1 = dataset.zeta_tp0;
+        dataset.z_w_tp1 = dataset.z_w_tp0;
+        dataset.dt_HyMo = 3600.d;
+        dataset.time_tp1 = 3600.d;
+
+        return dataset;
+    }
+
+    /**
+     * Reconstructs the depth of the w points for the given free surface
+     * elevation.
+     */
+    public DoubleField reconstructSigLevels(FloatField zeta) {
+        return getSigLevels(zeta);
+    }
+
+    /**
+     * Reconstructs the vertical velocity from the horizontal velocity of the
+     * dataset and the given depth of the w points.
+     */
+    public FloatField reconstructW(DoubleField z_w) {
+        return computeW(z_w, u_tp1, v_tp1);
+    }
+}
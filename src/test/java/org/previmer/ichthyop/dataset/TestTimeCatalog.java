@@ -0,0 +1,193 @@
+/*
+ *
+ * ICHTHYOP, a Lagrangian tool for simulating ichthyoplankton dynamics
+ * http://www.ichthyop.org
+ *
+ * Copyright (C) IRD (Institut de Recherce pour le Developpement) 2006-2020
+ * http://www.ird.fr
+ *
+ * Main developper: Philippe VERLEY (philippe.verley@ird.fr), Nicolas Barrier (nicolas.barrier@ird.fr)
+ * Contributors (alphabetically sorted):
+ * Gwendoline ANDRES, Sylvain BONHOMMEAU, Bruno BLANKE, Timothee BROCHIER,
+ * Christophe HOURDIN, Mariem JELASSI, David KAPLAN, Fabrice LECORNU,
+ * Christophe LETT, Christian MULLON, Carolina PARADA, Pierrick PENVEN,
+ * Stephane POUS, Nathan PUTMAN.
+ *
+ * Ichthyop is a free Java tool designed to study the effects of physical and
+ * biological factors on ichthyoplankton dynamics. It incorporates the most
+ * important processes involved in fish early life: spawning, movement, growth,
+ * mortality and recruitment. The tool uses as input time series of velocity,
+ * temperature and salinity fields archived from oceanic models such as NEMO,
+ * ROMS, MARS or SYMPHONIE. It runs with a user-friendly graphic interface and
+ * generates output files that can be post-processed easily using graphic and
+ * statistical software.
+ *
+ * To cite Ichthyop, please refer to Lett et al. 2008
+ * A Lagrangian Tool for Modelling Ichthyoplankton Dynamics
+ * Environmental Modelling & Software 23, no. 9 (September 2008) 1210-1214
+ * doi:10.1016/j.envsoft.2008.02.005
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation (version 3 of the License). For a full
+ * description, see the LICENSE file.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.previmer.ichthyop.dataset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.NetcdfDatasets;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/**
+ * Checks that the time axes saved in the sidecar file of the time catalog
+ * are read back unchanged, that they are discarded when the NetCDF file
+ * changes and that the rank of a time is the same as when it was computed
+ * from the NetCDF file.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestTimeCatalog {
+
+    private final String UNITS = "days since 2000-01-01";
+
+    @TempDir
+    File directory;
+
+    private File write(String name, double... time) throws IOException {
+
+        File file = new File(directory, name);
+        NetcdfFormatWriter.Builder builder = NetcdfFormatWriter.builder().setNewFile(true).setLocation(file.getAbsolutePath());
+        Dimension timeDim = builder.addDimension("time", time.length);
+        builder.addVariable("time", DataType.DOUBLE, Arrays.asList(timeDim))
+                .addAttribute(new Attribute("units", UNITS));
+        try (NetcdfFormatWriter ncOut = builder.build()) {
+            ncOut.write(ncOut.findVariable("time"), Array.factory(DataType.DOUBLE, new int[]{time.length}, time));
+        } catch (InvalidRangeException ex) {
+            throw new IOException(ex);
+        }
+        return file;
+    }
+
+    private double[] values(TimeCatalog.Axis axis) {
+        double[] values = new double[axis.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = axis.getValue(i);
+        }
+        return values;
+    }
+
+    private List<String> sidecar() throws IOException {
+        return Files.readAllLines(new File(directory, TimeCatalog.SIDECAR).toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writeAndRestore() throws IOException {
+
+        double[] time0 = {0.d, 0.25d, 1.d / 3, 1.5d};
+        double[] time1 = {2.d, 2.5d, 3.d};
+        File file0 = write("his_0.nc", time0);
+        File file1 = write("his_1.nc", time1);
+        List<String> files = Arrays.asList(file1.getAbsolutePath(), file0.getAbsolutePath());
+
+        TimeCatalog.clear();
+        TimeCatalog.load(files, "time");
+        // header and one line per file
+        assertEquals(3, sidecar().size());
+
+        // read back from the sidecar file
+        TimeCatalog.clear();
+        TimeCatalog.Axis axis0 = TimeCatalog.get(file0.getAbsolutePath(), "time");
+        TimeCatalog.Axis axis1 = TimeCatalog.get(file1.getAbsolutePath(), "time");
+        assertArrayEquals(time0, values(axis0), 0.d);
+        assertArrayEquals(time1, values(axis1), 0.d);
+        assertTrue(sidecar().contains(axis0.toString()));
+        assertTrue(sidecar().contains(axis1.toString()));
+        for (int i = 0; i < time0.length; i++) {
+            assertEquals(DatasetUtil.getDate(time0[i], UNITS), axis0.getTime(i), 0.d);
+        }
+
+        // the sidecar file is trusted as long as the NetCDF file is unchanged
+        List<String> lines = sidecar();
+        lines.replaceAll(line -> line.startsWith(file0.getName()) ? line.replace(" 0.25 ", " 0.75 ") : line);
+        Files.write(new File(directory, TimeCatalog.SIDECAR).toPath(), lines, StandardCharsets.UTF_8);
+        TimeCatalog.clear();
+        assertEquals(0.75d, TimeCatalog.get(file0.getAbsolutePath(), "time").getValue(1), 0.d);
+
+        // but discarded and rebuilt once the NetCDF file has changed
+        assertTrue(file0.setLastModified(file0.lastModified() + 60000));
+        TimeCatalog.clear();
+        assertArrayEquals(time0, values(TimeCatalog.get(file0.getAbsolutePath(), "time")), 0.d);
+        double[] time2 = {4.d, 5.d};
+        write(file1.getName(), time2);
+        TimeCatalog.load(files, "time");
+        TimeCatalog.clear();
+        assertArrayEquals(time0, values(TimeCatalog.get(file0.getAbsolutePath(), "time")), 0.d);
+        assertArrayEquals(time2, values(TimeCatalog.get(file1.getAbsolutePath(), "time")), 0.d);
+        for (String line : sidecar()) {
+            if (line.startsWith(file0.getName())) {
+                assertEquals(String.valueOf(file0.lastModified()), line.split("\t")[3]);
+            }
+        }
+    }
+
+    /**
+     * The rank as computed from the NetCDF file before the time catalog.
+     */
+    private int rank(double time, double[] values, int timeArrow) {
+        int lrank = 0;
+        while (lrank < values.length) {
+            double nctime = DatasetUtil.getDate(values[lrank], UNITS);
+            if (time < nctime || (timeArrow < 0 && time == nctime)) {
+                break;
+            }
+            lrank++;
+        }
+        return lrank - (timeArrow + 1) / 2;
+    }
+
+    @Test
+    public void rank() throws IOException {
+
+        double[] values = {0.d, 0.5d, 1.d, 2.d, 5.d};
+        File file = write("avg.nc", values);
+        TimeCatalog.clear();
+        try (NetcdfFile nc = NetcdfDatasets.openDataset(file.getAbsolutePath())) {
+            double origin = DatasetUtil.getDate(0.d, UNITS);
+            for (double day = -1.d; day <= 6.d; day += 0.25d) {
+                double time = origin + day * 86400.d;
+                for (int timeArrow : new int[]{1, -1}) {
+                    assertEquals(rank(time, values, timeArrow), DatasetUtil.rank(time, nc, "time", timeArrow));
+                }
+            }
+        }
+    }
+}